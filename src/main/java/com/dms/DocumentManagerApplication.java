@@ -3,15 +3,20 @@ package com.dms;
 import com.dms.config.AdminUserProperties;
 import com.dms.config.ArchiveProperties;
 import com.dms.config.BlobStorageProperties;
+import com.dms.config.BulkImportProperties;
 import com.dms.config.HashProperties;
 import com.dms.config.KeyProperties;
 import com.dms.config.ServerProperties;
 import com.dms.config.TokenProperties;
+import com.dms.config.UploadProperties;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.Arrays;
+
 /**
  * Main entry point for the Document Manager Application.
  * This class initializes and configures the Spring Boot application.
@@ -29,18 +34,28 @@ import org.springframework.scheduling.annotation.EnableScheduling;
         ArchiveProperties.class,
         TokenProperties.class,
         KeyProperties.class,
-        AdminUserProperties.class
+        AdminUserProperties.class,
+        UploadProperties.class,
+        BulkImportProperties.class
     }
 )
 public class DocumentManagerApplication {
 
     /**
      * Main method to start the Document Manager Application.
+     * If the {@code --bulk-import.directory} argument is passed, the files of the directory are imported without starting
+     * the web server, see {@link com.dms.config.BulkImportRunner}.
      *
      * @param args command-line arguments passed to the application
      */
     public static void main(String[] args) {
-        SpringApplication.run(DocumentManagerApplication.class, args);
+        SpringApplication application = new SpringApplication(DocumentManagerApplication.class);
+
+        if (Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + BulkImportProperties.DIRECTORY_PROPERTY + "="))) {
+            application.setWebApplicationType(WebApplicationType.NONE);
+        }
+
+        application.run(args);
     }
 
 }
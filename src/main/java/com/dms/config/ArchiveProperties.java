@@ -22,4 +22,11 @@ public class ArchiveProperties {
     @Value("${archive.retention-period-days:60}")
     int retentionPeriodInDays;
 
+    /**
+     * Number of expired documents deleted in one transaction of the archive cleanup.
+     * Default value is 500.
+     */
+    @Value("${archive.cleanup-batch-size:500}")
+    int cleanupBatchSize;
+
 }
@@ -1,10 +1,12 @@
 package com.dms.config;
 
+import com.dms.storage.BlobStoreType;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.unit.DataSize;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
@@ -19,6 +21,7 @@ import java.nio.file.Paths;
  * Properties are prefixed with "storage".
  * <p>
  * Validates the storage properties and ensures the existence of the specified storage path.
+ * The path is used by every type of the store, as uploaded contents are staged there while they are hashed.
  *
  * @author Jakub Pavlíček
  * @version 1.0
@@ -29,6 +32,13 @@ import java.nio.file.Paths;
 @Getter
 public class BlobStorageProperties implements Validator {
 
+    /**
+     * The type of the store holding the blobs.
+     * Default value is "filesystem".
+     */
+    @Value("${storage.type:filesystem}")
+    private BlobStoreType type;
+
     /** The path to the blob storage directory. */
     @Value("${storage.path}")
     private String path;
@@ -49,6 +59,141 @@ public class BlobStorageProperties implements Validator {
     @Value("${storage.subdirectory-prefix-length:2}")
     private int subdirectoryPrefixLength;
 
+    /**
+     * Whether blobs smaller than the pack threshold are appended to pack files instead of being stored in their own files.
+     * Used only by the file system store.
+     * Default value is false.
+     */
+    @Value("${storage.pack.enabled:false}")
+    private boolean packEnabled;
+
+    /**
+     * The size from which blobs are stored in their own files.
+     * Default value is 64KB.
+     */
+    @Value("${storage.pack.threshold:64KB}")
+    private DataSize packThreshold;
+
+    /**
+     * The maximal size of a pack file.
+     * Default value is 256MB.
+     */
+    @Value("${storage.pack.max-size:256MB}")
+    private DataSize packMaxSize;
+
+    /**
+     * Whether blobs are compressed before they are stored, unless their content is already compressed.
+     * Default value is false.
+     */
+    @Value("${storage.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    /**
+     * The level of the Deflate compression.
+     * Must be between 1 and 9 inclusive.
+     * Default value is 6.
+     */
+    @Min(
+        value = 1,
+        message = "Minimal compression level is 1"
+    )
+    @Max(
+        value = 9,
+        message = "Maximum compression level is 9"
+    )
+    @Value("${storage.compression.level:6}")
+    private int compressionLevel;
+
+    /**
+     * Whether large blobs are split into content-defined chunks, which are stored once and shared by the blobs containing them.
+     * Default value is false.
+     */
+    @Value("${storage.chunking.enabled:false}")
+    private boolean chunkingEnabled;
+
+    /**
+     * The size from which blobs are split into chunks.
+     * Default value is 1MB.
+     */
+    @Value("${storage.chunking.min-blob-size:1MB}")
+    private DataSize chunkingMinBlobSize;
+
+    /**
+     * The average size of a chunk, rounded down to a power of two.
+     * Must be between 1KB and 1MB inclusive.
+     * Default value is 32KB.
+     */
+    @Value("${storage.chunking.average-chunk-size:32KB}")
+    private DataSize chunkingAverageChunkSize;
+
+    /**
+     * Whether new versions of documents are stored as binary deltas against their previous versions.
+     * Default value is false.
+     */
+    @Value("${storage.delta.enabled:false}")
+    private boolean deltaEnabled;
+
+    /**
+     * The size from which blobs are always stored whole, as deltas are computed and reconstructed in memory.
+     * Must not be larger than 1GB.
+     * Default value is 16MB.
+     */
+    @Value("${storage.delta.max-blob-size:16MB}")
+    private DataSize deltaMaxBlobSize;
+
+    /**
+     * The maximal number of deltas between a version and a version stored whole (a keyframe).
+     * Must be between 1 and 100 inclusive.
+     * Default value is 10.
+     */
+    @Min(
+        value = 1,
+        message = "Minimal delta chain length is 1"
+    )
+    @Max(
+        value = 100,
+        message = "Maximum delta chain length is 100"
+    )
+    @Value("${storage.delta.max-chain-length:10}")
+    private int deltaMaxChainLength;
+
+    /**
+     * The maximal total size of the cached reconstructed versions.
+     * Default value is 64MB.
+     */
+    @Value("${storage.delta.cache-size:64MB}")
+    private DataSize deltaCacheSize;
+
+    /**
+     * Whether the in-memory store keeps the blobs in direct buffers outside the heap.
+     * Default value is false.
+     */
+    @Value("${storage.memory.off-heap:false}")
+    private boolean memoryOffHeap;
+
+    /** The endpoint of the S3-compatible storage (e.g. http://localhost:9000). */
+    @Value("${storage.s3.endpoint:}")
+    private String s3Endpoint;
+
+    /** The name of the bucket holding the blobs. */
+    @Value("${storage.s3.bucket:}")
+    private String s3Bucket;
+
+    /**
+     * The region of the S3-compatible storage.
+     * Default value is "us-east-1".
+     */
+    @Value("${storage.s3.region:us-east-1}")
+    private String s3Region;
+
+    /** The access key of the S3-compatible storage. */
+    @Value("${storage.s3.access-key:}")
+    private String s3AccessKey;
+
+    /** The secret key of the S3-compatible storage. */
+    @Value("${storage.s3.secret-key:}")
+    private String s3SecretKey;
+
     /**
      * Checks if the specified class is supported for validation.
      *
@@ -88,6 +233,50 @@ public class BlobStorageProperties implements Validator {
             log.error(message);
             errors.rejectValue("path", "Path Is Not A Directory", message);
         }
+
+        // check if the pack files can hold the packed blobs
+        if (packEnabled && packThreshold.compareTo(packMaxSize) > 0) {
+            String message = "Pack threshold must not be larger than the maximal size of a pack file";
+            log.error(message);
+            errors.rejectValue("packThreshold", "Pack Threshold Too Large", message);
+        }
+
+        // check if the chunks are neither too small to be tracked nor too large to be buffered
+        if (chunkingEnabled && (chunkingAverageChunkSize.compareTo(DataSize.ofKilobytes(1)) < 0 || chunkingAverageChunkSize.compareTo(DataSize.ofMegabytes(1)) > 0)) {
+            String message = "Average chunk size must be between 1KB and 1MB";
+            log.error(message);
+            errors.rejectValue("chunkingAverageChunkSize", "Invalid Average Chunk Size", message);
+        }
+
+        // check if the versions fit into the arrays they are reconstructed in
+        if (deltaEnabled && deltaMaxBlobSize.compareTo(DataSize.ofGigabytes(1)) > 0) {
+            String message = "Maximal size of a blob stored as a delta must not be larger than 1GB";
+            log.error(message);
+            errors.rejectValue("deltaMaxBlobSize", "Delta Blob Size Too Large", message);
+        }
+
+        // check if the S3-compatible storage is fully configured
+        if (type == BlobStoreType.S3) {
+            rejectIfBlank(errors, "s3Endpoint", s3Endpoint, "S3 endpoint must be provided");
+            rejectIfBlank(errors, "s3Bucket", s3Bucket, "S3 bucket must be provided");
+            rejectIfBlank(errors, "s3AccessKey", s3AccessKey, "S3 access key must be provided");
+            rejectIfBlank(errors, "s3SecretKey", s3SecretKey, "S3 secret key must be provided");
+        }
+    }
+
+    /**
+     * Rejects the property if its value is blank.
+     *
+     * @param errors stores and exposes information about data-binding and validation errors
+     * @param field the name of the property
+     * @param value the value of the property
+     * @param message the message of the error
+     */
+    private void rejectIfBlank(Errors errors, String field, String value, String message) {
+        if (value == null || value.isBlank()) {
+            log.error(message);
+            errors.rejectValue(field, "S3 Storage Not Configured", message);
+        }
     }
 
 }
@@ -0,0 +1,127 @@
+package com.dms.config;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.ChunkReferences;
+import com.dms.storage.ChunkingBlobStore;
+import com.dms.storage.CompressingBlobStore;
+import com.dms.storage.DeltaBlobStore;
+import com.dms.storage.FileSystemBlobStore;
+import com.dms.storage.InMemoryBlobStore;
+import com.dms.storage.PackedBlobStore;
+import com.dms.storage.S3BlobStore;
+import com.dms.storage.S3RequestSigner;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+
+/**
+ * Configuration class for the store holding the blobs.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Configuration
+@Log4j2
+@RequiredArgsConstructor
+public class BlobStoreConfig {
+
+    /** Properties related to blob storage configuration. */
+    private final BlobStorageProperties blobStorageProperties;
+
+    /** Reference counts of the chunks shared by the chunked blobs. */
+    private final ChunkReferences chunkReferences;
+
+    /**
+     * Creates the store of the type selected by the {@code storage.type} property.
+     * The file system store packs small blobs into pack files, if it is enabled by the {@code storage.pack.enabled} property.
+     * Blobs of any store are compressed, if it is enabled by the {@code storage.compression.enabled} property.
+     * Large blobs are split into chunks before they are compressed, if it is enabled by the {@code storage.chunking.enabled} property.
+     * New versions of documents are stored as deltas before anything else, if it is enabled by the {@code storage.delta.enabled} property.
+     *
+     * @return the {@link BlobStore} object
+     * @throws IOException if the pack files could not be opened
+     */
+    @Bean
+    public BlobStore blobStore() throws IOException {
+        log.info("Using {} blob store", blobStorageProperties.getType());
+
+        BlobStore blobStore = switch (blobStorageProperties.getType()) {
+            case FILESYSTEM -> createFileSystemBlobStore();
+            case MEMORY -> new InMemoryBlobStore(blobStorageProperties.isMemoryOffHeap());
+            case S3 -> new S3BlobStore(
+                blobStorageProperties.getS3Endpoint(),
+                blobStorageProperties.getS3Bucket(),
+                new S3RequestSigner(blobStorageProperties.getS3Region(), blobStorageProperties.getS3AccessKey(), blobStorageProperties.getS3SecretKey()),
+                Clock.systemUTC()
+            );
+        };
+
+        if (blobStorageProperties.isCompressionEnabled()) {
+            log.info("Compressing blobs using Deflate level {}", blobStorageProperties.getCompressionLevel());
+
+            // compressed contents are written next to the staged uploads, so the file system store can move them
+            Path tempDirectoryPath = Paths.get(blobStorageProperties.getPath(), FileSystemBlobStore.TEMP_DIRECTORY);
+
+            blobStore = new CompressingBlobStore(blobStore, tempDirectoryPath, blobStorageProperties.getCompressionLevel());
+        }
+
+        if (blobStorageProperties.isChunkingEnabled()) {
+            log.info(
+                "Splitting blobs of at least {} into chunks of {} on average",
+                blobStorageProperties.getChunkingMinBlobSize(),
+                blobStorageProperties.getChunkingAverageChunkSize()
+            );
+
+            blobStore = new ChunkingBlobStore(
+                blobStore,
+                chunkReferences,
+                blobStorageProperties.getChunkingMinBlobSize().toBytes(),
+                (int) blobStorageProperties.getChunkingAverageChunkSize().toBytes()
+            );
+        }
+
+        if (blobStorageProperties.isDeltaEnabled()) {
+            log.info("Storing new versions of blobs up to {} as deltas, with a keyframe after {} deltas", blobStorageProperties.getDeltaMaxBlobSize(), blobStorageProperties.getDeltaMaxChainLength());
+
+            blobStore = new DeltaBlobStore(
+                blobStore,
+                blobStorageProperties.getDeltaMaxBlobSize().toBytes(),
+                blobStorageProperties.getDeltaMaxChainLength(),
+                blobStorageProperties.getDeltaCacheSize().toBytes()
+            );
+        }
+
+        return blobStore;
+    }
+
+    /**
+     * Creates the file system store, wrapped by the store of pack files if packing is enabled.
+     *
+     * @return the {@link BlobStore} object
+     * @throws IOException if the pack files could not be opened
+     */
+    private BlobStore createFileSystemBlobStore() throws IOException {
+        Path storagePath = Paths.get(blobStorageProperties.getPath());
+        BlobStore fileSystemBlobStore = new FileSystemBlobStore(storagePath, blobStorageProperties.getSubdirectoryPrefixLength());
+
+        if (!blobStorageProperties.isPackEnabled()) {
+            return fileSystemBlobStore;
+        }
+
+        log.info("Packing blobs smaller than {} into pack files", blobStorageProperties.getPackThreshold());
+
+        return new PackedBlobStore(
+            fileSystemBlobStore,
+            storagePath.resolve(PackedBlobStore.PACK_DIRECTORY),
+            blobStorageProperties.getPackThreshold().toBytes(),
+            blobStorageProperties.getPackMaxSize().toBytes()
+        );
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.dms.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the bulk import of a directory tree, usually passed on the command line.
+ * Properties are prefixed with "bulk-import".
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@ConfigurationProperties(prefix = "bulk-import")
+@Getter
+public class BulkImportProperties {
+
+    /** Name of the property holding the directory, which switches the application to the bulk import. */
+    public static final String DIRECTORY_PROPERTY = "bulk-import.directory";
+
+    /**
+     * The directory whose files are imported. The application imports the files and exits instead of serving requests
+     * if it is set.
+     */
+    @Value("${bulk-import.directory:}")
+    private String directory;
+
+    /**
+     * The email of the user who becomes the author of the imported documents.
+     */
+    @Value("${bulk-import.user:}")
+    private String user;
+
+    /**
+     * The path the directory is imported to, its subdirectories are appended to it.
+     * Default value is "/".
+     */
+    @Value("${bulk-import.path:/}")
+    private String path;
+
+    /**
+     * Whether the files are hard linked into the blob storage instead of copied, where the file system allows it.
+     * A linked blob shares its content with the original file, so the imported tree must not be modified afterwards.
+     * Default value is false.
+     */
+    @Value("${bulk-import.link:false}")
+    private boolean link;
+
+    /**
+     * The number of threads hashing and storing the files in parallel.
+     * Default value is the number of available processors.
+     */
+    @Value("${bulk-import.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int threads;
+
+    /**
+     * The number of documents saved in one transaction.
+     * Default value is 500.
+     */
+    @Value("${bulk-import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * The interval of logging the progress and the throughput of the import.
+     * Default value is 10 seconds.
+     */
+    @Value("${bulk-import.report-interval:10s}")
+    private Duration reportInterval;
+
+}
@@ -0,0 +1,52 @@
+package com.dms.config;
+
+import com.dms.service.BulkImportService;
+import com.dms.upload.BulkImportReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+
+/**
+ * This class runs the bulk import of a directory tree when the application is started with the
+ * {@code --bulk-import.directory} argument, for example
+ * {@code java -jar document-manager.jar --bulk-import.directory=/srv/files --bulk-import.user=james@gmail.com --bulk-import.path=/files}.
+ * The application exits once the import is finished, with a non-zero status if any file could not be imported.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Component
+@ConditionalOnProperty(prefix = "bulk-import", name = "directory")
+@RequiredArgsConstructor
+public class BulkImportRunner implements ApplicationRunner {
+
+    /** Service importing the directory tree. */
+    private final BulkImportService bulkImportService;
+
+    /** Properties related to the bulk import. */
+    private final BulkImportProperties bulkImportProperties;
+
+    /** Context of the application, closed after the import. */
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        BulkImportReport report = bulkImportService.importDirectory(
+            Paths.get(bulkImportProperties.getDirectory()),
+            bulkImportProperties.getUser(),
+            bulkImportProperties.getPath()
+        );
+
+        // the scheduled tasks would keep the application running
+        ExitCodeGenerator exitCodeGenerator = () -> report.failedCount() == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(context, exitCodeGenerator));
+    }
+
+}
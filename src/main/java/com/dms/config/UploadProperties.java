@@ -0,0 +1,70 @@
+package com.dms.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for files uploaded in chunks or as a raw request body, defined in application.yaml.
+ * Properties are prefixed with "upload".
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@ConfigurationProperties(prefix = "upload")
+@Getter
+public class UploadProperties {
+
+    /**
+     * The maximal size of a file uploaded in chunks or as a raw request body.
+     * Default value is 100GB.
+     */
+    @Value("${upload.max-size:100GB}")
+    private DataSize maxSize;
+
+    /**
+     * The maximal total size of the entries extracted from an imported archive.
+     * Default value is 100GB.
+     */
+    @Value("${upload.max-import-size:100GB}")
+    private DataSize maxImportSize;
+
+    /**
+     * The maximal ratio of the total size of the entries extracted from an imported archive to the size of the archive.
+     * Default value is 100.
+     */
+    @Value("${upload.max-compression-ratio:100}")
+    private long maxCompressionRatio;
+
+    /**
+     * The maximal size of a single chunk.
+     * Default value is 64MB.
+     */
+    @Value("${upload.max-chunk-size:64MB}")
+    private DataSize maxChunkSize;
+
+    /**
+     * The time after the last received chunk when an upload which was not committed is discarded.
+     * Default value is 24 hours.
+     */
+    @Value("${upload.expiration:24h}")
+    private Duration expiration;
+
+    /**
+     * The number of threads storing the files uploaded in one request in parallel, shared by all requests.
+     * Default value is the number of available processors.
+     */
+    @Value("${upload.batch-threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int batchThreads;
+
+    /**
+     * The number of threads storing the entries of imported archives in parallel, shared by all imports.
+     * Default value is the number of available processors.
+     */
+    @Value("${upload.import-threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int importThreads;
+
+}
@@ -0,0 +1,40 @@
+package com.dms.config;
+
+import com.dms.converter.FileChannelResourceHttpMessageConverter;
+import com.dms.converter.FileChannelResourceRegionHttpMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Configuration class for Spring MVC settings.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Replaces the default resource converters with converters writing files using sendfile or {@link java.nio.channels.FileChannel#transferTo}.
+     *
+     * @param converters the list of configured converters
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(converter -> {
+            if (converter.getClass() == ResourceHttpMessageConverter.class) {
+                return new FileChannelResourceHttpMessageConverter();
+            }
+            if (converter.getClass() == ResourceRegionHttpMessageConverter.class) {
+                return new FileChannelResourceRegionHttpMessageConverter();
+            }
+            return converter;
+        });
+    }
+
+}
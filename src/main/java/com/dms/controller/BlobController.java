@@ -0,0 +1,31 @@
+package com.dms.controller;
+
+import com.dms.BlobsApi;
+import com.dms.service.DocumentService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller handling {@code /blobs} endpoints.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@RestController
+@RequiredArgsConstructor
+public class BlobController implements BlobsApi {
+
+    /** Service responsible for document management operations. */
+    private final DocumentService documentService;
+
+    @Override
+    public ResponseEntity<Void> checkBlob(String hash) {
+        Long size = documentService.getBlobSize(hash);
+
+        return ResponseEntity.ok()
+                             .contentLength(size)
+                             .build();
+    }
+
+}
@@ -1,16 +1,25 @@
 package com.dms.controller;
 
 import com.dms.DocumentsApi;
+import com.dms.dto.BatchUploadDTO;
 import com.dms.dto.DestinationDTO;
 import com.dms.dto.DocumentDTO;
+import com.dms.dto.DocumentFromHashDTO;
+import com.dms.dto.DocumentVersionFromHashDTO;
 import com.dms.dto.PageWithDocumentsDTO;
 import com.dms.dto.PageWithRevisionsDTO;
 import com.dms.entity.Document;
 import com.dms.entity.DocumentRevision;
+import com.dms.exception.InvalidUploadException;
+import com.dms.mapper.dto.BatchUploadDTOMapper;
 import com.dms.mapper.dto.DocumentDTOMapper;
 import com.dms.mapper.dto.PageWithDocumentsDTOMapper;
 import com.dms.mapper.dto.PageWithRevisionsDTOMapper;
+import com.dms.pagination.KeysetPage;
+import com.dms.service.BatchUploadService;
 import com.dms.service.DocumentService;
+import com.dms.service.ZipDownloadService;
+import com.dms.upload.BatchUploadResult;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
@@ -18,6 +27,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * Controller handling {@code /documents} endpoints.
@@ -31,6 +45,10 @@ public class DocumentController implements DocumentsApi {
 
     /** Service responsible for document management operations. */
     private final DocumentService documentService;
+    /** Service responsible for several files uploaded in one request. */
+    private final BatchUploadService batchUploadService;
+    /** Service responsible for several documents downloaded as one archive. */
+    private final ZipDownloadService zipDownloadService;
 
     @Override
     public ResponseEntity<Void> archiveDocument(String documentId) {
@@ -45,8 +63,15 @@ public class DocumentController implements DocumentsApi {
     }
 
     @Override
-    public ResponseEntity<Resource> downloadDocument(String documentId) {
-        return documentService.downloadDocument(documentId);
+    public ResponseEntity<Resource> downloadDocument(String documentId, String range, String ifRange, String ifNoneMatch) {
+        // the Range header itself is applied by the resource message converters
+        return documentService.downloadDocument(documentId, ifNoneMatch, ifRange);
+    }
+
+    @Override
+    public ResponseEntity<Resource> downloadDocuments(String path, List<String> documentIds) {
+        // the archive is written by the resource message converter while it is built
+        return zipDownloadService.downloadDocuments(path, documentIds);
     }
 
     @Override
@@ -66,7 +91,13 @@ public class DocumentController implements DocumentsApi {
     }
 
     @Override
-    public ResponseEntity<PageWithDocumentsDTO> getDocuments(Integer page, Integer limit, String sort, String filter) {
+    public ResponseEntity<PageWithDocumentsDTO> getDocuments(Integer page, Integer limit, String cursor, String sort, String filter) {
+        // cursor was provided -> use keyset pagination
+        if (cursor != null) {
+            KeysetPage<Document> documents = documentService.getDocumentsByCursor(cursor, limit, sort, filter);
+            return ResponseEntity.ok(PageWithDocumentsDTOMapper.map(documents));
+        }
+
         Page<Document> documents = documentService.getDocuments(page, limit, sort, filter);
         PageWithDocumentsDTO pageWithDocumentsDTO = PageWithDocumentsDTOMapper.map(documents);
 
@@ -105,6 +136,22 @@ public class DocumentController implements DocumentsApi {
         return ResponseEntity.status(HttpStatus.CREATED).body(documentDTO);
     }
 
+    @Override
+    public ResponseEntity<BatchUploadDTO> uploadDocuments(List<MultipartFile> files, DestinationDTO destination) {
+        List<BatchUploadResult> results = batchUploadService.uploadDocuments(files, destination.getPath());
+        BatchUploadDTO batchUploadDTO = BatchUploadDTOMapper.map(results);
+
+        return ResponseEntity.ok(batchUploadDTO);
+    }
+
+    @Override
+    public ResponseEntity<DocumentDTO> uploadDocumentFromHash(DocumentFromHashDTO documentFromHash) {
+        Document document = documentService.uploadDocumentFromHash(documentFromHash.getHash(), documentFromHash.getName(), documentFromHash.getType(), documentFromHash.getPath());
+        DocumentDTO documentDTO = DocumentDTOMapper.map(document);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(documentDTO);
+    }
+
     @Override
     public ResponseEntity<DocumentDTO> uploadNewDocumentVersion(String documentId, MultipartFile file, DestinationDTO destination) {
         // destination is optional parameter
@@ -116,4 +163,45 @@ public class DocumentController implements DocumentsApi {
         return ResponseEntity.status(HttpStatus.CREATED).body(documentDTO);
     }
 
-}
+    @Override
+    public ResponseEntity<DocumentDTO> uploadNewDocumentVersionFromHash(String documentId, DocumentVersionFromHashDTO documentVersionFromHash) {
+        // path is optional, the current path is kept if not provided
+        Document document = documentService.uploadNewDocumentVersionFromHash(documentId, documentVersionFromHash.getHash(), documentVersionFromHash.getName(), documentVersionFromHash.getType(), documentVersionFromHash.getPath());
+        DocumentDTO documentDTO = DocumentDTOMapper.map(document);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(documentDTO);
+    }
+
+    @Override
+    public ResponseEntity<DocumentDTO> uploadRawDocument(String xDocumentName, InputStream body, String xDocumentPath, String xDocumentType) {
+        Document document = documentService.uploadDocument(body, decodeName(xDocumentName), xDocumentType, xDocumentPath);
+        DocumentDTO documentDTO = DocumentDTOMapper.map(document);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(documentDTO);
+    }
+
+    @Override
+    public ResponseEntity<DocumentDTO> uploadRawNewDocumentVersion(String documentId, String xDocumentName, InputStream body, String xDocumentPath, String xDocumentType) {
+        // path is optional, the current path is kept if not provided
+        Document document = documentService.uploadNewDocumentVersion(documentId, body, decodeName(xDocumentName), xDocumentType, xDocumentPath);
+        DocumentDTO documentDTO = DocumentDTOMapper.map(document);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(documentDTO);
+    }
+
+    /**
+     * Decodes the percent-encoded name of a document sent in a header.
+     *
+     * @param name the percent-encoded name
+     * @return the decoded name
+     * @throws InvalidUploadException if the name is not percent-encoded correctly
+     */
+    private static String decodeName(String name) {
+        try {
+            return UriUtils.decode(name, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidUploadException("Name of the document is not percent-encoded correctly");
+        }
+    }
+
+}
\ No newline at end of file
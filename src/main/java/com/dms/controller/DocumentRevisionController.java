@@ -6,6 +6,7 @@ import com.dms.dto.PageWithRevisionsDTO;
 import com.dms.entity.DocumentRevision;
 import com.dms.mapper.dto.DocumentRevisionDTOMapper;
 import com.dms.mapper.dto.PageWithRevisionsDTOMapper;
+import com.dms.pagination.KeysetPage;
 import com.dms.service.DocumentRevisionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
@@ -33,8 +34,9 @@ public class DocumentRevisionController implements RevisionsApi {
     }
 
     @Override
-    public ResponseEntity<Resource> downloadRevision(String revisionId) {
-        return revisionService.downloadRevision(revisionId);
+    public ResponseEntity<Resource> downloadRevision(String revisionId, String range, String ifRange, String ifNoneMatch) {
+        // the Range header itself is applied by the resource message converters
+        return revisionService.downloadRevision(revisionId, ifNoneMatch, ifRange);
     }
 
     @Override
@@ -46,7 +48,13 @@ public class DocumentRevisionController implements RevisionsApi {
     }
 
     @Override
-    public ResponseEntity<PageWithRevisionsDTO> getRevisions(Integer page, Integer limit, String sort, String filter) {
+    public ResponseEntity<PageWithRevisionsDTO> getRevisions(Integer page, Integer limit, String cursor, String sort, String filter) {
+        // cursor was provided -> use keyset pagination
+        if (cursor != null) {
+            KeysetPage<DocumentRevision> revisions = revisionService.getRevisionsByCursor(cursor, limit, sort, filter);
+            return ResponseEntity.ok(PageWithRevisionsDTOMapper.map(revisions));
+        }
+
         Page<DocumentRevision> revisions = revisionService.getRevisions(page, limit, sort, filter);
         PageWithRevisionsDTO pageWithRevisionsDTO = PageWithRevisionsDTOMapper.map(revisions);
 
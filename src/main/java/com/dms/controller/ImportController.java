@@ -0,0 +1,54 @@
+package com.dms.controller;
+
+import com.dms.ImportsApi;
+import com.dms.dto.ImportDTO;
+import com.dms.dto.ImportRequestDTO;
+import com.dms.mapper.dto.ImportDTOMapper;
+import com.dms.service.ImportService;
+import com.dms.upload.ImportSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+/**
+ * Controller handling {@code /imports} endpoints.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@RestController
+@RequiredArgsConstructor
+public class ImportController implements ImportsApi {
+
+    /** Service responsible for archives expanded into documents. */
+    private final ImportService importService;
+
+    @Override
+    public ResponseEntity<ImportDTO> createImport(ImportRequestDTO importRequest) {
+        ImportSession importSession = importService.createImport(importRequest.getPath());
+        ImportDTO importDTO = ImportDTOMapper.map(importSession);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(importDTO);
+    }
+
+    @Override
+    public ResponseEntity<ImportDTO> getImport(String importId) {
+        ImportSession importSession = importService.getImport(importId);
+        ImportDTO importDTO = ImportDTOMapper.map(importSession);
+
+        return ResponseEntity.ok(importDTO);
+    }
+
+    @Override
+    public ResponseEntity<ImportDTO> uploadImportArchive(String importId, InputStream body) {
+        // the archive is expanded while it is streamed from the request body
+        ImportSession importSession = importService.importArchive(importId, body);
+        ImportDTO importDTO = ImportDTOMapper.map(importSession);
+
+        return ResponseEntity.ok(importDTO);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.dms.controller;
+
+import com.dms.UploadsApi;
+import com.dms.dto.DocumentDTO;
+import com.dms.dto.UploadDTO;
+import com.dms.dto.UploadRequestDTO;
+import com.dms.entity.Document;
+import com.dms.mapper.dto.DocumentDTOMapper;
+import com.dms.mapper.dto.UploadDTOMapper;
+import com.dms.service.UploadService;
+import com.dms.upload.UploadSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+/**
+ * Controller handling {@code /uploads} endpoints.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@RestController
+@RequiredArgsConstructor
+public class UploadController implements UploadsApi {
+
+    /** Service responsible for files uploaded in chunks. */
+    private final UploadService uploadService;
+
+    @Override
+    public ResponseEntity<DocumentDTO> commitUpload(String uploadId) {
+        Document document = uploadService.commitUpload(uploadId);
+        DocumentDTO documentDTO = DocumentDTOMapper.map(document);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(documentDTO);
+    }
+
+    @Override
+    public ResponseEntity<UploadDTO> createUpload(UploadRequestDTO uploadRequest) {
+        UploadSession upload = uploadService.createUpload(uploadRequest.getSize(), uploadRequest.getName(), uploadRequest.getType(), uploadRequest.getPath(), uploadRequest.getDocumentId());
+        UploadDTO uploadDTO = UploadDTOMapper.map(upload);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadDTO);
+    }
+
+    @Override
+    public ResponseEntity<Void> deleteUpload(String uploadId) {
+        uploadService.deleteUpload(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Override
+    public ResponseEntity<UploadDTO> getUpload(String uploadId) {
+        UploadSession upload = uploadService.getUpload(uploadId);
+        UploadDTO uploadDTO = UploadDTOMapper.map(upload);
+
+        return ResponseEntity.ok(uploadDTO);
+    }
+
+    @Override
+    public ResponseEntity<UploadDTO> uploadChunk(String uploadId, Long offset, InputStream body) {
+        // the chunk is streamed from the request body straight to the file of the upload
+        UploadSession upload = uploadService.uploadChunk(uploadId, offset, body);
+        UploadDTO uploadDTO = UploadDTOMapper.map(upload);
+
+        return ResponseEntity.ok(uploadDTO);
+    }
+
+}
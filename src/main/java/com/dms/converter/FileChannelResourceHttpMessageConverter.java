@@ -0,0 +1,35 @@
+package com.dms.converter;
+
+import com.dms.download.ZipStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+
+import java.io.IOException;
+
+/**
+ * {@link ResourceHttpMessageConverter} which writes file-backed resources using sendfile or {@link java.nio.channels.FileChannel#transferTo}.
+ * ZIP archives built while they are written are streamed to the response, other resources are written by the default implementation.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class FileChannelResourceHttpMessageConverter extends ResourceHttpMessageConverter {
+
+    @Override
+    protected void writeContent(Resource resource, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+        if (resource instanceof ZipStreamResource zipStreamResource) {
+            zipStreamResource.writeTo(outputMessage.getBody());
+            return;
+        }
+
+        if (!FileChannelTransfer.isFile(resource)) {
+            super.writeContent(resource, outputMessage);
+            return;
+        }
+
+        FileChannelTransfer.write(resource, 0, resource.contentLength(), outputMessage);
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.dms.converter;
+
+import com.dms.storage.BlobStoreResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * {@link ResourceRegionHttpMessageConverter} which writes regions of file-backed resources using sendfile or {@link java.nio.channels.FileChannel#transferTo}.
+ * Used for {@code 206 Partial Content} responses, both for a single range and for multiple ranges ({@code multipart/byteranges}).
+ * Regions of blobs which are not stored in files are read from the blob store by ranged reads, so the skipped bytes are never transferred.
+ * Regions of other resources are written by the default implementation.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class FileChannelResourceRegionHttpMessageConverter extends ResourceRegionHttpMessageConverter {
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+        if (object instanceof Collection<?> regions && regions.size() > 1 && areRangedRegions(regions)) {
+            @SuppressWarnings("unchecked")
+            Collection<ResourceRegion> resourceRegions = (Collection<ResourceRegion>) regions;
+            writeRangedRegions(resourceRegions, outputMessage);
+            return;
+        }
+
+        super.writeInternal(object, type, outputMessage);
+    }
+
+    @Override
+    protected void writeResourceRegion(ResourceRegion region, HttpOutputMessage outputMessage) throws IOException {
+        Resource resource = region.getResource();
+
+        if (!isRanged(resource)) {
+            super.writeResourceRegion(region, outputMessage);
+            return;
+        }
+
+        HttpHeaders responseHeaders = outputMessage.getHeaders();
+        long resourceLength = resource.contentLength();
+        long start = region.getPosition();
+        long end = Math.min(start + region.getCount() - 1, resourceLength - 1);
+        long rangeLength = end - start + 1;
+
+        responseHeaders.add(HttpHeaders.CONTENT_RANGE, "bytes " + start + '-' + end + '/' + resourceLength);
+        responseHeaders.setContentLength(rangeLength);
+
+        if (resource instanceof BlobStoreResource blobStoreResource) {
+            OutputStream outputStream = outputMessage.getBody();
+            transferBlobRange(blobStoreResource, start, rangeLength, outputStream);
+            outputStream.flush();
+            return;
+        }
+
+        FileChannelTransfer.write(resource, start, rangeLength, outputMessage);
+    }
+
+    /**
+     * Writes multiple regions of a file or a blob as a {@code multipart/byteranges} body.
+     *
+     * @param regions the regions to write
+     * @param outputMessage the output message to write to
+     * @throws IOException if an error occurs while writing the file
+     */
+    private void writeRangedRegions(Collection<ResourceRegion> regions, HttpOutputMessage outputMessage) throws IOException {
+        HttpHeaders responseHeaders = outputMessage.getHeaders();
+        MediaType contentType = responseHeaders.getContentType();
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+
+        responseHeaders.set(HttpHeaders.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        OutputStream outputStream = outputMessage.getBody();
+
+        for (ResourceRegion region : regions) {
+            Resource resource = region.getResource();
+            long resourceLength = resource.contentLength();
+            long start = region.getPosition();
+            long end = Math.min(start + region.getCount() - 1, resourceLength - 1);
+
+            // part headers
+            println(outputStream);
+            print(outputStream, "--" + boundary);
+            println(outputStream);
+            if (contentType != null) {
+                print(outputStream, "Content-Type: " + contentType);
+                println(outputStream);
+            }
+            print(outputStream, "Content-Range: bytes " + start + '-' + end + '/' + resourceLength);
+            println(outputStream);
+            println(outputStream);
+
+            // part content
+            if (resource instanceof BlobStoreResource blobStoreResource) {
+                transferBlobRange(blobStoreResource, start, end - start + 1, outputStream);
+            } else {
+                FileChannelTransfer.transfer(resource, start, end - start + 1, outputStream);
+            }
+        }
+
+        println(outputStream);
+        print(outputStream, "--" + boundary + "--");
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the given range of the blob to the output stream.
+     *
+     * @param resource the blob resource
+     * @param position the position of the first byte to write
+     * @param count the number of bytes to write
+     * @param outputStream the output stream to write to
+     * @throws IOException if an error occurs while reading the blob
+     */
+    private static void transferBlobRange(BlobStoreResource resource, long position, long count, OutputStream outputStream) throws IOException {
+        try (InputStream inputStream = resource.getInputStream(position, count)) {
+            inputStream.transferTo(outputStream);
+        }
+    }
+
+    /**
+     * Checks whether the resource can be read by ranges, either as a file or as a blob.
+     *
+     * @param resource the resource to check
+     * @return true if the resource is a file or a blob, false otherwise
+     */
+    private static boolean isRanged(Resource resource) {
+        return FileChannelTransfer.isFile(resource) || resource instanceof BlobStoreResource;
+    }
+
+    /**
+     * Checks whether all regions belong to resources which can be read by ranges.
+     *
+     * @param regions the regions to check
+     * @return true if all regions are regions of files or blobs, false otherwise
+     */
+    private static boolean areRangedRegions(Collection<?> regions) {
+        return regions.stream()
+                      .allMatch(region -> region instanceof ResourceRegion resourceRegion && isRanged(resourceRegion.getResource()));
+    }
+
+    /**
+     * Writes a line break to the output stream.
+     *
+     * @param outputStream the output stream to write to
+     * @throws IOException if an error occurs while writing
+     */
+    private static void println(OutputStream outputStream) throws IOException {
+        outputStream.write('\r');
+        outputStream.write('\n');
+    }
+
+    /**
+     * Writes the text to the output stream.
+     *
+     * @param outputStream the output stream to write to
+     * @param text the text to write
+     * @throws IOException if an error occurs while writing
+     */
+    private static void print(OutputStream outputStream, String text) throws IOException {
+        outputStream.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.dms.converter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Utility class for writing file-backed resources to the response without copying them through user-space buffers.
+ * <p>
+ * When the servlet container supports sendfile (Tomcat), the file region is handed over to the container, which writes it
+ * directly from the file to the socket. Otherwise, the region is written using {@link FileChannel#transferTo}.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+final class FileChannelTransfer {
+
+    /** Request attribute set by Tomcat when the connector supports sendfile. */
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    /** Request attribute with the canonical path of the file to send. */
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    /** Request attribute with the position of the first byte to send. */
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    /** Request attribute with the position after the last byte to send. */
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    /** Minimal number of bytes for which sendfile is used, smaller regions are written directly (same as Tomcat's default servlet). */
+    private static final long SENDFILE_MIN_SIZE = 48L * 1024;
+
+    private FileChannelTransfer() {
+    }
+
+    /**
+     * Checks whether the resource is backed by a file in the file system.
+     *
+     * @param resource the resource to check
+     * @return true if the resource is a file, false otherwise
+     */
+    static boolean isFile(Resource resource) {
+        return resource != null && resource.isFile();
+    }
+
+    /**
+     * Writes the given region of the file-backed resource to the response.
+     * The {@code Content-Length} header has to be set before this method is called.
+     *
+     * @param resource the file-backed resource
+     * @param position the position of the first byte to write
+     * @param count the number of bytes to write
+     * @param outputMessage the output message to write to
+     * @throws IOException if an error occurs while writing the file
+     */
+    static void write(Resource resource, long position, long count, HttpOutputMessage outputMessage) throws IOException {
+        // sendfile requires the exact length of the body to be known before the response is committed
+        boolean contentLengthMatches = outputMessage.getHeaders().getContentLength() == count;
+
+        if (contentLengthMatches && trySendfile(resource, position, count)) {
+            return;
+        }
+
+        OutputStream outputStream = outputMessage.getBody();
+        transfer(resource, position, count, outputStream);
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the given region of the file-backed resource to the output stream using {@link FileChannel#transferTo}.
+     *
+     * @param resource the file-backed resource
+     * @param position the position of the first byte to write
+     * @param count the number of bytes to write
+     * @param outputStream the output stream to write to
+     * @throws IOException if an error occurs while writing the file
+     */
+    static void transfer(Resource resource, long position, long count, OutputStream outputStream) throws IOException {
+        // the target channel is not closed, so the response output stream stays open
+        WritableByteChannel targetChannel = Channels.newChannel(outputStream);
+
+        try (FileChannel fileChannel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            long transferred = 0;
+
+            while (transferred < count) {
+                long written = fileChannel.transferTo(position + transferred, count - transferred, targetChannel);
+
+                // end of the file was reached
+                if (written <= 0) {
+                    break;
+                }
+
+                transferred += written;
+            }
+        }
+    }
+
+    /**
+     * Hands the given file region over to the servlet container, if it supports sendfile.
+     *
+     * @param resource the file-backed resource
+     * @param position the position of the first byte to send
+     * @param count the number of bytes to send
+     * @return true if the container will send the file region, false otherwise
+     * @throws IOException if the path of the file could not be resolved
+     */
+    private static boolean trySendfile(Resource resource, long position, long count) throws IOException {
+        HttpServletRequest request = getCurrentRequest();
+
+        if (request == null || count < SENDFILE_MIN_SIZE || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            return false;
+        }
+
+        request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, resource.getFile().getCanonicalPath());
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, position);
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, position + count);
+
+        return true;
+    }
+
+    /**
+     * Retrieves the request which is currently being processed.
+     *
+     * @return the current request, or null if called outside of a request
+     */
+    private static HttpServletRequest getCurrentRequest() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+
+        if (requestAttributes instanceof ServletRequestAttributes servletRequestAttributes) {
+            return servletRequestAttributes.getRequest();
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.dms.download;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entry of a ZIP archive built while it is written, whose content is read from the blob storage.
+ *
+ * @param name the name of the entry, including its directories
+ * @param hash the hash of the blob holding the content of the entry
+ * @param modifiedAt the time of the last modification of the entry (may be null)
+ * @param compressed whether the content is already compressed, in which case it is stored without compression
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public record ZipStreamEntry(String name, String hash, LocalDateTime modifiedAt, boolean compressed) {
+}
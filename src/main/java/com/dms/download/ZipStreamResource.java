@@ -0,0 +1,172 @@
+package com.dms.download;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * {@link org.springframework.core.io.Resource} representing a ZIP archive which is built while it is written to the response.
+ * <p>
+ * The entries are requested one by one and the content of each entry is copied from its blob straight into the archive,
+ * so neither the list of entries nor the archive is held in memory and the first entry is sent before the next one is read.
+ * Already compressed contents are written as STORED entries, which have to declare their CRC-32 before their content,
+ * so their blobs are read twice instead of being deflated again.
+ * <p>
+ * The size of the archive is not known in advance, so the archive can only be written by {@link #writeTo(OutputStream)},
+ * which is used by {@link com.dms.converter.FileChannelResourceHttpMessageConverter}.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class ZipStreamResource extends AbstractResource {
+
+    /**
+     * Opens the content of a blob.
+     */
+    @FunctionalInterface
+    public interface ContentOpener {
+
+        /**
+         * Opens the content of the blob with the given hash.
+         *
+         * @param hash the hash of the blob
+         * @return the stream with the content of the blob
+         * @throws IOException if the blob could not be opened
+         */
+        InputStream open(String hash) throws IOException;
+
+    }
+
+    /** Name of the archive. */
+    private final String filename;
+    /** Entries of the archive, requested while the archive is written. */
+    private final Iterable<ZipStreamEntry> entries;
+    /** Opener of the contents of the entries. */
+    private final ContentOpener contentOpener;
+
+    /**
+     * Constructs a new {@code ZipStreamResource}.
+     *
+     * @param filename the name of the archive
+     * @param entries the entries of the archive, requested while the archive is written
+     * @param contentOpener the opener of the contents of the entries
+     */
+    public ZipStreamResource(String filename, Iterable<ZipStreamEntry> entries, ContentOpener contentOpener) {
+        this.filename = filename;
+        this.entries = entries;
+        this.contentOpener = contentOpener;
+    }
+
+    @Override
+    public String getDescription() {
+        return "ZIP archive [" + filename + "]";
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        // unknown until the archive is written, the response is sent in chunks
+        return -1;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        throw new IOException(getDescription() + " can only be written to an output stream");
+    }
+
+    /**
+     * Writes the archive to the output stream.
+     * The output stream is flushed after each entry and is not closed.
+     *
+     * @param outputStream the stream to write the archive to
+     * @throws IOException if a blob could not be read or the archive could not be written
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(StreamUtils.nonClosing(outputStream))) {
+            for (ZipStreamEntry entry : entries) {
+                ZipEntry zipEntry = new ZipEntry(entry.name());
+
+                if (entry.modifiedAt() != null) {
+                    zipEntry.setTimeLocal(entry.modifiedAt());
+                }
+
+                if (entry.compressed()) {
+                    writeStoredEntry(zip, zipEntry, entry.hash());
+                } else {
+                    writeDeflatedEntry(zip, zipEntry, entry.hash());
+                }
+
+                // send the entry right away instead of waiting until the buffer of the response fills up
+                zip.flush();
+            }
+        }
+
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the content of the blob as a deflated entry.
+     *
+     * @param zip the archive to write to
+     * @param zipEntry the entry to write
+     * @param hash the hash of the blob
+     * @throws IOException if the blob could not be read or the entry could not be written
+     */
+    private void writeDeflatedEntry(ZipOutputStream zip, ZipEntry zipEntry, String hash) throws IOException {
+        zipEntry.setMethod(ZipEntry.DEFLATED);
+        zip.putNextEntry(zipEntry);
+
+        try (InputStream content = contentOpener.open(hash)) {
+            content.transferTo(zip);
+        }
+
+        zip.closeEntry();
+    }
+
+    /**
+     * Writes the content of the blob as a stored entry, without compression.
+     * The size and the CRC-32 are written in the header of the entry, so they are computed by reading the blob first.
+     *
+     * @param zip the archive to write to
+     * @param zipEntry the entry to write
+     * @param hash the hash of the blob
+     * @throws IOException if the blob could not be read or the entry could not be written
+     */
+    private void writeStoredEntry(ZipOutputStream zip, ZipEntry zipEntry, String hash) throws IOException {
+        CRC32 crc = new CRC32();
+        long size;
+
+        try (CheckedInputStream content = new CheckedInputStream(contentOpener.open(hash), crc)) {
+            size = content.transferTo(OutputStream.nullOutputStream());
+        }
+
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(size);
+        zipEntry.setCompressedSize(size);
+        zipEntry.setCrc(crc.getValue());
+        zip.putNextEntry(zipEntry);
+
+        try (InputStream content = contentOpener.open(hash)) {
+            content.transferTo(zip);
+        }
+
+        zip.closeEntry();
+    }
+
+}
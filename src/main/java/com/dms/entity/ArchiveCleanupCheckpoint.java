@@ -0,0 +1,46 @@
+package com.dms.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents the progress of a running archive cleanup.
+ * This entity is mapped to the 'archive_cleanup_checkpoint' table in the database.
+ * <p>
+ * The checkpoint exists only while a cleanup is running. If the cleanup is interrupted, the next run resumes with the same
+ * cutoff right after the last document of the last committed batch.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Builder
+public class ArchiveCleanupCheckpoint {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime cutoff;
+
+    @Column
+    private LocalDateTime lastDeleteAt;
+
+    @Column
+    private Long lastDocumentId;
+
+}
@@ -0,0 +1,54 @@
+package com.dms.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Represents a blob stored in the blob storage.
+ * This entity is mapped to the 'blob' table in the database.
+ * <p>
+ * The reference count is the number of document revisions referencing the blob. A document always references the blob
+ * of one of its revisions, so the blob can be deleted from the storage once the count drops to zero.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Builder
+public class Blob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Long referenceCount;
+
+    @Column(
+        name = "byte_size",
+        nullable = false
+    )
+    private Long size;
+
+    @Column(
+        length = 10,
+        nullable = false
+    )
+    @Enumerated(EnumType.STRING)
+    private BlobState state;
+
+}
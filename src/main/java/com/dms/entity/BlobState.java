@@ -0,0 +1,12 @@
+package com.dms.entity;
+
+/**
+ * Enumeration representing the storage state of a blob.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public enum BlobState {
+    STORED,
+    ORPHANED
+}
@@ -0,0 +1,45 @@
+package com.dms.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Represents a chunk of the blobs split by content-defined chunking.
+ * This entity is mapped to the 'chunk' table in the database.
+ * <p>
+ * The reference count is the number of times the chunk occurs in the manifests of the stored blobs. Chunks without
+ * references are deleted from the storage by the compaction.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Builder
+public class Chunk {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Long referenceCount;
+
+    @Column(
+        name = "byte_size",
+        nullable = false
+    )
+    private Long size;
+
+}
@@ -45,7 +45,7 @@ public class Document {
     @SequenceGenerator(
         name = "document_id_generator",
         sequenceName = "document_id_sequence",
-        allocationSize = 1
+        allocationSize = 50
     )
     @GeneratedValue(
         strategy = GenerationType.SEQUENCE,
@@ -77,6 +77,13 @@ public class Document {
     @Column(nullable = false)
     private Long version;
 
+    // version of the next revision, changed only by the atomic updates in DocumentRepository
+    @Column(
+        nullable = false,
+        updatable = false
+    )
+    private Long nextRevisionVersion;
+
     @Column(nullable = false)
     private String name;
 
@@ -116,10 +123,15 @@ public class Document {
     private LocalDateTime deleteAt;
 
     @PrePersist
-    private void generateId() {
+    private void prePersist() {
         if (documentId == null) {
             documentId = UUID.randomUUID().toString();
         }
+
+        // the revision of the current version is saved along with the document
+        if (nextRevisionVersion == null) {
+            nextRevisionVersion = version + 1;
+        }
     }
 
 }
@@ -42,7 +42,7 @@ public class DocumentRevision {
     @SequenceGenerator(
         name = "revision_id_generator",
         sequenceName = "revision_id_sequence",
-        allocationSize = 1
+        allocationSize = 50
     )
     @GeneratedValue(
         strategy = GenerationType.SEQUENCE,
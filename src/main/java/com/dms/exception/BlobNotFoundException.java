@@ -0,0 +1,20 @@
+package com.dms.exception;
+
+/**
+ * Exception indicating that a blob with the given hash could not be found.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class BlobNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code BlobNotFoundException} with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public BlobNotFoundException(String message) {
+        super(message);
+    }
+
+}
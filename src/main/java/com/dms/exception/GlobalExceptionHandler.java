@@ -6,6 +6,7 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.mapping.PropertyReferenceException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -56,6 +57,9 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     /** Log message format for exceptions. */
     private static final String LOG_MESSAGE = "Request {} raised: ";
 
+    /** Name of the unique index on the author, path and name of documents. */
+    private static final String DOCUMENT_PATH_CONSTRAINT = "uk_document_user_path_name";
+
     /**
      * Retrieves the request URI from the given {@link WebRequest}.
      *
@@ -230,6 +234,39 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return problemDetail;
     }
 
+    /**
+     * Handles the {@link DataIntegrityViolationException}.
+     * A violation of the unique path of documents is handled as {@link FileWithPathAlreadyExistsException}, other
+     * violations are unexpected.
+     *
+     * @param exception the {@link DataIntegrityViolationException}
+     * @param request the {@link HttpServletRequest}
+     * @return a {@link ProblemDetail} representing the error
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ProblemDetail handleDataIntegrityViolationException(DataIntegrityViolationException exception, HttpServletRequest request) {
+        if (!isDocumentPathViolation(exception)) {
+            return handleGenericException(exception, request);
+        }
+
+        FileWithPathAlreadyExistsException pathException = new FileWithPathAlreadyExistsException("Document with the same name already exists in the path");
+        pathException.initCause(exception);
+
+        return handleFileWithPathAlreadyExistsException(pathException, request);
+    }
+
+    /**
+     * Checks whether the exception was caused by a violation of the unique path of documents.
+     *
+     * @param exception the {@link DataIntegrityViolationException}
+     * @return true if the unique path of documents was violated, false otherwise
+     */
+    private static boolean isDocumentPathViolation(DataIntegrityViolationException exception) {
+        return exception.getCause() instanceof org.hibernate.exception.ConstraintViolationException violation
+            && violation.getConstraintName() != null
+            && violation.getConstraintName().toLowerCase().contains(DOCUMENT_PATH_CONSTRAINT);
+    }
+
     /**
      * Handles the {@link UserNotFoundException}.
      *
@@ -320,6 +357,114 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return problemDetail;
     }
 
+    /**
+     * Handles the {@link BlobNotFoundException}.
+     *
+     * @param exception the {@link BlobNotFoundException}
+     * @param request the {@link HttpServletRequest}
+     * @return a {@link ProblemDetail} representing the error
+     */
+    @ExceptionHandler(BlobNotFoundException.class)
+    public ProblemDetail handleBlobNotFoundException(BlobNotFoundException exception, HttpServletRequest request) {
+        log.error(LOG_MESSAGE, request.getRequestURI(), exception);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, exception.getMessage());
+        problemDetail.setTitle("Blob Not Found");
+        problemDetail.setType(URI.create(serverProperties.getErrorUrl(request) + "/blob-not-found"));
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles the {@link UploadNotFoundException}.
+     *
+     * @param exception the {@link UploadNotFoundException}
+     * @param request the {@link HttpServletRequest}
+     * @return a {@link ProblemDetail} representing the error
+     */
+    @ExceptionHandler(UploadNotFoundException.class)
+    public ProblemDetail handleUploadNotFoundException(UploadNotFoundException exception, HttpServletRequest request) {
+        log.error(LOG_MESSAGE, request.getRequestURI(), exception);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, exception.getMessage());
+        problemDetail.setTitle("Upload Not Found");
+        problemDetail.setType(URI.create(serverProperties.getErrorUrl(request) + "/upload-not-found"));
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles the {@link ImportNotFoundException}.
+     *
+     * @param exception the {@link ImportNotFoundException}
+     * @param request the {@link HttpServletRequest}
+     * @return a {@link ProblemDetail} representing the error
+     */
+    @ExceptionHandler(ImportNotFoundException.class)
+    public ProblemDetail handleImportNotFoundException(ImportNotFoundException exception, HttpServletRequest request) {
+        log.error(LOG_MESSAGE, request.getRequestURI(), exception);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, exception.getMessage());
+        problemDetail.setTitle("Import Not Found");
+        problemDetail.setType(URI.create(serverProperties.getErrorUrl(request) + "/import-not-found"));
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles the {@link InvalidUploadException}.
+     *
+     * @param exception the {@link InvalidUploadException}
+     * @param request the {@link HttpServletRequest}
+     * @return a {@link ProblemDetail} representing the error
+     */
+    @ExceptionHandler(InvalidUploadException.class)
+    public ProblemDetail handleInvalidUploadException(InvalidUploadException exception, HttpServletRequest request) {
+        log.error(LOG_MESSAGE, request.getRequestURI(), exception);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, exception.getMessage());
+        problemDetail.setTitle("Invalid Upload");
+        problemDetail.setType(URI.create(serverProperties.getErrorUrl(request) + "/invalid-upload"));
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles the {@link InvalidDownloadException}.
+     *
+     * @param exception the {@link InvalidDownloadException}
+     * @param request the {@link HttpServletRequest}
+     * @return a {@link ProblemDetail} representing the error
+     */
+    @ExceptionHandler(InvalidDownloadException.class)
+    public ProblemDetail handleInvalidDownloadException(InvalidDownloadException exception, HttpServletRequest request) {
+        log.error(LOG_MESSAGE, request.getRequestURI(), exception);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, exception.getMessage());
+        problemDetail.setTitle("Invalid Download");
+        problemDetail.setType(URI.create(serverProperties.getErrorUrl(request) + "/invalid-download"));
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles the {@link UploadSizeExceededException}.
+     *
+     * @param exception the {@link UploadSizeExceededException}
+     * @param request the {@link HttpServletRequest}
+     * @return a {@link ProblemDetail} representing the error
+     */
+    @ExceptionHandler(UploadSizeExceededException.class)
+    public ProblemDetail handleUploadSizeExceededException(UploadSizeExceededException exception, HttpServletRequest request) {
+        log.error(LOG_MESSAGE, request.getRequestURI(), exception);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.PAYLOAD_TOO_LARGE, exception.getMessage());
+        problemDetail.setTitle("Payload Too Large");
+        problemDetail.setType(URI.create(serverProperties.getErrorUrl(request) + "/payload-too-large"));
+
+        return problemDetail;
+    }
+
     /**
      * Handles the {@link ConstraintViolationException}.
      *
@@ -403,6 +548,24 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return problemDetail;
     }
 
+    /**
+     * Handles the {@link InvalidCursorException}.
+     *
+     * @param exception the {@link InvalidCursorException}
+     * @param request the {@link HttpServletRequest}
+     * @return a {@link ProblemDetail} representing the error
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ProblemDetail handleInvalidCursorException(InvalidCursorException exception, HttpServletRequest request) {
+        log.error(LOG_MESSAGE, request.getRequestURI(), exception);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, exception.getMessage());
+        problemDetail.setTitle("Invalid Cursor");
+        problemDetail.setType(URI.create(serverProperties.getErrorUrl(request) + "/invalid-cursor"));
+
+        return problemDetail;
+    }
+
     /**
      * Handles the {@link MultipartException}.
      *
@@ -0,0 +1,20 @@
+package com.dms.exception;
+
+/**
+ * Exception indicating that an import could not be found.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class ImportNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code ImportNotFoundException} with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public ImportNotFoundException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.dms.exception;
+
+/**
+ * Exception indicating that an invalid pagination cursor was provided.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code InvalidCursorException} with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.dms.exception;
+
+/**
+ * Exception indicating that the documents to download were not specified correctly.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class InvalidDownloadException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code InvalidDownloadException} with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public InvalidDownloadException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.dms.exception;
+
+/**
+ * Exception indicating that a chunk or a commit of an upload is not valid.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class InvalidUploadException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code InvalidUploadException} with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public InvalidUploadException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.dms.exception;
+
+/**
+ * Exception indicating that an upload could not be found.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class UploadNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code UploadNotFoundException} with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public UploadNotFoundException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.dms.exception;
+
+/**
+ * Exception indicating that an uploaded file or chunk exceeds the maximum allowed size.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class UploadSizeExceededException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code UploadSizeExceededException} with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public UploadSizeExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.dms.mapper.dto;
+
+import com.dms.dto.BatchUploadDTO;
+import com.dms.dto.BatchUploadResultDTO;
+import com.dms.upload.BatchUploadResult;
+
+import java.util.List;
+
+/**
+ * The {@code BatchUploadDTOMapper} class is responsible for mapping {@link BatchUploadResult} results to {@link BatchUploadDTO} DTOs.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class BatchUploadDTOMapper {
+
+    /** Private constructor to prevent instantiation of this utility class. */
+    private BatchUploadDTOMapper() {
+    }
+
+    /**
+     * Maps a list of {@link BatchUploadResult} results to a {@link BatchUploadDTO} DTO.
+     *
+     * @param results the list of {@link BatchUploadResult} results to map
+     * @return the mapped {@link BatchUploadDTO} DTO
+     */
+    public static BatchUploadDTO map(List<BatchUploadResult> results) {
+        return BatchUploadDTO.builder()
+                             .results(results.stream()
+                                             .map(BatchUploadDTOMapper::mapResult)
+                                             .toList())
+                             .build();
+    }
+
+    /**
+     * Maps a {@link BatchUploadResult} result to a {@link BatchUploadResultDTO} DTO.
+     *
+     * @param result the {@link BatchUploadResult} result to map
+     * @return the mapped {@link BatchUploadResultDTO} DTO
+     */
+    public static BatchUploadResultDTO mapResult(BatchUploadResult result) {
+        return BatchUploadResultDTO.builder()
+                                   .name(result.name())
+                                   .status(BatchUploadResultDTO.StatusEnum.fromValue(result.status().name()))
+                                   .document(result.document() == null ? null : DocumentDTOMapper.map(result.document()))
+                                   .detail(result.detail())
+                                   .build();
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.dms.mapper.dto;
+
+import com.dms.dto.ImportDTO;
+import com.dms.upload.ImportSession;
+
+/**
+ * The {@code ImportDTOMapper} class is responsible for mapping {@link ImportSession} imports to {@link ImportDTO} DTOs.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class ImportDTOMapper {
+
+    /** Private constructor to prevent instantiation of this utility class. */
+    private ImportDTOMapper() {
+    }
+
+    /**
+     * Maps an {@link ImportSession} import to an {@link ImportDTO} DTO.
+     *
+     * @param importSession the {@link ImportSession} import to map
+     * @return the mapped {@link ImportDTO} DTO
+     */
+    public static ImportDTO map(ImportSession importSession) {
+        return ImportDTO.builder()
+                        .importId(importSession.getImportId())
+                        .path(importSession.getPath())
+                        .status(ImportDTO.StatusEnum.fromValue(importSession.getStatus().name()))
+                        .entryCount(importSession.getEntryCount())
+                        .processedCount(importSession.getProcessedCount())
+                        .results(importSession.getResults()
+                                              .stream()
+                                              .map(BatchUploadDTOMapper::mapResult)
+                                              .toList())
+                        .detail(importSession.getDetail())
+                        .expiresAt(importSession.getExpiresAt())
+                        .build();
+    }
+
+}
@@ -3,13 +3,14 @@ package com.dms.mapper.dto;
 import com.dms.dto.DocumentDTO;
 import com.dms.dto.PageWithDocumentsDTO;
 import com.dms.entity.Document;
+import com.dms.pagination.KeysetPage;
 import org.springframework.data.domain.Page;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * The {@code PageWithDocumentsDTOMapper} class is responsible for mapping {@link Page} objects to {@link PageWithDocumentsDTO} DTOs.
+ * The {@code PageWithDocumentsDTOMapper} class is responsible for mapping {@link Page} and {@link KeysetPage} objects to {@link PageWithDocumentsDTO} DTOs.
  *
  * @author Jakub Pavlíček
  * @version 1.0
@@ -43,14 +44,34 @@ public class PageWithDocumentsDTOMapper {
     }
 
     /**
-     * Maps each {@link Document} entity in the {@link Page} to its corresponding {@link DocumentDTO}.
+     * Maps a {@link KeysetPage} object to a {@link PageWithDocumentsDTO} DTO.
+     * The total number of elements and pages is not known when keyset pagination is used, so it is not mapped.
      *
-     * @param documentPage the {@link Page} object containing the documents to map
+     * @param documentPage the {@link KeysetPage} object to map
+     * @return the mapped {@link PageWithDocumentsDTO} DTO
+     */
+    public static PageWithDocumentsDTO map(KeysetPage<Document> documentPage) {
+        return PageWithDocumentsDTO.builder()
+                                   .content(mapToDtoList(documentPage.content()))
+                                   .last(documentPage.last())
+                                   .first(documentPage.first())
+                                   .size(documentPage.size())
+                                   .sort(SortDTOMapper.map(documentPage.sort()))
+                                   .numberOfElements(documentPage.content().size())
+                                   .empty(documentPage.content().isEmpty())
+                                   .nextCursor(documentPage.nextCursor())
+                                   .build();
+    }
+
+    /**
+     * Maps each {@link Document} entity to its corresponding {@link DocumentDTO}.
+     *
+     * @param documents the documents to map
      * @return a list of mapped {@link DocumentDTO} objects
      */
-    private static List<DocumentDTO> mapToDtoList(Page<Document> documentPage) {
+    private static List<DocumentDTO> mapToDtoList(Iterable<Document> documents) {
         List<DocumentDTO> documentDTOList = new ArrayList<>();
-        documentPage.forEach(document -> documentDTOList.add(DocumentDTOMapper.map(document)));
+        documents.forEach(document -> documentDTOList.add(DocumentDTOMapper.map(document)));
 
         return documentDTOList;
     }
@@ -3,13 +3,14 @@ package com.dms.mapper.dto;
 import com.dms.dto.DocumentRevisionDTO;
 import com.dms.dto.PageWithRevisionsDTO;
 import com.dms.entity.DocumentRevision;
+import com.dms.pagination.KeysetPage;
 import org.springframework.data.domain.Page;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * The {@code PageWithRevisionsDTOMapper} class is responsible for mapping {@link Page} objects to {@link PageWithRevisionsDTO} DTOs.
+ * The {@code PageWithRevisionsDTOMapper} class is responsible for mapping {@link Page} and {@link KeysetPage} objects to {@link PageWithRevisionsDTO} DTOs.
  *
  * @author Jakub Pavlíček
  * @version 1.0
@@ -43,14 +44,34 @@ public class PageWithRevisionsDTOMapper {
     }
 
     /**
-     * Maps each {@link DocumentRevision} entity in the {@link Page} to its corresponding {@link DocumentRevisionDTO}.
+     * Maps a {@link KeysetPage} object to a {@link PageWithRevisionsDTO} DTO.
+     * The total number of elements and pages is not known when keyset pagination is used, so it is not mapped.
      *
-     * @param revisionPage the {@link Page} object containing the revisions to map
+     * @param revisionPage the {@link KeysetPage} object to map
+     * @return the mapped {@link PageWithRevisionsDTO} DTO
+     */
+    public static PageWithRevisionsDTO map(KeysetPage<DocumentRevision> revisionPage) {
+        return PageWithRevisionsDTO.builder()
+                                   .content(mapToDtoList(revisionPage.content()))
+                                   .last(revisionPage.last())
+                                   .first(revisionPage.first())
+                                   .size(revisionPage.size())
+                                   .sort(SortDTOMapper.map(revisionPage.sort()))
+                                   .numberOfElements(revisionPage.content().size())
+                                   .empty(revisionPage.content().isEmpty())
+                                   .nextCursor(revisionPage.nextCursor())
+                                   .build();
+    }
+
+    /**
+     * Maps each {@link DocumentRevision} entity to its corresponding {@link DocumentRevisionDTO}.
+     *
+     * @param revisions the revisions to map
      * @return a list of mapped {@link DocumentRevisionDTO} objects
      */
-    private static List<DocumentRevisionDTO> mapToDtoList(Page<DocumentRevision> revisionPage) {
+    private static List<DocumentRevisionDTO> mapToDtoList(Iterable<DocumentRevision> revisions) {
         List<DocumentRevisionDTO> revisionDTOList = new ArrayList<>();
-        revisionPage.forEach(revision -> revisionDTOList.add(DocumentRevisionDTOMapper.map(revision)));
+        revisions.forEach(revision -> revisionDTOList.add(DocumentRevisionDTOMapper.map(revision)));
 
         return revisionDTOList;
     }
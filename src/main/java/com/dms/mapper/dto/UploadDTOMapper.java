@@ -0,0 +1,42 @@
+package com.dms.mapper.dto;
+
+import com.dms.dto.ByteRangeDTO;
+import com.dms.dto.UploadDTO;
+import com.dms.upload.UploadSession;
+
+/**
+ * The {@code UploadDTOMapper} class is responsible for mapping {@link UploadSession} uploads to {@link UploadDTO} DTOs.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class UploadDTOMapper {
+
+    /** Private constructor to prevent instantiation of this utility class. */
+    private UploadDTOMapper() {
+    }
+
+    /**
+     * Maps an {@link UploadSession} upload to an {@link UploadDTO} DTO.
+     *
+     * @param upload the {@link UploadSession} upload to map
+     * @return the mapped {@link UploadDTO} DTO
+     */
+    public static UploadDTO map(UploadSession upload) {
+        return UploadDTO.builder()
+                        .uploadId(upload.getUploadId())
+                        .documentId(upload.getDocumentId())
+                        .name(upload.getName())
+                        .type(upload.getType())
+                        .path(upload.getPath())
+                        .size(upload.getSize())
+                        .receivedSize(upload.getReceivedSize())
+                        .receivedRanges(upload.getReceivedRanges()
+                                              .stream()
+                                              .map(range -> new ByteRangeDTO(range.offset(), range.length()))
+                                              .toList())
+                        .expiresAt(upload.getExpiresAt())
+                        .build();
+    }
+
+}
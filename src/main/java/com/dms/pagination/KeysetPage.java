@@ -0,0 +1,31 @@
+package com.dms.pagination;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * A page of elements retrieved using keyset pagination.
+ * Unlike {@link org.springframework.data.domain.Page}, it doesn't contain the total number of elements, so no count query is needed.
+ *
+ * @param content the elements of the page
+ * @param sort the sorting of the elements
+ * @param size the maximum number of elements on the page
+ * @param first whether this is the first page
+ * @param nextCursor the cursor of the next page, or null if this is the last page
+ * @param <T> the type of the elements
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public record KeysetPage<T>(List<T> content, Sort sort, int size, boolean first, String nextCursor) {
+
+    /**
+     * Checks whether this is the last page.
+     *
+     * @return true if there is no next page, false otherwise
+     */
+    public boolean last() {
+        return nextCursor == null;
+    }
+
+}
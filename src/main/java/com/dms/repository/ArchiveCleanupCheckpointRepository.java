@@ -0,0 +1,16 @@
+package com.dms.repository;
+
+import com.dms.entity.ArchiveCleanupCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The {@code ArchiveCleanupCheckpointRepository} interface provides access to the progress of the archive cleanup stored in the database.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Repository
+public interface ArchiveCleanupCheckpointRepository extends JpaRepository<ArchiveCleanupCheckpoint, Long> {
+
+}
@@ -0,0 +1,64 @@
+package com.dms.repository;
+
+import com.dms.entity.Blob;
+import com.dms.entity.BlobState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * The {@code BlobRepository} interface provides access to the reference counts of the stored blobs.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Repository
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Blob blob SET blob.referenceCount = blob.referenceCount + 1, blob.state = com.dms.entity.BlobState.STORED WHERE blob.hash = :hash")
+    int incrementReferenceCount(String hash);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Blob blob SET blob.referenceCount = blob.referenceCount + :count WHERE blob.hash = :hash")
+    int incrementReferenceCount(String hash, long count);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Blob blob SET blob.referenceCount = 1, blob.state = com.dms.entity.BlobState.STORED WHERE blob.hash = :hash AND blob.referenceCount = 0")
+    int reviveOrphaned(String hash);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Blob blob SET blob.referenceCount = blob.referenceCount - :count WHERE blob.hash = :hash AND blob.referenceCount >= :count")
+    int decrementReferenceCount(String hash, long count);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Blob blob SET blob.state = com.dms.entity.BlobState.ORPHANED WHERE blob.hash = :hash AND blob.referenceCount = 0")
+    int markOrphaned(String hash);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Blob blob SET blob.state = com.dms.entity.BlobState.STORED WHERE blob.hash = :hash")
+    int markStored(String hash);
+
+    // inserted directly, as saving an entity with an assigned ID would select it first
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO blob (hash, reference_count, byte_size, state) VALUES (:hash, 0, :size, 'STORED')", nativeQuery = true)
+    void insertStored(String hash, long size);
+
+    // selects only the state, so the counts changed by the update queries are never read from a stale entity
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT blob.state FROM Blob blob WHERE blob.hash = :hash")
+    Optional<BlobState> findStateForUpdate(String hash);
+
+    @Query("SELECT COUNT(blob) > 0 FROM Blob blob WHERE blob.hash = :hash AND blob.referenceCount > 0")
+    boolean isReferenced(String hash);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT blob FROM Blob blob WHERE blob.hash = :hash AND blob.referenceCount > 0")
+    Optional<Blob> findReferencedForUpdate(String hash);
+
+}
@@ -0,0 +1,43 @@
+package com.dms.repository;
+
+import com.dms.entity.Chunk;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The {@code ChunkRepository} interface provides access to the reference counts of the stored chunks.
+ * <p>
+ * Chunks are always locked in the order of their hashes, so concurrent writers sharing chunks can't deadlock.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Repository
+public interface ChunkRepository extends JpaRepository<Chunk, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT chunk FROM Chunk chunk WHERE chunk.hash IN :hashes ORDER BY chunk.hash")
+    List<Chunk> findAllByHashesForUpdate(Collection<String> hashes);
+
+    // inserted directly, as saving an entity with an assigned ID would select it first
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO chunk (hash, reference_count, byte_size) VALUES (:hash, :referenceCount, :size)", nativeQuery = true)
+    void insert(String hash, long referenceCount, long size);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Chunk chunk SET chunk.referenceCount = chunk.referenceCount - :count WHERE chunk.hash = :hash AND chunk.referenceCount >= :count")
+    int decrementReferenceCount(String hash, long count);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT chunk FROM Chunk chunk WHERE chunk.referenceCount = 0 ORDER BY chunk.hash")
+    List<Chunk> findUnreferencedForUpdate(Pageable pageable);
+
+}
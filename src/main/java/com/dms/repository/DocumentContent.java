@@ -0,0 +1,25 @@
+package com.dms.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a document with the details needed to write its content into an archive.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public interface DocumentContent {
+
+    String getDocumentId();
+
+    String getName();
+
+    String getType();
+
+    String getPath();
+
+    String getHash();
+
+    LocalDateTime getUpdatedAt();
+
+}
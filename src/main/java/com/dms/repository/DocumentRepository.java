@@ -2,11 +2,15 @@ package com.dms.repository;
 
 import com.dms.entity.Document;
 import com.dms.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,12 +27,39 @@ public interface DocumentRepository extends JpaRepository<Document, Long>, JpaSp
 
     List<Document> findAllByAuthor(User author);
 
+    @Query("SELECT document.name FROM Document document WHERE document.author = :author AND document.path = :path AND document.name IN :names")
+    List<String> findNamesByAuthorAndPathAndNameIn(User author, String path, Collection<String> names);
+
+    @Query("SELECT document.documentId AS documentId, document.name AS name, document.type AS type, document.path AS path, document.hash AS hash, document.updatedAt AS updatedAt FROM Document document WHERE document.author = :author AND document.isArchived = false AND (document.path = :path OR document.path LIKE :pathPattern ESCAPE '!') ORDER BY document.path ASC, document.name ASC")
+    List<DocumentContent> findContentsByPath(User author, String path, String pathPattern, Pageable pageable);
+
+    @Query("SELECT document.documentId AS documentId, document.name AS name, document.type AS type, document.path AS path, document.hash AS hash, document.updatedAt AS updatedAt FROM Document document WHERE document.author = :author AND document.isArchived = false AND (document.path = :path OR document.path LIKE :pathPattern ESCAPE '!') AND (document.path > :lastPath OR (document.path = :lastPath AND document.name > :lastName)) ORDER BY document.path ASC, document.name ASC")
+    List<DocumentContent> findContentsByPathAfter(User author, String path, String pathPattern, String lastPath, String lastName, Pageable pageable);
+
+    @Query("SELECT document.documentId AS documentId, document.name AS name, document.type AS type, document.path AS path, document.hash AS hash, document.updatedAt AS updatedAt FROM Document document WHERE document.author = :author AND document.documentId IN :documentIds")
+    List<DocumentContent> findContentsByDocumentIds(User author, Collection<String> documentIds);
+
     Integer countAllByIsArchived(Boolean isArchived);
 
-    @Query("SELECT COUNT(document.hash) > 1 FROM Document document WHERE document.hash = :hash")
-    boolean duplicateHashExists(String hash);
+    @Query("SELECT document.id AS id, document.deleteAt AS deleteAt FROM Document document WHERE document.isArchived = true AND document.deleteAt < :cutoff ORDER BY document.deleteAt ASC, document.id ASC")
+    List<ExpiredDocument> findExpiredDocuments(LocalDateTime cutoff, Pageable pageable);
+
+    @Query("SELECT document.id AS id, document.deleteAt AS deleteAt FROM Document document WHERE document.isArchived = true AND document.deleteAt < :cutoff AND (document.deleteAt > :lastDeleteAt OR (document.deleteAt = :lastDeleteAt AND document.id > :lastDocumentId)) ORDER BY document.deleteAt ASC, document.id ASC")
+    List<ExpiredDocument> findExpiredDocumentsAfter(LocalDateTime cutoff, LocalDateTime lastDeleteAt, Long lastDocumentId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Document document SET document.nextRevisionVersion = document.nextRevisionVersion + 1 WHERE document.id = :id")
+    int incrementNextRevisionVersion(Long id);
+
+    @Modifying
+    @Query("UPDATE Document document SET document.nextRevisionVersion = document.nextRevisionVersion - 1 WHERE document.id = :id")
+    int decrementNextRevisionVersion(Long id);
+
+    @Query("SELECT document.nextRevisionVersion FROM Document document WHERE document.id = :id")
+    Long findNextRevisionVersion(Long id);
 
-    @Query("SELECT COUNT(document.path) >= 1 FROM Document document WHERE document.path = :path AND document.name = :name AND document.author = :author")
-    boolean documentWithPathAlreadyExists(String name, String path, User author);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Document document WHERE document.id IN :documentIds")
+    int deleteAllByIds(Collection<Long> documentIds);
 
 }
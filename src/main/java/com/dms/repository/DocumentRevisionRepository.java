@@ -3,13 +3,13 @@ package com.dms.repository;
 import com.dms.entity.Document;
 import com.dms.entity.DocumentRevision;
 import com.dms.entity.User;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,16 +26,9 @@ public interface DocumentRevisionRepository extends JpaRepository<DocumentRevisi
 
     Optional<DocumentRevision> findByDocumentAndRevisionId(Document document, String revisionId);
 
-    List<DocumentRevision> findAllByDocumentOrderByCreatedAtAsc(Document document);
-
     void deleteByRevisionId(String revisionId);
 
-    Integer countAllByDocument(Document document);
-
-    Page<DocumentRevision> findAllByDocument(Document document, Pageable pageable);
-
-    @Query("SELECT COUNT(revision.hash) > 1 FROM DocumentRevision revision WHERE revision.hash = :hash")
-    boolean duplicateHashExists(String hash);
+    Optional<DocumentRevision> findFirstByAuthorAndHash(User author, String hash);
 
     @Query("SELECT revision FROM DocumentRevision revision WHERE revision.document = :document AND revision.version < :version ORDER BY revision.version DESC LIMIT 1")
     Optional<DocumentRevision> findPreviousByDocumentAndVersion(Document document, Long version);
@@ -43,7 +36,15 @@ public interface DocumentRevisionRepository extends JpaRepository<DocumentRevisi
     @Query("SELECT revision FROM DocumentRevision revision WHERE revision.document = :document AND revision.version > :version ORDER BY revision.version ASC LIMIT 1")
     Optional<DocumentRevision> findNextByDocumentAndVersion(Document document, Long version);
 
-    @Query("SELECT MAX(revision.version) FROM DocumentRevision revision WHERE revision.document = :document")
-    Optional<Long> findLastRevisionVersionByDocument(Document document);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE DocumentRevision revision SET revision.version = revision.version - 1 WHERE revision.document = :document AND revision.version > :version")
+    int decrementVersionsAfter(Document document, Long version);
+
+    @Query("SELECT revision.hash AS hash, COUNT(revision) AS referenceCount FROM DocumentRevision revision WHERE revision.document.id IN :documentIds GROUP BY revision.hash")
+    List<HashReferenceCount> countHashReferencesByDocumentIds(Collection<Long> documentIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM DocumentRevision revision WHERE revision.document.id IN :documentIds")
+    int deleteAllByDocumentIds(Collection<Long> documentIds);
 
 }
@@ -0,0 +1,18 @@
+package com.dms.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of an archived document whose retention period has expired.
+ * Contains only the keys needed to delete the document and to continue scanning after it.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public interface ExpiredDocument {
+
+    Long getId();
+
+    LocalDateTime getDeleteAt();
+
+}
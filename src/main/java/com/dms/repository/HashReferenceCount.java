@@ -0,0 +1,15 @@
+package com.dms.repository;
+
+/**
+ * Projection of the number of revisions referencing a blob.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public interface HashReferenceCount {
+
+    String getHash();
+
+    Long getReferenceCount();
+
+}
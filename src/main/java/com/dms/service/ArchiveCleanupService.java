@@ -1,27 +1,27 @@
 package com.dms.service;
 
-import com.dms.entity.Document;
-import com.dms.entity.DocumentRevision;
-import com.dms.entity.Document_;
+import com.dms.config.ArchiveProperties;
+import com.dms.entity.ArchiveCleanupCheckpoint;
+import com.dms.repository.ArchiveCleanupCheckpointRepository;
 import com.dms.repository.DocumentRepository;
-import com.dms.specification.DocumentFilterSpecification;
-import jakarta.transaction.Transactional;
+import com.dms.repository.ExpiredDocument;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Service class for cleaning up archived documents.
+ * <p>
+ * Only documents whose deletion time has passed are scanned, in the order of the index on their deletion time.
+ * They are deleted in bounded batches, each in its own transaction, and the position after the last deleted document
+ * is checkpointed, so an interrupted cleanup resumes where it stopped.
  *
  * @author Jakub Pavlíček
  * @version 1.0
@@ -31,51 +31,102 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ArchiveCleanupService {
 
+    /** ID of the checkpoint row, there is only one cleanup running at a time. */
+    private static final Long CHECKPOINT_ID = 1L;
+
     private final DocumentRepository documentRepository;
+    private final ArchiveCleanupCheckpointRepository checkpointRepository;
     private final DocumentCommonService documentCommonService;
+    private final ArchiveProperties archiveProperties;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Scheduled method to clean up the archive.
      * This method runs at midnight every day and deletes archived documents that have passed their deletion time.
      */
     @Scheduled(cron = "0 0 0 * * *")
-    @Transactional
     public void cleanupArchive() {
-        log.info("Cleaning up the archive");
+        ArchiveCleanupCheckpoint checkpoint = transactionTemplate.execute(status -> startCleanup());
 
-        Map<String, String> filters = new HashMap<>();
-        filters.put(Document_.IS_ARCHIVED, "true");
+        log.info("Cleaning up the archive: cutoff={}", checkpoint.getCutoff());
 
-        Specification<Document> specification = DocumentFilterSpecification.filter(filters);
+        int deletedDocumentCount = 0;
+        int batchDocumentCount;
 
-        Integer archivedDocumentCount = documentRepository.countAllByIsArchived(true);
+        do {
+            batchDocumentCount = transactionTemplate.execute(status -> deleteBatch(checkpoint));
+            deletedDocumentCount += batchDocumentCount;
+        } while (batchDocumentCount == archiveProperties.getCleanupBatchSize());
 
-        int pageSize = 10;
-        int pageCount = (int) Math.ceil((double) archivedDocumentCount / pageSize);
+        transactionTemplate.executeWithoutResult(status -> checkpointRepository.deleteById(CHECKPOINT_ID));
 
-        for (int i = 0; i < pageCount; i++) {
-            Pageable pageable = PageRequest.of(i, pageSize);
-            Page<Document> archivedDocuments = documentRepository.findAll(specification, pageable);
+        log.info("Archive cleaned up successfully: {} documents deleted", deletedDocumentCount);
+    }
 
-            archivedDocuments.forEach(this::checkDocumentForDeletion);
-        }
+    /**
+     * Starts a new cleanup or resumes the interrupted one.
+     *
+     * @return the checkpoint of the cleanup
+     */
+    private ArchiveCleanupCheckpoint startCleanup() {
+        return checkpointRepository.findById(CHECKPOINT_ID)
+                                   .map(checkpoint -> {
+                                       log.info("Resuming interrupted archive cleanup after document {}", checkpoint.getLastDocumentId());
+                                       return checkpoint;
+                                   })
+                                   .orElseGet(() -> checkpointRepository.save(
+                                       ArchiveCleanupCheckpoint.builder()
+                                                               .id(CHECKPOINT_ID)
+                                                               .cutoff(LocalDateTime.now())
+                                                               .build()
+                                   ));
     }
 
     /**
-     * Checks if a document should be deleted from the archive.
-     * If the deletion time has passed, deletes the document and its revisions.
+     * Deletes the next batch of expired documents along with their revisions and moves the checkpoint after them.
+     * Blobs which are no longer referenced are deleted from the storage after the transaction commits.
      *
-     * @param document the document to check for deletion
+     * @param checkpoint the checkpoint of the cleanup
+     * @return the number of deleted documents
      */
-    private void checkDocumentForDeletion(Document document) {
-        if (document.getDeleteAt().isBefore(LocalDateTime.now())) {
-            List<DocumentRevision> documentRevisions = document.getRevisions();
-            documentRevisions.forEach(revision -> documentCommonService.safelyDeleteBlob(revision.getHash()));
+    private int deleteBatch(ArchiveCleanupCheckpoint checkpoint) {
+        List<ExpiredDocument> expiredDocuments = findExpiredDocuments(checkpoint);
+
+        if (expiredDocuments.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> documentIds = expiredDocuments.stream()
+                                                 .map(ExpiredDocument::getId)
+                                                 .toList();
 
-            documentRepository.delete(document);
+        documentCommonService.deleteRevisionsOfDocuments(documentIds);
+        documentRepository.deleteAllByIds(documentIds);
 
-            log.info("Document {} with revisions deleted successfully from archive", document.getDocumentId());
+        ExpiredDocument lastDocument = expiredDocuments.get(expiredDocuments.size() - 1);
+        checkpoint.setLastDeleteAt(lastDocument.getDeleteAt());
+        checkpoint.setLastDocumentId(lastDocument.getId());
+        checkpointRepository.save(checkpoint);
+
+        log.info("Deleted {} documents with revisions from archive", documentIds.size());
+
+        return documentIds.size();
+    }
+
+    /**
+     * Retrieves the next batch of expired documents after the position of the checkpoint.
+     *
+     * @param checkpoint the checkpoint of the cleanup
+     * @return the expired documents ordered by their deletion time and ID
+     */
+    private List<ExpiredDocument> findExpiredDocuments(ArchiveCleanupCheckpoint checkpoint) {
+        Pageable batch = PageRequest.ofSize(archiveProperties.getCleanupBatchSize());
+
+        if (checkpoint.getLastDocumentId() == null) {
+            return documentRepository.findExpiredDocuments(checkpoint.getCutoff(), batch);
         }
+
+        return documentRepository.findExpiredDocumentsAfter(checkpoint.getCutoff(), checkpoint.getLastDeleteAt(), checkpoint.getLastDocumentId(), batch);
     }
 
 }
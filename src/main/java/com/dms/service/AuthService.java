@@ -27,6 +27,15 @@ import java.time.temporal.ChronoUnit;
 @Log4j2
 public class AuthService {
 
+    /** Name of the claim with the role of the user. */
+    public static final String ROLE_CLAIM = "role";
+    /** Name of the claim with the internal ID of the user. */
+    public static final String ID_CLAIM = "uid";
+    /** Name of the claim with the public ID of the user. */
+    public static final String USER_ID_CLAIM = "user_id";
+    /** Name of the claim with the name of the user. */
+    public static final String NAME_CLAIM = "name";
+
     /** Service for loading user details by username. */
     private final UserDetailsService userDetailsService;
 
@@ -55,20 +64,27 @@ public class AuthService {
 
     /**
      * Generates a JWT token based on the authentication details.
+     * Besides the role, the token carries the ID and name of the authenticated user, so the user can be resolved
+     * from the token without loading it from the database on every request.
      *
      * @param authentication the authentication object
      * @return the generated JWT token
      */
     public String generateToken(Authentication authentication) {
         Instant now = Instant.now();
-        JwtClaimsSet claims = JwtClaimsSet.builder()
-                                          .subject(authentication.getName())
-                                          .issuedAt(now)
-                                          .expiresAt(now.plus(tokenProperties.getExpirationTime(), ChronoUnit.HOURS))
-                                          .claim("role", authentication.getAuthorities().stream().findFirst().get().getAuthority())
-                                          .build();
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                                                  .subject(authentication.getName())
+                                                  .issuedAt(now)
+                                                  .expiresAt(now.plus(tokenProperties.getExpirationTime(), ChronoUnit.HOURS))
+                                                  .claim(ROLE_CLAIM, authentication.getAuthorities().stream().findFirst().get().getAuthority());
+
+        if (authentication.getPrincipal() instanceof User user) {
+            claims.claim(ID_CLAIM, user.getId())
+                  .claim(USER_ID_CLAIM, user.getUserId())
+                  .claim(NAME_CLAIM, user.getName());
+        }
 
-        String token = jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+        String token = jwtEncoder.encode(JwtEncoderParameters.from(claims.build())).getTokenValue();
         log.info("Successfully generated token");
         return token;
     }
@@ -0,0 +1,133 @@
+package com.dms.service;
+
+import com.dms.config.UploadProperties;
+import com.dms.exception.InvalidUploadException;
+import com.dms.upload.BatchUploadResult;
+import com.dms.upload.StagedBlob;
+import com.dms.upload.StagedDocument;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Service class for several files uploaded in one request.
+ * <p>
+ * The files are hashed and stored in parallel by a fixed number of threads shared by all requests, so a large batch
+ * can't take over the machine. The documents are then saved in one transaction by {@link DocumentService}, instead of
+ * one authentication lookup, path check and pair of inserts per request.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Service
+@Log4j2
+public class BatchUploadService {
+
+    /** Service responsible for document management operations. */
+    private final DocumentService documentService;
+    /** Service providing common functionality for documents. */
+    private final DocumentCommonService documentCommonService;
+
+    /** Executor storing the files in parallel. */
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new {@code BatchUploadService} and starts the threads storing the files.
+     *
+     * @param documentService the service responsible for document management operations
+     * @param documentCommonService the service providing common functionality for documents
+     * @param uploadProperties the properties related to uploads
+     */
+    public BatchUploadService(DocumentService documentService, DocumentCommonService documentCommonService, UploadProperties uploadProperties) {
+        this.documentService = documentService;
+        this.documentCommonService = documentCommonService;
+        this.executor = Executors.newFixedThreadPool(uploadProperties.getBatchThreads());
+    }
+
+    /**
+     * Uploads the files as new documents in the given path.
+     * A file which could not be stored, or whose name is already used in the path, is reported in its result and
+     * doesn't prevent the other files from being uploaded.
+     *
+     * @param files the multipart files to upload
+     * @param path the path where the documents will be stored
+     * @return the results of the files, in the order of the files
+     * @throws org.springframework.dao.DataIntegrityViolationException if a document with the same path was saved
+     *                                                                 concurrently, in which case none of the files are uploaded
+     */
+    public List<BatchUploadResult> uploadDocuments(List<MultipartFile> files, String path) {
+        log.debug("Request - Uploading {} documents: path={}", files.size(), path);
+
+        // store all files before the metadata transaction starts
+        List<CompletableFuture<StagedDocument>> stagedFutures = files.stream()
+                                                                     .map(file -> CompletableFuture.supplyAsync(() -> stageDocument(file, path), executor))
+                                                                     .toList();
+
+        List<StagedDocument> stagedDocuments = new ArrayList<>();
+        List<BatchUploadResult> failedResults = new ArrayList<>();
+
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                stagedDocuments.add(stagedFutures.get(i).join());
+                failedResults.add(null);
+            } catch (CompletionException exception) {
+                log.error("File {} could not be stored", files.get(i).getOriginalFilename(), exception.getCause());
+                failedResults.add(BatchUploadResult.failed(files.get(i).getOriginalFilename(), exception.getCause().getMessage()));
+            }
+        }
+
+        List<BatchUploadResult> stagedResults = stagedDocuments.isEmpty() ? List.of() : documentService.uploadStagedDocuments(stagedDocuments);
+
+        // merge the results of the staged documents with the failed files, keeping the order of the files
+        List<BatchUploadResult> results = new ArrayList<>(files.size());
+        int stagedIndex = 0;
+
+        for (BatchUploadResult failedResult : failedResults) {
+            results.add(failedResult != null ? failedResult : stagedResults.get(stagedIndex++));
+        }
+
+        log.info("Batch of {} files uploaded to path {}, {} files could not be stored", files.size(), path, files.size() - stagedDocuments.size());
+
+        return results;
+    }
+
+    /**
+     * Stores the blob of the file.
+     *
+     * @param file the multipart file to store
+     * @param path the path where the document will be stored
+     * @return the document whose blob was stored
+     * @throws InvalidUploadException if the file has no name
+     * @throws com.dms.exception.FileOperationException if the file could not be stored
+     */
+    private StagedDocument stageDocument(MultipartFile file, String path) {
+        String originalFilename = file.getOriginalFilename();
+        String filename = originalFilename == null ? null : StringUtils.getFilename(StringUtils.cleanPath(originalFilename));
+
+        if (!StringUtils.hasText(filename)) {
+            throw new InvalidUploadException("Name of the file must be provided");
+        }
+
+        StagedBlob stagedBlob = documentCommonService.stageBlob(file);
+
+        return new StagedDocument(filename, file.getContentType(), path, file.getSize(), stagedBlob);
+    }
+
+    /**
+     * Stops the threads storing the files when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
@@ -0,0 +1,529 @@
+package com.dms.service;
+
+import com.dms.entity.BlobState;
+import com.dms.exception.FileOperation;
+import com.dms.exception.FileOperationException;
+import com.dms.repository.BlobRepository;
+import com.dms.storage.BlobStore;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * Service class for maintaining the reference counts of the stored blobs.
+ * <p>
+ * The count is changed in the same transaction which inserts or deletes the referencing revisions, so deciding whether
+ * a blob can be deleted is a single-row update instead of counting the references in the document tables.
+ * A blob stored as a delta references its base blob as well, from when it is staged until it is orphaned,
+ * so the base is kept as long as the delta can be reconstructed.
+ * <p>
+ * The row of a blob is locked whenever its content is checked, written or deleted, so a content relied on by an upload
+ * is never deleted in the meantime: a staged blob is marked as stored before its content is checked, the content of an
+ * orphaned blob is only deleted while the blob is still orphaned, and a reference to an orphaned blob is only added
+ * while its content exists.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Service
+@Log4j2
+public class BlobReferenceService {
+
+    /** Number of attempts to insert a blob when a concurrent writer inserts the same blob. */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Repository for managing the reference counts of blobs. */
+    private final BlobRepository blobRepository;
+
+    /** Store holding the contents of the blobs. */
+    private final BlobStore blobStore;
+
+    /** Template running a change in a transaction, joining the current transaction if there is one. */
+    private final TransactionTemplate transactionTemplate;
+
+    /** Template running a change in a new transaction, as needed after the current transaction commits. */
+    private final TransactionTemplate newTransactionTemplate;
+
+    /**
+     * Constructs a new {@code BlobReferenceService}.
+     *
+     * @param blobRepository the repository for managing the reference counts of blobs
+     * @param blobStore the store holding the contents of the blobs
+     * @param transactionManager the manager of the transactions
+     */
+    public BlobReferenceService(BlobRepository blobRepository, BlobStore blobStore, PlatformTransactionManager transactionManager) {
+        this.blobRepository = blobRepository;
+        this.blobStore = blobStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Stages the content of a blob before it is referenced by the metadata transaction of an upload.
+     * The blob is locked and marked as stored while its content is checked, so a pending deletion of the orphaned blob
+     * can't delete the content afterwards. The content is then written without holding the lock, unless it is stored.
+     * <p>
+     * The base blob is referenced by the locking transaction before the content is written against it, so it can't be
+     * deleted in the meantime. If the base is not referenced anymore, the whole content is written instead, and if the
+     * content was not stored as a delta against the base after all, the reference is removed again.
+     *
+     * @param hash the hash of the content
+     * @param size the size of the content in bytes
+     * @param baseHash the hash of the blob of the previous version, or null if there is none
+     * @param writer the callback writing the content to the blob store
+     * @return true if the content was written, false if it was already stored
+     * @throws FileOperationException if the content could not be checked or written
+     */
+    public boolean stageBlob(String hash, long size, String baseHash, BlobWriter writer) {
+        StagedContent stagedContent = executeWithRetry(transactionTemplate, () -> lockStagedBlob(hash, size, baseHash));
+
+        if (!stagedContent.write()) {
+            return false;
+        }
+
+        String reservedBaseHash = stagedContent.baseHash();
+
+        try {
+            writer.write(reservedBaseHash);
+        } catch (IOException | RuntimeException exception) {
+            log.error("Content of blob {} could not be written", hash, exception);
+            releaseBaseReference(reservedBaseHash);
+            throw new FileOperationException(FileOperation.WRITE);
+        }
+
+        if (reservedBaseHash != null && !isStoredAgainst(hash, reservedBaseHash)) {
+            // the store kept the whole content, such as when the delta would not be smaller
+            releaseBaseReference(reservedBaseHash);
+        }
+
+        return true;
+    }
+
+    /**
+     * Deletes the content written by an upload whose metadata transaction failed, unless the blob was referenced since.
+     * The blob is locked while it is checked and marked as orphaned, so a concurrent upload of the same content either
+     * references it before, or finds it orphaned and stores it again.
+     *
+     * @param hash the hash of the staged blob
+     */
+    public void deleteStagedBlob(String hash) {
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean stored = blobRepository.findStateForUpdate(hash).map(BlobState.STORED::equals).orElse(false);
+
+            if (stored && blobRepository.markOrphaned(hash) == 1) {
+                removeBaseReference(hash);
+                deleteBlobAfterCommit(hash);
+            }
+        });
+    }
+
+    /**
+     * Adds a reference to the blob.
+     * The base of a staged blob is already referenced, the base of an orphaned blob or of a blob stored before its
+     * references were tracked is referenced along with the blob.
+     *
+     * @param hash the hash of the referenced blob
+     * @param size the size of the blob in bytes
+     * @throws FileOperationException if the blob or its base is orphaned and its content was already deleted
+     */
+    public void addReference(String hash, Long size) {
+        Optional<BlobState> state = blobRepository.findStateForUpdate(hash);
+        boolean untracked = state.isEmpty() && trackBlob(hash, size);
+
+        if (state.isEmpty()) {
+            state = blobRepository.findStateForUpdate(hash);
+        }
+
+        boolean orphaned = state.map(BlobState.ORPHANED::equals).orElse(false);
+
+        if (orphaned && !contentExists(hash)) {
+            log.error("Content of orphaned blob {} was deleted before it was referenced again", hash);
+            throw new FileOperationException(FileOperation.READ);
+        }
+
+        if (blobRepository.reviveOrphaned(hash) == 0) {
+            blobRepository.incrementReferenceCount(hash);
+        }
+
+        if (orphaned || untracked) {
+            addBaseReference(hash);
+        }
+
+        log.debug("Reference to blob {} added", hash);
+    }
+
+    /**
+     * Adds references to the blob, such as the references of documents uploaded in one transaction.
+     *
+     * @param hash the hash of the referenced blob
+     * @param size the size of the blob in bytes
+     * @param count the number of added references
+     * @see #addReference(String, Long)
+     */
+    public void addReferences(String hash, Long size, long count) {
+        addReference(hash, size);
+
+        if (count > 1) {
+            blobRepository.incrementReferenceCount(hash, count - 1);
+        }
+    }
+
+    /**
+     * Removes a reference to the blob.
+     *
+     * @param hash the hash of the blob
+     * @see #removeReferences(String, long)
+     */
+    public void removeReference(String hash) {
+        removeReferences(hash, 1);
+    }
+
+    /**
+     * Removes references to the blob.
+     * If no references are left, the blob is marked as orphaned and deleted from the storage once the transaction commits,
+     * so a rolled back deletion never loses the file.
+     *
+     * @param hash the hash of the blob
+     * @param count the number of removed references
+     */
+    public void removeReferences(String hash, long count) {
+        if (blobRepository.decrementReferenceCount(hash, count) == 0) {
+            // keep the file if the references were not tracked, it is safer to leak it than to lose it
+            log.warn("Blob {} is not tracked or has fewer than {} references, it is kept in the storage", hash, count);
+            return;
+        }
+
+        if (blobRepository.markOrphaned(hash) == 1) {
+            removeBaseReference(hash);
+            deleteBlobAfterCommit(hash);
+        }
+    }
+
+    /**
+     * Checks whether the blob is referenced by any revision.
+     *
+     * @param hash the hash of the blob
+     * @return true if the blob is referenced, false otherwise
+     */
+    public boolean isReferenced(String hash) {
+        return blobRepository.isReferenced(hash);
+    }
+
+    /**
+     * Locks the blob if it is referenced by any revision.
+     * The lock is held until the current transaction ends, so the last reference can't be removed and the blob deleted
+     * before a new reference is added by the same transaction.
+     *
+     * @param hash the hash of the blob
+     * @return true if the blob is referenced and was locked, false otherwise
+     */
+    public boolean lockReferencedBlob(String hash) {
+        return blobRepository.findReferencedForUpdate(hash).isPresent();
+    }
+
+    /**
+     * Locks the staged blob and decides whether its content has to be written.
+     * The content of an orphaned blob is written again, as its pending deletion may already be deleting it.
+     * The base blob is referenced if the content is written against it, which is only possible while the base is referenced.
+     *
+     * @param hash the hash of the content
+     * @param size the size of the content in bytes
+     * @param baseHash the hash of the blob of the previous version, or null if there is none
+     * @return whether the content has to be written and the base it can be written against
+     * @throws IOException if the blob store could not be queried
+     * @throws DataIntegrityViolationException if the blob was inserted by a concurrent writer
+     */
+    private StagedContent lockStagedBlob(String hash, long size, String baseHash) throws IOException {
+        Optional<BlobState> state = blobRepository.findStateForUpdate(hash);
+
+        if (state.isEmpty()) {
+            blobRepository.insertStored(hash, size);
+        } else if (state.get() == BlobState.ORPHANED) {
+            blobStore.delete(hash);
+            blobRepository.markStored(hash);
+        } else if (blobStore.exists(hash)) {
+            return new StagedContent(false, null);
+        }
+
+        if (baseHash == null || baseHash.equals(hash) || !lockReferencedBlob(baseHash)) {
+            return new StagedContent(true, null);
+        }
+
+        blobRepository.incrementReferenceCount(baseHash);
+
+        return new StagedContent(true, baseHash);
+    }
+
+    /**
+     * Inserts a blob whose content was stored before its references were tracked.
+     * The blob is inserted by a separate transaction, so an insert of a concurrent writer doesn't fail the current transaction.
+     *
+     * @param hash the hash of the blob
+     * @param size the size of the blob in bytes
+     * @return true if the blob was inserted, false if it was inserted by a concurrent writer
+     */
+    private boolean trackBlob(String hash, Long size) {
+        return executeWithRetry(newTransactionTemplate, () -> {
+            if (blobRepository.findStateForUpdate(hash).isPresent()) {
+                return false;
+            }
+
+            blobRepository.insertStored(hash, size);
+            return true;
+        });
+    }
+
+    /**
+     * Adds a reference to the base blob, if the blob is stored as a delta.
+     * The base is locked while it is referenced, and an orphaned base is referenced again along with its own base,
+     * unless its content was already deleted.
+     *
+     * @param hash the hash of the referenced blob
+     * @throws FileOperationException if the blob could not be read or its base is lost, as the blob could not be read otherwise
+     */
+    private void addBaseReference(String hash) {
+        String baseHash = getDeltaBase(hash);
+
+        if (baseHash == null) {
+            return;
+        }
+
+        boolean orphaned = blobRepository.findStateForUpdate(baseHash).map(BlobState.ORPHANED::equals).orElse(false);
+
+        if (orphaned && !contentExists(baseHash)) {
+            log.error("Content of orphaned base blob {} of blob {} was deleted before it was referenced again", baseHash, hash);
+            throw new FileOperationException(FileOperation.READ);
+        }
+
+        if (blobRepository.incrementReferenceCount(baseHash) == 0) {
+            log.error("Base blob {} of blob {} is not tracked", baseHash, hash);
+            throw new FileOperationException(FileOperation.READ);
+        }
+
+        if (orphaned) {
+            addBaseReference(baseHash);
+        }
+    }
+
+    /**
+     * Removes the reference to the base blob added while the content was staged, in a transaction of its own.
+     * A failure is only logged, it is safer to leak the base than to fail the upload.
+     *
+     * @param baseHash the hash of the base blob, or null if no base was referenced
+     */
+    private void releaseBaseReference(String baseHash) {
+        if (baseHash == null) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> removeReference(baseHash));
+        } catch (RuntimeException exception) {
+            log.error("Reference to base blob {} could not be removed, it is kept in the storage", baseHash, exception);
+        }
+    }
+
+    /**
+     * Removes the reference to the base blob of the orphaned blob, if it is stored as a delta.
+     * A failure to read the blob is only logged, it is safer to leak the base than to fail the deletion.
+     *
+     * @param hash the hash of the orphaned blob
+     */
+    private void removeBaseReference(String hash) {
+        String baseHash;
+
+        try {
+            baseHash = getDeltaBase(hash);
+        } catch (RuntimeException exception) {
+            log.error("Base of blob {} could not be resolved, it is kept in the storage", hash, exception);
+            return;
+        }
+
+        if (baseHash != null) {
+            removeReference(baseHash);
+        }
+    }
+
+    /**
+     * Deletes the blob from the storage after the current transaction commits, or immediately if there is no transaction.
+     *
+     * @param hash the hash of the blob to delete
+     */
+    private void deleteBlobAfterCommit(String hash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteBlob(hash);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteBlob(hash);
+            }
+        });
+    }
+
+    /**
+     * Deletes the content of the orphaned blob from the storage, unless the blob was staged or referenced again since.
+     * The blob is locked while its content is deleted, so a new upload of the same content waits for the deletion.
+     * A failure is only logged, as the references have already been removed.
+     *
+     * @param hash the hash of the blob to delete
+     */
+    private void deleteBlob(String hash) {
+        try {
+            newTransactionTemplate.executeWithoutResult(status -> {
+                if (!blobRepository.findStateForUpdate(hash).map(BlobState.ORPHANED::equals).orElse(false)) {
+                    log.info("Orphaned blob {} was stored again, it is kept in the storage", hash);
+                    return;
+                }
+
+                try {
+                    blobStore.delete(hash);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+
+                log.info("Orphaned blob {} deleted successfully", hash);
+            });
+        } catch (RuntimeException exception) {
+            log.error("Orphaned blob {} could not be deleted", hash, exception);
+        }
+    }
+
+    /**
+     * Checks whether the content of the blob exists in the storage.
+     *
+     * @param hash the hash of the blob
+     * @return true if the content exists, false otherwise
+     * @throws FileOperationException if the blob store could not be queried
+     */
+    private boolean contentExists(String hash) {
+        try {
+            return blobStore.exists(hash);
+        } catch (IOException exception) {
+            throw new FileOperationException(FileOperation.READ);
+        }
+    }
+
+    /**
+     * Checks whether the blob is stored as a delta against the base blob.
+     * The blob is assumed to be stored against the base if it could not be read, it is safer to leak the base than to lose it.
+     *
+     * @param hash the hash of the blob
+     * @param baseHash the hash of the base blob
+     * @return true if the blob is stored against the base or could not be read, false otherwise
+     */
+    private boolean isStoredAgainst(String hash, String baseHash) {
+        try {
+            return baseHash.equals(getDeltaBase(hash));
+        } catch (RuntimeException exception) {
+            log.error("Base of blob {} could not be resolved, base blob {} is kept referenced", hash, baseHash, exception);
+            return true;
+        }
+    }
+
+    /**
+     * Retrieves the hash of the blob against which the blob is stored as a delta.
+     *
+     * @param hash the hash of the blob
+     * @return the hash of the base blob, or null if the whole content of the blob is stored or the blob does not exist
+     * @throws FileOperationException if the blob could not be read
+     */
+    private String getDeltaBase(String hash) {
+        try {
+            return blobStore.getDeltaBase(hash);
+        } catch (FileNotFoundException exception) {
+            return null;
+        } catch (IOException exception) {
+            throw new FileOperationException(FileOperation.READ);
+        }
+    }
+
+    /**
+     * Runs the callback in a transaction, retrying it when a blob was inserted by a concurrent writer.
+     *
+     * @param template the template running the transaction
+     * @param callback the callback to run
+     * @param <T> the type of the result
+     * @return the result of the callback
+     * @throws FileOperationException if the blob store could not be accessed
+     */
+    private <T> T executeWithRetry(TransactionTemplate template, StorageCallback<T> callback) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return template.execute(status -> {
+                    try {
+                        return callback.execute();
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            } catch (UncheckedIOException exception) {
+                log.error("Blob store could not be accessed", exception.getCause());
+                throw new FileOperationException(FileOperation.WRITE);
+            } catch (DataIntegrityViolationException exception) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw exception;
+                }
+
+                log.debug("Blob was inserted concurrently, retrying attempt {}", attempt + 1);
+            }
+        }
+    }
+
+    /**
+     * Callback accessing the content of a blob in a transaction.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface StorageCallback<T> {
+
+        /**
+         * Runs the callback.
+         *
+         * @return the result of the callback
+         * @throws IOException if the content of the blob could not be accessed
+         */
+        T execute() throws IOException;
+
+    }
+
+    /**
+     * Decision of the staging of a content.
+     *
+     * @param write true if the content has to be written, false if it is stored
+     * @param baseHash the hash of the referenced base blob the content can be written against, or null if there is none
+     */
+    private record StagedContent(boolean write, String baseHash) {
+    }
+
+    /**
+     * Callback writing the content of a staged blob to the blob store.
+     */
+    @FunctionalInterface
+    public interface BlobWriter {
+
+        /**
+         * Writes the content.
+         *
+         * @param baseHash the hash of the blob the content may be stored as a delta against, or null if there is none
+         * @throws IOException if the content could not be written
+         */
+        void write(String baseHash) throws IOException;
+
+    }
+
+}
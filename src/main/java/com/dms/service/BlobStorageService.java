@@ -3,21 +3,33 @@ package com.dms.service;
 import com.dms.config.BlobStorageProperties;
 import com.dms.exception.FileOperation;
 import com.dms.exception.FileOperationException;
+import com.dms.exception.UploadSizeExceededException;
+import com.dms.storage.BlobStore;
+import com.dms.storage.FileSystemBlobStore;
+import com.dms.upload.StagedBlob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.DirectoryStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 /**
  * Service class for managing blob storage operations.
+ * <p>
+ * Blobs are addressed by the hash of their content. The contents are kept by the configured {@link BlobStore},
+ * so the medium holding them can be changed without changing this service.
  *
  * @author Jakub Pavlíček
  * @version 1.0
@@ -31,163 +43,270 @@ public class BlobStorageService {
     private final BlobStorageProperties blobStorageProperties;
     /** Service for generating hash values for files. */
     private final HashService hashService;
+    /** Store holding the contents of the blobs. */
+    private final BlobStore blobStore;
+    /** Service locking the blobs while their contents are checked and written. */
+    private final BlobReferenceService blobReferenceService;
+
+    /** Name of the directory inside the blob storage where blobs are written before they are hashed. */
+    private static final String TEMP_DIRECTORY = FileSystemBlobStore.TEMP_DIRECTORY;
 
     /**
-     * Stores a blob in the file system.
+     * Stores a blob in the blob store.
      *
      * @param file the multipart file to store
      * @return the hash value of the stored blob
      * @throws FileOperationException if an error occurs during the storage process
      */
     public String storeBlob(MultipartFile file) {
-        String hash = hashService.hashFile(file);
+        return stageBlob(file, null).hash();
+    }
+
+    /**
+     * Stores a blob in the blob store, as a delta against the base blob if the store supports it.
+     *
+     * @param file the multipart file to store
+     * @param baseHash the hash of the blob of the previous version, or null if there is none
+     * @return the stored blob
+     * @throws FileOperationException if an error occurs during the storage process
+     */
+    public StagedBlob stageBlob(MultipartFile file, String baseHash) {
         String filename = file.getOriginalFilename();
 
-        Path directoryPath = getDirectoryPath(hash);
-        Path filePath = getFilePath(hash);
+        try (InputStream fileStream = file.getInputStream()) {
+            return stageBlob(fileStream, filename, baseHash);
+        } catch (FileOperationException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new FileOperationException(FileOperation.WRITE);
+        }
+    }
+
+    /**
+     * Stores a blob in the blob store using a single pass over the provided stream.
+     *
+     * @param content the stream with the content of the blob
+     * @param filename the name of the file used for logging
+     * @return the hash value of the stored blob
+     * @throws FileOperationException if an error occurs during the storage process
+     * @see #stageBlob(InputStream, String, String)
+     */
+    public String storeBlob(InputStream content, String filename) {
+        return stageBlob(content, filename, null).hash();
+    }
+
+    /**
+     * Stores a blob in the blob store using a single pass over the provided stream,
+     * as a delta against the base blob if the store supports it.
+     * <p>
+     * The content is hashed while it is being written to a temporary file inside the blob storage directory.
+     * Once the hash is known, the temporary file is handed over to the blob store under the hash,
+     * or discarded if a blob with the same hash already exists, see {@link BlobReferenceService#stageBlob}.
+     *
+     * @param content the stream with the content of the blob
+     * @param filename the name of the file used for logging
+     * @param baseHash the hash of the blob of the previous version, or null if there is none
+     * @return the stored blob
+     * @throws FileOperationException if an error occurs during the storage process
+     * @throws UploadSizeExceededException if the stream limits the size of the content and the content is larger
+     */
+    public StagedBlob stageBlob(InputStream content, String filename, String baseHash) {
+        MessageDigest digest = hashService.createDigest();
+        Path tempFilePath = createTempFile("blob-");
 
         try {
-            // don't store blob if it already exists
-            if (Files.exists(filePath)) {
-                log.info("Blob of the file {} already exist, retrieving existing blob", filename);
-                return hash;
+            // hash the content while it is being copied to the temporary file
+            try (DigestInputStream digestStream = new DigestInputStream(content, digest)) {
+                Files.copy(digestStream, tempFilePath, StandardCopyOption.REPLACE_EXISTING);
             }
 
-            // create directory if it doesn't exist
-            if (Files.notExists(directoryPath)) {
-                Files.createDirectory(directoryPath);
-                log.info("Creating a directory for blob of the file {}", filename);
+            String hash = hashService.getHash(digest);
+
+            // don't store blob if it already exists, otherwise publish it under its content-addressed key
+            if (!blobReferenceService.stageBlob(hash, Files.size(tempFilePath), baseHash, base -> blobStore.put(hash, tempFilePath, base))) {
+                log.info("Blob of the file {} already exist, retrieving existing blob", filename);
+                return new StagedBlob(hash, false);
             }
 
-            // copy file content to the blob file
-            InputStream fileStream = file.getInputStream();
-            Files.copy(fileStream, filePath);
+            log.info("Blob of the file {} stored successfully", filename);
+
+            return new StagedBlob(hash, true);
+        } catch (FileOperationException | UploadSizeExceededException exception) {
+            throw exception;
         } catch (Exception exception) {
+            log.error("Failed to store blob of the file {}", filename, exception);
             throw new FileOperationException(FileOperation.WRITE);
+        } finally {
+            deleteTempFile(tempFilePath);
         }
-
-        log.info("Blob of the file {} stored successfully", filename);
-
-        return hash;
     }
 
     /**
-     * Retrieves a blob from the file system.
+     * Stores a blob whose content was already hashed, as a delta against the base blob if the store supports it.
+     * The file is handed over to the blob store without reading it again, or left in place if a blob with the same hash
+     * already exists, so the caller has to delete it if it still exists afterwards.
      *
-     * @param hash the hash value of the blob to retrieve
-     * @return the resource representing the retrieved blob
-     * @throws FileOperationException if the blob retrieval fails
+     * @param file the file inside the temporary directory of the blob storage holding the content of the blob
+     * @param hash the hash of the content
+     * @param baseHash the hash of the blob of the previous version, or null if there is none
+     * @return the stored blob
+     * @throws FileOperationException if an error occurs during the storage process
      */
-    public Resource getBlob(String hash) {
-        Path filePath = getFilePath(hash);
-
+    public StagedBlob stageHashedBlob(Path file, String hash, String baseHash) {
         try {
-            Resource resource = new UrlResource(filePath.toUri());
-            log.info("Blob retrieved successfully");
-            return resource;
+            // don't store blob if it already exists
+            if (!blobReferenceService.stageBlob(hash, Files.size(file), baseHash, base -> blobStore.put(hash, file, base))) {
+                log.info("Blob {} already exist, retrieving existing blob", hash);
+                return new StagedBlob(hash, false);
+            }
+
+            log.info("Blob {} stored successfully", hash);
+
+            return new StagedBlob(hash, true);
+        } catch (FileOperationException exception) {
+            throw exception;
         } catch (Exception exception) {
-            throw new FileOperationException(FileOperation.READ);
+            log.error("Failed to store blob {}", hash, exception);
+            throw new FileOperationException(FileOperation.WRITE);
         }
     }
 
     /**
-     * Deletes a blob from the file system.
+     * Stores a blob from a file inside the temporary directory of the blob storage, such as an entry extracted from an archive.
+     * The file is hashed by reading it once and then handed over to the blob store without copying it again,
+     * see {@link #stageHashedBlob(Path, String, String)}. The file is deleted afterwards if it still exists.
      *
-     * @param hash the hash value of the blob to delete
-     * @throws FileOperationException if the blob deletion fails
+     * @param file the file inside the temporary directory of the blob storage holding the content of the blob
+     * @param filename the name of the file used for logging
+     * @return the stored blob
+     * @throws FileOperationException if the file could not be read or stored
      */
-    public void deleteBlob(String hash) {
-        Path filePath = getFilePath(hash);
+    public StagedBlob stageTempFile(Path file, String filename) {
+        MessageDigest digest = hashService.createDigest();
 
         try {
-            // attempt to delete the blob file
-            boolean wasFileDeleted = Files.deleteIfExists(filePath);
+            try (DigestInputStream digestStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+                digestStream.transferTo(OutputStream.nullOutputStream());
+            }
 
-            // delete directory if it is empty after the deletion
-            if (wasFileDeleted) {
-                log.info("Blob deleted successfully");
+            return stageHashedBlob(file, hashService.getHash(digest), null);
+        } catch (IOException exception) {
+            log.error("Failed to hash file {}", filename, exception);
+            throw new FileOperationException(FileOperation.READ);
+        } finally {
+            deleteTempFile(file);
+        }
+    }
 
-                deleteDirectoryIfEmpty(hash);
-            }
+    /**
+     * Creates a temporary file with the given prefix inside the blob storage directory,
+     * so the file system store can atomically move it to its final path.
+     *
+     * @param prefix the prefix of the name of the file
+     * @return the path to the created temporary file
+     * @throws FileOperationException if the temporary file could not be created
+     */
+    public Path createTempFile(String prefix) {
+        try {
+            Path tempDirectoryPath = Paths.get(blobStorageProperties.getPath(), TEMP_DIRECTORY);
+            Files.createDirectories(tempDirectoryPath);
+            return Files.createTempFile(tempDirectoryPath, prefix, ".tmp");
         } catch (Exception exception) {
-            throw new FileOperationException(FileOperation.DELETE);
+            throw new FileOperationException(FileOperation.WRITE);
         }
     }
 
     /**
-     * Deletes the directory if it is empty.
+     * Deletes the temporary file if it still exists.
      *
-     * @param hash the hash value used to identify the directory
+     * @param tempFilePath the path to the temporary file
      */
-    private void deleteDirectoryIfEmpty(String hash) {
-        Path directoryPath = getDirectoryPath(hash);
-
-        if (isDirectoryEmpty(directoryPath)) {
-            try {
-                Files.deleteIfExists(directoryPath);
-            } catch (Exception exception) {
-                throw new FileOperationException(FileOperation.DEFAULT);
-            }
+    private void deleteTempFile(Path tempFilePath) {
+        try {
+            Files.deleteIfExists(tempFilePath);
+        } catch (Exception exception) {
+            log.warn("Temporary file {} could not be deleted", tempFilePath, exception);
         }
     }
 
     /**
-     * Retrieves the directory name from the hash.
+     * Retrieves a blob from the blob store.
+     * Blobs of the file system store are file resources, so they are written to the response using sendfile.
      *
-     * @param hash the hash value from which to extract the directory name
-     * @return the directory name extracted from the hash
+     * @param hash the hash value of the blob to retrieve
+     * @return the resource representing the retrieved blob
+     * @throws FileOperationException if the blob retrieval fails
      */
-    private String getDirectoryName(String hash) {
-        return hash.substring(0, blobStorageProperties.getSubdirectoryPrefixLength());
+    public Resource getBlob(String hash) {
+        try {
+            Resource resource = blobStore.getResource(hash);
+            log.info("Blob retrieved successfully");
+            return resource;
+        } catch (Exception exception) {
+            throw new FileOperationException(FileOperation.READ);
+        }
     }
 
     /**
-     * Retrieves the directory path corresponding to the hash.
+     * Opens the content of a blob for reading, regardless of the type of the store.
      *
-     * @param hash the hash value used to identify the directory
-     * @return the path to the directory identified by the hash
+     * @param hash the hash value of the blob to read
+     * @return the stream with the content of the blob
+     * @throws FileOperationException if the blob could not be opened
      */
-    private Path getDirectoryPath(String hash) {
+    public InputStream openBlob(String hash) {
         try {
-            String directoryName = getDirectoryName(hash);
-            return Paths.get(blobStorageProperties.getPath(), directoryName);
+            return blobStore.get(hash);
         } catch (Exception exception) {
-            throw new FileOperationException(FileOperation.DEFAULT);
+            throw new FileOperationException(FileOperation.READ);
         }
     }
 
     /**
-     * Retrieves the file path corresponding to the hash.
+     * Retrieves the hash of the blob against which the blob is stored as a delta.
      *
-     * @param hash the hash value used to identify the file
-     * @return the path to the file identified by the hash
+     * @param hash the hash value of the blob
+     * @return the hash of the base blob, or null if the whole content of the blob is stored or the blob does not exist
+     * @throws FileOperationException if the blob could not be read
      */
-    private Path getFilePath(String hash) {
+    public String getDeltaBase(String hash) {
         try {
-            String directoryName = getDirectoryName(hash);
-            String fileName = hash.substring(blobStorageProperties.getSubdirectoryPrefixLength());
-            return Paths.get(blobStorageProperties.getPath(), directoryName, fileName);
+            return blobStore.getDeltaBase(hash);
+        } catch (FileNotFoundException exception) {
+            return null;
         } catch (Exception exception) {
-            throw new FileOperationException(FileOperation.DEFAULT);
+            throw new FileOperationException(FileOperation.READ);
         }
     }
 
     /**
-     * Checks if the directory identified by the path is empty.
+     * Deletes a blob from the blob store.
      *
-     * @param directoryPath the path to the directory to check
-     * @return true if the directory is empty, false otherwise
+     * @param hash the hash value of the blob to delete
+     * @throws FileOperationException if the blob deletion fails
      */
-    private boolean isDirectoryEmpty(Path directoryPath) {
-        try (DirectoryStream<Path> directory = Files.newDirectoryStream(directoryPath)) {
-            // if the provided path is not a directory, it is not empty
-            if (!Files.isDirectory(directoryPath)) {
-                return false;
-            }
-            // check if the directory is empty using iterator's next element existence
-            return !directory.iterator().hasNext();
+    public void deleteBlob(String hash) {
+        try {
+            blobStore.delete(hash);
+            log.info("Blob deleted successfully");
+        } catch (Exception exception) {
+            throw new FileOperationException(FileOperation.DELETE);
+        }
+    }
+
+    /**
+     * Scheduled method to reclaim the space of deleted blobs.
+     * This method runs at 1 AM every day, after the archive cleanup has deleted the blobs of expired documents.
+     */
+    @Scheduled(cron = "0 0 1 * * *")
+    public void compactBlobStore() {
+        log.info("Compacting the blob store");
+
+        try {
+            blobStore.compact();
+            log.info("Blob store compacted successfully");
         } catch (Exception exception) {
-            throw new FileOperationException(FileOperation.DEFAULT);
+            log.error("Failed to compact the blob store", exception);
         }
     }
 
@@ -0,0 +1,457 @@
+package com.dms.service;
+
+import com.dms.config.BulkImportProperties;
+import com.dms.entity.User;
+import com.dms.exception.FileOperation;
+import com.dms.exception.FileOperationException;
+import com.dms.exception.UserNotFoundException;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.UserRepository;
+import com.dms.upload.BatchUploadResult;
+import com.dms.upload.BulkImportReport;
+import com.dms.upload.StagedBlob;
+import com.dms.upload.StagedDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Service class for importing an existing directory tree without going through the REST API.
+ * <p>
+ * The tree is walked in batches of files. The files of a batch are hashed and stored by all threads, while the documents
+ * of the previous batch are saved in one transaction, with the inserts sent in JDBC batches. Files whose documents
+ * already exist are skipped before they are read, so an interrupted import continues where it stopped when it is run
+ * again. The only leftovers of an interruption are the blobs stored for the last batch, which are reused by the next run.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class BulkImportService {
+
+    /** Prefix of the names of the temporary files linked to the imported files. */
+    private static final String TEMP_FILE_PREFIX = "bulk-import-";
+    /** Maximal number of names checked by one query, as some databases limit the number of query parameters. */
+    private static final int NAME_QUERY_BATCH_SIZE = 500;
+    /** Maximal length of the path and of the name of a document. */
+    private static final int MAX_LENGTH = 255;
+    /** Pattern of a directory of a document path. */
+    private static final Pattern DIRECTORY_PATTERN = Pattern.compile("[\\w\\-]+");
+
+    /** Repository for document-related database operations. */
+    private final DocumentRepository documentRepository;
+    /** Repository for user-related database operations. */
+    private final UserRepository userRepository;
+
+    /** Service responsible for document management operations. */
+    private final DocumentService documentService;
+    /** Service for managing blob storage. */
+    private final BlobStorageService blobStorageService;
+    /** Service for generating hash values for files. */
+    private final HashService hashService;
+
+    /** Properties related to the bulk import. */
+    private final BulkImportProperties bulkImportProperties;
+
+    /**
+     * Imports the regular files of the directory tree as new documents of the user.
+     * The subdirectories are appended to the given path, files in directories which can't be part of a document path
+     * are counted as failed. The progress and the throughput are logged in the configured interval.
+     *
+     * @param directory the root of the imported tree
+     * @param userEmail the email of the author of the documents
+     * @param path the path the directory is imported to
+     * @return the report of the finished import
+     * @throws IllegalArgumentException if the directory does not exist
+     * @throws UserNotFoundException if the user does not exist
+     * @throws FileOperationException if the directory tree could not be walked
+     */
+    public BulkImportReport importDirectory(Path directory, String userEmail, String path) {
+        log.info("Importing directory {} to path {} as user {}", directory, path, userEmail);
+
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Directory " + directory + " does not exist");
+        }
+
+        User author = userRepository.findByEmail(userEmail)
+                                    .orElseThrow(() -> new UserNotFoundException("User with email: " + userEmail + " not found"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(bulkImportProperties.getThreads());
+        DirectoryImport directoryImport = new DirectoryImport(directory, path, author, executor);
+
+        try {
+            Files.walkFileTree(directory, directoryImport);
+            directoryImport.finish();
+        } catch (IOException exception) {
+            log.error("Directory {} could not be walked", directory, exception);
+            throw new FileOperationException(FileOperation.READ);
+        } finally {
+            executor.shutdown();
+        }
+
+        BulkImportReport report = directoryImport.getReport();
+
+        log.info("Directory {} imported: {}", directory, format(report));
+
+        return report;
+    }
+
+    /**
+     * Hashes and stores the file.
+     *
+     * @param file the file to store
+     * @return the document whose blob was stored
+     * @throws FileOperationException if the file could not be read or stored
+     */
+    private StagedDocument stageFile(SourceFile file) {
+        StagedBlob stagedBlob;
+        try {
+            stagedBlob = bulkImportProperties.isLink() ? linkFile(file.source()) : copyFile(file.source());
+        } catch (IOException exception) {
+            log.error("File {} could not be stored", file.source(), exception);
+            throw new FileOperationException(FileOperation.READ);
+        }
+
+        String type = MediaTypeFactory.getMediaType(file.name())
+                                      .map(MediaType::toString)
+                                      .orElse(null);
+
+        return new StagedDocument(file.name(), type, file.path(), file.size(), stagedBlob);
+    }
+
+    /**
+     * Copies the file into the blob storage, hashing it while it is copied.
+     *
+     * @param source the file to store
+     * @return the stored blob
+     * @throws IOException if the file could not be opened
+     */
+    private StagedBlob copyFile(Path source) throws IOException {
+        try (InputStream content = Files.newInputStream(source)) {
+            return blobStorageService.stageBlob(content, source.toString(), null);
+        }
+    }
+
+    /**
+     * Hard links the file into the blob storage after hashing it, so a file system store publishes the link instead of
+     * a copy. The file is copied if it can't be linked, such as when it is located in another file system.
+     *
+     * @param source the file to store
+     * @return the stored blob
+     * @throws IOException if the file could not be read, linked or copied
+     */
+    private StagedBlob linkFile(Path source) throws IOException {
+        MessageDigest digest = hashService.createDigest();
+        try (InputStream content = new DigestInputStream(Files.newInputStream(source), digest)) {
+            content.transferTo(OutputStream.nullOutputStream());
+        }
+
+        String hash = hashService.getHash(digest);
+        Path tempFile = blobStorageService.createTempFile(TEMP_FILE_PREFIX);
+
+        try {
+            Files.delete(tempFile);
+
+            try {
+                Files.createLink(tempFile, source);
+            } catch (UnsupportedOperationException | IOException exception) {
+                log.debug("File {} could not be linked, copying it", source, exception);
+                Files.copy(source, tempFile);
+            }
+
+            // the link is left in place when a blob with the same hash already exists
+            return blobStorageService.stageHashedBlob(tempFile, hash, null);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Resolves the path and the name of the document of a file.
+     *
+     * @param path the path the directory is imported to
+     * @param source the file
+     * @param relativePath the path of the file relative to the imported directory
+     * @param size the size of the file in bytes
+     * @return the file, or null if its directories can't be part of a document path
+     */
+    private static SourceFile resolveFile(String path, Path source, Path relativePath, long size) {
+        List<String> directories = new ArrayList<>();
+        relativePath.forEach(segment -> directories.add(segment.toString()));
+        String name = directories.remove(directories.size() - 1);
+
+        if (name.length() > MAX_LENGTH || !directories.stream().allMatch(directory -> DIRECTORY_PATTERN.matcher(directory).matches())) {
+            return null;
+        }
+
+        String documentPath = directories.isEmpty() ? path : (path.endsWith("/") ? path : path + "/") + String.join("/", directories);
+
+        return documentPath.length() > MAX_LENGTH ? null : new SourceFile(source, documentPath, name, size);
+    }
+
+    /**
+     * Formats the report for the log.
+     *
+     * @param report the report of the import
+     * @return the formatted report
+     */
+    private static String format(BulkImportReport report) {
+        return String.format(
+            "%d created, %d skipped, %d conflicts, %d failed in %ds (%.1f files/s, %.1f MB/s)",
+            report.createdCount(),
+            report.skippedCount(),
+            report.conflictCount(),
+            report.failedCount(),
+            report.duration().toSeconds(),
+            report.filesPerSecond(),
+            report.megabytesPerSecond()
+        );
+    }
+
+    /**
+     * File of the imported tree along with the path and the name of its document.
+     *
+     * @param source the file
+     * @param path the path of the document
+     * @param name the name of the document
+     * @param size the size of the file in bytes
+     */
+    private record SourceFile(Path source, String path, String name, long size) {
+    }
+
+    /**
+     * File being stored.
+     *
+     * @param file the file
+     * @param stagedFuture the future completed with the document once the file is stored
+     */
+    private record PendingFile(SourceFile file, CompletableFuture<StagedDocument> stagedFuture) {
+    }
+
+    /**
+     * Visitor importing the files of one directory tree.
+     */
+    private final class DirectoryImport extends SimpleFileVisitor<Path> {
+
+        /** Root of the imported tree. */
+        private final Path root;
+        /** Path the directory is imported to. */
+        private final String path;
+        /** Author of the documents. */
+        private final User author;
+        /** Executor storing the files in parallel. */
+        private final ExecutorService executor;
+
+        /** Files visited since the last batch was submitted. */
+        private List<SourceFile> files = new ArrayList<>();
+        /** Files of the submitted batch, whose documents were not saved yet. */
+        private List<PendingFile> pendingFiles = List.of();
+
+        /** Time when the import started, in nanoseconds. */
+        private final long startTime = System.nanoTime();
+        /** Time when the progress was last logged, in nanoseconds. */
+        private long lastReportTime = startTime;
+
+        /** Number of files imported as new documents. */
+        private long createdCount;
+        /** Number of files imported by an earlier run. */
+        private long skippedCount;
+        /** Number of files whose names were used in the meantime. */
+        private long conflictCount;
+        /** Number of files which could not be read, stored or mapped to a document path. */
+        private long failedCount;
+        /** Number of bytes of the imported files. */
+        private long byteCount;
+
+        /**
+         * Constructs a new {@code DirectoryImport}.
+         *
+         * @param root the root of the imported tree
+         * @param path the path the directory is imported to
+         * @param author the author of the documents
+         * @param executor the executor storing the files in parallel
+         */
+        private DirectoryImport(Path root, String path, User author, ExecutorService executor) {
+            this.root = root;
+            this.path = path;
+            this.author = author;
+            this.executor = executor;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            if (!attributes.isRegularFile()) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            SourceFile sourceFile = resolveFile(path, file, root.relativize(file), attributes.size());
+
+            if (sourceFile == null) {
+                log.warn("File {} can't be mapped to a document path, directories may only contain letters, digits, underscores and hyphens", file);
+                failedCount++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            files.add(sourceFile);
+
+            if (files.size() >= bulkImportProperties.getBatchSize()) {
+                submitBatch();
+            }
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exception) {
+            log.warn("File {} could not be read", file, exception);
+            failedCount++;
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * Submits the visited files which were not imported yet for storing, then saves the documents of the previous
+         * batch while the files are being stored.
+         */
+        private void submitBatch() {
+            List<PendingFile> submittedFiles = filterImportedFiles(files).stream()
+                                                                         .map(file -> new PendingFile(file, CompletableFuture.supplyAsync(() -> stageFile(file), executor)))
+                                                                         .toList();
+            files = new ArrayList<>();
+
+            saveBatch();
+            pendingFiles = submittedFiles;
+        }
+
+        /**
+         * Saves the documents of the remaining files.
+         */
+        private void finish() {
+            submitBatch();
+            saveBatch();
+        }
+
+        /**
+         * Removes the files whose documents already exist, which were imported by an earlier run.
+         *
+         * @param visitedFiles the visited files
+         * @return the files which were not imported yet
+         */
+        private List<SourceFile> filterImportedFiles(List<SourceFile> visitedFiles) {
+            Map<String, List<SourceFile>> filesByPath = new LinkedHashMap<>();
+            visitedFiles.forEach(file -> filesByPath.computeIfAbsent(file.path(), documentPath -> new ArrayList<>()).add(file));
+
+            List<SourceFile> newFiles = new ArrayList<>();
+
+            filesByPath.forEach((documentPath, pathFiles) -> {
+                List<String> names = pathFiles.stream().map(SourceFile::name).toList();
+                Set<String> usedNames = new HashSet<>();
+
+                for (int start = 0; start < names.size(); start += NAME_QUERY_BATCH_SIZE) {
+                    usedNames.addAll(documentRepository.findNamesByAuthorAndPathAndNameIn(author, documentPath, names.subList(start, Math.min(names.size(), start + NAME_QUERY_BATCH_SIZE))));
+                }
+
+                pathFiles.stream()
+                         .filter(file -> !usedNames.contains(file.name()))
+                         .forEach(newFiles::add);
+            });
+
+            skippedCount += visitedFiles.size() - newFiles.size();
+
+            return newFiles;
+        }
+
+        /**
+         * Waits for the files of the submitted batch to be stored and saves their documents in one transaction.
+         */
+        private void saveBatch() {
+            List<StagedDocument> stagedDocuments = new ArrayList<>();
+
+            for (PendingFile pendingFile : pendingFiles) {
+                try {
+                    stagedDocuments.add(pendingFile.stagedFuture().join());
+                } catch (CompletionException exception) {
+                    log.warn("File {} could not be stored: {}", pendingFile.file().source(), exception.getCause().getMessage());
+                    failedCount++;
+                }
+            }
+
+            pendingFiles = List.of();
+
+            if (stagedDocuments.isEmpty()) {
+                return;
+            }
+
+            try {
+                List<BatchUploadResult> results = documentService.uploadStagedDocuments(author, stagedDocuments);
+
+                for (int i = 0; i < results.size(); i++) {
+                    switch (results.get(i).status()) {
+                        case CREATED -> {
+                            createdCount++;
+                            byteCount += stagedDocuments.get(i).size();
+                        }
+                        case CONFLICT -> conflictCount++;
+                        case FAILED -> failedCount++;
+                    }
+                }
+            } catch (DataAccessException exception) {
+                log.error("Batch of {} documents could not be saved", stagedDocuments.size(), exception);
+                failedCount += stagedDocuments.size();
+            }
+
+            reportProgress();
+        }
+
+        /**
+         * Logs the progress, if the configured interval elapsed since it was last logged.
+         */
+        private void reportProgress() {
+            long now = System.nanoTime();
+
+            if (now - lastReportTime >= bulkImportProperties.getReportInterval().toNanos()) {
+                lastReportTime = now;
+                log.info("Importing directory {}: {}", root, format(getReport()));
+            }
+        }
+
+        /**
+         * Retrieves the report of the import so far.
+         *
+         * @return the report
+         */
+        private BulkImportReport getReport() {
+            return new BulkImportReport(createdCount, skippedCount, conflictCount, failedCount, byteCount, Duration.ofNanos(System.nanoTime() - startTime));
+        }
+
+    }
+
+}
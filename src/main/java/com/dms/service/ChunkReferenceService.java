@@ -0,0 +1,197 @@
+package com.dms.service;
+
+import com.dms.entity.Chunk;
+import com.dms.repository.ChunkRepository;
+import com.dms.storage.ChunkReferences;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for maintaining the reference counts of the chunks stored by the chunking blob store.
+ * <p>
+ * Each change runs in its own transaction, as the blob store is also used after the transaction deleting a blob commits.
+ * The rows of the chunks are locked in the order of their hashes while their contents are stored or deleted, so a chunk
+ * is never deleted by the compaction while a new blob is referencing it.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Service
+@Log4j2
+public class ChunkReferenceService implements ChunkReferences {
+
+    /** Number of attempts to add references when a concurrent writer inserts the same chunk. */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Repository for managing the reference counts of chunks. */
+    private final ChunkRepository chunkRepository;
+
+    /** Template running each change in a new transaction. */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Constructs a new {@code ChunkReferenceService}.
+     *
+     * @param chunkRepository the repository for managing the reference counts of chunks
+     * @param transactionManager the manager of the transactions
+     */
+    public ChunkReferenceService(ChunkRepository chunkRepository, PlatformTransactionManager transactionManager) {
+        this.chunkRepository = chunkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Adds the references to the chunks, storing the contents of the chunks which have no references.
+     * A chunk inserted by a concurrent writer fails the transaction, which is then retried with the chunk already present.
+     *
+     * @param chunks the referenced chunks
+     * @param storeContent the callback storing the content of a chunk
+     * @throws IOException if the content of a chunk could not be stored
+     */
+    @Override
+    public void addReferences(Collection<ChunkReference> chunks, ChunkOperation storeContent) throws IOException {
+        Map<String, ChunkReference> sortedChunks = chunks.stream()
+                                                         .collect(Collectors.toMap(ChunkReference::hash, Function.identity(), (first, second) -> first, TreeMap::new));
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                executeInTransaction(() -> {
+                    addReferencesInTransaction(sortedChunks, storeContent);
+                    return null;
+                });
+                return;
+            } catch (DataIntegrityViolationException exception) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw exception;
+                }
+
+                log.debug("Chunks were inserted concurrently, retrying attempt {}", attempt + 1);
+            }
+        }
+    }
+
+    /**
+     * Removes the references to the chunks.
+     *
+     * @param referenceCounts the number of removed references of each chunk
+     */
+    @Override
+    public void removeReferences(Map<String, Long> referenceCounts) {
+        Map<String, Long> sortedReferenceCounts = new TreeMap<>(referenceCounts);
+
+        transactionTemplate.executeWithoutResult(status -> sortedReferenceCounts.forEach((hash, count) -> {
+            if (chunkRepository.decrementReferenceCount(hash, count) == 0) {
+                // keep the chunk if the references were not tracked, it is safer to leak it than to lose it
+                log.warn("Chunk {} is not tracked or has fewer than {} references", hash, count);
+            }
+        }));
+    }
+
+    /**
+     * Deletes a batch of chunks without references, along with their contents.
+     *
+     * @param limit the maximal number of deleted chunks
+     * @param deleteContent the callback deleting the content of a chunk
+     * @return the number of deleted chunks
+     * @throws IOException if the content of a chunk could not be deleted
+     */
+    @Override
+    public int deleteUnreferenced(int limit, ChunkOperation deleteContent) throws IOException {
+        return executeInTransaction(() -> {
+            Collection<Chunk> chunks = chunkRepository.findUnreferencedForUpdate(PageRequest.ofSize(limit));
+
+            for (Chunk chunk : chunks) {
+                deleteContent.apply(chunk.getHash());
+            }
+
+            chunkRepository.deleteAll(chunks);
+
+            return chunks.size();
+        });
+    }
+
+    /**
+     * Increments the reference counts of the locked chunks and inserts the missing ones.
+     * The content is stored when the chunk is new or its previous references were all removed, as the compaction may have deleted it.
+     *
+     * @param chunks the referenced chunks ordered by their hashes
+     * @param storeContent the callback storing the content of a chunk
+     * @throws IOException if the content of a chunk could not be stored
+     */
+    private void addReferencesInTransaction(Map<String, ChunkReference> chunks, ChunkOperation storeContent) throws IOException {
+        Map<String, Chunk> storedChunks = chunkRepository.findAllByHashesForUpdate(chunks.keySet())
+                                                         .stream()
+                                                         .collect(Collectors.toMap(Chunk::getHash, Function.identity()));
+
+        for (ChunkReference reference : chunks.values()) {
+            Chunk storedChunk = storedChunks.get(reference.hash());
+
+            if (storedChunk == null) {
+                storeContent.apply(reference.hash());
+                chunkRepository.insert(reference.hash(), reference.count(), reference.size());
+                continue;
+            }
+
+            if (storedChunk.getReferenceCount() == 0) {
+                storeContent.apply(reference.hash());
+            }
+
+            storedChunk.setReferenceCount(storedChunk.getReferenceCount() + reference.count());
+        }
+    }
+
+    /**
+     * Runs the callback in a new transaction, which is rolled back if the callback fails.
+     *
+     * @param callback the callback to run
+     * @param <T> the type of the result
+     * @return the result of the callback
+     * @throws IOException if the callback failed to access the content of a chunk
+     */
+    private <T> T executeInTransaction(StorageCallback<T> callback) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return callback.execute();
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * Callback accessing the contents of the chunks in a transaction.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface StorageCallback<T> {
+
+        /**
+         * Runs the callback.
+         *
+         * @return the result of the callback
+         * @throws IOException if the content of a chunk could not be accessed
+         */
+        T execute() throws IOException;
+
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.dms.service;
+
+import com.dms.exception.InvalidCursorException;
+import com.dms.pagination.KeysetPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service class for encoding and decoding cursors used in keyset pagination.
+ * <p>
+ * A cursor is an opaque token containing the sort parameter and the sort keys (including the ID) of the last element of a page.
+ * The next page then starts right after these keys, so the database can seek to it using an index instead of skipping rows using OFFSET.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class CursorService {
+
+    /** Name of the ID attribute, which is always appended to the sort keys to make them unique. */
+    private static final String ID_ATTRIBUTE = "id";
+
+    /** Mapper used for serializing the cursor content. */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Content of the cursor.
+     *
+     * @param sort the sort parameter the cursor was created for
+     * @param keys the sort keys of the last element of the page
+     */
+    private record Cursor(String sort, Map<String, String> keys) {
+    }
+
+    /**
+     * Decodes the cursor into a scroll position.
+     *
+     * @param cursor the cursor to decode, an empty cursor represents the first page
+     * @param sortParameter the sort parameter of the request
+     * @param sort the sort parsed from the sort parameter
+     * @param entityClass the class of the paginated entity
+     * @return the position to continue scrolling from
+     * @throws InvalidCursorException if the cursor is malformed or was created for a different sort parameter
+     */
+    public ScrollPosition decodeCursor(String cursor, String sortParameter, Sort sort, Class<?> entityClass) {
+        if (isFirstPage(cursor)) {
+            return ScrollPosition.keyset();
+        }
+
+        log.debug("Decoding cursor: cursor={}, sort={}", cursor, sortParameter);
+
+        Cursor decodedCursor;
+        try {
+            decodedCursor = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), Cursor.class);
+        } catch (Exception exception) {
+            throw new InvalidCursorException("The 'cursor' parameter is not valid");
+        }
+
+        if (!sortParameter.equals(decodedCursor.sort())) {
+            throw new InvalidCursorException("The 'cursor' parameter was created for a different 'sort' parameter");
+        }
+
+        if (decodedCursor.keys() == null || !decodedCursor.keys().keySet().equals(getKeyAttributes(sort))) {
+            throw new InvalidCursorException("The 'cursor' parameter is not valid");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        decodedCursor.keys().forEach((attribute, value) -> keys.put(attribute, convertKey(entityClass, attribute, value)));
+
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * Encodes the position after the last element of the window into a cursor.
+     *
+     * @param window the window of elements
+     * @param sortParameter the sort parameter of the request
+     * @return the cursor of the next page, or null if there is no next page
+     */
+    public String encodeCursor(Window<?> window, String sortParameter) {
+        if (window.isEmpty() || !window.hasNext()) {
+            return null;
+        }
+
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+
+        Map<String, String> keys = new LinkedHashMap<>();
+        position.getKeys().forEach((attribute, value) -> keys.put(attribute, value == null ? null : value.toString()));
+
+        try {
+            byte[] cursor = objectMapper.writeValueAsBytes(new Cursor(sortParameter, keys));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor);
+        } catch (Exception exception) {
+            throw new IllegalStateException("Cursor could not be created", exception);
+        }
+    }
+
+    /**
+     * Creates a keyset page from the window.
+     *
+     * @param window the window of elements
+     * @param cursor the cursor of the request
+     * @param sortParameter the sort parameter of the request
+     * @param sort the sort parsed from the sort parameter
+     * @param size the maximum number of elements on the page
+     * @param <T> the type of the elements
+     * @return the keyset page containing the elements and the cursor of the next page
+     */
+    public <T> KeysetPage<T> createPage(Window<T> window, String cursor, String sortParameter, Sort sort, int size) {
+        return new KeysetPage<>(window.getContent(), sort, size, isFirstPage(cursor), encodeCursor(window, sortParameter));
+    }
+
+    /**
+     * Checks whether the cursor represents the first page.
+     *
+     * @param cursor the cursor to check
+     * @return true if the cursor is empty, false otherwise
+     */
+    private static boolean isFirstPage(String cursor) {
+        return !StringUtils.hasText(cursor);
+    }
+
+    /**
+     * Retrieves the attributes the keyset consists of.
+     *
+     * @param sort the sort of the elements
+     * @return the sorted attributes followed by the ID attribute
+     */
+    private static Set<String> getKeyAttributes(Sort sort) {
+        Set<String> attributes = new LinkedHashSet<>();
+        sort.forEach(order -> attributes.add(order.getProperty()));
+        attributes.add(ID_ATTRIBUTE);
+
+        return attributes;
+    }
+
+    /**
+     * Converts the serialized key back to the type of the entity attribute.
+     *
+     * @param entityClass the class of the paginated entity
+     * @param attribute the name of the attribute
+     * @param value the serialized value of the key
+     * @return the value converted to the type of the attribute
+     * @throws InvalidCursorException if the value can't be converted
+     */
+    private static Object convertKey(Class<?> entityClass, String attribute, String value) {
+        Field field = ReflectionUtils.findField(entityClass, attribute);
+
+        if (field == null) {
+            throw new InvalidCursorException("The 'cursor' parameter is not valid");
+        }
+
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            // the shared conversion service has no converters for java.time types, which are serialized in ISO format
+            if (field.getType() == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            }
+
+            return DefaultConversionService.getSharedInstance().convert(value, field.getType());
+        } catch (Exception exception) {
+            throw new InvalidCursorException("The 'cursor' parameter is not valid");
+        }
+    }
+
+}
@@ -1,7 +1,10 @@
 package com.dms.service;
 
+import com.dms.config.HashProperties;
 import com.dms.entity.Document;
 import com.dms.entity.DocumentRevision;
+import com.dms.entity.User;
+import com.dms.exception.BlobNotFoundException;
 import com.dms.exception.FileOperation;
 import com.dms.exception.FileOperationException;
 import com.dms.exception.InvalidRegexInputException;
@@ -10,18 +13,34 @@ import com.dms.mapper.entity.DocumentMapper;
 import com.dms.mapper.entity.RevisionMapper;
 import com.dms.repository.DocumentRepository;
 import com.dms.repository.DocumentRevisionRepository;
+import com.dms.repository.HashReferenceCount;
+import com.dms.upload.StagedBlob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.UnaryOperator;
@@ -49,6 +68,11 @@ public class DocumentCommonService {
     /** Regular expression pattern for revision sorting. */
     private static final String REVISION_SORT_REGEX = "(revision_id|name|type|size|version|created_at):(asc|desc)(?:,|$)";
 
+    /** Name of the header with the digest of the whole file. */
+    private static final String REPR_DIGEST_HEADER = "Repr-Digest";
+    /** Hashing algorithms which can be sent in the {@code Repr-Digest} header, mapped to their registered names. */
+    private static final Map<String, String> REPR_DIGEST_ALGORITHMS = Map.of("SHA-256", "sha-256", "SHA-512", "sha-512");
+
     /** Repository for managing documents. */
     private final DocumentRepository documentRepository;
     /** Repository for managing document revisions. */
@@ -56,6 +80,11 @@ public class DocumentCommonService {
 
     /** Service for managing blob storage. */
     private final BlobStorageService blobStorageService;
+    /** Service for maintaining the reference counts of blobs. */
+    private final BlobReferenceService blobReferenceService;
+
+    /** Configuration properties for hashing algorithm. */
+    private final HashProperties hashProperties;
 
     /**
      * Retrieves a document revision by document and revision ID.
@@ -115,15 +144,17 @@ public class DocumentCommonService {
 
     /**
      * Saves a new revision from the given document.
+     * The revision gets the current version of the document, which has to be reserved before.
      *
      * @param document the document from which to create the revision
+     * @see #reserveRevisionVersion(Document)
      */
     public void saveRevisionFromDocument(Document document) {
         log.debug("Saving revision from document: document={}", document);
 
         DocumentRevision documentRevision = DocumentRevision.builder()
                                                             .document(document)
-                                                            .version(getLastRevisionVersion(document) + 1)
+                                                            .version(document.getVersion())
                                                             .name(document.getName())
                                                             .type(document.getType())
                                                             .size(document.getSize())
@@ -132,58 +163,74 @@ public class DocumentCommonService {
                                                             .build();
 
         DocumentRevision savedRevision = revisionRepository.save(documentRevision);
+        blobReferenceService.addReference(documentRevision.getHash(), documentRevision.getSize());
 
         log.info("Revision {} saved successfully from document {}", savedRevision, document);
     }
 
     /**
-     * Retrieves the last revision version for the given document.
+     * Saves the revisions of the current versions of new documents uploaded in one transaction.
+     * The revisions are inserted in JDBC batches and the references of the documents sharing a blob are added at once.
      *
-     * @param document the document for which to retrieve the last revision version
-     * @return the last revision version, or 0 if no revisions exist for the document
+     * @param documents the new documents
+     * @see #saveRevisionFromDocument(Document)
      */
-    public Long getLastRevisionVersion(Document document) {
-        return revisionRepository.findLastRevisionVersionByDocument(document)
-                                 .orElse(0L);
+    public void saveRevisionsFromDocuments(List<Document> documents) {
+        log.debug("Saving revisions from {} documents", documents.size());
+
+        List<DocumentRevision> documentRevisions = documents.stream()
+                                                            .map(document -> DocumentRevision.builder()
+                                                                                             .document(document)
+                                                                                             .version(document.getVersion())
+                                                                                             .name(document.getName())
+                                                                                             .type(document.getType())
+                                                                                             .size(document.getSize())
+                                                                                             .author(document.getAuthor())
+                                                                                             .hash(document.getHash())
+                                                                                             .build())
+                                                            .toList();
+
+        revisionRepository.saveAll(documentRevisions);
+
+        Map<String, List<DocumentRevision>> revisionsByHash = new LinkedHashMap<>();
+        documentRevisions.forEach(revision -> revisionsByHash.computeIfAbsent(revision.getHash(), hash -> new ArrayList<>()).add(revision));
+        revisionsByHash.forEach((hash, revisions) -> blobReferenceService.addReferences(hash, revisions.get(0).getSize(), revisions.size()));
+
+        log.info("{} revisions saved successfully from documents", documentRevisions.size());
     }
 
     /**
-     * Retrieves the count of revisions for the given document.
+     * Reserves the version of the next revision of the given document.
+     * The counter of the document is incremented by a single-row update, which keeps the row locked until the transaction
+     * ends, so concurrent writes to the same document always get distinct versions.
      *
-     * @param document the document for which to count the revisions
-     * @return the count of revisions
+     * @param document the document for which to reserve the revision version
+     * @return the reserved revision version
      */
-    public Integer getRevisionCountForDocument(Document document) {
-        return revisionRepository.countAllByDocument(document);
-    }
+    public Long reserveRevisionVersion(Document document) {
+        documentRepository.incrementNextRevisionVersion(document.getId());
+        Long version = documentRepository.findNextRevisionVersion(document.getId()) - 1;
 
-    /**
-     * Retrieves all revisions of the given document.
-     *
-     * @param document the document for which to retrieve revisions
-     * @param pageable the pagination information
-     * @return a page of document revisions
-     */
-    public Page<DocumentRevision> findAllRevisionsByDocument(Document document, Pageable pageable) {
-        return revisionRepository.findAllByDocument(document, pageable);
+        log.debug("Reserved revision version {} of document {}", version, document);
+
+        return version;
     }
 
     /**
-     * Updates the revision versions for the given document.
+     * Closes the gap in the revision versions of the given document after a revision was deleted.
+     * All later revisions are shifted down by one using a single bulk update, so the cost doesn't depend on the number of revisions.
+     * The version counter of the document is decremented as well, so the next revision continues without a gap.
      *
-     * @param document the document for which to update revision versions
+     * @param document the document whose revision was deleted
+     * @param deletedVersion the version of the deleted revision
      */
-    public void updateRevisionVersionsForDocument(Document document) {
-        log.debug("Updating revision versions for document: document={}", document);
+    public void shiftRevisionVersionsAfter(Document document, Long deletedVersion) {
+        log.debug("Shifting revision versions: document={}, deletedVersion={}", document, deletedVersion);
 
-        List<DocumentRevision> documentRevisions = revisionRepository.findAllByDocumentOrderByCreatedAtAsc(document);
+        int shiftedRevisionCount = revisionRepository.decrementVersionsAfter(document, deletedVersion);
+        documentRepository.decrementNextRevisionVersion(document.getId());
 
-        Long version = 1L;
-        for (DocumentRevision revision : documentRevisions) {
-            revision.setVersion(version);
-            revisionRepository.save(revision);
-            version++;
-        }
+        log.debug("Shifted versions of {} revisions of document {}", shiftedRevisionCount, document);
     }
 
     /**
@@ -197,6 +244,21 @@ public class DocumentCommonService {
         return revisionRepository.findAll(specification, pageable);
     }
 
+    /**
+     * Finds a window of document revisions based on the provided specification, continuing from the given scroll position.
+     *
+     * @param specification the specification to filter revisions
+     * @param sort the sorting of the revisions
+     * @param limit the maximum number of revisions in the window
+     * @param position the position to continue scrolling from
+     * @return a window of document revisions
+     */
+    public Window<DocumentRevision> findRevisions(Specification<DocumentRevision> specification, Sort sort, int limit, ScrollPosition position) {
+        return revisionRepository.findBy(specification, query -> query.sortBy(sort)
+                                                                      .limit(limit)
+                                                                      .scroll(position));
+    }
+
     /**
      * Retrieves document filters based on the given filter string.
      *
@@ -309,11 +371,84 @@ public class DocumentCommonService {
      * Stores the blob represented by the provided multipart file.
      *
      * @param file the multipart file to store
-     * @return the hash of the stored blob
+     * @return the stored blob
+     * @throws FileOperationException if an error occurs while storing the blob
+     */
+    public StagedBlob stageBlob(MultipartFile file) {
+        return blobStorageService.stageBlob(file, null);
+    }
+
+    /**
+     * Stores the blob of a new version of a document, as a delta against the blob of the previous version if enabled.
+     *
+     * @param file the multipart file containing the blob to store
+     * @param baseHash the hash of the blob of the previous version
+     * @return the stored blob
+     * @throws FileOperationException if an error occurs while storing the blob
+     */
+    public StagedBlob stageBlob(MultipartFile file, String baseHash) {
+        return blobStorageService.stageBlob(file, baseHash);
+    }
+
+    /**
+     * Stores the blob read from the provided stream, as a delta against the blob of the previous version if enabled.
+     *
+     * @param content the stream with the content of the blob
+     * @param filename the name of the file used for logging
+     * @param baseHash the hash of the blob of the previous version, or null if there is none
+     * @return the stored blob
      * @throws FileOperationException if an error occurs while storing the blob
      */
-    public String storeBlob(MultipartFile file) {
-        return blobStorageService.storeBlob(file);
+    public StagedBlob stageBlob(InputStream content, String filename, String baseHash) {
+        return blobStorageService.stageBlob(content, filename, baseHash);
+    }
+
+    /**
+     * Stores the blob whose content was already hashed, as a delta against the base blob if enabled.
+     *
+     * @param file the file inside the temporary directory of the blob storage holding the content of the blob
+     * @param hash the hash of the content
+     * @param baseHash the hash of the blob of the previous version, or null if there is none
+     * @return the stored blob
+     * @throws FileOperationException if an error occurs while storing the blob
+     */
+    public StagedBlob stageHashedBlob(Path file, String hash, String baseHash) {
+        return blobStorageService.stageHashedBlob(file, hash, baseHash);
+    }
+
+    /**
+     * Retrieves the size of the blob associated with the given hash, if any revision of the author references it.
+     * Only the contents of the author's own revisions are found, so knowing the hash of a content of another user
+     * doesn't give access to it.
+     *
+     * @param author the author of the revisions
+     * @param hash the hash of the blob
+     * @return the size of the blob in bytes
+     * @throws BlobNotFoundException if no revision of the author references the blob
+     */
+    public Long getAuthorBlobSize(User author, String hash) {
+        return revisionRepository.findFirstByAuthorAndHash(author, hash)
+                                 .map(DocumentRevision::getSize)
+                                 .orElseThrow(() -> new BlobNotFoundException("Blob with hash: " + hash + " not found"));
+    }
+
+    /**
+     * Locks the blob associated with the given hash, if any revision of the author references it.
+     * The blob can't be deleted until the current transaction ends, so a revision created from it by the same
+     * transaction never references a deleted content.
+     *
+     * @param author the author of the revisions
+     * @param hash the hash of the blob
+     * @return the size of the blob in bytes
+     * @throws BlobNotFoundException if the blob is not referenced or no revision of the author references it
+     * @see #getAuthorBlobSize(User, String)
+     */
+    public Long lockAuthorBlob(User author, String hash) {
+        if (!blobReferenceService.lockReferencedBlob(hash)) {
+            throw new BlobNotFoundException("Blob with hash: " + hash + " not found");
+        }
+
+        return getAuthorBlobSize(author, hash);
     }
 
     /**
@@ -343,24 +478,171 @@ public class DocumentCommonService {
     }
 
     /**
-     * Safely deletes the blob associated with the given hash if it is not a duplicate.
+     * Creates a download response for the blob associated with the given hash.
+     * <p>
+     * The hash is sent as a strong ETag together with a {@code Repr-Digest} header. When the {@code If-None-Match} header
+     * matches the ETag, {@code 304 Not Modified} is returned without resolving the blob.
+     * <p>
+     * The returned file resource is written with support for the {@code Range} header, so single and multiple byte ranges
+     * are answered with {@code 206 Partial Content}. When the {@code If-Range} header doesn't match the ETag of the blob,
+     * the ranges are ignored and the whole file is sent.
      *
-     * @param hash the hash of the blob to delete
+     * @param hash the hash of the blob
+     * @param name the name of the downloaded file
+     * @param type the content type of the downloaded file
+     * @param cacheControl the caching directives for the downloaded file
+     * @param ifNoneMatch the value of the {@code If-None-Match} header (may be null)
+     * @param ifRange the value of the {@code If-Range} header (may be null)
+     * @return {@link ResponseEntity} containing the blob as a {@link Resource}
+     * @throws FileOperationException if an error occurs while retrieving the blob
      */
-    public void safelyDeleteBlob(String hash) {
-        if (!isHashDuplicate(hash)) {
-            blobStorageService.deleteBlob(hash);
+    public ResponseEntity<Resource> createDownloadResponse(String hash, String name, String type, CacheControl cacheControl, String ifNoneMatch, String ifRange) {
+        String eTag = getETag(hash);
+
+        // client already has the content -> no need to touch the blob storage
+        if (matchesETag(ifNoneMatch, eTag)) {
+            log.debug("If-None-Match {} matches ETag {}, blob was not modified", ifNoneMatch, eTag);
+
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                 .eTag(eTag)
+                                 .cacheControl(cacheControl)
+                                 .build();
         }
+
+        Resource file = getBlob(hash);
+        // resolves the file, so a missing blob is reported before the response is committed
+        String contentLength = getContentLength(file);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                                                            .contentType(MediaType.parseMediaType(type))
+                                                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "\"")
+                                                            .eTag(eTag)
+                                                            .cacheControl(cacheControl);
+
+        String reprDigest = getReprDigest(hash);
+        if (reprDigest != null) {
+            response.header(REPR_DIGEST_HEADER, reprDigest);
+        }
+
+        // ranges are applied only to the representation identified by the If-Range validator
+        if (ifRange != null && !ifRange.equals(eTag)) {
+            log.debug("If-Range {} does not match ETag {}, sending whole file", ifRange, eTag);
+
+            return response.header(HttpHeaders.CONTENT_LENGTH, contentLength)
+                           .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                           .body(getWholeFile(file));
+        }
+
+        return response.body(file);
+    }
+
+    /**
+     * Retrieves the strong entity tag of the blob associated with the given hash.
+     *
+     * @param hash the hash of the blob
+     * @return the quoted hash of the blob
+     */
+    public String getETag(String hash) {
+        return "\"" + hash + "\"";
+    }
+
+    /**
+     * Checks whether the {@code If-None-Match} header matches the entity tag (using the weak comparison).
+     *
+     * @param ifNoneMatch the value of the {@code If-None-Match} header (may be null)
+     * @param eTag the entity tag of the blob
+     * @return true if any of the listed entity tags (or "*") matches, false otherwise
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmedCandidate = candidate.trim();
+
+            if (trimmedCandidate.startsWith("W/")) {
+                trimmedCandidate = trimmedCandidate.substring(2);
+            }
+
+            if (trimmedCandidate.equals("*") || trimmedCandidate.equals(eTag)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     /**
-     * Checks whether the given hash is a duplicate in either the document or revision repositories.
+     * Creates the value of the {@code Repr-Digest} header from the hash of the blob.
      *
-     * @param hash the hash to check
-     * @return true if the hash is a duplicate, false otherwise
+     * @param hash the hexadecimal hash of the blob
+     * @return the digest in the structured field format, or null if the hashing algorithm has no registered digest name
      */
-    private boolean isHashDuplicate(String hash) {
-        return documentRepository.duplicateHashExists(hash) || revisionRepository.duplicateHashExists(hash);
+    private String getReprDigest(String hash) {
+        String digestAlgorithm = REPR_DIGEST_ALGORITHMS.get(hashProperties.getAlgorithm().toUpperCase());
+
+        if (digestAlgorithm == null) {
+            return null;
+        }
+
+        byte[] digest = HexFormat.of().parseHex(hash);
+
+        return digestAlgorithm + "=:" + Base64.getEncoder().encodeToString(digest) + ":";
+    }
+
+    /**
+     * Wraps the file into an {@link InputStreamResource}, which is always written as a whole, regardless of the {@code Range} header.
+     *
+     * @param file the file to wrap
+     * @return the resource representing the whole file
+     * @throws FileOperationException if the file could not be opened
+     */
+    private Resource getWholeFile(Resource file) {
+        try {
+            return new InputStreamResource(file.getInputStream());
+        } catch (Exception e) {
+            throw new FileOperationException(FileOperation.READ);
+        }
+    }
+
+    /**
+     * Removes the reference of a deleted revision to its blob.
+     * The blob is deleted once no revision references it.
+     *
+     * @param hash the hash of the blob
+     */
+    public void safelyDeleteBlob(String hash) {
+        blobReferenceService.removeReference(hash);
+    }
+
+    /**
+     * Deletes all revisions of the given documents and removes their references to the blobs.
+     * Both are done using set-based statements, so the cost doesn't grow with a query per revision.
+     *
+     * @param documentIds the database IDs of the documents
+     */
+    public void deleteRevisionsOfDocuments(Collection<Long> documentIds) {
+        List<HashReferenceCount> referenceCounts = revisionRepository.countHashReferencesByDocumentIds(documentIds);
+
+        referenceCounts.forEach(referenceCount -> blobReferenceService.removeReferences(referenceCount.getHash(), referenceCount.getReferenceCount()));
+
+        revisionRepository.deleteAllByDocumentIds(documentIds);
+    }
+
+    /**
+     * Deletes the staged blob after its metadata transaction failed, if the upload wrote its content and no revision
+     * references it since. A content which was already stored is left alone, as another upload may rely on it.
+     *
+     * @param stagedBlob the staged blob to delete
+     */
+    public void deleteStagedBlob(StagedBlob stagedBlob) {
+        if (!stagedBlob.written()) {
+            return;
+        }
+
+        blobReferenceService.deleteStagedBlob(stagedBlob.hash());
+        log.info("Staged blob {} released", stagedBlob.hash());
     }
 
 }
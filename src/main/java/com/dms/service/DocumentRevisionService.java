@@ -5,6 +5,7 @@ import com.dms.entity.DocumentRevision;
 import com.dms.entity.User;
 import com.dms.exception.RevisionDeletionException;
 import com.dms.exception.RevisionNotFoundException;
+import com.dms.pagination.KeysetPage;
 import com.dms.repository.DocumentRevisionRepository;
 import com.dms.specification.RevisionFilterSpecification;
 import jakarta.transaction.Transactional;
@@ -14,13 +15,15 @@ import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -36,6 +39,9 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class DocumentRevisionService {
 
+    /** Maximal age of a downloaded revision in caches (one year, the content of a revision never changes). */
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
     /** Repository for accessing document revisions. */
     private final DocumentRevisionRepository revisionRepository;
 
@@ -43,6 +49,8 @@ public class DocumentRevisionService {
     private final DocumentCommonService documentCommonService;
     /** Service for managing user-related operations. */
     private final UserService userService;
+    /** Service for encoding and decoding pagination cursors. */
+    private final CursorService cursorService;
 
     /**
      * Retrieves the revision corresponding to the given ID if the authenticated user has access.
@@ -137,7 +145,7 @@ public class DocumentRevisionService {
         documentCommonService.safelyDeleteBlob(revision.getHash());
         revisionRepository.deleteByRevisionId(revisionId);
 
-        documentCommonService.updateRevisionVersionsForDocument(document);
+        documentCommonService.shiftRevisionVersionsAfter(document, revision.getVersion());
 
         // document's previous version was deleted -> decrement current document's version
         if (hasRevisionLowerVersionThanDocument(revision, document)) {
@@ -170,24 +178,25 @@ public class DocumentRevisionService {
 
     /**
      * Retrieves the file from the blob storage service based on the hash of the revision, and returns it as a {@link ResponseEntity}.
+     * Byte ranges requested using the {@code Range} header are applied when writing the response.
+     * <p>
+     * The content of a revision never changes, so it is marked as immutable and can be reused by caches without revalidation.
      *
      * @param revisionId the ID of the revision to download
+     * @param ifNoneMatch the value of the {@code If-None-Match} header (may be null)
+     * @param ifRange the value of the {@code If-Range} header (may be null)
      * @return {@link ResponseEntity} containing the downloaded document revision as a {@link Resource}
      */
-    public ResponseEntity<Resource> downloadRevision(String revisionId) {
-        log.debug("Request - Downloading revision: revisionId={}", revisionId);
+    public ResponseEntity<Resource> downloadRevision(String revisionId, String ifNoneMatch, String ifRange) {
+        log.debug("Request - Downloading revision: revisionId={}, ifNoneMatch={}, ifRange={}", revisionId, ifNoneMatch, ifRange);
 
         DocumentRevision revision = getAuthenticatedUserRevision(revisionId);
-        Resource file = documentCommonService.getBlob(revision.getHash());
-        String contentLength = documentCommonService.getContentLength(file);
+        CacheControl cacheControl = CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePrivate().immutable();
+        ResponseEntity<Resource> response = documentCommonService.createDownloadResponse(revision.getHash(), revision.getName(), revision.getType(), cacheControl, ifNoneMatch, ifRange);
 
         log.info("Revision {} downloaded successfully", revisionId);
 
-        return ResponseEntity.ok()
-                             .contentType(MediaType.parseMediaType(revision.getType()))
-                             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + revision.getName() + "\"")
-                             .header(HttpHeaders.CONTENT_LENGTH, contentLength)
-                             .body(file);
+        return response;
     }
 
     /**
@@ -217,4 +226,33 @@ public class DocumentRevisionService {
         return documentRevisions;
     }
 
-}
\ No newline at end of file
+    /**
+     * Retrieves a page of document revisions using keyset pagination.
+     * The page continues right after the position encoded in the cursor and no count query is executed,
+     * so retrieving a deep page costs the same as retrieving the first one.
+     *
+     * @param cursor the cursor of the page to retrieve (empty for the first page)
+     * @param pageSize the number of revisions per page
+     * @param sort the sorting criteria for the revisions
+     * @param filter the filter criteria for the revisions
+     * @return a page containing the requested revisions and the cursor of the next page
+     */
+    public KeysetPage<DocumentRevision> getRevisionsByCursor(String cursor, int pageSize, String sort, String filter) {
+        log.debug("Request - Listing revisions by cursor: cursor={}, pageSize={}, sort={}, filter={}", cursor, pageSize, sort, filter);
+
+        User user = userService.getAuthenticatedUser();
+
+        Sort sortOrders = Sort.by(documentCommonService.getRevisionSortOrders(sort));
+        Map<String, String> filters = documentCommonService.getRevisionFilters(filter);
+
+        ScrollPosition position = cursorService.decodeCursor(cursor, sort, sortOrders, DocumentRevision.class);
+        Specification<DocumentRevision> specification = RevisionFilterSpecification.filter(filters, user);
+
+        Window<DocumentRevision> documentRevisions = documentCommonService.findRevisions(specification, sortOrders, pageSize, position);
+
+        log.info("Revisions listed successfully by cursor");
+
+        return cursorService.createPage(documentRevisions, cursor, sort, sortOrders, pageSize);
+    }
+
+}
@@ -1,34 +1,56 @@
 package com.dms.service;
 
 import com.dms.config.ArchiveProperties;
+import com.dms.config.UploadProperties;
 import com.dms.entity.Document;
 import com.dms.entity.DocumentRevision;
 import com.dms.entity.User;
 import com.dms.exception.DocumentNotFoundException;
-import com.dms.exception.FileWithPathAlreadyExistsException;
+import com.dms.exception.FileOperation;
+import com.dms.exception.FileOperationException;
+import com.dms.exception.InvalidUploadException;
+import com.dms.pagination.KeysetPage;
 import com.dms.repository.DocumentRepository;
 import com.dms.specification.DocumentFilterSpecification;
 import com.dms.specification.RevisionFilterSpecification;
+import com.dms.upload.BatchUploadResult;
+import com.dms.upload.LimitedInputStream;
+import com.dms.upload.StagedBlob;
+import com.dms.upload.StagedDocument;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Service class responsible for managing documents.
@@ -41,6 +63,9 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class DocumentService {
 
+    /** Maximal number of names checked by one query, as some databases limit the number of query parameters. */
+    private static final int NAME_QUERY_BATCH_SIZE = 500;
+
     /** Repository for document-related database operations. */
     private final DocumentRepository documentRepository;
 
@@ -48,9 +73,16 @@ public class DocumentService {
     private final DocumentCommonService documentCommonService;
     /** Service for user-related operations. */
     private final UserService userService;
+    /** Service for encoding and decoding pagination cursors. */
+    private final CursorService cursorService;
 
     /** Properties related to document archiving. */
     private final ArchiveProperties archiveProperties;
+    /** Properties related to files uploaded without multipart requests. */
+    private final UploadProperties uploadProperties;
+
+    /** Template for running the metadata part of uploads in a short transaction. */
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Retrieves the document associated with the provided document ID.
@@ -82,25 +114,23 @@ public class DocumentService {
     }
 
     /**
-     * Creates a new document based on the provided file and path.
+     * Creates a new document based on the provided file metadata, path and hash of the already stored blob.
      *
-     * @param file the file to create the document from
+     * @param name the name of the document
+     * @param type the content type of the document, application/octet-stream is used if it is null
+     * @param size the size of the document in bytes
      * @param path the path where the document will be stored
+     * @param hash the hash of the stored blob
      * @return the newly created document
      */
-    private Document createDocument(MultipartFile file, String path) {
-        String hash = documentCommonService.storeBlob(file);
+    private Document createDocument(String name, String type, Long size, String path, String hash) {
         User author = userService.getAuthenticatedUser();
 
-        String name = getFilename(file);
-        String type = file.getContentType();
-        Long size = file.getSize();
-
         log.info("Document {} successfully created (not persisted yet)", name);
 
         return Document.builder()
                        .name(name)
-                       .type(type)
+                       .type(type == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : type)
                        .path(path)
                        .size(size)
                        .hash(hash)
@@ -110,6 +140,38 @@ public class DocumentService {
                        .build();
     }
 
+    /**
+     * Runs the metadata part of an upload in a short transaction.
+     * The blob has to be staged before this method is called, so no database connection is held while the file is written.
+     * If the transaction fails, the staged blob is deleted if the upload wrote it and no other document or revision references it.
+     *
+     * @param stagedBlob the staged blob
+     * @param metadataCallback the callback persisting the metadata of the uploaded document
+     * @return the persisted document
+     */
+    private Document saveStagedDocument(StagedBlob stagedBlob, TransactionCallback<Document> metadataCallback) {
+        try {
+            return transactionTemplate.execute(metadataCallback);
+        } catch (RuntimeException exception) {
+            compensateStagedBlob(stagedBlob);
+            throw exception;
+        }
+    }
+
+    /**
+     * Deletes the staged blob after a failed metadata transaction.
+     * Failures are only logged, so they don't hide the exception which caused the upload to fail.
+     *
+     * @param stagedBlob the staged blob
+     */
+    private void compensateStagedBlob(StagedBlob stagedBlob) {
+        try {
+            documentCommonService.deleteStagedBlob(stagedBlob);
+        } catch (Exception exception) {
+            log.error("Staged blob {} could not be deleted", stagedBlob.hash(), exception);
+        }
+    }
+
     /**
      * Retrieves the filename from the provided multipart file.
      *
@@ -123,99 +185,479 @@ public class DocumentService {
     }
 
     /**
-     * Ensures the uniqueness of the document path.
+     * Retrieves the filename from the provided name, stripping any directories.
+     * Unlike the name of a multipart file, the name is provided by the client on its own, so it must not be empty.
      *
-     * @param path the path of the document
-     * @param fileName the name of the file
-     * @throws FileWithPathAlreadyExistsException if a document with the same path and name already exists
+     * @param name the name of the file
+     * @return the filename extracted from the name
+     * @throws InvalidUploadException if the name contains no filename
      */
-    private void ensureUniquePath(String path, String fileName) {
-        log.debug("Ensuring unique document path: path={}, fileName={}", path, fileName);
-
-        User author = userService.getAuthenticatedUser();
+    private static String getFilename(String name) {
+        String cleanPath = StringUtils.cleanPath(name);
+        String filename = StringUtils.getFilename(cleanPath);
 
-        // user can't have a duplicate path for a document with the same name
-        if (documentRepository.documentWithPathAlreadyExists(fileName, path, author)) {
-            throw new FileWithPathAlreadyExistsException("Document: " + fileName + " with path: " + path + " already exists");
+        if (!StringUtils.hasText(filename)) {
+            throw new InvalidUploadException("Name of the document must be provided");
         }
+
+        return filename;
+    }
+
+    /**
+     * Saves the document and flushes it right away.
+     * The unique index on the author, path and name of documents is checked by the database, so the flush makes
+     * a conflicting path fail here instead of at the end of the transaction.
+     *
+     * @param document the document to save
+     * @return the saved document
+     * @throws DataIntegrityViolationException if the author already has a document with the same name in the path
+     */
+    private Document saveDocumentWithUniquePath(Document document) {
+        return documentRepository.saveAndFlush(document);
     }
 
     /**
      * Uploads a new document.
+     * The blob is stored before the metadata transaction starts, so no database connection is held while the file is written.
      *
      * @param file the multipart file to upload
      * @param path the path where the document will be stored
      * @return the uploaded document
      */
-    @Transactional
     public Document uploadDocument(MultipartFile file, String path) {
         log.debug("Request - Uploading document: file={}, path={}", file.getOriginalFilename(), path);
 
-        String fileName = getFilename(file);
+        // stage the blob before the transaction starts
+        StagedBlob stagedBlob = documentCommonService.stageBlob(file);
+        String hash = stagedBlob.hash();
+
+        Document savedDocument = saveStagedDocument(stagedBlob, status -> saveNewDocument(getFilename(file), file.getContentType(), file.getSize(), path, hash));
 
-        ensureUniquePath(path, fileName);
+        log.info("Document {} with ID {} uploaded successfully", savedDocument.getName(), savedDocument.getDocumentId());
 
-        Document document = createDocument(file, path);
-        Document savedDocument = documentRepository.save(document);
+        return savedDocument;
+    }
 
-        log.info("Document {} with ID {} uploaded successfully", document.getName(), document.getDocumentId());
+    /**
+     * Uploads a new document from a file whose content was already hashed, such as a file uploaded in chunks.
+     * The file is handed over to the blob storage without reading it again.
+     *
+     * @param file the file inside the temporary directory of the blob storage
+     * @param hash the hash of the content of the file
+     * @param name the name of the document
+     * @param type the content type of the document (may be null)
+     * @param path the path where the document will be stored
+     * @return the uploaded document
+     */
+    public Document uploadDocument(Path file, String hash, String name, String type, String path) {
+        log.debug("Request - Uploading document: hash={}, name={}, path={}", hash, name, path);
 
-        documentCommonService.saveRevisionFromDocument(savedDocument);
+        Long size = getFileSize(file);
+
+        // stage the blob before the transaction starts
+        StagedBlob stagedBlob = documentCommonService.stageHashedBlob(file, hash, null);
+
+        Document savedDocument = saveStagedDocument(stagedBlob, status -> saveNewDocument(name, type, size, path, hash));
+
+        log.info("Document {} with ID {} uploaded successfully", savedDocument.getName(), savedDocument.getDocumentId());
 
         return savedDocument;
     }
 
+    /**
+     * Uploads a new document read from the provided stream, such as the raw body of a request.
+     * The content is hashed and written to the blob storage while it is received, so it is not spooled to a temporary
+     * file first, and the size is counted while reading, as it is not known in advance.
+     *
+     * @param content the stream with the content of the document
+     * @param name the name of the document
+     * @param type the content type of the document (may be null)
+     * @param path the path where the document will be stored
+     * @return the uploaded document
+     * @throws InvalidUploadException if the name or the path is missing
+     * @throws com.dms.exception.UploadSizeExceededException if the content is larger than the maximal upload size
+     */
+    public Document uploadDocument(InputStream content, String name, String type, String path) {
+        log.debug("Request - Uploading document: name={}, path={}", name, path);
+
+        if (path == null) {
+            throw new InvalidUploadException("Path of a new document must be provided");
+        }
+
+        String filename = getFilename(name);
+        LimitedInputStream limitedContent = new LimitedInputStream(content, uploadProperties.getMaxSize().toBytes());
+
+        // stage the blob before the transaction starts
+        StagedBlob stagedBlob = documentCommonService.stageBlob(limitedContent, filename, null);
+        String hash = stagedBlob.hash();
+        Long size = limitedContent.getCount();
+
+        Document savedDocument = saveStagedDocument(stagedBlob, status -> saveNewDocument(filename, type, size, path, hash));
+
+        log.info("Document {} with ID {} uploaded successfully", savedDocument.getName(), savedDocument.getDocumentId());
+
+        return savedDocument;
+    }
+
+    /**
+     * Uploads new documents whose blobs were already stored, such as several files uploaded in one request.
+     * The metadata of all documents is saved in one transaction, with one query per path checking the names already
+     * used in it and the inserts sent in JDBC batches. A document whose name is already used in its path, or by an
+     * earlier document of the batch, is reported as a conflict instead of failing the whole batch, and its blob is
+     * deleted if it was written for the batch and is not referenced.
+     *
+     * @param stagedDocuments the documents whose blobs were stored
+     * @return the results of the documents, in the order of the staged documents
+     * @throws DataIntegrityViolationException if a document with the same path was saved concurrently, in which case
+     *                                         none of the documents are saved
+     */
+    public List<BatchUploadResult> uploadStagedDocuments(List<StagedDocument> stagedDocuments) {
+        log.debug("Request - Uploading {} staged documents", stagedDocuments.size());
+
+        return uploadStagedDocuments(userService.getAuthenticatedUser(), stagedDocuments);
+    }
+
+    /**
+     * Uploads new documents of the given author whose blobs were already stored, such as the files of a bulk import
+     * which runs without an authenticated user.
+     *
+     * @param author the author of the documents
+     * @param stagedDocuments the documents whose blobs were stored
+     * @return the results of the documents, in the order of the staged documents
+     * @throws DataIntegrityViolationException if a document with the same path was saved concurrently, in which case
+     *                                         none of the documents are saved
+     * @see #uploadStagedDocuments(List)
+     */
+    public List<BatchUploadResult> uploadStagedDocuments(User author, List<StagedDocument> stagedDocuments) {
+        List<BatchUploadResult> results;
+        try {
+            results = transactionTemplate.execute(status -> saveStagedDocuments(author, stagedDocuments));
+        } catch (RuntimeException exception) {
+            stagedDocuments.stream()
+                           .map(StagedDocument::blob)
+                           .distinct()
+                           .forEach(this::compensateStagedBlob);
+            throw exception;
+        }
+
+        // blobs of the conflicting documents may not be referenced by any other document
+        Set<StagedBlob> unusedBlobs = new LinkedHashSet<>();
+        for (int i = 0; i < stagedDocuments.size(); i++) {
+            if (results.get(i).status() != BatchUploadResult.Status.CREATED) {
+                unusedBlobs.add(stagedDocuments.get(i).blob());
+            }
+        }
+        unusedBlobs.forEach(this::compensateStagedBlob);
+
+        log.info("{} of {} staged documents uploaded successfully", stagedDocuments.size() - unusedBlobs.size(), stagedDocuments.size());
+
+        return results;
+    }
+
+    /**
+     * Persists the new documents and their first revisions, skipping the documents whose names are already used.
+     *
+     * @param author the author of the documents
+     * @param stagedDocuments the documents whose blobs were stored
+     * @return the results of the documents, in the order of the staged documents
+     */
+    private List<BatchUploadResult> saveStagedDocuments(User author, List<StagedDocument> stagedDocuments) {
+        Map<String, List<String>> namesByPath = new HashMap<>();
+        stagedDocuments.forEach(stagedDocument -> namesByPath.computeIfAbsent(stagedDocument.path(), path -> new ArrayList<>()).add(stagedDocument.name()));
+
+        Map<String, Set<String>> usedNamesByPath = new HashMap<>();
+        namesByPath.forEach((path, names) -> usedNamesByPath.put(path, findUsedNames(author, path, names.stream().distinct().toList())));
+
+        List<Document> documents = new ArrayList<>();
+        List<BatchUploadResult> results = new ArrayList<>(stagedDocuments.size());
+
+        for (StagedDocument stagedDocument : stagedDocuments) {
+            // the name is added to the used names, so a later document of the batch with the same name and path conflicts
+            if (!usedNamesByPath.get(stagedDocument.path()).add(stagedDocument.name())) {
+                results.add(BatchUploadResult.conflict(stagedDocument.name(), stagedDocument.path()));
+                continue;
+            }
+
+            Document document = Document.builder()
+                                        .name(stagedDocument.name())
+                                        .type(stagedDocument.type() == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : stagedDocument.type())
+                                        .path(stagedDocument.path())
+                                        .size(stagedDocument.size())
+                                        .hash(stagedDocument.hash())
+                                        .version(1L)
+                                        .isArchived(false)
+                                        .author(author)
+                                        .build();
+
+            documents.add(document);
+            results.add(BatchUploadResult.created(document));
+        }
+
+        documentRepository.saveAllAndFlush(documents);
+        documentCommonService.saveRevisionsFromDocuments(documents);
+
+        return results;
+    }
+
+    /**
+     * Finds which of the given names are used by the documents of the author in the path.
+     *
+     * @param author the author of the documents
+     * @param path the path of the documents
+     * @param names the names to check
+     * @return the used names
+     */
+    private Set<String> findUsedNames(User author, String path, List<String> names) {
+        Set<String> usedNames = new HashSet<>();
+
+        for (int start = 0; start < names.size(); start += NAME_QUERY_BATCH_SIZE) {
+            List<String> batch = names.subList(start, Math.min(names.size(), start + NAME_QUERY_BATCH_SIZE));
+            usedNames.addAll(documentRepository.findNamesByAuthorAndPathAndNameIn(author, path, batch));
+        }
+
+        return usedNames;
+    }
+
+    /**
+     * Uploads a new document from a content which is already stored, without transferring the content again.
+     * Only the contents of the user's own revisions can be used, the blob is locked until the metadata is persisted,
+     * so it can't be deleted in the meantime.
+     *
+     * @param hash the hash of the stored content
+     * @param name the name of the document
+     * @param type the content type of the document (may be null)
+     * @param path the path where the document will be stored
+     * @return the uploaded document
+     * @throws com.dms.exception.BlobNotFoundException if no revision of the user references the content
+     */
+    public Document uploadDocumentFromHash(String hash, String name, String type, String path) {
+        log.debug("Request - Uploading document from hash: hash={}, name={}, path={}", hash, name, path);
+
+        Document savedDocument = transactionTemplate.execute(status -> {
+            Long size = documentCommonService.lockAuthorBlob(userService.getAuthenticatedUser(), hash);
+            return saveNewDocument(name, type, size, path, hash);
+        });
+
+        log.info("Document {} with ID {} uploaded successfully from hash {}", savedDocument.getName(), savedDocument.getDocumentId(), hash);
+
+        return savedDocument;
+    }
+
+    /**
+     * Persists a new document and its first revision.
+     *
+     * @param name the name of the document
+     * @param type the content type of the document (may be null)
+     * @param size the size of the document in bytes
+     * @param path the path where the document will be stored
+     * @param hash the hash of the stored blob
+     * @return the persisted document
+     */
+    private Document saveNewDocument(String name, String type, Long size, String path, String hash) {
+        Document document = createDocument(name, type, size, path, hash);
+        Document persistedDocument = saveDocumentWithUniquePath(document);
+
+        documentCommonService.saveRevisionFromDocument(persistedDocument);
+
+        return persistedDocument;
+    }
+
     /**
      * Uploads a new version of an existing document.
+     * The blob is stored before the metadata transaction starts, so no database connection is held while the file is written.
      *
      * @param documentId the ID of the document to which the new version will be uploaded
      * @param file the multipart file representing the new version
      * @param path the path where the new version will be stored
      * @return the document with the newly uploaded version
      */
-    @Transactional
     public Document uploadNewDocumentVersion(String documentId, MultipartFile file, String path) {
         log.debug("Request - Uploading new document version: documentId={}, file={}, path={}", documentId, file.getOriginalFilename(), path);
 
         Document oldDocument = getAuthenticatedUserDocument(documentId);
-        String fileName = getFilename(file);
 
         // path was not provided -> use old (existing) path
-        if (path == null) {
-            path = oldDocument.getPath();
-        }
-        else {
-            ensureUniquePath(path, fileName);
-        }
+        String newDocumentPath = path == null ? oldDocument.getPath() : path;
+
+        // stage the blob before the transaction starts, it may be stored as a delta against the current version
+        StagedBlob stagedBlob = documentCommonService.stageBlob(file, oldDocument.getHash());
+        String hash = stagedBlob.hash();
 
-        Document newDocument = createNewDocumentVersion(oldDocument, file, path);
-        Document savedDocument = documentRepository.save(newDocument);
+        Document savedDocument = saveStagedDocument(stagedBlob, status -> saveNewDocumentVersion(oldDocument, getFilename(file), file.getContentType(), file.getSize(), newDocumentPath, hash));
 
         log.info("Successfully uploaded new document version for document {}", documentId);
 
-        documentCommonService.saveRevisionFromDocument(savedDocument);
+        return savedDocument;
+    }
+
+    /**
+     * Uploads a new version of an existing document from a file whose content was already hashed, such as a file uploaded in chunks.
+     * The file is handed over to the blob storage without reading it again.
+     *
+     * @param documentId the ID of the document to which the new version will be uploaded
+     * @param file the file inside the temporary directory of the blob storage
+     * @param hash the hash of the content of the file
+     * @param name the name of the new version
+     * @param type the content type of the new version (may be null)
+     * @param path the path where the new version will be stored (may be null to keep the current path)
+     * @return the document with the newly uploaded version
+     */
+    public Document uploadNewDocumentVersion(String documentId, Path file, String hash, String name, String type, String path) {
+        log.debug("Request - Uploading new document version: documentId={}, hash={}, name={}, path={}", documentId, hash, name, path);
+
+        Document oldDocument = getAuthenticatedUserDocument(documentId);
+        String newDocumentPath = path == null ? oldDocument.getPath() : path;
+        Long size = getFileSize(file);
+
+        // stage the blob before the transaction starts, it may be stored as a delta against the current version
+        StagedBlob stagedBlob = documentCommonService.stageHashedBlob(file, hash, oldDocument.getHash());
+
+        Document savedDocument = saveStagedDocument(stagedBlob, status -> saveNewDocumentVersion(oldDocument, name, type, size, newDocumentPath, hash));
+
+        log.info("Successfully uploaded new document version for document {}", documentId);
+
+        return savedDocument;
+    }
+
+    /**
+     * Uploads a new version of an existing document read from the provided stream, such as the raw body of a request.
+     * The content is hashed and written to the blob storage while it is received, so it is not spooled to a temporary
+     * file first, and the size is counted while reading, as it is not known in advance.
+     *
+     * @param documentId the ID of the document to which the new version will be uploaded
+     * @param content the stream with the content of the new version
+     * @param name the name of the new version
+     * @param type the content type of the new version (may be null)
+     * @param path the path where the new version will be stored (may be null to keep the current path)
+     * @return the document with the newly uploaded version
+     * @throws InvalidUploadException if the name is missing
+     * @throws com.dms.exception.UploadSizeExceededException if the content is larger than the maximal upload size
+     */
+    public Document uploadNewDocumentVersion(String documentId, InputStream content, String name, String type, String path) {
+        log.debug("Request - Uploading new document version: documentId={}, name={}, path={}", documentId, name, path);
+
+        Document oldDocument = getAuthenticatedUserDocument(documentId);
+        String newDocumentPath = path == null ? oldDocument.getPath() : path;
+
+        String filename = getFilename(name);
+        LimitedInputStream limitedContent = new LimitedInputStream(content, uploadProperties.getMaxSize().toBytes());
+
+        // stage the blob before the transaction starts, it may be stored as a delta against the current version
+        StagedBlob stagedBlob = documentCommonService.stageBlob(limitedContent, filename, oldDocument.getHash());
+        String hash = stagedBlob.hash();
+        Long size = limitedContent.getCount();
+
+        Document savedDocument = saveStagedDocument(stagedBlob, status -> saveNewDocumentVersion(oldDocument, filename, type, size, newDocumentPath, hash));
+
+        log.info("Successfully uploaded new document version for document {}", documentId);
 
         return savedDocument;
     }
 
     /**
-     * Creates a new document version based on the provided old document, file, and path.
+     * Uploads a new version of an existing document from a content which is already stored, without transferring the content again.
+     * Only the contents of the user's own revisions can be used, the blob is locked until the metadata is persisted,
+     * so it can't be deleted in the meantime.
+     *
+     * @param documentId the ID of the document to which the new version will be uploaded
+     * @param hash the hash of the stored content
+     * @param name the name of the new version
+     * @param type the content type of the new version (may be null)
+     * @param path the path where the new version will be stored (may be null to keep the current path)
+     * @return the document with the newly uploaded version
+     * @throws com.dms.exception.BlobNotFoundException if no revision of the user references the content
+     */
+    public Document uploadNewDocumentVersionFromHash(String documentId, String hash, String name, String type, String path) {
+        log.debug("Request - Uploading new document version from hash: documentId={}, hash={}, name={}, path={}", documentId, hash, name, path);
+
+        Document oldDocument = getAuthenticatedUserDocument(documentId);
+        String newDocumentPath = path == null ? oldDocument.getPath() : path;
+
+        Document savedDocument = transactionTemplate.execute(status -> {
+            Long size = documentCommonService.lockAuthorBlob(userService.getAuthenticatedUser(), hash);
+            return saveNewDocumentVersion(oldDocument, name, type, size, newDocumentPath, hash);
+        });
+
+        log.info("Successfully uploaded new document version for document {} from hash {}", documentId, hash);
+
+        return savedDocument;
+    }
+
+    /**
+     * Persists a new version of an existing document and its revision.
      *
      * @param oldDocument the old version of the document
-     * @param file the multipart file representing the new version
+     * @param name the name of the new version
+     * @param type the content type of the new version (may be null)
+     * @param size the size of the new version in bytes
+     * @param path the path where the new version will be stored
+     * @param hash the hash of the stored blob
+     * @return the persisted document
+     */
+    private Document saveNewDocumentVersion(Document oldDocument, String name, String type, Long size, String path, String hash) {
+        Document newDocument = createNewDocumentVersion(oldDocument, name, type, size, path, hash);
+        Document persistedDocument = saveDocumentWithUniquePath(newDocument);
+
+        documentCommonService.saveRevisionFromDocument(persistedDocument);
+
+        return persistedDocument;
+    }
+
+    /**
+     * Creates a new document version based on the provided old document, file metadata, and path.
+     *
+     * @param oldDocument the old version of the document
+     * @param name the name of the new version
+     * @param type the content type of the new version (may be null)
+     * @param size the size of the new version in bytes
      * @param path the path where the new version will be stored
+     * @param hash the hash of the stored blob
      * @return the new document version
      */
-    private Document createNewDocumentVersion(Document oldDocument, MultipartFile file, String path) {
-        Document newDocument = createDocument(file, path);
+    private Document createNewDocumentVersion(Document oldDocument, String name, String type, Long size, String path, String hash) {
+        Document newDocument = createDocument(name, type, size, path, hash);
         newDocument.setId(oldDocument.getId());
         newDocument.setDocumentId(oldDocument.getDocumentId());
-        newDocument.setVersion(documentCommonService.getLastRevisionVersion(newDocument) + 1);
+        newDocument.setVersion(documentCommonService.reserveRevisionVersion(oldDocument));
+        newDocument.setNextRevisionVersion(newDocument.getVersion() + 1);
         newDocument.setCreatedAt(oldDocument.getCreatedAt());
 
         return newDocument;
     }
 
+    /**
+     * Retrieves the size of the file.
+     *
+     * @param file the file
+     * @return the size of the file in bytes
+     * @throws FileOperationException if the size could not be read
+     */
+    private static Long getFileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException exception) {
+            throw new FileOperationException(FileOperation.READ);
+        }
+    }
+
+    /**
+     * Retrieves the size of the content with the given hash, if any revision of the authenticated user references it.
+     * Clients use it to find out whether a document can be uploaded from the hash without transferring the content.
+     *
+     * @param hash the hash of the content
+     * @return the size of the content in bytes
+     * @throws com.dms.exception.BlobNotFoundException if no revision of the user references the content
+     */
+    public Long getBlobSize(String hash) {
+        log.debug("Request - Checking blob: hash={}", hash);
+
+        Long size = documentCommonService.getAuthorBlobSize(userService.getAuthenticatedUser(), hash);
+
+        log.info("Blob {} is stored", hash);
+
+        return size;
+    }
+
     /**
      * Switches the document to the specified revision.
      *
@@ -248,46 +690,35 @@ public class DocumentService {
 
         Document document = getAuthenticatedUserDocument(documentId);
 
-        Integer revisionCount = documentCommonService.getRevisionCountForDocument(document);
-
-        int pageSize = 10;
-        int pageCount = (int) Math.ceil((double) revisionCount / pageSize);
-
-        for (int i = 0; i < pageCount; i++) {
-            Pageable pageable = PageRequest.of(i, pageSize);
-            Page<DocumentRevision> revisions = documentCommonService.findAllRevisionsByDocument(document, pageable);
-
-            revisions.forEach(revision -> {
-                documentCommonService.safelyDeleteBlob(revision.getHash());
-                documentCommonService.deleteRevision(revision);
-            });
-        }
+        List<Long> documentIds = List.of(document.getId());
 
-        documentRepository.delete(document);
+        documentCommonService.deleteRevisionsOfDocuments(documentIds);
+        documentRepository.deleteAllByIds(documentIds);
 
         log.info("Document {} with revisions deleted successfully", documentId);
     }
 
     /**
-     * Retrieves the file from the blob storage service based on the hash of the revision, and returns it as a {@link ResponseEntity}.
+     * Retrieves the file from the blob storage service based on the hash of the document, and returns it as a {@link ResponseEntity}.
+     * Byte ranges requested using the {@code Range} header are applied when writing the response.
+     * <p>
+     * The document can be switched to another revision, so caches have to revalidate it using its ETag before reusing it.
      *
      * @param documentId the ID of the document to download
+     * @param ifNoneMatch the value of the {@code If-None-Match} header (may be null)
+     * @param ifRange the value of the {@code If-Range} header (may be null)
      * @return {@link ResponseEntity} containing the downloaded document as a {@link Resource}
      */
-    public ResponseEntity<Resource> downloadDocument(String documentId) {
-        log.debug("Request - Downloading document: documentId={}", documentId);
+    public ResponseEntity<Resource> downloadDocument(String documentId, String ifNoneMatch, String ifRange) {
+        log.debug("Request - Downloading document: documentId={}, ifNoneMatch={}, ifRange={}", documentId, ifNoneMatch, ifRange);
 
         Document document = getAuthenticatedUserDocument(documentId);
-        Resource file = documentCommonService.getBlob(document.getHash());
-        String contentLength = documentCommonService.getContentLength(file);
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        ResponseEntity<Resource> response = documentCommonService.createDownloadResponse(document.getHash(), document.getName(), document.getType(), cacheControl, ifNoneMatch, ifRange);
 
         log.info("Document {} downloaded successfully", documentId);
 
-        return ResponseEntity.ok()
-                             .contentType(MediaType.parseMediaType(document.getType()))
-                             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + document.getName() + "\"")
-                             .header(HttpHeaders.CONTENT_LENGTH, contentLength)
-                             .body(file);
+        return response;
     }
 
     /**
@@ -317,6 +748,37 @@ public class DocumentService {
         return documents;
     }
 
+    /**
+     * Retrieves a page of documents using keyset pagination.
+     * The page continues right after the position encoded in the cursor and no count query is executed,
+     * so retrieving a deep page costs the same as retrieving the first one.
+     *
+     * @param cursor the cursor of the page to retrieve (empty for the first page)
+     * @param pageSize the number of documents per page
+     * @param sort the sorting criteria
+     * @param filter the filtering criteria
+     * @return a page containing the requested documents and the cursor of the next page
+     */
+    public KeysetPage<Document> getDocumentsByCursor(String cursor, int pageSize, String sort, String filter) {
+        log.debug("Request - Listing documents by cursor: cursor={}, pageSize={}, sort={}, filter={}", cursor, pageSize, sort, filter);
+
+        User user = userService.getAuthenticatedUser();
+
+        Sort sortOrders = Sort.by(documentCommonService.getDocumentSortOrders(sort));
+        Map<String, String> filters = documentCommonService.getDocumentFilters(filter);
+
+        ScrollPosition position = cursorService.decodeCursor(cursor, sort, sortOrders, Document.class);
+        Specification<Document> specification = DocumentFilterSpecification.filterByUser(filters, user);
+
+        Window<Document> documents = documentRepository.findBy(specification, query -> query.sortBy(sortOrders)
+                                                                                          .limit(pageSize)
+                                                                                          .scroll(position));
+
+        log.info("Documents listed successfully by cursor");
+
+        return cursorService.createPage(documents, cursor, sort, sortOrders, pageSize);
+    }
+
     /**
      * Retrieves a page of revisions for the specified document.
      *
@@ -358,10 +820,9 @@ public class DocumentService {
 
         Document document = getAuthenticatedUserDocument(documentId);
 
-        ensureUniquePath(path, document.getName());
-
         document.setPath(path);
-        Document savedDocument = documentRepository.save(document);
+        document.setVersion(documentCommonService.reserveRevisionVersion(document));
+        Document savedDocument = saveDocumentWithUniquePath(document);
 
         documentCommonService.saveRevisionFromDocument(savedDocument);
 
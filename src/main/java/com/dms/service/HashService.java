@@ -9,6 +9,9 @@ import org.apache.tomcat.util.buf.HexUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 
 /**
@@ -27,6 +30,8 @@ public class HashService {
 
     /**
      * Generates a hash value for the provided file using the configured hashing algorithm.
+     * The file content is streamed through the digest, so it is never loaded into memory at once.
+     *
      * @param file the file to be hashed
      * @return the hash value of the file
      * @throws FileOperationException if an error occurs while hashing the file
@@ -35,14 +40,42 @@ public class HashService {
         String filename = file.getOriginalFilename();
         log.info("Hashing file {}", filename);
 
-        try {
-            MessageDigest digest = MessageDigest.getInstance(hashProperties.getAlgorithm());
-            byte[] hash = digest.digest(file.getBytes());
-            return HexUtils.toHexString(hash);
+        MessageDigest digest = createDigest();
+
+        try (DigestInputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
         } catch (Exception e) {
             log.error("Failed to hash file {}", filename, e);
             throw new FileOperationException(FileOperation.READ);
         }
+
+        return getHash(digest);
+    }
+
+    /**
+     * Creates a new message digest for the configured hashing algorithm.
+     * The digest can be used with {@link DigestInputStream} to hash data while it is being streamed elsewhere.
+     *
+     * @return a new message digest
+     * @throws FileOperationException if the configured hashing algorithm is not available
+     */
+    public MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(hashProperties.getAlgorithm());
+        } catch (Exception e) {
+            log.error("Hash algorithm {} is not available", hashProperties.getAlgorithm(), e);
+            throw new FileOperationException(FileOperation.READ);
+        }
+    }
+
+    /**
+     * Completes the hash computation of the provided digest.
+     *
+     * @param digest the digest which has been fed with the whole content of an {@link InputStream}
+     * @return the hexadecimal hash value
+     */
+    public String getHash(MessageDigest digest) {
+        return HexUtils.toHexString(digest.digest());
     }
 
 }
@@ -0,0 +1,438 @@
+package com.dms.service;
+
+import com.dms.config.UploadProperties;
+import com.dms.entity.User;
+import com.dms.exception.FileOperation;
+import com.dms.exception.FileOperationException;
+import com.dms.exception.ImportNotFoundException;
+import com.dms.exception.InvalidUploadException;
+import com.dms.upload.BatchUploadResult;
+import com.dms.upload.ExtractionLimitedInputStream;
+import com.dms.upload.ImportSession;
+import com.dms.upload.LimitedInputStream;
+import com.dms.upload.StagedBlob;
+import com.dms.upload.StagedDocument;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Service class for ZIP archives expanded into documents.
+ * <p>
+ * The archive is read from the request body while it is received, as the entries of a ZIP stream can only be read one
+ * after another. Each file entry is extracted to a temporary file inside the blob storage directory, then hashed and
+ * handed over to the blob storage by a fixed number of threads shared by all imports, while the next entries are read.
+ * The number of extracted entries waiting for these threads is limited, so a fast client can't fill the disk. The
+ * documents are saved in batches by {@link DocumentService}, in the order of the entries.
+ * <p>
+ * Imports are kept in memory of this instance, so they don't survive a restart. Imports are discarded once they are
+ * older than the configured expiration, or finished longer than the expiration ago.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Service
+@Log4j2
+public class ImportService {
+
+    /** Prefix of the names of the temporary files holding the extracted entries. */
+    private static final String TEMP_FILE_PREFIX = "import-";
+    /** Number of documents saved in one transaction. */
+    private static final int DOCUMENT_BATCH_SIZE = 500;
+    /** Number of extracted entries waiting to be stored per thread storing them. */
+    private static final int PENDING_ENTRIES_PER_THREAD = 2;
+    /** Maximal length of the path and of the name of a document. */
+    private static final int MAX_LENGTH = 255;
+    /** Pattern of a directory of a document path. */
+    private static final Pattern DIRECTORY_PATTERN = Pattern.compile("[\\w\\-]+");
+
+    /** Imports which were not discarded yet, mapped by their IDs. */
+    private final Map<String, ImportSession> imports = new ConcurrentHashMap<>();
+
+    /** Service responsible for document management operations. */
+    private final DocumentService documentService;
+    /** Service for managing blob storage. */
+    private final BlobStorageService blobStorageService;
+    /** Service for user-related operations. */
+    private final UserService userService;
+
+    /** Properties related to uploads. */
+    private final UploadProperties uploadProperties;
+
+    /** Executor storing the entries in parallel. */
+    private final ExecutorService executor;
+    /** Maximal number of extracted entries of one import waiting to be stored. */
+    private final int maxPendingEntries;
+
+    /**
+     * Constructs a new {@code ImportService} and starts the threads storing the entries.
+     *
+     * @param documentService the service responsible for document management operations
+     * @param blobStorageService the service for managing blob storage
+     * @param userService the service for user-related operations
+     * @param uploadProperties the properties related to uploads
+     */
+    public ImportService(DocumentService documentService, BlobStorageService blobStorageService, UserService userService, UploadProperties uploadProperties) {
+        this.documentService = documentService;
+        this.blobStorageService = blobStorageService;
+        this.userService = userService;
+        this.uploadProperties = uploadProperties;
+        this.executor = Executors.newFixedThreadPool(uploadProperties.getImportThreads());
+        this.maxPendingEntries = uploadProperties.getImportThreads() * PENDING_ENTRIES_PER_THREAD;
+    }
+
+    /**
+     * Creates an import of an archive into the given path.
+     *
+     * @param path the path the archive will be imported to
+     * @return the created import
+     */
+    public ImportSession createImport(String path) {
+        log.debug("Request - Creating import: path={}", path);
+
+        User owner = userService.getAuthenticatedUser();
+        ImportSession importSession = new ImportSession(owner.getId(), path, uploadProperties.getExpiration());
+
+        imports.put(importSession.getImportId(), importSession);
+
+        log.info("Import {} to path {} created successfully", importSession.getImportId(), path);
+
+        return importSession;
+    }
+
+    /**
+     * Retrieves the import of the authenticated user.
+     *
+     * @param importId the ID of the import
+     * @return the import
+     * @throws ImportNotFoundException if the import does not exist or belongs to another user
+     */
+    public ImportSession getImport(String importId) {
+        log.debug("Request - Getting import: importId={}", importId);
+
+        ImportSession importSession = imports.get(importId);
+        User user = userService.getAuthenticatedUser();
+
+        if (importSession == null || !Objects.equals(importSession.getOwnerId(), user.getId())) {
+            throw new ImportNotFoundException("Import with ID: " + importId + " not found");
+        }
+
+        return importSession;
+    }
+
+    /**
+     * Expands the archive of the import into new documents.
+     * The directories of an entry are appended to the path of the import, directories which can't be part of a document
+     * path are reported in the result of the entry. An entry which could not be stored, or whose name is already used in
+     * its path, doesn't prevent the other entries from being imported.
+     * <p>
+     * If the archive can't be read to the end, the entries extracted before are still imported and the import fails,
+     * so importing the same archive again reports these entries as conflicts.
+     *
+     * @param importId the ID of the import
+     * @param content the stream with the content of the archive
+     * @return the finished import
+     * @throws ImportNotFoundException if the import does not exist or belongs to another user
+     * @throws InvalidUploadException if the archive was already uploaded or is not a valid ZIP archive
+     * @throws com.dms.exception.UploadSizeExceededException if the archive or one of its entries is larger than the
+     *                                                       maximal upload size, or the entries are larger than the maximal
+     *                                                       import size or the maximal compression ratio allows
+     * @throws FileOperationException if the archive could not be read or an entry could not be extracted
+     */
+    public ImportSession importArchive(String importId, InputStream content) {
+        ImportSession importSession = getImport(importId);
+
+        log.debug("Request - Importing archive: importId={}", importId);
+
+        importSession.start();
+
+        long maxSize = uploadProperties.getMaxSize().toBytes();
+        Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+        List<StagedEntry> stagedEntries = new ArrayList<>();
+        LimitedInputStream archiveContent = new LimitedInputStream(content, maxSize);
+
+        try (ZipInputStream archive = new ZipInputStream(archiveContent)) {
+            // counts the entries of the whole import, so highly compressed entries can't fill the disk
+            InputStream extractedContent = new ExtractionLimitedInputStream(
+                StreamUtils.nonClosing(archive),
+                archiveContent,
+                uploadProperties.getMaxImportSize().toBytes(),
+                uploadProperties.getMaxCompressionRatio()
+            );
+            ZipEntry entry;
+
+            while ((entry = archive.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                int index = importSession.addEntry(entry.getName());
+                DocumentLocation location = resolveLocation(importSession.getPath(), entry.getName());
+
+                if (location == null) {
+                    importSession.setResult(index, BatchUploadResult.failed(entry.getName(), "Entry can't be mapped to a document path, directories may only contain letters, digits, underscores and hyphens"));
+                    continue;
+                }
+
+                pendingEntries.add(extractEntry(index, entry.getName(), location, new LimitedInputStream(extractedContent, maxSize)));
+
+                // the next entry is read once the threads catch up, so the extracted entries don't pile up on the disk
+                collectStagedEntries(importSession, pendingEntries, stagedEntries, maxPendingEntries);
+            }
+
+            collectStagedEntries(importSession, pendingEntries, stagedEntries, 0);
+        } catch (ZipException exception) {
+            abort(importSession, pendingEntries, stagedEntries, "Archive could not be read: " + exception.getMessage());
+            throw new InvalidUploadException("Archive could not be read: " + exception.getMessage());
+        } catch (IOException exception) {
+            log.error("Archive of import {} could not be read", importId, exception);
+            abort(importSession, pendingEntries, stagedEntries, "Archive could not be read");
+            throw new FileOperationException(FileOperation.READ);
+        } catch (RuntimeException exception) {
+            abort(importSession, pendingEntries, stagedEntries, exception.getMessage());
+            throw exception;
+        }
+
+        importSession.complete();
+
+        log.info("Archive of import {} imported successfully, {} entries processed", importId, importSession.getProcessedCount());
+
+        return importSession;
+    }
+
+    /**
+     * Extracts the current entry of the archive to a temporary file and submits storing it.
+     *
+     * @param index the index of the entry in the import
+     * @param entryName the name of the entry
+     * @param location the path and the name of the document
+     * @param content the stream with the content of the entry
+     * @return the entry being stored
+     * @throws IOException if the entry could not be read or written
+     */
+    private PendingEntry extractEntry(int index, String entryName, DocumentLocation location, InputStream content) throws IOException {
+        Path file = blobStorageService.createTempFile(TEMP_FILE_PREFIX);
+
+        try {
+            long size = Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+            String type = MediaTypeFactory.getMediaType(location.name())
+                                          .map(MediaType::toString)
+                                          .orElse(null);
+
+            // the stored file is deleted by the blob storage, also when it could not be stored
+            CompletableFuture<StagedDocument> stagedFuture = CompletableFuture.supplyAsync(() -> {
+                StagedBlob stagedBlob = blobStorageService.stageTempFile(file, entryName);
+                return new StagedDocument(location.name(), type, location.path(), size, stagedBlob);
+            }, executor);
+
+            return new PendingEntry(index, entryName, stagedFuture);
+        } catch (IOException | RuntimeException exception) {
+            deleteFile(file);
+            throw exception;
+        }
+    }
+
+    /**
+     * Collects the stored entries in the order of the archive, until at most the given number of entries is left to be
+     * stored, and saves the documents of the collected entries once there are enough of them.
+     * An entry which could not be stored is recorded as failed.
+     *
+     * @param importSession the import
+     * @param pendingEntries the entries being stored, in the order of the archive
+     * @param stagedEntries the stored entries whose documents were not saved yet
+     * @param maxPending the number of entries which may be left to be stored
+     */
+    private void collectStagedEntries(ImportSession importSession, Deque<PendingEntry> pendingEntries, List<StagedEntry> stagedEntries, int maxPending) {
+        while (!pendingEntries.isEmpty() && (pendingEntries.size() > maxPending || pendingEntries.peek().stagedFuture().isDone())) {
+            PendingEntry pendingEntry = pendingEntries.poll();
+
+            try {
+                stagedEntries.add(new StagedEntry(pendingEntry.index(), pendingEntry.stagedFuture().join()));
+            } catch (CompletionException exception) {
+                log.error("Entry {} of import {} could not be stored", pendingEntry.entryName(), importSession.getImportId(), exception.getCause());
+                importSession.setResult(pendingEntry.index(), BatchUploadResult.failed(pendingEntry.entryName(), exception.getCause().getMessage()));
+            }
+
+            if (stagedEntries.size() >= DOCUMENT_BATCH_SIZE) {
+                saveStagedEntries(importSession, stagedEntries);
+            }
+        }
+
+        if (maxPending == 0 && !stagedEntries.isEmpty()) {
+            saveStagedEntries(importSession, stagedEntries);
+        }
+    }
+
+    /**
+     * Saves the documents of the stored entries in one transaction and records their results.
+     * If the transaction fails, the entries of the batch are recorded as failed and the import continues.
+     *
+     * @param importSession the import
+     * @param stagedEntries the stored entries, cleared once they are saved
+     */
+    private void saveStagedEntries(ImportSession importSession, List<StagedEntry> stagedEntries) {
+        List<StagedDocument> stagedDocuments = stagedEntries.stream()
+                                                            .map(StagedEntry::document)
+                                                            .toList();
+
+        try {
+            List<BatchUploadResult> results = documentService.uploadStagedDocuments(stagedDocuments);
+
+            for (int i = 0; i < stagedEntries.size(); i++) {
+                importSession.setResult(stagedEntries.get(i).index(), results.get(i));
+            }
+        } catch (DataAccessException exception) {
+            log.error("Batch of {} entries of import {} could not be saved", stagedEntries.size(), importSession.getImportId(), exception);
+            stagedEntries.forEach(stagedEntry -> importSession.setResult(stagedEntry.index(), BatchUploadResult.failed(stagedEntry.document().name(), "Document could not be saved, a document with the same path may have been saved concurrently")));
+        }
+
+        stagedEntries.clear();
+    }
+
+    /**
+     * Imports the entries extracted before the archive failed and fails the import.
+     *
+     * @param importSession the import
+     * @param pendingEntries the entries being stored
+     * @param stagedEntries the stored entries whose documents were not saved yet
+     * @param detail the reason why the archive could not be read
+     */
+    private void abort(ImportSession importSession, Deque<PendingEntry> pendingEntries, List<StagedEntry> stagedEntries, String detail) {
+        try {
+            collectStagedEntries(importSession, pendingEntries, stagedEntries, 0);
+        } catch (RuntimeException exception) {
+            log.error("Entries of import {} extracted before the failure could not be saved", importSession.getImportId(), exception);
+        }
+
+        importSession.fail(detail);
+
+        log.warn("Import {} failed after {} entries: {}", importSession.getImportId(), importSession.getEntryCount(), detail);
+    }
+
+    /**
+     * Resolves the path and the name of the document of an entry.
+     * Empty directories of the entry name are skipped, so an absolute entry name is relative to the path of the import too.
+     *
+     * @param path the path of the import
+     * @param entryName the name of the entry
+     * @return the path and the name of the document, or null if the entry name can't be mapped to a document path
+     */
+    private static DocumentLocation resolveLocation(String path, String entryName) {
+        List<String> segments = Arrays.stream(entryName.replace('\\', '/').split("/"))
+                                      .filter(segment -> !segment.isEmpty())
+                                      .toList();
+
+        if (segments.isEmpty()) {
+            return null;
+        }
+
+        String name = segments.get(segments.size() - 1);
+        List<String> directories = segments.subList(0, segments.size() - 1);
+
+        if (name.equals(".") || name.equals("..") || name.length() > MAX_LENGTH || !directories.stream().allMatch(directory -> DIRECTORY_PATTERN.matcher(directory).matches())) {
+            return null;
+        }
+
+        String documentPath = directories.isEmpty() ? path : (path.endsWith("/") ? path : path + "/") + String.join("/", directories);
+
+        return documentPath.length() > MAX_LENGTH ? null : new DocumentLocation(documentPath, name);
+    }
+
+    /**
+     * Scheduled method to discard the expired imports.
+     * This method runs every hour and discards the imports which were created or finished longer than the configured
+     * expiration ago.
+     */
+    @Scheduled(cron = "0 0 * * * *")
+    public void deleteExpiredImports() {
+        LocalDateTime now = LocalDateTime.now();
+
+        imports.values().removeIf(importSession -> {
+            if (!importSession.isExpiredAt(now)) {
+                return false;
+            }
+
+            log.info("Import {} expired", importSession.getImportId());
+
+            return true;
+        });
+    }
+
+    /**
+     * Stops the threads storing the entries when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Deletes the temporary file of an entry which could not be extracted.
+     *
+     * @param file the temporary file
+     */
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.warn("Temporary file {} could not be deleted", file, exception);
+        }
+    }
+
+    /**
+     * Path and name of the document of an entry.
+     *
+     * @param path the path of the document
+     * @param name the name of the document
+     */
+    private record DocumentLocation(String path, String name) {
+    }
+
+    /**
+     * Entry of the archive being stored.
+     *
+     * @param index the index of the entry in the import
+     * @param entryName the name of the entry
+     * @param stagedFuture the future completed with the document once the entry is stored
+     */
+    private record PendingEntry(int index, String entryName, CompletableFuture<StagedDocument> stagedFuture) {
+    }
+
+    /**
+     * Entry of the archive which was stored, waiting for its document to be saved.
+     *
+     * @param index the index of the entry in the import
+     * @param document the document of the entry
+     */
+    private record StagedEntry(int index, StagedDocument document) {
+    }
+
+}
@@ -0,0 +1,276 @@
+package com.dms.service;
+
+import com.dms.config.UploadProperties;
+import com.dms.entity.Document;
+import com.dms.entity.User;
+import com.dms.exception.FileOperation;
+import com.dms.exception.FileOperationException;
+import com.dms.exception.InvalidUploadException;
+import com.dms.exception.UploadNotFoundException;
+import com.dms.exception.UploadSizeExceededException;
+import com.dms.upload.UploadSession;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class for files uploaded in chunks.
+ * <p>
+ * The chunks are written to a temporary file inside the blob storage directory and hashed as they arrive, so a commit
+ * hands the file over to the blob storage without reading it again. The uploads are not limited by the maximal size
+ * of multipart requests, and a client only sends the missing chunks again after a failure.
+ * <p>
+ * Uploads are kept in memory of this instance, so they don't survive a restart. Uploads which receive no chunk for
+ * the configured expiration are discarded.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class UploadService {
+
+    /** Prefix of the names of the temporary files holding the uploads. */
+    private static final String TEMP_FILE_PREFIX = "upload-";
+
+    /** Uploads which were not committed or discarded yet, mapped by their IDs. */
+    private final Map<String, UploadSession> uploads = new ConcurrentHashMap<>();
+
+    /** Service responsible for document management operations. */
+    private final DocumentService documentService;
+    /** Service for managing blob storage. */
+    private final BlobStorageService blobStorageService;
+    /** Service for generating hash values for files. */
+    private final HashService hashService;
+    /** Service for user-related operations. */
+    private final UserService userService;
+
+    /** Properties related to files uploaded in chunks. */
+    private final UploadProperties uploadProperties;
+
+    /**
+     * Creates an upload of a new document, or of a new version of the document with the given ID.
+     *
+     * @param size the size of the file in bytes
+     * @param name the name of the document
+     * @param type the content type of the document (may be null)
+     * @param path the path where the document will be stored (may be null for a new version to keep the current path)
+     * @param documentId the ID of the document to upload a new version of, or null for a new document
+     * @return the created upload
+     * @throws UploadSizeExceededException if the file is larger than the maximal upload size
+     * @throws InvalidUploadException if the path of a new document is missing
+     * @throws com.dms.exception.DocumentNotFoundException if the document is not found
+     */
+    public UploadSession createUpload(long size, String name, String type, String path, String documentId) {
+        log.debug("Request - Creating upload: size={}, name={}, path={}, documentId={}", size, name, path, documentId);
+
+        if (size > uploadProperties.getMaxSize().toBytes()) {
+            throw new UploadSizeExceededException("File size exceeds the maximal upload size of " + uploadProperties.getMaxSize().toBytes() + " bytes");
+        }
+
+        if (documentId == null && path == null) {
+            throw new InvalidUploadException("Path of a new document must be provided");
+        }
+
+        if (documentId != null) {
+            // fail early, before the client sends the chunks
+            documentService.getDocument(documentId);
+        }
+
+        User owner = userService.getAuthenticatedUser();
+        Path file = blobStorageService.createTempFile(TEMP_FILE_PREFIX);
+
+        UploadSession upload;
+        try {
+            upload = new UploadSession(owner.getId(), documentId, name, type, path, size, file, hashService.createDigest(), uploadProperties.getExpiration());
+        } catch (IOException exception) {
+            deleteFile(file);
+            throw new FileOperationException(FileOperation.WRITE);
+        }
+
+        uploads.put(upload.getUploadId(), upload);
+
+        log.info("Upload {} of {} bytes created successfully", upload.getUploadId(), size);
+
+        return upload;
+    }
+
+    /**
+     * Retrieves the upload of the authenticated user.
+     *
+     * @param uploadId the ID of the upload
+     * @return the upload
+     * @throws UploadNotFoundException if the upload does not exist or belongs to another user
+     */
+    public UploadSession getUpload(String uploadId) {
+        log.debug("Request - Getting upload: uploadId={}", uploadId);
+
+        UploadSession upload = uploads.get(uploadId);
+        User user = userService.getAuthenticatedUser();
+
+        if (upload == null || !Objects.equals(upload.getOwnerId(), user.getId())) {
+            throw new UploadNotFoundException("Upload with ID: " + uploadId + " not found");
+        }
+
+        return upload;
+    }
+
+    /**
+     * Writes a chunk of the upload starting at the given offset.
+     *
+     * @param uploadId the ID of the upload
+     * @param offset the offset of the first byte of the chunk
+     * @param content the stream with the content of the chunk
+     * @return the upload with the chunk received
+     * @throws UploadNotFoundException if the upload does not exist or belongs to another user
+     * @throws InvalidUploadException if the chunk starts or ends past the end of the file
+     * @throws UploadSizeExceededException if the chunk is larger than the maximal chunk size
+     * @throws FileOperationException if the chunk could not be read or written
+     */
+    public UploadSession uploadChunk(String uploadId, long offset, InputStream content) {
+        UploadSession upload = getUpload(uploadId);
+
+        log.debug("Request - Uploading chunk: uploadId={}, offset={}", uploadId, offset);
+
+        try {
+            upload.write(offset, content, uploadProperties.getMaxChunkSize().toBytes());
+        } catch (IOException exception) {
+            log.error("Chunk at offset {} of upload {} could not be written", offset, uploadId, exception);
+            throw new FileOperationException(FileOperation.WRITE);
+        }
+
+        log.info("Chunk at offset {} of upload {} received, {} of {} bytes received", offset, uploadId, upload.getReceivedSize(), upload.getSize());
+
+        return upload;
+    }
+
+    /**
+     * Commits the upload as a new document, or as a new version of the document the upload was created for.
+     * Once all chunks are received, the upload is removed whether the commit succeeds or not, as the file is handed over
+     * to the blob storage.
+     *
+     * @param uploadId the ID of the upload
+     * @return the uploaded document
+     * @throws UploadNotFoundException if the upload does not exist or belongs to another user
+     * @throws InvalidUploadException if some bytes of the file were not received yet
+     */
+    public Document commitUpload(String uploadId) {
+        UploadSession upload = getUpload(uploadId);
+
+        log.debug("Request - Committing upload: uploadId={}", uploadId);
+
+        String hash;
+        try {
+            hash = hashService.getHash(upload.finish());
+        } catch (IOException exception) {
+            log.error("Upload {} could not be hashed", uploadId, exception);
+            uploads.remove(uploadId, upload);
+            discard(upload);
+            throw new FileOperationException(FileOperation.READ);
+        }
+
+        uploads.remove(uploadId, upload);
+
+        try {
+            Document document = upload.getDocumentId() == null
+                ? documentService.uploadDocument(upload.getFile(), hash, upload.getName(), upload.getType(), upload.getPath())
+                : documentService.uploadNewDocumentVersion(upload.getDocumentId(), upload.getFile(), hash, upload.getName(), upload.getType(), upload.getPath());
+
+            log.info("Upload {} committed successfully as document {}", uploadId, document.getDocumentId());
+
+            return document;
+        } finally {
+            // the file is left in place when a blob with the same hash already exists
+            discard(upload);
+        }
+    }
+
+    /**
+     * Discards the upload of the authenticated user along with the received chunks.
+     *
+     * @param uploadId the ID of the upload
+     * @throws UploadNotFoundException if the upload does not exist or belongs to another user
+     */
+    public void deleteUpload(String uploadId) {
+        UploadSession upload = getUpload(uploadId);
+
+        log.debug("Request - Deleting upload: uploadId={}", uploadId);
+
+        if (uploads.remove(uploadId, upload)) {
+            discard(upload);
+        }
+
+        log.info("Upload {} deleted successfully", uploadId);
+    }
+
+    /**
+     * Scheduled method to discard the expired uploads.
+     * This method runs every hour and discards the uploads which did not receive a chunk for the configured expiration.
+     */
+    @Scheduled(cron = "0 0 * * * *")
+    public void deleteExpiredUploads() {
+        LocalDateTime now = LocalDateTime.now();
+
+        uploads.values().removeIf(upload -> {
+            if (!upload.isExpiredAt(now)) {
+                return false;
+            }
+
+            log.info("Upload {} expired", upload.getUploadId());
+            discard(upload);
+
+            return true;
+        });
+    }
+
+    /**
+     * Discards all uploads when the application shuts down, as they can't be resumed after a restart.
+     */
+    @PreDestroy
+    public void deleteAllUploads() {
+        uploads.values().removeIf(upload -> {
+            discard(upload);
+            return true;
+        });
+    }
+
+    /**
+     * Discards the upload and deletes its temporary file.
+     * A failure is only logged, as the upload can't be used anymore.
+     *
+     * @param upload the upload to discard
+     */
+    private void discard(UploadSession upload) {
+        try {
+            upload.discard();
+        } catch (IOException exception) {
+            log.warn("Temporary file {} of upload {} could not be deleted", upload.getFile(), upload.getUploadId(), exception);
+        }
+    }
+
+    /**
+     * Deletes the temporary file of an upload which could not be created.
+     *
+     * @param file the temporary file
+     */
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.warn("Temporary file {} could not be deleted", file, exception);
+        }
+    }
+
+}
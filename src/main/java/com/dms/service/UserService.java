@@ -7,8 +7,10 @@ import com.dms.exception.UserNotFoundException;
 import com.dms.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
 /**
@@ -29,14 +31,38 @@ public class UserService {
 
     /**
      * Retrieves the authenticated user from the security context.
+     * If the token of the request carries the claims of the user, the user is resolved from them without a database
+     * query, otherwise the user is loaded by the email in the subject of the token.
      *
      * @return the authenticated user
      */
     public User getAuthenticatedUser() {
-        String authUserEmail = SecurityContextHolder.getContext()
-                                                    .getAuthentication()
-                                                    .getName();
-        return getUserByEmail(authUserEmail);
+        Authentication authentication = SecurityContextHolder.getContext()
+                                                             .getAuthentication();
+
+        if (authentication.getPrincipal() instanceof Jwt jwt && jwt.hasClaim(AuthService.ID_CLAIM)) {
+            return getUserFromClaims(jwt);
+        }
+
+        return getUserByEmail(authentication.getName());
+    }
+
+    /**
+     * Creates a reference to the user from the claims of the token.
+     * The user is detached and identified by its ID, so it can be used as the author of persisted entities and as
+     * a query parameter, while its name and email are available for the responses.
+     *
+     * @param jwt the token of the authenticated user
+     * @return the user described by the token
+     */
+    private static User getUserFromClaims(Jwt jwt) {
+        return User.builder()
+                   .id(Long.valueOf(jwt.getClaimAsString(AuthService.ID_CLAIM)))
+                   .userId(jwt.getClaimAsString(AuthService.USER_ID_CLAIM))
+                   .name(jwt.getClaimAsString(AuthService.NAME_CLAIM))
+                   .email(jwt.getSubject())
+                   .role(Role.valueOf(jwt.getClaimAsString(AuthService.ROLE_CLAIM)))
+                   .build();
     }
 
     /**
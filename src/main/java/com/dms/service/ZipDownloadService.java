@@ -0,0 +1,308 @@
+package com.dms.service;
+
+import com.dms.download.ZipStreamEntry;
+import com.dms.download.ZipStreamResource;
+import com.dms.entity.User;
+import com.dms.exception.DocumentNotFoundException;
+import com.dms.exception.InvalidDownloadException;
+import com.dms.repository.DocumentContent;
+import com.dms.repository.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Service class for downloading several documents as one ZIP archive.
+ * <p>
+ * The archive is built while it is written to the response, see {@link ZipStreamResource}. The documents under a path
+ * are read in keyset batches while the archive is written, each batch in its own short query, so no database connection
+ * is held while the contents are sent and the number of documents doesn't change the memory used.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ZipDownloadService {
+
+    /** Number of documents read by one query while the archive is written. */
+    private static final int DOCUMENT_BATCH_SIZE = 500;
+    /** Maximal number of document IDs resolved by one query, as some databases limit the number of query parameters. */
+    private static final int DOCUMENT_ID_QUERY_BATCH_SIZE = 500;
+
+    /** Content types whose contents are already compressed. */
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+        "application/zip",
+        "application/gzip",
+        "application/x-gzip",
+        "application/x-bzip2",
+        "application/x-xz",
+        "application/zstd",
+        "application/x-7z-compressed",
+        "application/vnd.rar",
+        "application/x-rar-compressed",
+        "application/java-archive",
+        "application/epub+zip"
+    );
+    /** Prefixes of the content types whose contents are already compressed (images, audio, video and office documents). */
+    private static final List<String> COMPRESSED_TYPE_PREFIXES = List.of(
+        "image/",
+        "audio/",
+        "video/",
+        "application/vnd.openxmlformats-officedocument.",
+        "application/vnd.oasis.opendocument."
+    );
+    /** Content types matching the compressed prefixes whose contents are usually not compressed. */
+    private static final Set<String> UNCOMPRESSED_TYPES = Set.of("image/svg+xml", "image/bmp", "image/tiff", "audio/wav", "audio/x-wav");
+
+    /** Name of the archive with the documents of the root path or with the listed documents. */
+    private static final String DEFAULT_ARCHIVE_NAME = "documents";
+
+    /** Repository for document-related database operations. */
+    private final DocumentRepository documentRepository;
+
+    /** Service for user-related operations. */
+    private final UserService userService;
+    /** Service for managing blob storage. */
+    private final BlobStorageService blobStorageService;
+
+    /**
+     * Downloads the documents under the path, or the listed documents, as a ZIP archive.
+     * Exactly one of the path and the document IDs has to be provided.
+     * <p>
+     * Archived documents under the path are left out. Their entries are named by their paths relative to the requested path,
+     * while the entries of the listed documents are named by their whole paths.
+     *
+     * @param path the path whose documents, including the documents of its subdirectories, will be downloaded (may be null)
+     * @param documentIds the IDs of the documents to download (may be null)
+     * @return {@link ResponseEntity} containing the archive as a {@link Resource}
+     * @throws InvalidDownloadException if neither or both of the path and the document IDs are provided
+     * @throws DocumentNotFoundException if any of the listed documents is not found
+     */
+    public ResponseEntity<Resource> downloadDocuments(String path, List<String> documentIds) {
+        log.debug("Request - Downloading documents as archive: path={}, documentIds={}", path, documentIds);
+
+        boolean hasDocumentIds = documentIds != null && !documentIds.isEmpty();
+
+        if ((path == null) == !hasDocumentIds) {
+            throw new InvalidDownloadException("Exactly one of path and document IDs must be provided");
+        }
+
+        User author = userService.getAuthenticatedUser();
+
+        ZipStreamResource archive = hasDocumentIds ? createArchive(author, documentIds) : createArchive(author, path);
+
+        log.info("Archive {} of documents created, sending its entries", archive.getFilename());
+
+        return ResponseEntity.ok()
+                             .contentType(MediaType.valueOf("application/zip"))
+                             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archive.getFilename() + "\"")
+                             .cacheControl(CacheControl.noCache().cachePrivate())
+                             .body(archive);
+    }
+
+    /**
+     * Creates the archive of the non-archived documents under the path.
+     * The documents are read while the archive is written, ordered by their paths and names, so the entries of a directory
+     * are next to each other.
+     *
+     * @param author the author of the documents
+     * @param path the path of the documents
+     * @return the archive of the documents
+     */
+    private ZipStreamResource createArchive(User author, String path) {
+        String prefix = path.endsWith("/") ? path : path + "/";
+        String pathPattern = escapeLikePattern(prefix) + "%";
+
+        Function<DocumentContent, ZipStreamEntry> entryMapper = content -> {
+            // documents in the requested path itself have no directory in the archive
+            String directory = content.getPath().length() > prefix.length() ? content.getPath().substring(prefix.length()) + "/" : "";
+            return createEntry(directory + content.getName(), content);
+        };
+
+        Iterable<ZipStreamEntry> entries = () -> new PathContentIterator(author, path, pathPattern, entryMapper);
+
+        return new ZipStreamResource(getArchiveName(path), entries, blobStorageService::openBlob);
+    }
+
+    /**
+     * Creates the archive of the listed documents.
+     * The documents are resolved before the archive is written, so a missing document is reported instead of a partial archive.
+     *
+     * @param author the author of the documents
+     * @param documentIds the IDs of the documents
+     * @return the archive of the documents, in the order of the IDs
+     * @throws DocumentNotFoundException if any of the documents is not found
+     */
+    private ZipStreamResource createArchive(User author, List<String> documentIds) {
+        List<String> distinctDocumentIds = new ArrayList<>(new LinkedHashSet<>(documentIds));
+        Map<String, DocumentContent> contents = new HashMap<>();
+
+        for (int start = 0; start < distinctDocumentIds.size(); start += DOCUMENT_ID_QUERY_BATCH_SIZE) {
+            List<String> batch = distinctDocumentIds.subList(start, Math.min(distinctDocumentIds.size(), start + DOCUMENT_ID_QUERY_BATCH_SIZE));
+            documentRepository.findContentsByDocumentIds(author, batch)
+                              .forEach(content -> contents.put(content.getDocumentId(), content));
+        }
+
+        List<String> missingDocumentIds = distinctDocumentIds.stream()
+                                                             .filter(documentId -> !contents.containsKey(documentId))
+                                                             .toList();
+
+        if (!missingDocumentIds.isEmpty()) {
+            throw new DocumentNotFoundException("Documents with IDs: " + missingDocumentIds + " not found");
+        }
+
+        List<ZipStreamEntry> entries = distinctDocumentIds.stream()
+                                                          .map(contents::get)
+                                                          .map(content -> createEntry(getEntryDirectory(content.getPath()) + content.getName(), content))
+                                                          .toList();
+
+        return new ZipStreamResource(DEFAULT_ARCHIVE_NAME + ".zip", entries, blobStorageService::openBlob);
+    }
+
+    /**
+     * Creates the entry of the document.
+     *
+     * @param name the name of the entry
+     * @param content the document
+     * @return the entry of the document
+     */
+    private static ZipStreamEntry createEntry(String name, DocumentContent content) {
+        return new ZipStreamEntry(name, content.getHash(), content.getUpdatedAt(), isCompressedType(content.getType()));
+    }
+
+    /**
+     * Retrieves the directory of an entry from the whole path of the document.
+     *
+     * @param path the path of the document
+     * @return the path without the leading slash and with a trailing slash, or an empty string for the root path
+     */
+    private static String getEntryDirectory(String path) {
+        String directory = path.startsWith("/") ? path.substring(1) : path;
+        return directory.isEmpty() || directory.endsWith("/") ? directory : directory + "/";
+    }
+
+    /**
+     * Retrieves the name of the archive of the documents under the path.
+     *
+     * @param path the path of the documents
+     * @return the name of the last directory of the path with the .zip extension
+     */
+    private static String getArchiveName(String path) {
+        String directory = path.substring(path.lastIndexOf('/') + 1);
+        return (directory.isEmpty() ? DEFAULT_ARCHIVE_NAME : directory) + ".zip";
+    }
+
+    /**
+     * Escapes the wildcards of the LIKE operator, so the value is matched literally.
+     * The escape character must match the ESCAPE clause of the queries in {@link DocumentRepository}.
+     *
+     * @param value the value to escape
+     * @return the escaped value
+     */
+    private static String escapeLikePattern(String value) {
+        return value.replace("!", "!!")
+                    .replace("%", "!%")
+                    .replace("_", "!_");
+    }
+
+    /**
+     * Checks whether the content of the given type is already compressed, so deflating it would only cost time.
+     *
+     * @param type the content type of the document
+     * @return true if the content is already compressed, false otherwise
+     */
+    private static boolean isCompressedType(String type) {
+        String mediaType = type.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+
+        if (UNCOMPRESSED_TYPES.contains(mediaType)) {
+            return false;
+        }
+
+        return COMPRESSED_TYPES.contains(mediaType) || COMPRESSED_TYPE_PREFIXES.stream().anyMatch(mediaType::startsWith);
+    }
+
+    /**
+     * Iterator over the entries of the non-archived documents under a path, reading the documents in keyset batches.
+     */
+    private final class PathContentIterator implements Iterator<ZipStreamEntry> {
+
+        /** Author of the documents. */
+        private final User author;
+        /** Path of the documents. */
+        private final String path;
+        /** LIKE pattern matching the subdirectories of the path. */
+        private final String pathPattern;
+        /** Mapper of the documents to the entries. */
+        private final Function<DocumentContent, ZipStreamEntry> entryMapper;
+
+        /** Documents of the current batch which were not returned yet. */
+        private Iterator<DocumentContent> batch = Collections.emptyIterator();
+        /** Last returned document, from which the next batch continues. */
+        private DocumentContent lastContent;
+        /** Whether the current batch is the last one. */
+        private boolean lastBatch;
+
+        /**
+         * Constructs a new {@code PathContentIterator}.
+         *
+         * @param author the author of the documents
+         * @param path the path of the documents
+         * @param pathPattern the LIKE pattern matching the subdirectories of the path
+         * @param entryMapper the mapper of the documents to the entries
+         */
+        private PathContentIterator(User author, String path, String pathPattern, Function<DocumentContent, ZipStreamEntry> entryMapper) {
+            this.author = author;
+            this.path = path;
+            this.pathPattern = pathPattern;
+            this.entryMapper = entryMapper;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!batch.hasNext() && !lastBatch) {
+                PageRequest pageRequest = PageRequest.ofSize(DOCUMENT_BATCH_SIZE);
+                List<DocumentContent> contents = lastContent == null
+                    ? documentRepository.findContentsByPath(author, path, pathPattern, pageRequest)
+                    : documentRepository.findContentsByPathAfter(author, path, pathPattern, lastContent.getPath(), lastContent.getName(), pageRequest);
+
+                lastBatch = contents.size() < DOCUMENT_BATCH_SIZE;
+                batch = contents.iterator();
+            }
+
+            return batch.hasNext();
+        }
+
+        @Override
+        public ZipStreamEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            lastContent = batch.next();
+
+            return entryMapper.apply(lastContent);
+        }
+
+    }
+
+}
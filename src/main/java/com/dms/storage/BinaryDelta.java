@@ -0,0 +1,247 @@
+package com.dms.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Encodes a content as a binary delta against a base content and reconstructs it from the delta.
+ * <p>
+ * The delta is a sequence of instructions which either copy a range of the base or insert literal bytes:
+ * <pre>
+ * copy   : [0: byte][offset in the base: int][length: int]
+ * insert : [1: byte][length: int][bytes]
+ * </pre>
+ * The base is indexed by the rolling hash of its aligned blocks of {@value #BLOCK_SIZE} bytes. The content is scanned
+ * byte by byte, and a block found in the base is extended in both directions and copied, so the size of the delta is
+ * proportional to the changed bytes instead of the size of the content.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public final class BinaryDelta {
+
+    /** Number of bytes of the blocks matched between the base and the content. */
+    private static final int BLOCK_SIZE = 16;
+    /** Multiplier of the polynomial rolling hash. */
+    private static final int PRIME = 0x01000193;
+    /** Power of the multiplier removing the byte leaving the window of the rolling hash. */
+    private static final int OUTGOING_FACTOR = power(PRIME, BLOCK_SIZE - 1);
+
+    /** Instruction copying a range of the base. */
+    private static final byte COPY = 0;
+    /** Instruction inserting literal bytes. */
+    private static final byte INSERT = 1;
+
+    private BinaryDelta() {
+    }
+
+    /**
+     * Encodes the content as a delta against the base.
+     *
+     * @param base the base content
+     * @param target the content to encode
+     * @return the delta reconstructing the content from the base
+     */
+    public static byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream delta = new ByteArrayOutputStream(Math.max(32, target.length / 8));
+        DataOutputStream output = new DataOutputStream(delta);
+
+        try {
+            int[] index = indexBlocks(base);
+            int mask = index.length - 1;
+            int literalStart = 0;
+            int position = 0;
+            int hash = target.length >= BLOCK_SIZE ? hash(target, 0) : 0;
+
+            while (position + BLOCK_SIZE <= target.length) {
+                int candidate = index.length > 0 ? index[hash & mask] - 1 : -1;
+
+                if (candidate >= 0 && Arrays.equals(base, candidate, candidate + BLOCK_SIZE, target, position, position + BLOCK_SIZE)) {
+                    int length = BLOCK_SIZE;
+                    while (position + length < target.length && candidate + length < base.length && target[position + length] == base[candidate + length]) {
+                        length++;
+                    }
+
+                    // the bytes before the block may match as well, they are taken from the pending literal
+                    int backward = 0;
+                    while (position - backward > literalStart && candidate - backward > 0 && target[position - backward - 1] == base[candidate - backward - 1]) {
+                        backward++;
+                    }
+
+                    writeInsert(output, target, literalStart, position - backward);
+                    writeCopy(output, candidate - backward, length + backward);
+
+                    position += length;
+                    literalStart = position;
+
+                    if (position + BLOCK_SIZE <= target.length) {
+                        hash = hash(target, position);
+                    }
+                    continue;
+                }
+
+                if (position + BLOCK_SIZE < target.length) {
+                    hash = (hash - target[position] * OUTGOING_FACTOR) * PRIME + target[position + BLOCK_SIZE];
+                }
+                position++;
+            }
+
+            writeInsert(output, target, literalStart, target.length);
+        } catch (IOException exception) {
+            // the output is in memory, it can't fail
+            throw new UncheckedIOException(exception);
+        }
+
+        return delta.toByteArray();
+    }
+
+    /**
+     * Reconstructs the content from the base and the delta.
+     *
+     * @param base the base content
+     * @param delta the stream with the delta
+     * @param targetLength the length of the reconstructed content
+     * @return the reconstructed content
+     * @throws IOException if the delta could not be read or does not match the base
+     */
+    public static byte[] apply(byte[] base, InputStream delta, int targetLength) throws IOException {
+        byte[] target = new byte[targetLength];
+        int position = 0;
+
+        DataInputStream input = new DataInputStream(delta);
+        int instruction;
+
+        while ((instruction = input.read()) != -1) {
+            if (instruction == COPY) {
+                int offset = input.readInt();
+                int length = input.readInt();
+
+                if (offset < 0 || length < 0 || offset > base.length - length || length > targetLength - position) {
+                    throw new IOException("Delta copies outside of the base");
+                }
+
+                System.arraycopy(base, offset, target, position, length);
+                position += length;
+            } else if (instruction == INSERT) {
+                int length = input.readInt();
+
+                if (length < 0 || length > targetLength - position) {
+                    throw new IOException("Delta inserts past the end of the content");
+                }
+
+                input.readFully(target, position, length);
+                position += length;
+            } else {
+                throw new IOException("Delta contains an unknown instruction " + instruction);
+            }
+        }
+
+        if (position != targetLength) {
+            throw new EOFException("Delta is truncated");
+        }
+
+        return target;
+    }
+
+    /**
+     * Indexes the aligned blocks of the base by their hash.
+     * Colliding blocks keep the first one, as a match is verified before it is used.
+     *
+     * @param base the base content
+     * @return the table holding the offset of a block plus one, or zero for an empty slot
+     */
+    private static int[] indexBlocks(byte[] base) {
+        int blockCount = base.length / BLOCK_SIZE;
+
+        if (blockCount == 0) {
+            return new int[0];
+        }
+
+        int[] index = new int[Integer.highestOneBit(blockCount) * 4];
+        int mask = index.length - 1;
+
+        for (int offset = 0; offset + BLOCK_SIZE <= base.length; offset += BLOCK_SIZE) {
+            int slot = hash(base, offset) & mask;
+
+            if (index[slot] == 0) {
+                index[slot] = offset + 1;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Computes the hash of the block.
+     *
+     * @param content the content
+     * @param offset the offset of the block
+     * @return the hash of the block
+     */
+    private static int hash(byte[] content, int offset) {
+        int hash = 0;
+
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            hash = hash * PRIME + content[i];
+        }
+
+        return hash;
+    }
+
+    /**
+     * Raises the value to the power using overflowing integer arithmetic.
+     *
+     * @param value the value
+     * @param exponent the exponent
+     * @return the power
+     */
+    private static int power(int value, int exponent) {
+        int result = 1;
+
+        for (int i = 0; i < exponent; i++) {
+            result *= value;
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the instruction copying a range of the base.
+     *
+     * @param output the output of the delta
+     * @param offset the offset of the range in the base
+     * @param length the length of the range
+     * @throws IOException if the instruction could not be written
+     */
+    private static void writeCopy(DataOutputStream output, int offset, int length) throws IOException {
+        output.writeByte(COPY);
+        output.writeInt(offset);
+        output.writeInt(length);
+    }
+
+    /**
+     * Writes the instruction inserting literal bytes, unless there are none.
+     *
+     * @param output the output of the delta
+     * @param content the content holding the bytes
+     * @param start the offset of the first byte
+     * @param end the offset after the last byte
+     * @throws IOException if the instruction could not be written
+     */
+    private static void writeInsert(DataOutputStream output, byte[] content, int start, int end) throws IOException {
+        if (start == end) {
+            return;
+        }
+
+        output.writeByte(INSERT);
+        output.writeInt(end - start);
+        output.write(content, start, end - start);
+    }
+
+}
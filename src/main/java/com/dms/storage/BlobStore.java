@@ -0,0 +1,148 @@
+package com.dms.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Storage of blob contents addressed by their keys.
+ * <p>
+ * Implementations only move bytes, the keys (hashes of the contents) are computed by {@link com.dms.service.BlobStorageService}.
+ * All contents are streamed, so a blob is never required to fit into memory unless the store itself keeps it there.
+ * A missing blob is reported by {@link java.io.FileNotFoundException}.
+ * Stores are closed when the application stops, stores decorating another store close it as well.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public interface BlobStore extends Closeable {
+
+    /**
+     * Stores the content under the key, replacing any existing content.
+     *
+     * @param key the key of the blob
+     * @param content the stream with the content of the blob
+     * @param size the exact number of bytes in the stream
+     * @throws IOException if the content could not be stored
+     */
+    void put(String key, InputStream content, long size) throws IOException;
+
+    /**
+     * Stores the content of the local file under the key, replacing any existing content.
+     * The store may move the file instead of copying it, so the caller must not use the file afterward.
+     *
+     * @param key the key of the blob
+     * @param file the file with the content of the blob
+     * @throws IOException if the content could not be stored
+     */
+    default void put(String key, Path file) throws IOException {
+        try (InputStream content = Files.newInputStream(file)) {
+            put(key, content, Files.size(file));
+        }
+    }
+
+    /**
+     * Stores the content of the local file under the key, as a delta against the content of the base blob if the store supports it.
+     * Stores without the support store the whole content.
+     *
+     * @param key the key of the blob
+     * @param file the file with the content of the blob
+     * @param baseKey the key of the blob the content is likely similar to, usually its previous version
+     * @throws IOException if the content could not be stored
+     */
+    default void put(String key, Path file, String baseKey) throws IOException {
+        put(key, file);
+    }
+
+    /**
+     * Retrieves the key of the blob against which the blob is stored as a delta.
+     * The base blob has to be kept as long as the blob exists.
+     *
+     * @param key the key of the blob
+     * @return the key of the base blob, or null if the whole content of the blob is stored
+     * @throws IOException if the blob does not exist or could not be read
+     */
+    default String getDeltaBase(String key) throws IOException {
+        return null;
+    }
+
+    /**
+     * Opens the content of the blob.
+     *
+     * @param key the key of the blob
+     * @return the stream with the content of the blob, which has to be closed by the caller
+     * @throws IOException if the blob does not exist or could not be read
+     */
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Opens a range of the content of the blob.
+     *
+     * @param key the key of the blob
+     * @param position the position of the first byte of the range
+     * @param count the number of bytes in the range
+     * @return the stream with the range of the content, which has to be closed by the caller
+     * @throws IOException if the blob does not exist or could not be read
+     */
+    InputStream getRange(String key, long position, long count) throws IOException;
+
+    /**
+     * Retrieves the size of the blob.
+     *
+     * @param key the key of the blob
+     * @return the size of the blob in bytes
+     * @throws IOException if the blob does not exist or could not be resolved
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Checks whether the blob exists.
+     *
+     * @param key the key of the blob
+     * @return true if the blob exists, false otherwise
+     * @throws IOException if the store could not be queried
+     */
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Deletes the blob. Deleting a missing blob has no effect.
+     *
+     * @param key the key of the blob
+     * @throws IOException if the blob could not be deleted
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Reclaims the space of deleted blobs.
+     * Stores which release the space as soon as a blob is deleted do nothing.
+     *
+     * @throws IOException if the space could not be reclaimed
+     */
+    default void compact() throws IOException {
+    }
+
+    /**
+     * Releases the resources held by the store.
+     * Stores which hold no resources do nothing.
+     *
+     * @throws IOException if the resources could not be released
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Retrieves the blob as a resource which can be written to a response.
+     *
+     * @param key the key of the blob
+     * @return the resource representing the blob
+     */
+    default Resource getResource(String key) {
+        return new BlobStoreResource(this, key);
+    }
+
+}
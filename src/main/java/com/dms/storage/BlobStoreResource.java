@@ -0,0 +1,78 @@
+package com.dms.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link org.springframework.core.io.Resource} representing a blob of a {@link BlobStore} which is not backed by a local file.
+ * <p>
+ * The size of the blob is resolved only once, as it is requested several times while a response is written.
+ * Ranges of the blob are read by {@link #getInputStream(long, long)}, so the store doesn't send the skipped bytes.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class BlobStoreResource extends AbstractResource {
+
+    /** Store holding the blob. */
+    private final BlobStore blobStore;
+    /** Key of the blob. */
+    private final String key;
+
+    /** Size of the blob, resolved on first use. */
+    private Long contentLength;
+
+    /**
+     * Constructs a new {@code BlobStoreResource} for the blob with the given key.
+     *
+     * @param blobStore the store holding the blob
+     * @param key the key of the blob
+     */
+    public BlobStoreResource(BlobStore blobStore, String key) {
+        this.blobStore = blobStore;
+        this.key = key;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Blob [" + key + "]";
+    }
+
+    @Override
+    public boolean exists() {
+        try {
+            return blobStore.exists(key);
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return blobStore.get(key);
+    }
+
+    /**
+     * Opens a range of the content of the blob.
+     *
+     * @param position the position of the first byte of the range
+     * @param count the number of bytes in the range
+     * @return the stream with the range of the content
+     * @throws IOException if the blob does not exist or could not be read
+     */
+    public InputStream getInputStream(long position, long count) throws IOException {
+        return blobStore.getRange(key, position, count);
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if (contentLength == null) {
+            contentLength = blobStore.size(key);
+        }
+
+        return contentLength;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.dms.storage;
+
+/**
+ * Enumeration representing the available implementations of the {@link BlobStore}.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public enum BlobStoreType {
+
+    /** Sharded directory tree in the local file system, see {@link FileSystemBlobStore}. */
+    FILESYSTEM,
+    /** Heap or off-heap memory of the application, see {@link InMemoryBlobStore}. */
+    MEMORY,
+    /** Bucket of an S3-compatible object storage, see {@link S3BlobStore}. */
+    S3
+
+}
@@ -0,0 +1,76 @@
+package com.dms.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FilterInputStream} which reads at most the given number of bytes from the underlying stream.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+class BoundedInputStream extends FilterInputStream {
+
+    /** Number of bytes which can still be read. */
+    private long remaining;
+
+    /**
+     * Constructs a new {@code BoundedInputStream}.
+     *
+     * @param inputStream the underlying stream
+     * @param limit the maximal number of bytes to read
+     */
+    BoundedInputStream(InputStream inputStream, long limit) {
+        super(inputStream);
+        this.remaining = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        int value = super.read();
+
+        if (value != -1) {
+            remaining--;
+        }
+
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+
+        if (read > 0) {
+            remaining -= read;
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(Math.min(count, remaining));
+        remaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(super.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.dms.storage;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Tracks how many times the chunks stored by {@link ChunkingBlobStore} are referenced by the manifests of the blobs.
+ * <p>
+ * A chunk is shared by all blobs containing it, so its content can only be deleted once no manifest references it.
+ * The counts are kept outside the store, so concurrent writers agree on which chunks have to be stored.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public interface ChunkReferences {
+
+    /**
+     * Adds the references to the chunks.
+     * The content of a chunk which has no references yet is stored by the callback while the chunk is locked,
+     * so a concurrent compaction can't delete it before the references are added.
+     *
+     * @param chunks the referenced chunks
+     * @param storeContent the callback storing the content of a chunk
+     * @throws IOException if the content of a chunk could not be stored, no references are added in that case
+     */
+    void addReferences(Collection<ChunkReference> chunks, ChunkOperation storeContent) throws IOException;
+
+    /**
+     * Removes the references to the chunks.
+     * Chunks without references are kept until the next compaction, as they may still be referenced by a new blob.
+     *
+     * @param referenceCounts the number of removed references of each chunk
+     */
+    void removeReferences(Map<String, Long> referenceCounts);
+
+    /**
+     * Deletes a batch of chunks which are not referenced.
+     *
+     * @param limit the maximal number of deleted chunks
+     * @param deleteContent the callback deleting the content of a chunk
+     * @return the number of deleted chunks
+     * @throws IOException if the content of a chunk could not be deleted
+     */
+    int deleteUnreferenced(int limit, ChunkOperation deleteContent) throws IOException;
+
+    /**
+     * Reference to a chunk from a blob.
+     *
+     * @param hash the key of the chunk
+     * @param size the size of the chunk in bytes
+     * @param count the number of times the chunk is referenced
+     */
+    record ChunkReference(String hash, long size, long count) {
+    }
+
+    /**
+     * Operation with the content of a chunk.
+     */
+    @FunctionalInterface
+    interface ChunkOperation {
+
+        /**
+         * Performs the operation.
+         *
+         * @param hash the key of the chunk
+         * @throws IOException if the content could not be accessed
+         */
+        void apply(String hash) throws IOException;
+
+    }
+
+}
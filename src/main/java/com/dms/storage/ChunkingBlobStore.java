@@ -0,0 +1,558 @@
+package com.dms.storage;
+
+import com.dms.storage.ChunkReferences.ChunkReference;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link BlobStore} splitting large blobs into content-defined chunks, which are stored once and shared by all blobs containing them.
+ * <p>
+ * The boundaries of the chunks are found by {@link FastCdcChunker}, so successive revisions of a large file share all chunks
+ * except the ones around the changes, and only those are written. Each chunk is stored by the underlying store under
+ * the SHA-256 hash of its content, prefixed to keep the chunks apart from the blobs. The blob itself is stored as a manifest
+ * listing its chunks, or unchanged if it is smaller than the minimal size. Every blob is stored with a leading type byte,
+ * so a manifest is never guessed from the content of a blob:
+ * <pre>
+ * unchanged : [type: byte (0)][content]
+ * manifest  : [type: byte (1)][original length: long][chunk count: int][entry*]
+ * entry     : [hash of the chunk: 32 bytes][length of the chunk: int]
+ * </pre>
+ * Chunks are written in batches and referenced through {@link ChunkReferences}, which decides which of them are new.
+ * Chunks whose references were removed are deleted by {@link #compact()}. Blobs stored before the chunking was enabled
+ * have no type byte, so the chunking has to be enabled on an empty storage.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Log4j2
+public class ChunkingBlobStore implements BlobStore {
+
+    /** Size of the manifest header in bytes, including the type byte. */
+    private static final int HEADER_SIZE = 13;
+    /** Size of a manifest entry in bytes. */
+    private static final int ENTRY_SIZE = 36;
+    /** Length of the hash of a chunk in bytes. */
+    private static final int HASH_LENGTH = 32;
+
+    /** Type of a blob stored unchanged. */
+    private static final byte UNCHANGED_BLOB = 0;
+    /** Type of a blob stored as a manifest of its chunks. */
+    private static final byte MANIFEST_BLOB = 1;
+
+    /** Prefix of the hashed content, so the key of a chunk never equals the key of a blob with the same content. */
+    private static final byte[] CHUNK_HASH_PREFIX = "chunk\0".getBytes(StandardCharsets.US_ASCII);
+
+    /** Number of bytes of new chunks which are referenced together. */
+    private static final long BATCH_SIZE = 4L * 1024 * 1024;
+    /** Maximal number of unreferenced chunks deleted in one transaction of the compaction. */
+    private static final int COMPACTION_BATCH_SIZE = 500;
+
+    /** Store keeping the manifests and the chunks. */
+    private final BlobStore delegate;
+    /** Reference counts of the chunks. */
+    private final ChunkReferences chunkReferences;
+    /** Size from which blobs are split into chunks. */
+    private final long minBlobSize;
+    /** Average size of a chunk in bytes. */
+    private final int averageChunkSize;
+
+    /**
+     * Constructs a new {@code ChunkingBlobStore}.
+     *
+     * @param delegate the store keeping the manifests and the chunks
+     * @param chunkReferences the reference counts of the chunks
+     * @param minBlobSize the size from which blobs are split into chunks
+     * @param averageChunkSize the average size of a chunk in bytes
+     */
+    public ChunkingBlobStore(BlobStore delegate, ChunkReferences chunkReferences, long minBlobSize, int averageChunkSize) {
+        this.delegate = delegate;
+        this.chunkReferences = chunkReferences;
+        this.minBlobSize = minBlobSize;
+        this.averageChunkSize = averageChunkSize;
+    }
+
+    /**
+     * Stores the blob as a manifest of its chunks, or unchanged if it is smaller than the minimal size.
+     * If the blob is replaced, the references of its previous chunks are removed once the new manifest is stored.
+     *
+     * @param key the key of the blob
+     * @param content the stream with the content of the blob
+     * @param size the size of the content in bytes
+     * @throws IOException if the content could not be read or stored
+     */
+    @Override
+    public void put(String key, InputStream content, long size) throws IOException {
+        if (size < minBlobSize) {
+            delegate.put(key, new SequenceInputStream(new ByteArrayInputStream(new byte[] {UNCHANGED_BLOB}), content), size + 1);
+            return;
+        }
+
+        Map<String, Long> previousReferences = delegate.exists(key) ? readReferences(key) : Map.of();
+        Map<String, Long> addedReferences = new HashMap<>();
+
+        try {
+            byte[] manifest = writeChunks(content, addedReferences);
+            delegate.put(key, new ByteArrayInputStream(manifest), manifest.length);
+            log.debug("Blob {} stored as {} bytes manifest of {} distinct chunks", key, manifest.length, addedReferences.size());
+        } catch (IOException | RuntimeException exception) {
+            releaseReferences(key, addedReferences, exception);
+            throw exception;
+        }
+
+        if (!previousReferences.isEmpty()) {
+            chunkReferences.removeReferences(previousReferences);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        Manifest manifest = readManifest(key);
+
+        if (manifest == null) {
+            return delegate.getRange(key, 1, delegate.size(key) - 1);
+        }
+
+        return new ChunkInputStream(manifest, 0, manifest.chunkCount(), 0);
+    }
+
+    @Override
+    public InputStream getRange(String key, long position, long count) throws IOException {
+        Manifest manifest = readManifest(key);
+
+        if (manifest == null) {
+            return delegate.getRange(key, position + 1, count);
+        }
+
+        long end = Math.min(manifest.originalLength(), position + Math.min(count, manifest.originalLength()));
+
+        if (position >= end) {
+            return InputStream.nullInputStream();
+        }
+
+        int firstChunk = manifest.findChunk(position);
+        int lastChunk = manifest.findChunk(end - 1);
+        InputStream content = new ChunkInputStream(manifest, firstChunk, lastChunk + 1, position - manifest.offsets()[firstChunk]);
+
+        return new BoundedInputStream(content, end - position);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        Header header = readHeader(key);
+        return header != null ? header.originalLength() : delegate.size(key) - 1;
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return delegate.exists(key);
+    }
+
+    /**
+     * Deletes the blob and removes the references of its chunks.
+     * The manifest is deleted first, so a failure leaks the references of its chunks instead of leaving a manifest with missing chunks.
+     *
+     * @param key the key of the blob
+     * @throws IOException if the blob could not be deleted
+     */
+    @Override
+    public void delete(String key) throws IOException {
+        Map<String, Long> references;
+
+        try {
+            references = readReferences(key);
+        } catch (FileNotFoundException exception) {
+            return;
+        }
+
+        delegate.delete(key);
+
+        if (!references.isEmpty()) {
+            chunkReferences.removeReferences(references);
+        }
+    }
+
+    /**
+     * Deletes the chunks which are no longer referenced by any blob, then compacts the underlying store.
+     *
+     * @throws IOException if a chunk could not be deleted or the underlying store could not be compacted
+     */
+    @Override
+    public void compact() throws IOException {
+        int deletedChunkCount = 0;
+        int batchChunkCount;
+
+        do {
+            batchChunkCount = chunkReferences.deleteUnreferenced(COMPACTION_BATCH_SIZE, delegate::delete);
+            deletedChunkCount += batchChunkCount;
+        } while (batchChunkCount == COMPACTION_BATCH_SIZE);
+
+        if (deletedChunkCount > 0) {
+            log.info("Deleted {} unreferenced chunks", deletedChunkCount);
+        }
+
+        delegate.compact();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * Splits the content into chunks, stores the new ones and references all of them.
+     *
+     * @param content the stream with the content
+     * @param addedReferences the references added so far, filled as the batches are referenced
+     * @return the manifest of the content
+     * @throws IOException if the content could not be read or a chunk could not be stored
+     */
+    private byte[] writeChunks(InputStream content, Map<String, Long> addedReferences) throws IOException {
+        FastCdcChunker chunker = new FastCdcChunker(content, averageChunkSize);
+        MessageDigest digest = createDigest();
+
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream entryOutput = new DataOutputStream(entries);
+        long originalLength = 0;
+        int chunkCount = 0;
+
+        Map<String, byte[]> batchContents = new LinkedHashMap<>();
+        Map<String, Long> batchCounts = new HashMap<>();
+        long batchSize = 0;
+
+        byte[] chunk;
+        while ((chunk = chunker.nextChunk()) != null) {
+            digest.update(CHUNK_HASH_PREFIX);
+            byte[] hash = digest.digest(chunk);
+
+            entryOutput.write(hash);
+            entryOutput.writeInt(chunk.length);
+            originalLength += chunk.length;
+            chunkCount++;
+
+            String chunkKey = HexFormat.of().formatHex(hash);
+            if (batchContents.putIfAbsent(chunkKey, chunk) == null) {
+                batchSize += chunk.length;
+            }
+            batchCounts.merge(chunkKey, 1L, Long::sum);
+
+            if (batchSize >= BATCH_SIZE) {
+                storeBatch(batchContents, batchCounts, addedReferences);
+                batchContents.clear();
+                batchCounts.clear();
+                batchSize = 0;
+            }
+        }
+
+        storeBatch(batchContents, batchCounts, addedReferences);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                                      .put(MANIFEST_BLOB)
+                                      .putLong(originalLength)
+                                      .putInt(chunkCount);
+
+        ByteArrayOutputStream manifest = new ByteArrayOutputStream(HEADER_SIZE + entries.size());
+        manifest.write(header.array());
+        entries.writeTo(manifest);
+
+        return manifest.toByteArray();
+    }
+
+    /**
+     * References the chunks of the batch, storing the content of the chunks which were not referenced yet.
+     *
+     * @param contents the contents of the distinct chunks of the batch
+     * @param counts the number of occurrences of each chunk in the batch
+     * @param addedReferences the references added so far, to which the references of the batch are added
+     * @throws IOException if a chunk could not be stored
+     */
+    private void storeBatch(Map<String, byte[]> contents, Map<String, Long> counts, Map<String, Long> addedReferences) throws IOException {
+        if (contents.isEmpty()) {
+            return;
+        }
+
+        List<ChunkReference> references = new ArrayList<>(contents.size());
+        contents.forEach((hash, chunk) -> references.add(new ChunkReference(hash, chunk.length, counts.get(hash))));
+
+        chunkReferences.addReferences(references, hash -> {
+            byte[] chunk = contents.get(hash);
+            delegate.put(hash, new ByteArrayInputStream(chunk), chunk.length);
+        });
+
+        counts.forEach((hash, count) -> addedReferences.merge(hash, count, Long::sum));
+    }
+
+    /**
+     * Removes the references added by a failed write, so its chunks can be deleted by the compaction.
+     *
+     * @param key the key of the blob
+     * @param addedReferences the references added by the write
+     * @param cause the failure of the write, to which a failure of the removal is attached
+     */
+    private void releaseReferences(String key, Map<String, Long> addedReferences, Exception cause) {
+        if (addedReferences.isEmpty()) {
+            return;
+        }
+
+        try {
+            chunkReferences.removeReferences(addedReferences);
+        } catch (RuntimeException exception) {
+            log.error("References of chunks of blob {} could not be released, the chunks are kept in the storage", key, exception);
+            cause.addSuppressed(exception);
+        }
+    }
+
+    /**
+     * Counts the references of the blob to its chunks.
+     *
+     * @param key the key of the blob
+     * @return the number of references of each chunk, empty if the blob is stored unchanged
+     * @throws IOException if the blob does not exist or could not be read
+     */
+    private Map<String, Long> readReferences(String key) throws IOException {
+        Manifest manifest = readManifest(key);
+
+        if (manifest == null) {
+            return Map.of();
+        }
+
+        Map<String, Long> references = new HashMap<>();
+        for (String hash : manifest.hashes()) {
+            references.merge(hash, 1L, Long::sum);
+        }
+
+        return references;
+    }
+
+    /**
+     * Reads the header of the manifest.
+     *
+     * @param key the key of the blob
+     * @return the header, or null if the blob is stored unchanged
+     * @throws IOException if the blob does not exist, could not be read or was not stored by this store
+     */
+    private Header readHeader(String key) throws IOException {
+        ByteBuffer buffer;
+        try (InputStream headerStream = delegate.getRange(key, 0, HEADER_SIZE)) {
+            buffer = ByteBuffer.wrap(headerStream.readNBytes(HEADER_SIZE));
+        }
+
+        byte type = buffer.remaining() > 0 ? buffer.get(0) : -1;
+
+        if (type == UNCHANGED_BLOB) {
+            return null;
+        }
+
+        if (type != MANIFEST_BLOB || buffer.remaining() < HEADER_SIZE) {
+            throw new IOException("Blob " + key + " has an unknown format");
+        }
+
+        Header header = new Header(buffer.getLong(1), buffer.getInt(9));
+
+        // the entries have to fill the rest of the manifest
+        boolean isConsistent = header.chunkCount() >= 0 && HEADER_SIZE + (long) header.chunkCount() * ENTRY_SIZE == delegate.size(key);
+
+        if (!isConsistent) {
+            throw new IOException("Manifest of blob " + key + " is corrupted");
+        }
+
+        return header;
+    }
+
+    /**
+     * Reads the manifest of the blob.
+     *
+     * @param key the key of the blob
+     * @return the manifest, or null if the blob is stored unchanged
+     * @throws IOException if the blob does not exist or could not be read
+     */
+    private Manifest readManifest(String key) throws IOException {
+        Header header = readHeader(key);
+
+        if (header == null) {
+            return null;
+        }
+
+        String[] hashes = new String[header.chunkCount()];
+        long[] offsets = new long[header.chunkCount() + 1];
+        byte[] hash = new byte[HASH_LENGTH];
+
+        try (DataInputStream entries = new DataInputStream(delegate.getRange(key, HEADER_SIZE, (long) header.chunkCount() * ENTRY_SIZE))) {
+            for (int i = 0; i < hashes.length; i++) {
+                entries.readFully(hash);
+                hashes[i] = HexFormat.of().formatHex(hash);
+                offsets[i + 1] = offsets[i] + entries.readInt();
+            }
+        }
+
+        if (offsets[hashes.length] != header.originalLength()) {
+            throw new IOException("Manifest of blob " + key + " is corrupted");
+        }
+
+        return new Manifest(header.originalLength(), hashes, offsets);
+    }
+
+    /**
+     * Creates the digest hashing the chunks.
+     *
+     * @return the SHA-256 digest
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not supported", exception);
+        }
+    }
+
+    /**
+     * Header of a manifest.
+     *
+     * @param originalLength the length of the original content
+     * @param chunkCount the number of chunks
+     */
+    private record Header(long originalLength, int chunkCount) {
+    }
+
+    /**
+     * Manifest of a chunked blob.
+     *
+     * @param originalLength the length of the original content
+     * @param hashes the keys of the chunks in the order of the content
+     * @param offsets the offsets of the chunks in the content, followed by the original length
+     */
+    private record Manifest(long originalLength, String[] hashes, long[] offsets) {
+
+        /**
+         * Retrieves the number of chunks.
+         *
+         * @return the number of chunks
+         */
+        int chunkCount() {
+            return hashes.length;
+        }
+
+        /**
+         * Finds the chunk containing the byte at the position.
+         *
+         * @param position the position in the content
+         * @return the index of the chunk
+         */
+        int findChunk(long position) {
+            int index = Arrays.binarySearch(offsets, 0, hashes.length, position);
+
+            // the position is inside the chunk starting before it, unless it is the first byte of a chunk
+            return index >= 0 ? index : -index - 2;
+        }
+
+    }
+
+    /**
+     * {@link InputStream} reading consecutive chunks of a chunked blob, each opened once the previous one is read.
+     */
+    private class ChunkInputStream extends InputStream {
+
+        /** Manifest of the blob. */
+        private final Manifest manifest;
+        /** Index after the last chunk to read. */
+        private final int endChunk;
+
+        /** Index of the next chunk to open. */
+        private int nextChunk;
+        /** Number of bytes skipped in the next chunk. */
+        private long skippedBytes;
+        /** Stream of the current chunk, or null if the next chunk has to be opened. */
+        private InputStream chunk;
+
+        /**
+         * Constructs a new {@code ChunkInputStream}.
+         *
+         * @param manifest the manifest of the blob
+         * @param firstChunk the index of the first chunk to read
+         * @param endChunk the index after the last chunk to read
+         * @param skippedBytes the number of bytes skipped in the first chunk
+         */
+        ChunkInputStream(Manifest manifest, int firstChunk, int endChunk, long skippedBytes) {
+            this.manifest = manifest;
+            this.endChunk = endChunk;
+            this.nextChunk = firstChunk;
+            this.skippedBytes = skippedBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            while (true) {
+                if (chunk == null) {
+                    if (nextChunk == endChunk) {
+                        return -1;
+                    }
+
+                    openNextChunk();
+                }
+
+                int count = chunk.read(buffer, offset, length);
+
+                if (count != -1) {
+                    return count;
+                }
+
+                chunk.close();
+                chunk = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (chunk != null) {
+                chunk.close();
+                chunk = null;
+            }
+
+            nextChunk = endChunk;
+        }
+
+        /**
+         * Opens the stream of the next chunk.
+         *
+         * @throws IOException if the chunk does not exist or could not be read
+         */
+        private void openNextChunk() throws IOException {
+            String hash = manifest.hashes()[nextChunk];
+            long chunkLength = manifest.offsets()[nextChunk + 1] - manifest.offsets()[nextChunk];
+
+            chunk = skippedBytes > 0 ? delegate.getRange(hash, skippedBytes, chunkLength - skippedBytes) : delegate.get(hash);
+            skippedBytes = 0;
+            nextChunk++;
+        }
+
+    }
+
+}
@@ -0,0 +1,550 @@
+package com.dms.storage;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link BlobStore} compressing the blobs before they are stored by the underlying store.
+ * <p>
+ * The content is split into frames of {@value #FRAME_SIZE} bytes, which are compressed independently using Deflate, so a range
+ * of the blob is read by decompressing only the frames it overlaps. The frames are followed by a table with their offsets and
+ * a footer, which identifies the compressed blob and holds its original length:
+ * <pre>
+ * frame*  : [type: byte (0 = stored, 1 = deflated)][stored length: int][data]
+ * table   : [offset of the frame: long]*
+ * footer  : [offset of the table: long][original length: long][frame size: int][frame count: int][magic: long]
+ * </pre>
+ * Contents whose leading bytes identify an already compressed format (archives, images, audio and video) and contents whose
+ * first frame doesn't shrink by the trial ratio are stored unchanged, so they keep being served as files by the file system store.
+ * Blobs without the footer are read unchanged, which keeps the blobs stored before the compression was enabled readable.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Log4j2
+public class CompressingBlobStore implements BlobStore {
+
+    /** Number of uncompressed bytes in a frame. */
+    private static final int FRAME_SIZE = 64 * 1024;
+    /** Size of the footer in bytes. */
+    private static final int FOOTER_SIZE = 32;
+    /** Identifies the footer of a compressed blob ("DMSBLOBZ"). */
+    private static final long MAGIC = 0x444D53424C4F425AL;
+
+    /** Type of a frame stored without compression. */
+    private static final byte STORED_FRAME = 0;
+    /** Type of a frame compressed using Deflate. */
+    private static final byte DEFLATED_FRAME = 1;
+
+    /** Maximal ratio of the compressed to the original size of the first frame for the content to be compressed. */
+    private static final double MAX_TRIAL_RATIO = 0.9;
+
+    /** Leading bytes of formats which are already compressed. */
+    private static final List<byte[]> COMPRESSED_SIGNATURES = List.of(
+        new byte[] {'P', 'K', 3, 4},                                     // ZIP, including DOCX, XLSX, PPTX, ODT, JAR and EPUB
+        new byte[] {0x1F, (byte) 0x8B},                                  // GZIP
+        new byte[] {'B', 'Z', 'h'},                                      // BZIP2
+        new byte[] {(byte) 0xFD, '7', 'z', 'X', 'Z', 0},                 // XZ
+        new byte[] {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD},               // Zstandard
+        new byte[] {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C},     // 7-Zip
+        new byte[] {'R', 'a', 'r', '!', 0x1A, 0x07},                     // RAR
+        new byte[] {(byte) 0x89, 'P', 'N', 'G'},                         // PNG
+        new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},              // JPEG
+        new byte[] {'G', 'I', 'F', '8'},                                 // GIF
+        new byte[] {'R', 'I', 'F', 'F'},                                 // WEBP, AVI and WAV
+        new byte[] {'I', 'D', '3'},                                      // MP3
+        new byte[] {'O', 'g', 'g', 'S'},                                 // OGG
+        new byte[] {'f', 'L', 'a', 'C'},                                 // FLAC
+        new byte[] {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3}                // MKV and WEBM
+    );
+
+    /** Offset of the box type in the ISO base media formats (MP4, MOV, HEIC). */
+    private static final int ISO_BOX_TYPE_OFFSET = 4;
+    /** Box type opening the ISO base media formats. */
+    private static final byte[] ISO_BOX_TYPE = {'f', 't', 'y', 'p'};
+
+    /** Store keeping the compressed blobs. */
+    private final BlobStore delegate;
+    /** Directory where compressed contents are written before they are stored. */
+    private final Path tempDirectory;
+    /** Level of the Deflate compression (1-9). */
+    private final int level;
+
+    /**
+     * Constructs a new {@code CompressingBlobStore}.
+     *
+     * @param delegate the store keeping the compressed blobs
+     * @param tempDirectory the directory where compressed contents are written before they are stored
+     * @param level the level of the Deflate compression (1-9)
+     */
+    public CompressingBlobStore(BlobStore delegate, Path tempDirectory, int level) {
+        this.delegate = delegate;
+        this.tempDirectory = tempDirectory;
+        this.level = level;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size) throws IOException {
+        byte[] firstFrame = content.readNBytes(FRAME_SIZE);
+        byte[] compressedFirstFrame = tryCompress(firstFrame);
+
+        if (compressedFirstFrame == null) {
+            delegate.put(key, new SequenceInputStream(new ByteArrayInputStream(firstFrame), content), size);
+            return;
+        }
+
+        Files.createDirectories(tempDirectory);
+        Path tempFilePath = Files.createTempFile(tempDirectory, "blob-", ".z");
+
+        try {
+            writeCompressed(firstFrame, compressedFirstFrame, content, tempFilePath);
+            log.debug("Blob {} compressed from {} to {} bytes", key, size, Files.size(tempFilePath));
+            delegate.put(key, tempFilePath);
+        } finally {
+            Files.deleteIfExists(tempFilePath);
+        }
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        byte[] firstFrame;
+        try (InputStream content = Files.newInputStream(file)) {
+            firstFrame = content.readNBytes(FRAME_SIZE);
+        }
+
+        // don't copy the file when it is stored unchanged, so the file system store can move it
+        if (tryCompress(firstFrame) == null) {
+            delegate.put(key, file);
+            return;
+        }
+
+        try (InputStream content = Files.newInputStream(file)) {
+            put(key, content, Files.size(file));
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        Footer footer = readFooter(key);
+
+        if (footer == null) {
+            return delegate.get(key);
+        }
+
+        return new FrameInputStream(delegate.get(key), footer.frameCount());
+    }
+
+    @Override
+    public InputStream getRange(String key, long position, long count) throws IOException {
+        Footer footer = readFooter(key);
+
+        if (footer == null) {
+            return delegate.getRange(key, position, count);
+        }
+
+        long end = Math.min(footer.originalLength(), position + Math.min(count, footer.originalLength()));
+
+        if (position >= end) {
+            return InputStream.nullInputStream();
+        }
+
+        int firstFrame = (int) (position / footer.frameSize());
+        int lastFrame = (int) ((end - 1) / footer.frameSize());
+        long[] offsets = readFrameOffsets(key, footer, firstFrame, lastFrame + 1);
+
+        InputStream frames = delegate.getRange(key, offsets[0], offsets[offsets.length - 1] - offsets[0]);
+        InputStream content = new FrameInputStream(frames, lastFrame - firstFrame + 1);
+
+        content.skipNBytes(position - (long) firstFrame * footer.frameSize());
+
+        return new BoundedInputStream(content, end - position);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        Footer footer = readFooter(key);
+        return footer != null ? footer.originalLength() : delegate.size(key);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+    }
+
+    @Override
+    public void compact() throws IOException {
+        delegate.compact();
+    }
+
+    /**
+     * Retrieves the blob as a resource, blobs stored unchanged are retrieved from the underlying store.
+     *
+     * @param key the key of the blob
+     * @return the resource representing the blob
+     */
+    @Override
+    public Resource getResource(String key) {
+        try {
+            return readFooter(key) != null ? new BlobStoreResource(this, key) : delegate.getResource(key);
+        } catch (IOException exception) {
+            // let the resource report the missing blob when it is read
+            return delegate.getResource(key);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * Writes the compressed content with the frame table and the footer to the file.
+     *
+     * @param firstFrame the first frame of the content
+     * @param compressedFirstFrame the compressed first frame
+     * @param content the stream with the rest of the content
+     * @param file the file to write to
+     * @throws IOException if the content could not be read or written
+     */
+    private void writeCompressed(byte[] firstFrame, byte[] compressedFirstFrame, InputStream content, Path file) throws IOException {
+        long[] offsets = new long[16];
+        int frameCount = 0;
+        long position = 0;
+        long originalLength = 0;
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            byte[] frame = firstFrame;
+            byte[] compressedFrame = compressedFirstFrame;
+
+            while (frame.length > 0) {
+                if (frameCount == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[frameCount++] = position;
+                originalLength += frame.length;
+
+                // frames which don't shrink are stored, so they are not inflated when read
+                if (compressedFrame != null && compressedFrame.length < frame.length) {
+                    output.writeByte(DEFLATED_FRAME);
+                    output.writeInt(compressedFrame.length);
+                    output.write(compressedFrame);
+                    position += 5 + compressedFrame.length;
+                } else {
+                    output.writeByte(STORED_FRAME);
+                    output.writeInt(frame.length);
+                    output.write(frame);
+                    position += 5 + frame.length;
+                }
+
+                frame = content.readNBytes(FRAME_SIZE);
+                compressedFrame = frame.length > 0 ? deflate(frame) : null;
+            }
+
+            long tableOffset = position;
+            for (int i = 0; i < frameCount; i++) {
+                output.writeLong(offsets[i]);
+            }
+
+            output.writeLong(tableOffset);
+            output.writeLong(originalLength);
+            output.writeInt(FRAME_SIZE);
+            output.writeInt(frameCount);
+            output.writeLong(MAGIC);
+        }
+    }
+
+    /**
+     * Decides whether the content is compressed, based on its leading bytes and the compression ratio of its first frame.
+     *
+     * @param firstFrame the first frame of the content
+     * @return the compressed first frame, or null if the content is stored unchanged
+     */
+    private byte[] tryCompress(byte[] firstFrame) {
+        if (firstFrame.length == 0 || isCompressedFormat(firstFrame)) {
+            return null;
+        }
+
+        byte[] compressedFrame = deflate(firstFrame);
+
+        if (compressedFrame.length > firstFrame.length * MAX_TRIAL_RATIO) {
+            return null;
+        }
+
+        return compressedFrame;
+    }
+
+    /**
+     * Compresses the frame using Deflate.
+     *
+     * @param frame the frame to compress
+     * @return the compressed frame
+     */
+    private byte[] deflate(byte[] frame) {
+        Deflater deflater = new Deflater(level, true);
+
+        try {
+            deflater.setInput(frame);
+            deflater.finish();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(frame.length / 2);
+            byte[] buffer = new byte[8 * 1024];
+
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reads the footer of the blob.
+     *
+     * @param key the key of the blob
+     * @return the footer, or null if the blob is stored unchanged
+     * @throws IOException if the blob does not exist or could not be read
+     */
+    private Footer readFooter(String key) throws IOException {
+        long storedLength = delegate.size(key);
+
+        if (storedLength < FOOTER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer buffer;
+        try (InputStream footerStream = delegate.getRange(key, storedLength - FOOTER_SIZE, FOOTER_SIZE)) {
+            buffer = ByteBuffer.wrap(footerStream.readNBytes(FOOTER_SIZE));
+        }
+
+        if (buffer.remaining() < FOOTER_SIZE || buffer.getLong(24) != MAGIC) {
+            return null;
+        }
+
+        Footer footer = new Footer(buffer.getLong(0), buffer.getLong(8), buffer.getInt(16), buffer.getInt(20));
+
+        // the table has to end right before the footer, otherwise the magic is just a part of the content
+        boolean isConsistent = footer.frameSize() > 0 &&
+            footer.frameCount() == (footer.originalLength() + footer.frameSize() - 1) / footer.frameSize() &&
+            footer.tableOffset() + (long) footer.frameCount() * Long.BYTES == storedLength - FOOTER_SIZE;
+
+        return isConsistent ? footer : null;
+    }
+
+    /**
+     * Reads the offsets of the frames in the given range from the frame table.
+     *
+     * @param key the key of the blob
+     * @param footer the footer of the blob
+     * @param firstFrame the index of the first frame
+     * @param endFrame the index after the last frame, whose offset is the offset of the table if it is the frame count
+     * @return the offsets of the frames from the first frame to the end frame, inclusive
+     * @throws IOException if the frame table could not be read
+     */
+    private long[] readFrameOffsets(String key, Footer footer, int firstFrame, int endFrame) throws IOException {
+        int tableFrames = Math.min(endFrame, footer.frameCount() - 1) - firstFrame + 1;
+        long[] offsets = new long[endFrame - firstFrame + 1];
+
+        try (DataInputStream table = new DataInputStream(delegate.getRange(key, footer.tableOffset() + (long) firstFrame * Long.BYTES, (long) tableFrames * Long.BYTES))) {
+            for (int i = 0; i < tableFrames; i++) {
+                offsets[i] = table.readLong();
+            }
+        }
+
+        if (endFrame == footer.frameCount()) {
+            offsets[offsets.length - 1] = footer.tableOffset();
+        }
+
+        return offsets;
+    }
+
+    /**
+     * Checks whether the leading bytes of the content identify an already compressed format.
+     *
+     * @param content the leading bytes of the content
+     * @return true if the content is in a compressed format, false otherwise
+     */
+    private static boolean isCompressedFormat(byte[] content) {
+        for (byte[] signature : COMPRESSED_SIGNATURES) {
+            if (startsWith(content, 0, signature)) {
+                return true;
+            }
+        }
+
+        return startsWith(content, ISO_BOX_TYPE_OFFSET, ISO_BOX_TYPE);
+    }
+
+    /**
+     * Checks whether the content contains the signature at the given offset.
+     *
+     * @param content the content to check
+     * @param offset the offset of the signature
+     * @param signature the expected bytes
+     * @return true if the bytes at the offset match the signature, false otherwise
+     */
+    private static boolean startsWith(byte[] content, int offset, byte[] signature) {
+        if (content.length < offset + signature.length) {
+            return false;
+        }
+
+        return Arrays.equals(content, offset, offset + signature.length, signature, 0, signature.length);
+    }
+
+    /**
+     * Footer of a compressed blob.
+     *
+     * @param tableOffset the offset of the frame table
+     * @param originalLength the length of the original content
+     * @param frameSize the number of uncompressed bytes in a frame
+     * @param frameCount the number of frames
+     */
+    private record Footer(long tableOffset, long originalLength, int frameSize, int frameCount) {
+    }
+
+    /**
+     * {@link InputStream} decompressing consecutive frames of a compressed blob.
+     */
+    private static class FrameInputStream extends InputStream {
+
+        /** Stream with the frames. */
+        private final DataInputStream frames;
+        /** Inflater reused for all frames. */
+        private final Inflater inflater = new Inflater(true);
+
+        /** Number of frames which were not read yet. */
+        private int remainingFrames;
+        /** Decompressed content of the current frame. */
+        private byte[] frame = new byte[0];
+        /** Position of the next byte in the current frame. */
+        private int framePosition;
+
+        /**
+         * Constructs a new {@code FrameInputStream}.
+         *
+         * @param frames the stream starting with the first frame to read
+         * @param frameCount the number of frames to read
+         */
+        FrameInputStream(InputStream frames, int frameCount) {
+            this.frames = new DataInputStream(frames);
+            this.remainingFrames = frameCount;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureFrame()) {
+                return -1;
+            }
+
+            return frame[framePosition++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!ensureFrame()) {
+                return -1;
+            }
+
+            int count = Math.min(length, frame.length - framePosition);
+            System.arraycopy(frame, framePosition, buffer, offset, count);
+            framePosition += count;
+
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            frames.close();
+        }
+
+        /**
+         * Reads the next frame if the current one was fully read.
+         *
+         * @return true if there are bytes to read, false at the end of the content
+         * @throws IOException if the frame could not be read or decompressed
+         */
+        private boolean ensureFrame() throws IOException {
+            while (framePosition == frame.length) {
+                if (remainingFrames == 0) {
+                    return false;
+                }
+
+                readFrame();
+                remainingFrames--;
+            }
+
+            return true;
+        }
+
+        /**
+         * Reads and decompresses the next frame.
+         *
+         * @throws IOException if the frame could not be read or decompressed
+         */
+        private void readFrame() throws IOException {
+            byte type = frames.readByte();
+            byte[] data = new byte[frames.readInt()];
+            frames.readFully(data);
+
+            framePosition = 0;
+
+            if (type == STORED_FRAME) {
+                frame = data;
+                return;
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(FRAME_SIZE);
+            byte[] buffer = new byte[8 * 1024];
+
+            inflater.reset();
+            inflater.setInput(data);
+
+            try {
+                while (!inflater.finished()) {
+                    int length = inflater.inflate(buffer);
+
+                    if (length == 0 && inflater.needsInput()) {
+                        throw new EOFException("Compressed frame is truncated");
+                    }
+
+                    output.write(buffer, 0, length);
+                }
+            } catch (DataFormatException exception) {
+                throw new IOException("Compressed frame is corrupted", exception);
+            }
+
+            frame = output.toByteArray();
+        }
+
+    }
+
+}
@@ -0,0 +1,397 @@
+package com.dms.storage;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link BlobStore} storing new versions of blobs as binary deltas against their previous versions.
+ * <p>
+ * Every blob is stored with a leading type byte, so the stored format is never guessed from the content of the blob.
+ * A blob stored with a base is encoded by {@link BinaryDelta} and stored with a header naming the base:
+ * <pre>
+ * whole  : [type: byte (0)][content]
+ * delta  : [type: byte (1)][original length: long][chain length: int][base key length: short][base key: ASCII][instructions of {@link BinaryDelta}]
+ * </pre>
+ * Reading a delta reconstructs the base first, so the number of deltas between a blob and a whole blob (the chain length)
+ * is capped. Once the cap is reached, the whole content is stored as a keyframe, which starts a new chain. The whole content
+ * is also stored when the delta doesn't save enough, when the blob or its base is too large to be reconstructed in memory,
+ * and when the base no longer exists.
+ * <p>
+ * Reconstructed contents are kept in a cache bounded by its size, evicting the least recently read ones, so the latest
+ * versions of frequently read documents are not reconstructed on every read. Blobs stored before the store was enabled
+ * have no type byte, so the store has to be enabled on an empty storage.
+ * The references from the deltas to their bases are kept by the caller, see {@link #getDeltaBase(String)}.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Log4j2
+public class DeltaBlobStore implements BlobStore {
+
+    /** Size of the header without the base key in bytes, including the type byte. */
+    private static final int FIXED_HEADER_SIZE = 15;
+    /** Maximal length of the base key in bytes. */
+    private static final int MAX_BASE_KEY_LENGTH = 128;
+
+    /** Type of a blob whose whole content is stored. */
+    private static final byte WHOLE_BLOB = 0;
+    /** Type of a blob stored as a delta against its base. */
+    private static final byte DELTA_BLOB = 1;
+
+    /** Maximal ratio of the delta to the whole content for the delta to be stored. */
+    private static final double MAX_DELTA_RATIO = 0.5;
+
+    /** Store keeping the deltas and the whole blobs. */
+    private final BlobStore delegate;
+    /** Size from which blobs are always stored whole. */
+    private final long maxBlobSize;
+    /** Maximal number of deltas between a blob and a whole blob. */
+    private final int maxChainLength;
+    /** Cache of the reconstructed contents. */
+    private final ContentCache cache;
+
+    /**
+     * Constructs a new {@code DeltaBlobStore}.
+     *
+     * @param delegate the store keeping the deltas and the whole blobs
+     * @param maxBlobSize the size from which blobs are always stored whole
+     * @param maxChainLength the maximal number of deltas between a blob and a whole blob
+     * @param cacheSize the maximal number of bytes of the cached reconstructed contents
+     */
+    public DeltaBlobStore(BlobStore delegate, long maxBlobSize, int maxChainLength, long cacheSize) {
+        this.delegate = delegate;
+        this.maxBlobSize = maxBlobSize;
+        this.maxChainLength = maxChainLength;
+        this.cache = new ContentCache(cacheSize);
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size) throws IOException {
+        cache.remove(key);
+        delegate.put(key, new SequenceInputStream(new ByteArrayInputStream(new byte[] {WHOLE_BLOB}), content), size + 1);
+    }
+
+    /**
+     * Stores the content of the file as a delta against the base blob, or whole if the delta is not worth it.
+     *
+     * @param key the key of the blob
+     * @param file the file with the content of the blob
+     * @param baseKey the key of the blob the content is likely similar to, usually its previous version
+     * @throws IOException if the content could not be stored
+     */
+    @Override
+    public void put(String key, Path file, String baseKey) throws IOException {
+        cache.remove(key);
+
+        byte[] delta = tryEncode(key, file, baseKey);
+
+        if (delta == null) {
+            put(key, file);
+            return;
+        }
+
+        try {
+            delegate.put(key, new ByteArrayInputStream(delta), delta.length);
+        } catch (IOException exception) {
+            cache.remove(key);
+            throw exception;
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        Header header = readHeader(key);
+
+        if (header == null) {
+            return delegate.getRange(key, 1, delegate.size(key) - 1);
+        }
+
+        return new ByteArrayInputStream(reconstruct(key, header));
+    }
+
+    @Override
+    public InputStream getRange(String key, long position, long count) throws IOException {
+        Header header = readHeader(key);
+
+        if (header == null) {
+            return delegate.getRange(key, position + 1, count);
+        }
+
+        byte[] content = reconstruct(key, header);
+        int start = (int) Math.min(position, content.length);
+        int length = (int) Math.min(count, content.length - start);
+
+        return new ByteArrayInputStream(content, start, length);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        Header header = readHeader(key);
+        return header != null ? header.originalLength() : delegate.size(key) - 1;
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        cache.remove(key);
+        delegate.delete(key);
+    }
+
+    @Override
+    public void compact() throws IOException {
+        delegate.compact();
+    }
+
+    @Override
+    public String getDeltaBase(String key) throws IOException {
+        Header header = readHeader(key);
+        return header != null ? header.baseKey() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * Encodes the content of the file as a delta against the base blob, with the header.
+     *
+     * @param key the key of the blob
+     * @param file the file with the content of the blob
+     * @param baseKey the key of the base blob
+     * @return the header followed by the delta, or null if the content has to be stored whole
+     * @throws IOException if the file or the base blob could not be read
+     */
+    private byte[] tryEncode(String key, Path file, String baseKey) throws IOException {
+        long size = Files.size(file);
+        byte[] baseKeyBytes = baseKey != null ? baseKey.getBytes(StandardCharsets.US_ASCII) : null;
+
+        if (baseKeyBytes == null || baseKey.equals(key) || baseKeyBytes.length > MAX_BASE_KEY_LENGTH || size > maxBlobSize) {
+            return null;
+        }
+
+        Header baseHeader;
+        try {
+            baseHeader = readHeader(baseKey);
+
+            // deltas are never larger than the maximal size, only a whole base can be too large
+            if (baseHeader == null && delegate.size(baseKey) - 1 > maxBlobSize) {
+                return null;
+            }
+        } catch (FileNotFoundException exception) {
+            log.debug("Base {} of blob {} does not exist, storing the whole blob", baseKey, key);
+            return null;
+        }
+
+        int chainLength = baseHeader != null ? baseHeader.chainLength() + 1 : 1;
+
+        if (chainLength > maxChainLength) {
+            log.debug("Blob {} is stored whole as a keyframe after {} deltas", key, maxChainLength);
+            return null;
+        }
+
+        byte[] base = reconstruct(baseKey, baseHeader);
+        byte[] target = Files.readAllBytes(file);
+        byte[] delta = BinaryDelta.encode(base, target);
+        int headerSize = FIXED_HEADER_SIZE + baseKeyBytes.length;
+
+        if (headerSize + delta.length > target.length * MAX_DELTA_RATIO) {
+            log.debug("Delta of blob {} against {} saves too little, storing the whole blob", key, baseKey);
+            return null;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(headerSize + delta.length);
+        output.write(ByteBuffer.allocate(FIXED_HEADER_SIZE)
+                               .put(DELTA_BLOB)
+                               .putLong(target.length)
+                               .putInt(chainLength)
+                               .putShort((short) baseKeyBytes.length)
+                               .array());
+        output.write(baseKeyBytes);
+        output.write(delta);
+
+        log.debug("Blob {} stored as {} bytes delta against {} ({} bytes whole)", key, delta.length, baseKey, target.length);
+
+        // the new version is likely to be read next
+        cache.put(key, target);
+
+        return output.toByteArray();
+    }
+
+    /**
+     * Reconstructs the content of the blob, reconstructing its bases first.
+     *
+     * @param key the key of the blob
+     * @param header the header of the blob, or null if the whole content is stored
+     * @return the content of the blob
+     * @throws IOException if the blob or one of its bases could not be read
+     */
+    private byte[] reconstruct(String key, Header header) throws IOException {
+        byte[] content = cache.get(key);
+
+        if (content != null) {
+            return content;
+        }
+
+        if (header == null) {
+            try (InputStream stream = delegate.getRange(key, 1, delegate.size(key) - 1)) {
+                content = stream.readAllBytes();
+            }
+        } else {
+            byte[] base = reconstruct(header.baseKey(), readHeader(header.baseKey()));
+
+            try (InputStream delta = delegate.getRange(key, header.size(), delegate.size(key) - header.size())) {
+                content = BinaryDelta.apply(base, delta, (int) header.originalLength());
+            }
+        }
+
+        cache.put(key, content);
+
+        return content;
+    }
+
+    /**
+     * Reads the header of the delta.
+     *
+     * @param key the key of the blob
+     * @return the header, or null if the whole content of the blob is stored
+     * @throws IOException if the blob does not exist, could not be read or was not stored by this store
+     */
+    private Header readHeader(String key) throws IOException {
+        ByteBuffer buffer;
+        try (InputStream headerStream = delegate.getRange(key, 0, FIXED_HEADER_SIZE + MAX_BASE_KEY_LENGTH)) {
+            buffer = ByteBuffer.wrap(headerStream.readNBytes(FIXED_HEADER_SIZE + MAX_BASE_KEY_LENGTH));
+        }
+
+        byte type = buffer.remaining() > 0 ? buffer.get(0) : -1;
+
+        if (type == WHOLE_BLOB) {
+            return null;
+        }
+
+        if (type != DELTA_BLOB || buffer.remaining() < FIXED_HEADER_SIZE) {
+            throw new IOException("Blob " + key + " has an unknown format");
+        }
+
+        long originalLength = buffer.getLong(1);
+        int chainLength = buffer.getInt(9);
+        int baseKeyLength = buffer.getShort(13);
+
+        boolean isConsistent = originalLength >= 0 && originalLength <= Integer.MAX_VALUE && chainLength > 0 &&
+            baseKeyLength > 0 && baseKeyLength <= MAX_BASE_KEY_LENGTH && buffer.remaining() >= FIXED_HEADER_SIZE + baseKeyLength;
+
+        if (!isConsistent) {
+            throw new IOException("Delta of blob " + key + " has a corrupted header");
+        }
+
+        String baseKey = new String(buffer.array(), FIXED_HEADER_SIZE, baseKeyLength, StandardCharsets.US_ASCII);
+
+        return new Header(originalLength, chainLength, baseKey);
+    }
+
+    /**
+     * Header of a delta.
+     *
+     * @param originalLength the length of the reconstructed content
+     * @param chainLength the number of deltas between the blob and a whole blob, including this one
+     * @param baseKey the key of the base blob
+     */
+    private record Header(long originalLength, int chainLength, String baseKey) {
+
+        /**
+         * Retrieves the size of the header.
+         *
+         * @return the size of the header in bytes
+         */
+        long size() {
+            return FIXED_HEADER_SIZE + baseKey.length();
+        }
+
+    }
+
+    /**
+     * Cache of reconstructed contents bounded by their total size, evicting the least recently read contents.
+     */
+    private static class ContentCache {
+
+        /** Maximal total size of the cached contents. */
+        private final long capacity;
+        /** Cached contents in the order of their last read. */
+        private final LinkedHashMap<String, byte[]> contents = new LinkedHashMap<>(16, 0.75f, true);
+        /** Total size of the cached contents. */
+        private long size;
+
+        /**
+         * Constructs a new {@code ContentCache}.
+         *
+         * @param capacity the maximal total size of the cached contents
+         */
+        ContentCache(long capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Retrieves the cached content.
+         *
+         * @param key the key of the blob
+         * @return the content, or null if it is not cached
+         */
+        synchronized byte[] get(String key) {
+            return contents.get(key);
+        }
+
+        /**
+         * Caches the content, evicting the least recently read contents to make room for it.
+         * Contents larger than a quarter of the capacity are not cached, so a single read doesn't flush the cache.
+         *
+         * @param key the key of the blob
+         * @param content the content of the blob
+         */
+        synchronized void put(String key, byte[] content) {
+            if (content.length > capacity / 4) {
+                return;
+            }
+
+            byte[] previousContent = contents.put(key, content);
+            size += content.length - (previousContent != null ? previousContent.length : 0);
+
+            Iterator<Map.Entry<String, byte[]>> iterator = contents.entrySet().iterator();
+            while (size > capacity && iterator.hasNext()) {
+                size -= iterator.next().getValue().length;
+                iterator.remove();
+            }
+        }
+
+        /**
+         * Removes the content from the cache.
+         *
+         * @param key the key of the blob
+         */
+        synchronized void remove(String key) {
+            byte[] content = contents.remove(key);
+
+            if (content != null) {
+                size -= content.length;
+            }
+        }
+
+    }
+
+}
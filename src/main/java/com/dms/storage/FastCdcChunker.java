@@ -0,0 +1,179 @@
+package com.dms.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a content into chunks whose boundaries are chosen by the content itself, using the FastCDC algorithm.
+ * <p>
+ * A Gear rolling hash is computed over the bytes following the minimal chunk size and a chunk ends where the masked bits
+ * of the hash are zero. The hash depends only on the last 64 bytes, so an insertion or a deletion moves just the boundaries
+ * next to it and the remaining chunks of a modified content stay the same. A stricter mask is used before the average size
+ * and a looser one after it (normalized chunking), which keeps the sizes of the chunks close to the average.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class FastCdcChunker {
+
+    /** Random values added to the hash for each byte value, generated from a fixed seed so the boundaries never change. */
+    private static final long[] GEAR = createGearTable();
+
+    /** Stream with the content to split. */
+    private final InputStream content;
+    /** Minimal size of a chunk in bytes, except for the last one. */
+    private final int minSize;
+    /** Average size of a chunk in bytes. */
+    private final int averageSize;
+    /** Maximal size of a chunk in bytes. */
+    private final int maxSize;
+    /** Mask of the hash used before the average size is reached. */
+    private final long strictMask;
+    /** Mask of the hash used after the average size is reached. */
+    private final long looseMask;
+
+    /** Buffer holding at least the maximal chunk size of the content, unless the content ends. */
+    private final byte[] buffer;
+    /** Position of the next chunk in the buffer. */
+    private int position;
+    /** Position after the last byte read into the buffer. */
+    private int limit;
+    /** Whether the whole content has been read into the buffer. */
+    private boolean endOfContent;
+
+    /**
+     * Constructs a new {@code FastCdcChunker}.
+     * The chunks are at least a quarter and at most four times the average size.
+     *
+     * @param content the stream with the content to split
+     * @param averageSize the average size of a chunk in bytes, rounded down to a power of two
+     */
+    public FastCdcChunker(InputStream content, int averageSize) {
+        int bits = 31 - Integer.numberOfLeadingZeros(averageSize);
+
+        this.content = content;
+        this.averageSize = 1 << bits;
+        this.minSize = this.averageSize / 4;
+        this.maxSize = this.averageSize * 4;
+        this.strictMask = createMask(bits + 1);
+        this.looseMask = createMask(bits - 1);
+        this.buffer = new byte[maxSize * 2];
+    }
+
+    /**
+     * Reads the next chunk of the content.
+     *
+     * @return the content of the chunk, or null if the whole content has been split
+     * @throws IOException if the content could not be read
+     */
+    public byte[] nextChunk() throws IOException {
+        fillBuffer();
+
+        if (position == limit) {
+            return null;
+        }
+
+        int length = findBoundary(position, limit - position);
+        byte[] chunk = Arrays.copyOfRange(buffer, position, position + length);
+        position += length;
+
+        return chunk;
+    }
+
+    /**
+     * Reads the content into the buffer until it holds the maximal chunk size or the content ends.
+     *
+     * @throws IOException if the content could not be read
+     */
+    private void fillBuffer() throws IOException {
+        if (endOfContent || limit - position >= maxSize) {
+            return;
+        }
+
+        // the buffer is twice the maximal size, so the remaining bytes are moved only once per several chunks
+        if (buffer.length - position < maxSize) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+
+        while (limit - position < maxSize) {
+            int count = content.read(buffer, limit, buffer.length - limit);
+
+            if (count == -1) {
+                endOfContent = true;
+                return;
+            }
+
+            limit += count;
+        }
+    }
+
+    /**
+     * Finds the end of the chunk starting at the offset.
+     *
+     * @param offset the offset of the chunk in the buffer
+     * @param length the number of bytes available from the offset
+     * @return the length of the chunk
+     */
+    private int findBoundary(int offset, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+
+        int end = Math.min(length, maxSize);
+        int normalEnd = Math.min(end, averageSize);
+        long hash = 0;
+        int i = minSize;
+
+        for (; i < normalEnd; i++) {
+            hash = (hash << 1) + GEAR[buffer[offset + i] & 0xFF];
+
+            if ((hash & strictMask) == 0) {
+                return i + 1;
+            }
+        }
+
+        for (; i < end; i++) {
+            hash = (hash << 1) + GEAR[buffer[offset + i] & 0xFF];
+
+            if ((hash & looseMask) == 0) {
+                return i + 1;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Creates the mask selecting the highest bits of the hash, which depend on the most bytes.
+     *
+     * @param bits the number of bits, a boundary is found with the probability of one in 2^bits
+     * @return the mask
+     */
+    private static long createMask(int bits) {
+        return -1L << (Long.SIZE - Math.max(1, bits));
+    }
+
+    /**
+     * Creates the Gear table using the SplitMix64 generator.
+     *
+     * @return the table with a value for each byte value
+     */
+    private static long[] createGearTable() {
+        long[] table = new long[256];
+        long state = 0x444D534348554E4BL;
+
+        for (int i = 0; i < table.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            long value = state;
+            value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+            value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+            table[i] = value ^ (value >>> 31);
+        }
+
+        return table;
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.dms.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link BlobStore} keeping the blobs in a directory tree of the local file system.
+ * <p>
+ * Blobs are sharded into subdirectories named by the prefix of their keys, the rest of the key is the name of the file.
+ * Contents are written to a temporary file first and atomically moved to their final path, so a partially written blob
+ * is never visible. Blobs are served as file resources, so they are sent using sendfile.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Log4j2
+@RequiredArgsConstructor
+public class FileSystemBlobStore implements BlobStore {
+
+    /** Name of the directory inside the store where contents are written before they are published. */
+    public static final String TEMP_DIRECTORY = "tmp";
+
+    /** Root directory of the store. */
+    private final Path root;
+    /** Length of the key prefix used as the name of the subdirectory. */
+    private final int subdirectoryPrefixLength;
+
+    @Override
+    public void put(String key, InputStream content, long size) throws IOException {
+        Path tempDirectoryPath = root.resolve(TEMP_DIRECTORY);
+        Files.createDirectories(tempDirectoryPath);
+        Path tempFilePath = Files.createTempFile(tempDirectoryPath, "blob-", ".tmp");
+
+        try {
+            Files.copy(content, tempFilePath, StandardCopyOption.REPLACE_EXISTING);
+            put(key, tempFilePath);
+        } finally {
+            Files.deleteIfExists(tempFilePath);
+        }
+    }
+
+    /**
+     * Publishes the file under the key by atomically moving it to its final path.
+     * The file has to be located in the same file system as the store.
+     *
+     * @param key the key of the blob
+     * @param file the file with the content of the blob
+     * @throws IOException if the file could not be moved
+     */
+    @Override
+    public void put(String key, Path file) throws IOException {
+        // create directory if it doesn't exist
+        Path directoryPath = getDirectoryPath(key);
+        if (Files.notExists(directoryPath)) {
+            Files.createDirectories(directoryPath);
+            log.debug("Creating a directory for blob {}", key);
+        }
+
+        Files.move(file, getFilePath(key), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return Files.newInputStream(getFilePath(key));
+        } catch (NoSuchFileException exception) {
+            throw new FileNotFoundException("Blob " + key + " does not exist");
+        }
+    }
+
+    @Override
+    public InputStream getRange(String key, long position, long count) throws IOException {
+        try {
+            FileChannel fileChannel = FileChannel.open(getFilePath(key), StandardOpenOption.READ);
+            fileChannel.position(position);
+            return new BoundedInputStream(Channels.newInputStream(fileChannel), count);
+        } catch (NoSuchFileException exception) {
+            throw new FileNotFoundException("Blob " + key + " does not exist");
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        try {
+            return Files.size(getFilePath(key));
+        } catch (NoSuchFileException exception) {
+            throw new FileNotFoundException("Blob " + key + " does not exist");
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(getFilePath(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        // delete directory if it is empty after the deletion
+        if (Files.deleteIfExists(getFilePath(key))) {
+            deleteDirectoryIfEmpty(getDirectoryPath(key));
+        }
+    }
+
+    /**
+     * Retrieves the blob as a file resource, so it is written to the response using sendfile.
+     *
+     * @param key the key of the blob
+     * @return the file resource representing the blob
+     */
+    @Override
+    public Resource getResource(String key) {
+        try {
+            return new UrlResource(getFilePath(key).toUri());
+        } catch (Exception exception) {
+            throw new IllegalArgumentException("Blob " + key + " could not be resolved", exception);
+        }
+    }
+
+    /**
+     * Deletes the directory if it is empty.
+     *
+     * @param directoryPath the path to the directory
+     * @throws IOException if the directory could not be deleted
+     */
+    private void deleteDirectoryIfEmpty(Path directoryPath) throws IOException {
+        if (!Files.isDirectory(directoryPath)) {
+            return;
+        }
+
+        boolean isEmpty;
+        // check if the directory is empty using iterator's next element existence
+        try (DirectoryStream<Path> directory = Files.newDirectoryStream(directoryPath)) {
+            isEmpty = !directory.iterator().hasNext();
+        }
+
+        if (isEmpty) {
+            Files.deleteIfExists(directoryPath);
+        }
+    }
+
+    /**
+     * Retrieves the path of the subdirectory holding the blob.
+     *
+     * @param key the key of the blob
+     * @return the path to the subdirectory named by the prefix of the key
+     */
+    private Path getDirectoryPath(String key) {
+        return root.resolve(key.substring(0, subdirectoryPrefixLength));
+    }
+
+    /**
+     * Retrieves the path of the file holding the blob.
+     *
+     * @param key the key of the blob
+     * @return the path to the file named by the rest of the key
+     */
+    private Path getFilePath(String key) {
+        return getDirectoryPath(key).resolve(key.substring(subdirectoryPrefixLength));
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.dms.storage;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link BlobStore} keeping the blobs in the memory of the application, intended for tests and benchmarks.
+ * <p>
+ * Blobs are kept either in heap buffers, or in direct buffers outside the heap, so large stores don't add to the garbage
+ * collection pauses. The contents are lost when the application stops.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class InMemoryBlobStore implements BlobStore {
+
+    /** Contents of the blobs by their keys, the buffers are never modified after they are stored. */
+    private final Map<String, ByteBuffer> blobs = new ConcurrentHashMap<>();
+
+    /** Whether the contents are kept in direct buffers outside the heap. */
+    private final boolean offHeap;
+
+    /**
+     * Constructs a new {@code InMemoryBlobStore}.
+     *
+     * @param offHeap true to keep the contents in direct buffers outside the heap, false to keep them in the heap
+     */
+    public InMemoryBlobStore(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Blob " + key + " is too large to be kept in memory");
+        }
+
+        ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect((int) size) : ByteBuffer.allocate((int) size);
+        // the channel is not closed, so the stream stays owned by the caller
+        ReadableByteChannel channel = Channels.newChannel(content);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Content of blob " + key + " is shorter than " + size + " bytes");
+            }
+        }
+
+        blobs.put(key, buffer.flip().asReadOnlyBuffer());
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return new ByteBufferInputStream(getBuffer(key));
+    }
+
+    @Override
+    public InputStream getRange(String key, long position, long count) throws IOException {
+        ByteBuffer buffer = getBuffer(key);
+        int start = (int) Math.min(position, buffer.limit());
+        int end = (int) Math.min(position + count, buffer.limit());
+
+        return new ByteBufferInputStream(buffer.position(start).limit(end));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return getBuffer(key).remaining();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return blobs.containsKey(key);
+    }
+
+    @Override
+    public void delete(String key) {
+        blobs.remove(key);
+    }
+
+    /**
+     * Retrieves an independent view of the content of the blob.
+     *
+     * @param key the key of the blob
+     * @return the buffer with the content, whose position can be changed without affecting other readers
+     * @throws FileNotFoundException if the blob does not exist
+     */
+    private ByteBuffer getBuffer(String key) throws FileNotFoundException {
+        ByteBuffer buffer = blobs.get(key);
+
+        if (buffer == null) {
+            throw new FileNotFoundException("Blob " + key + " does not exist");
+        }
+
+        return buffer.duplicate();
+    }
+
+    /**
+     * {@link InputStream} reading the remaining content of a buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        /** Buffer with the content. */
+        private final ByteBuffer buffer;
+
+        /**
+         * Constructs a new {@code ByteBufferInputStream}.
+         *
+         * @param buffer the buffer with the content
+         */
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+}
@@ -0,0 +1,433 @@
+package com.dms.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Memory-mapped index of the blobs kept in pack files, mapping the key of a blob to its pack, offset and length.
+ * <p>
+ * The index is an open-addressing hash table with linear probing, stored in a file of fixed-size slots, so lookups
+ * don't require the index to be loaded into the heap. Deleted blobs leave tombstones, which are dropped when the table
+ * grows or is rebuilt. The index is not thread-safe, {@link PackedBlobStore} guards it with its lock.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+class PackIndex implements Closeable {
+
+    /** Maximal length of a key in bytes (the length of a SHA-512 hash). */
+    static final int MAX_KEY_LENGTH = 64;
+
+    /** Identifies the file as the index of the pack files. */
+    private static final int MAGIC = 0x444D5349;
+    /** Version of the format of the file. */
+    private static final int VERSION = 1;
+
+    /** Size of the header: magic, version, capacity, number of used slots and number of live slots. */
+    private static final int HEADER_SIZE = 20;
+    private static final int CAPACITY_POSITION = 8;
+    private static final int USED_POSITION = 12;
+    private static final int LIVE_POSITION = 16;
+
+    /** Size of a slot: state, key length, key, pack, offset and length. */
+    private static final int SLOT_SIZE = 82;
+    private static final int STATE_OFFSET = 0;
+    private static final int KEY_LENGTH_OFFSET = 1;
+    private static final int KEY_OFFSET = 2;
+    private static final int PACK_OFFSET = KEY_OFFSET + MAX_KEY_LENGTH;
+    private static final int POSITION_OFFSET = PACK_OFFSET + 4;
+    private static final int LENGTH_OFFSET = POSITION_OFFSET + 8;
+
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    /** Number of slots of a new index. */
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Maximal ratio of used slots (live and deleted) to all slots, the table grows when it is exceeded. */
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    /**
+     * Location of a blob inside the pack files.
+     *
+     * @param pack the number of the pack file
+     * @param offset the position of the first byte of the blob in the pack file
+     * @param length the length of the blob in bytes
+     */
+    record Entry(int pack, long offset, int length) {
+    }
+
+    /** Path to the index file. */
+    private final Path path;
+
+    /** Mapped content of the index file. */
+    private MappedByteBuffer buffer;
+    /** Number of slots. */
+    private int capacity;
+    /** Number of slots which are live or deleted. */
+    private int used;
+    /** Number of live slots. */
+    private int live;
+
+    /**
+     * Opens the index file, or creates a new one if it doesn't exist.
+     *
+     * @param path the path to the index file
+     * @throws IOException if the index file could not be opened or is not an index
+     */
+    PackIndex(Path path) throws IOException {
+        this.path = path;
+
+        if (Files.notExists(path)) {
+            buffer = createIndexFile(path, INITIAL_CAPACITY);
+            capacity = INITIAL_CAPACITY;
+            return;
+        }
+
+        buffer = map(path, Files.size(path));
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("File " + path + " is not a pack index");
+        }
+
+        capacity = buffer.getInt(CAPACITY_POSITION);
+        used = buffer.getInt(USED_POSITION);
+        live = buffer.getInt(LIVE_POSITION);
+    }
+
+    /**
+     * Looks up the location of the blob.
+     *
+     * @param key the key of the blob
+     * @return the location of the blob, or null if the blob is not in the index
+     */
+    Entry get(byte[] key) {
+        int slot = findSlot(key);
+
+        if (slot < 0) {
+            return null;
+        }
+
+        int position = slotPosition(slot);
+        return new Entry(buffer.getInt(position + PACK_OFFSET), buffer.getLong(position + POSITION_OFFSET), buffer.getInt(position + LENGTH_OFFSET));
+    }
+
+    /**
+     * Adds the location of the blob, or replaces its existing location.
+     * The slot and the header are written to the storage device before the method returns, so the blob is found after a crash.
+     *
+     * @param key the key of the blob
+     * @param entry the location of the blob
+     * @throws IOException if the index had to grow and the grown index could not be written
+     */
+    void put(byte[] key, Entry entry) throws IOException {
+        if (key.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key is longer than " + MAX_KEY_LENGTH + " bytes");
+        }
+
+        if (used + 1 > capacity * MAX_LOAD_FACTOR) {
+            resize(getCapacityFor(live + 1));
+        }
+
+        int slot = getHomeSlot(key);
+        int firstDeletedSlot = -1;
+
+        while (true) {
+            byte state = buffer.get(slotPosition(slot) + STATE_OFFSET);
+
+            if (state == EMPTY) {
+                // reuse a tombstone found on the way, so the probe sequences stay short
+                if (firstDeletedSlot >= 0) {
+                    slot = firstDeletedSlot;
+                } else {
+                    used++;
+                }
+
+                live++;
+                writeSlot(slot, key, entry);
+                writeCounts();
+                forceSlot(slot);
+                return;
+            }
+
+            if (state == DELETED) {
+                if (firstDeletedSlot < 0) {
+                    firstDeletedSlot = slot;
+                }
+            } else if (keyEquals(slot, key)) {
+                writeSlot(slot, key, entry);
+                forceSlot(slot);
+                return;
+            }
+
+            slot = (slot + 1) % capacity;
+        }
+    }
+
+    /**
+     * Removes the blob from the index, leaving a tombstone in its slot.
+     *
+     * @param key the key of the blob
+     * @return true if the blob was in the index, false otherwise
+     */
+    boolean remove(byte[] key) {
+        int slot = findSlot(key);
+
+        if (slot < 0) {
+            return false;
+        }
+
+        buffer.put(slotPosition(slot) + STATE_OFFSET, DELETED);
+        live--;
+        writeCounts();
+
+        return true;
+    }
+
+    /**
+     * Performs the action for each blob in the index.
+     *
+     * @param action the action receiving the key and the location of the blob
+     */
+    void forEach(BiConsumer<byte[], Entry> action) {
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = slotPosition(slot);
+
+            if (buffer.get(position + STATE_OFFSET) == LIVE) {
+                byte[] key = new byte[buffer.get(position + KEY_LENGTH_OFFSET)];
+                buffer.get(position + KEY_OFFSET, key);
+
+                action.accept(key, new Entry(buffer.getInt(position + PACK_OFFSET), buffer.getLong(position + POSITION_OFFSET), buffer.getInt(position + LENGTH_OFFSET)));
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of blobs in the index.
+     *
+     * @return the number of live slots
+     */
+    int size() {
+        return live;
+    }
+
+    /**
+     * Rewrites the index without tombstones, shrinking or growing it to fit the blobs in the index.
+     *
+     * @throws IOException if the rebuilt index could not be written
+     */
+    void rebuild() throws IOException {
+        resize(getCapacityFor(live));
+    }
+
+    /**
+     * Writes the changes of the index to the storage device.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    /**
+     * Writes the slot and the header to the storage device, without writing the other changed pages of the index.
+     *
+     * @param slot the index of the slot
+     */
+    private void forceSlot(int slot) {
+        buffer.force(slotPosition(slot), SLOT_SIZE);
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    /**
+     * Finds the slot holding the blob.
+     *
+     * @param key the key of the blob
+     * @return the number of the slot, or -1 if the blob is not in the index
+     */
+    private int findSlot(byte[] key) {
+        int slot = getHomeSlot(key);
+
+        // the table always has an empty slot, so the probing ends
+        while (true) {
+            byte state = buffer.get(slotPosition(slot) + STATE_OFFSET);
+
+            if (state == EMPTY) {
+                return -1;
+            }
+
+            if (state == LIVE && keyEquals(slot, key)) {
+                return slot;
+            }
+
+            slot = (slot + 1) % capacity;
+        }
+    }
+
+    /**
+     * Copies the live slots into a new index file with the given capacity and replaces the current index file with it.
+     *
+     * @param newCapacity the number of slots of the new index
+     * @throws IOException if the new index could not be written
+     */
+    private void resize(int newCapacity) throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        MappedByteBuffer oldBuffer = buffer;
+        int oldCapacity = capacity;
+
+        buffer = createIndexFile(tempPath, newCapacity);
+        capacity = newCapacity;
+        used = 0;
+        live = 0;
+
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+
+            if (oldBuffer.get(position + STATE_OFFSET) == LIVE) {
+                byte[] key = new byte[oldBuffer.get(position + KEY_LENGTH_OFFSET)];
+                oldBuffer.get(position + KEY_OFFSET, key);
+
+                put(key, new Entry(oldBuffer.getInt(position + PACK_OFFSET), oldBuffer.getLong(position + POSITION_OFFSET), oldBuffer.getInt(position + LENGTH_OFFSET)));
+            }
+        }
+
+        buffer.force();
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the key and the location of the blob into the slot.
+     *
+     * @param slot the number of the slot
+     * @param key the key of the blob
+     * @param entry the location of the blob
+     */
+    private void writeSlot(int slot, byte[] key, Entry entry) {
+        int position = slotPosition(slot);
+
+        buffer.put(position + KEY_LENGTH_OFFSET, (byte) key.length);
+        buffer.put(position + KEY_OFFSET, key);
+        buffer.putInt(position + PACK_OFFSET, entry.pack());
+        buffer.putLong(position + POSITION_OFFSET, entry.offset());
+        buffer.putInt(position + LENGTH_OFFSET, entry.length());
+        buffer.put(position + STATE_OFFSET, LIVE);
+    }
+
+    /**
+     * Writes the number of used and live slots into the header.
+     */
+    private void writeCounts() {
+        buffer.putInt(USED_POSITION, used);
+        buffer.putInt(LIVE_POSITION, live);
+    }
+
+    /**
+     * Checks whether the slot holds the key.
+     *
+     * @param slot the number of the slot
+     * @param key the key to compare
+     * @return true if the slot holds the key, false otherwise
+     */
+    private boolean keyEquals(int slot, byte[] key) {
+        int position = slotPosition(slot);
+
+        if (buffer.get(position + KEY_LENGTH_OFFSET) != key.length) {
+            return false;
+        }
+
+        byte[] slotKey = new byte[key.length];
+        buffer.get(position + KEY_OFFSET, slotKey);
+
+        return Arrays.equals(slotKey, key);
+    }
+
+    /**
+     * Retrieves the slot where the probing for the key starts.
+     *
+     * @param key the key of the blob
+     * @return the number of the home slot of the key
+     */
+    private int getHomeSlot(byte[] key) {
+        int hash = Arrays.hashCode(key);
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % capacity;
+    }
+
+    /**
+     * Retrieves the position of the slot in the index file.
+     *
+     * @param slot the number of the slot
+     * @return the position of the first byte of the slot
+     */
+    private static int slotPosition(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Retrieves the capacity for which the given number of blobs fills at most half of the slots.
+     *
+     * @param blobCount the number of blobs
+     * @return the number of slots
+     * @throws IOException if the index would not fit into a single mapping
+     */
+    private static int getCapacityFor(int blobCount) throws IOException {
+        long newCapacity = INITIAL_CAPACITY;
+
+        while (blobCount > newCapacity / 2) {
+            newCapacity *= 2;
+        }
+
+        if (HEADER_SIZE + newCapacity * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IOException("Pack index cannot hold " + blobCount + " blobs");
+        }
+
+        return (int) newCapacity;
+    }
+
+    /**
+     * Creates an empty index file with the given capacity.
+     *
+     * @param path the path to the index file
+     * @param capacity the number of slots
+     * @return the mapped content of the index file
+     * @throws IOException if the index file could not be created
+     */
+    private static MappedByteBuffer createIndexFile(Path path, int capacity) throws IOException {
+        Files.deleteIfExists(path);
+        MappedByteBuffer buffer = map(path, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(CAPACITY_POSITION, capacity);
+        buffer.putInt(USED_POSITION, 0);
+        buffer.putInt(LIVE_POSITION, 0);
+
+        return buffer;
+    }
+
+    /**
+     * Maps the file into memory, the file is extended with zeros if it is shorter.
+     *
+     * @param path the path to the file
+     * @param size the number of bytes to map
+     * @return the mapped content of the file
+     * @throws IOException if the file could not be mapped
+     */
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+}
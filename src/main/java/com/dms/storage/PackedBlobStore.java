@@ -0,0 +1,473 @@
+package com.dms.storage;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * {@link BlobStore} appending small blobs to large append-only pack files, larger blobs are kept by the underlying store.
+ * <p>
+ * Keeping every small blob in its own file exhausts inodes and slows down backups and directory scans, so blobs smaller
+ * than the threshold are appended to the current pack file instead, and their locations are kept in a memory-mapped
+ * {@link PackIndex}. A new pack file is started once the current one would exceed the maximal size.
+ * The content and the index entry of a blob are written to the storage device before {@code put} returns, as the blob
+ * is referenced by committed metadata right afterwards.
+ * <p>
+ * Deleting a packed blob only removes it from the index, the space is reclaimed by {@link #compact()}, which rewrites
+ * the live blobs of mostly deleted pack files into the current pack file and deletes the old ones.
+ * The pack directory must not be shared by more than one instance of the application.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Log4j2
+public class PackedBlobStore implements BlobStore {
+
+    /** Name of the directory inside the blob storage holding the pack files and their index. */
+    public static final String PACK_DIRECTORY = "packs";
+
+    /** Name of the index file. */
+    private static final String INDEX_FILE = "index";
+    /** Format of the names of the pack files. */
+    private static final String PACK_FILE_FORMAT = "pack-%08d.pack";
+    /** Pattern matching the names of the pack files. */
+    private static final Pattern PACK_FILE_PATTERN = Pattern.compile("pack-(\\d{8})\\.pack");
+
+    /** Minimal ratio of deleted bytes in a pack file for it to be rewritten by the compaction. */
+    private static final double COMPACTION_GARBAGE_RATIO = 0.5;
+
+    /** Store keeping the blobs which are not packed. */
+    private final BlobStore delegate;
+    /** Directory holding the pack files and their index. */
+    private final Path directory;
+    /** Size in bytes from which blobs are kept by the underlying store. */
+    private final long threshold;
+    /** Maximal size of a pack file in bytes. */
+    private final long maxPackSize;
+
+    /** Index of the packed blobs. */
+    private final PackIndex index;
+    /** Open pack files by their numbers. */
+    private final Map<Integer, FileChannel> packChannels = new HashMap<>();
+    /** Lock allowing concurrent reads, while appends, deletions and compaction are exclusive. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Number of the pack file to which blobs are appended. */
+    private int currentPack;
+
+    /**
+     * Constructs a new {@code PackedBlobStore}, opening the existing pack files and their index.
+     *
+     * @param delegate the store keeping the blobs which are not packed
+     * @param directory the directory holding the pack files and their index
+     * @param threshold the size in bytes from which blobs are kept by the underlying store
+     * @param maxPackSize the maximal size of a pack file in bytes
+     * @throws IOException if the pack files or their index could not be opened
+     */
+    public PackedBlobStore(BlobStore delegate, Path directory, long threshold, long maxPackSize) throws IOException {
+        this.delegate = delegate;
+        this.directory = directory;
+        this.threshold = threshold;
+        this.maxPackSize = maxPackSize;
+
+        Files.createDirectories(directory);
+        this.index = new PackIndex(directory.resolve(INDEX_FILE));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Matcher matcher = PACK_FILE_PATTERN.matcher(file.getFileName().toString());
+
+                if (matcher.matches()) {
+                    int pack = Integer.parseInt(matcher.group(1));
+                    packChannels.put(pack, openPack(pack));
+                    currentPack = Math.max(currentPack, pack);
+                }
+            }
+        }
+
+        if (packChannels.isEmpty()) {
+            currentPack = 1;
+            packChannels.put(currentPack, openPack(currentPack));
+        }
+
+        log.info("Opened {} pack files with {} blobs", packChannels.size(), index.size());
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size) throws IOException {
+        if (!isPacked(key, size)) {
+            delegate.put(key, content, size);
+            return;
+        }
+
+        byte[] data = content.readNBytes((int) size);
+
+        if (data.length != size) {
+            throw new EOFException("Content of blob " + key + " is shorter than " + size + " bytes");
+        }
+
+        append(key, data);
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        if (!isPacked(key, Files.size(file))) {
+            delegate.put(key, file);
+            return;
+        }
+
+        append(key, Files.readAllBytes(file));
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return getRange(key, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public InputStream getRange(String key, long position, long count) throws IOException {
+        byte[] data = readPacked(key, position, count);
+
+        if (data == null) {
+            return position == 0 && count == Long.MAX_VALUE ? delegate.get(key) : delegate.getRange(key, position, count);
+        }
+
+        return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        PackIndex.Entry entry = findEntry(key);
+        return entry != null ? entry.length() : delegate.size(key);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return findEntry(key) != null || delegate.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        if (isPackable(key)) {
+            lock.writeLock().lock();
+            try {
+                if (index.remove(HexFormat.of().parseHex(key))) {
+                    log.debug("Packed blob {} deleted, its space is reclaimed by the next compaction", key);
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        delegate.delete(key);
+    }
+
+    /**
+     * Retrieves the blob as a resource, large blobs are retrieved from the underlying store.
+     *
+     * @param key the key of the blob
+     * @return the resource representing the blob
+     */
+    @Override
+    public Resource getResource(String key) {
+        return findEntry(key) != null ? new BlobStoreResource(this, key) : delegate.getResource(key);
+    }
+
+    /**
+     * Reclaims the space of deleted blobs.
+     * <p>
+     * Pack files whose deleted bytes reach the ratio are rewritten: their live blobs are appended to the current pack file,
+     * the index is updated and the old pack files are deleted. The index is rebuilt without the tombstones afterward.
+     *
+     * @throws IOException if the pack files could not be rewritten
+     */
+    @Override
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Long> liveBytes = new HashMap<>();
+            index.forEach((key, entry) -> liveBytes.merge(entry.pack(), (long) entry.length(), Long::sum));
+
+            // stop appending to the current pack file, so it can be rewritten as well
+            if (isGarbage(currentPack, liveBytes)) {
+                startNewPack();
+            }
+
+            List<Integer> compactedPacks = new ArrayList<>();
+            for (Integer pack : packChannels.keySet()) {
+                if (pack != currentPack && isGarbage(pack, liveBytes)) {
+                    compactedPacks.add(pack);
+                }
+            }
+
+            if (compactedPacks.isEmpty()) {
+                log.info("No pack file needs to be compacted");
+                return;
+            }
+
+            // move the live blobs of the compacted pack files
+            List<Map.Entry<byte[], PackIndex.Entry>> movedBlobs = new ArrayList<>();
+            index.forEach((key, entry) -> {
+                if (compactedPacks.contains(entry.pack())) {
+                    movedBlobs.add(Map.entry(key, entry));
+                }
+            });
+
+            List<PackIndex.Entry> newEntries = new ArrayList<>();
+            for (Map.Entry<byte[], PackIndex.Entry> movedBlob : movedBlobs) {
+                PackIndex.Entry entry = movedBlob.getValue();
+                newEntries.add(write(read(entry, 0, entry.length())));
+            }
+
+            // the moved blobs have to be durable before the index points to them and their old copies are deleted
+            packChannels.get(currentPack).force(true);
+            for (int i = 0; i < movedBlobs.size(); i++) {
+                index.put(movedBlobs.get(i).getKey(), newEntries.get(i));
+            }
+            index.force();
+
+            long reclaimedBytes = 0;
+            for (Integer pack : compactedPacks) {
+                FileChannel packChannel = packChannels.remove(pack);
+                reclaimedBytes += packChannel.size() - liveBytes.getOrDefault(pack, 0L);
+                packChannel.close();
+                Files.deleteIfExists(getPackPath(pack));
+            }
+
+            index.rebuild();
+
+            log.info("Pack files compacted successfully: {} pack files rewritten, {} blobs moved, {} bytes reclaimed", compactedPacks.size(), movedBlobs.size(), reclaimedBytes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index, closes the pack files and the underlying store.
+     *
+     * @throws IOException if a pack file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            index.close();
+
+            for (FileChannel packChannel : packChannels.values()) {
+                packChannel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        delegate.close();
+    }
+
+    /**
+     * Appends the blob to the current pack file and adds it to the index.
+     * The content is forced to the storage device before the entry is added, so the index never points to lost content.
+     *
+     * @param key the key of the blob
+     * @param data the content of the blob
+     * @throws IOException if the blob could not be written
+     */
+    private void append(String key, byte[] data) throws IOException {
+        lock.writeLock().lock();
+        try {
+            PackIndex.Entry entry = write(data);
+            packChannels.get(entry.pack()).force(false);
+            index.put(HexFormat.of().parseHex(key), entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the content to the end of the current pack file, starting a new pack file if the current one would be too large.
+     * Has to be called with the write lock held.
+     *
+     * @param data the content to write
+     * @return the location of the written content
+     * @throws IOException if the content could not be written
+     */
+    private PackIndex.Entry write(byte[] data) throws IOException {
+        FileChannel packChannel = packChannels.get(currentPack);
+
+        if (packChannel.size() > 0 && packChannel.size() + data.length > maxPackSize) {
+            startNewPack();
+            packChannel = packChannels.get(currentPack);
+        }
+
+        long offset = packChannel.size();
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        while (buffer.hasRemaining()) {
+            packChannel.write(buffer, offset + buffer.position());
+        }
+
+        return new PackIndex.Entry(currentPack, offset, data.length);
+    }
+
+    /**
+     * Reads the range of the packed blob.
+     *
+     * @param key the key of the blob
+     * @param position the position of the first byte of the range
+     * @param count the number of bytes in the range
+     * @return the content of the range, or null if the blob is not packed
+     * @throws IOException if the blob could not be read
+     */
+    private byte[] readPacked(String key, long position, long count) throws IOException {
+        if (!isPackable(key)) {
+            return null;
+        }
+
+        // the content is read while the lock is held, as the compaction may delete the pack file afterward
+        lock.readLock().lock();
+        try {
+            PackIndex.Entry entry = index.get(HexFormat.of().parseHex(key));
+            return entry != null ? read(entry, position, count) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the range of the blob from its pack file.
+     *
+     * @param entry the location of the blob
+     * @param position the position of the first byte of the range within the blob
+     * @param count the number of bytes in the range
+     * @return the content of the range, truncated at the end of the blob
+     * @throws IOException if the blob could not be read
+     */
+    private byte[] read(PackIndex.Entry entry, long position, long count) throws IOException {
+        int start = (int) Math.min(position, entry.length());
+        int end = (int) Math.min(entry.length(), position + Math.min(count, entry.length()));
+        ByteBuffer buffer = ByteBuffer.allocate(end - start);
+        FileChannel packChannel = packChannels.get(entry.pack());
+
+        while (buffer.hasRemaining()) {
+            if (packChannel.read(buffer, entry.offset() + start + buffer.position()) < 0) {
+                throw new EOFException("Pack file " + entry.pack() + " is truncated");
+            }
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Looks up the location of the packed blob.
+     *
+     * @param key the key of the blob
+     * @return the location of the blob, or null if the blob is not packed
+     */
+    private PackIndex.Entry findEntry(String key) {
+        if (!isPackable(key)) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            return index.get(HexFormat.of().parseHex(key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a new pack file, to which the following blobs are appended.
+     * Has to be called with the write lock held.
+     *
+     * @throws IOException if the pack file could not be created
+     */
+    private void startNewPack() throws IOException {
+        packChannels.get(currentPack).force(true);
+        currentPack++;
+        packChannels.put(currentPack, openPack(currentPack));
+
+        log.info("Started pack file {}", currentPack);
+    }
+
+    /**
+     * Checks whether enough bytes of the pack file were deleted for it to be rewritten.
+     *
+     * @param pack the number of the pack file
+     * @param liveBytes the number of live bytes by the numbers of the pack files
+     * @return true if the pack file is not empty and the ratio of its deleted bytes reaches the ratio, false otherwise
+     * @throws IOException if the size of the pack file could not be resolved
+     */
+    private boolean isGarbage(int pack, Map<Integer, Long> liveBytes) throws IOException {
+        long size = packChannels.get(pack).size();
+        long deletedBytes = size - liveBytes.getOrDefault(pack, 0L);
+
+        return size > 0 && deletedBytes >= size * COMPACTION_GARBAGE_RATIO;
+    }
+
+    /**
+     * Checks whether the blob is kept in a pack file.
+     *
+     * @param key the key of the blob
+     * @param size the size of the blob in bytes
+     * @return true if the blob is smaller than the threshold and its key can be indexed, false otherwise
+     */
+    private boolean isPacked(String key, long size) {
+        return size < threshold && isPackable(key);
+    }
+
+    /**
+     * Checks whether the key can be kept in the index, which holds hexadecimal hashes as bytes.
+     *
+     * @param key the key of the blob
+     * @return true if the key is a hexadecimal string of at most {@link PackIndex#MAX_KEY_LENGTH} bytes, false otherwise
+     */
+    private static boolean isPackable(String key) {
+        if (key.isEmpty() || key.length() % 2 != 0 || key.length() > PackIndex.MAX_KEY_LENGTH * 2) {
+            return false;
+        }
+
+        return key.chars().allMatch(HexFormat::isHexDigit);
+    }
+
+    /**
+     * Opens the pack file for reading and appending, creating it if it doesn't exist.
+     *
+     * @param pack the number of the pack file
+     * @return the channel of the pack file
+     * @throws IOException if the pack file could not be opened
+     */
+    private FileChannel openPack(int pack) throws IOException {
+        return FileChannel.open(getPackPath(pack), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Retrieves the path of the pack file.
+     *
+     * @param pack the number of the pack file
+     * @return the path to the pack file
+     */
+    private Path getPackPath(int pack) {
+        return directory.resolve(String.format(PACK_FILE_FORMAT, pack));
+    }
+
+}
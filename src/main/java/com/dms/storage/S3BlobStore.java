@@ -0,0 +1,183 @@
+package com.dms.storage;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * {@link BlobStore} keeping the blobs as objects in a bucket of an S3-compatible object storage (AWS S3, MinIO, ...).
+ * <p>
+ * The store talks to the REST API of the storage directly using the HTTP client of the JDK, with path-style addressing
+ * ({@code endpoint/bucket/key}) and requests signed by {@link S3RequestSigner}. Payloads are streamed in both directions,
+ * they are sent unsigned, as the integrity of the stored content is verified by its hash anyway.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+@Log4j2
+public class S3BlobStore implements BlobStore {
+
+    /** Maximal time to establish a connection to the storage. */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /** Client used to send the requests. */
+    private final HttpClient httpClient;
+    /** Signer of the requests. */
+    private final S3RequestSigner signer;
+    /** Endpoint of the storage, without a trailing slash. */
+    private final String endpoint;
+    /** Name of the bucket holding the blobs. */
+    private final String bucket;
+    /** Clock used to timestamp the requests. */
+    private final Clock clock;
+
+    /**
+     * Constructs a new {@code S3BlobStore}.
+     *
+     * @param endpoint the endpoint of the storage (e.g. {@code http://localhost:9000})
+     * @param bucket the name of the bucket holding the blobs
+     * @param signer the signer of the requests
+     * @param clock the clock used to timestamp the requests
+     */
+    public S3BlobStore(String endpoint, String bucket, S3RequestSigner signer, Clock clock) {
+        this.httpClient = HttpClient.newBuilder()
+                                    .version(HttpClient.Version.HTTP_1_1)
+                                    .connectTimeout(CONNECT_TIMEOUT)
+                                    .build();
+        this.signer = signer;
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.bucket = bucket;
+        this.clock = clock;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size) throws IOException {
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() -> content), size);
+        send("PUT", key, Map.of(), body, S3RequestSigner.UNSIGNED_PAYLOAD, HttpResponse.BodyHandlers.discarding());
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        send("PUT", key, Map.of(), HttpRequest.BodyPublishers.ofFile(file), S3RequestSigner.UNSIGNED_PAYLOAD, HttpResponse.BodyHandlers.discarding());
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return send("GET", key, Map.of(), HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_PAYLOAD_HASH, HttpResponse.BodyHandlers.ofInputStream()).body();
+    }
+
+    @Override
+    public InputStream getRange(String key, long position, long count) throws IOException {
+        if (count <= 0) {
+            return InputStream.nullInputStream();
+        }
+
+        Map<String, String> headers = Map.of("range", "bytes=" + position + "-" + (position + count - 1));
+        return send("GET", key, headers, HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_PAYLOAD_HASH, HttpResponse.BodyHandlers.ofInputStream()).body();
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", key, Map.of(), HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_PAYLOAD_HASH, HttpResponse.BodyHandlers.discarding());
+
+        return response.headers()
+                       .firstValueAsLong("content-length")
+                       .orElseThrow(() -> new IOException("Storage did not send the size of blob " + key));
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            send("HEAD", key, Map.of(), HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_PAYLOAD_HASH, HttpResponse.BodyHandlers.discarding());
+            return true;
+        } catch (FileNotFoundException exception) {
+            return false;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            send("DELETE", key, Map.of(), HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_PAYLOAD_HASH, HttpResponse.BodyHandlers.discarding());
+        } catch (FileNotFoundException exception) {
+            log.debug("Blob {} was already deleted from the storage", key);
+        }
+    }
+
+    /**
+     * Signs and sends the request for the object with the given key.
+     *
+     * @param method the HTTP method of the request
+     * @param key the key of the object
+     * @param headers additional headers of the request
+     * @param body the body of the request
+     * @param payloadHash the hash of the body, or {@link S3RequestSigner#UNSIGNED_PAYLOAD}
+     * @param bodyHandler the handler of the response body
+     * @param <T> the type of the response body
+     * @return the successful response
+     * @throws FileNotFoundException if the object does not exist
+     * @throws IOException if the request failed
+     */
+    private <T> HttpResponse<T> send(String method, String key, Map<String, String> headers, HttpRequest.BodyPublisher body, String payloadHash, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        URI uri = getObjectUri(key);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                                                 .method(method, body);
+
+        signer.sign(method, uri, headers, payloadHash, clock.instant())
+              .forEach(request::header);
+
+        HttpResponse<T> response;
+        try {
+            response = httpClient.send(request.build(), bodyHandler);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to the storage was interrupted");
+        }
+
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            return response;
+        }
+
+        // release the connection held by an unread error body
+        if (response.body() instanceof InputStream errorBody) {
+            errorBody.close();
+        }
+
+        if (status == 404) {
+            throw new FileNotFoundException("Blob " + key + " does not exist");
+        }
+
+        throw new IOException(method + " of blob " + key + " failed with status " + status);
+    }
+
+    /**
+     * Retrieves the URI of the object with the given key.
+     *
+     * @param key the key of the object
+     * @return the path-style URI of the object
+     */
+    private URI getObjectUri(String key) {
+        // URI encoding of S3 differs from the form encoding in these three characters
+        String encodedKey = URLEncoder.encode(key, StandardCharsets.UTF_8)
+                                      .replace("+", "%20")
+                                      .replace("*", "%2A")
+                                      .replace("%7E", "~");
+
+        return URI.create(endpoint + "/" + bucket + "/" + encodedKey);
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.dms.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Signs requests to an S3-compatible object storage using AWS Signature Version 4.
+ * <p>
+ * The signed headers are the {@code host}, the {@code x-amz-date} and {@code x-amz-content-sha256} headers added by the signer,
+ * and any additional headers passed to {@link #sign}. Query parameters are not supported, as the store doesn't use them.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class S3RequestSigner {
+
+    /** Value of the payload hash which tells the storage not to verify the payload. */
+    public static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    /** Hash of an empty payload. */
+    public static final String EMPTY_PAYLOAD_HASH = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    /** Header with the timestamp of the request. */
+    public static final String DATE_HEADER = "x-amz-date";
+    /** Header with the hash of the payload. */
+    public static final String CONTENT_HASH_HEADER = "x-amz-content-sha256";
+
+    /** Name of the signing algorithm. */
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    /** Name of the signed service. */
+    private static final String SERVICE = "s3";
+
+    /** Format of the timestamp of the request. */
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    /** Format of the date in the credential scope. */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    /** Region of the storage. */
+    private final String region;
+    /** Access key identifying the credentials. */
+    private final String accessKey;
+    /** Secret key used to derive the signing key. */
+    private final String secretKey;
+
+    /**
+     * Constructs a new {@code S3RequestSigner}.
+     *
+     * @param region the region of the storage
+     * @param accessKey the access key identifying the credentials
+     * @param secretKey the secret key used to derive the signing key
+     */
+    public S3RequestSigner(String region, String accessKey, String secretKey) {
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+    }
+
+    /**
+     * Signs the request.
+     *
+     * @param method the HTTP method of the request
+     * @param uri the URI of the request, its raw path has to be already encoded
+     * @param headers additional headers to sign, which have to be sent with the request
+     * @param payloadHash the hexadecimal SHA-256 hash of the payload, or {@link #UNSIGNED_PAYLOAD}
+     * @param timestamp the time of the request
+     * @return the headers to send with the request, including the {@code Authorization} header (the {@code host} header is excluded)
+     */
+    public Map<String, String> sign(String method, URI uri, Map<String, String> headers, String payloadHash, Instant timestamp) {
+        String dateTime = DATE_TIME_FORMAT.format(timestamp);
+        String scope = DATE_FORMAT.format(timestamp) + "/" + region + "/" + SERVICE + "/aws4_request";
+
+        SortedMap<String, String> signedHeaders = new TreeMap<>();
+        headers.forEach((name, value) -> signedHeaders.put(name.toLowerCase(), value.trim()));
+        signedHeaders.put("host", getHost(uri));
+        signedHeaders.put(CONTENT_HASH_HEADER, payloadHash);
+        signedHeaders.put(DATE_HEADER, dateTime);
+
+        String signedHeaderNames = String.join(";", signedHeaders.keySet());
+        String canonicalHeaders = signedHeaders.entrySet()
+                                               .stream()
+                                               .map(header -> header.getKey() + ":" + header.getValue() + "\n")
+                                               .collect(Collectors.joining());
+
+        String canonicalRequest = method + "\n" +
+            uri.getRawPath() + "\n" +
+            "\n" +
+            canonicalHeaders + "\n" +
+            signedHeaderNames + "\n" +
+            payloadHash;
+
+        String stringToSign = ALGORITHM + "\n" +
+            dateTime + "\n" +
+            scope + "\n" +
+            sha256Hex(canonicalRequest);
+
+        String signature = HexFormat.of().formatHex(hmacSha256(getSigningKey(timestamp), stringToSign));
+
+        signedHeaders.remove("host");
+        signedHeaders.put("authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope + ", SignedHeaders=" + signedHeaderNames + ", Signature=" + signature);
+
+        return signedHeaders;
+    }
+
+    /**
+     * Derives the signing key for the date of the request.
+     *
+     * @param timestamp the time of the request
+     * @return the signing key
+     */
+    private byte[] getSigningKey(Instant timestamp) {
+        byte[] dateKey = hmacSha256(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), DATE_FORMAT.format(timestamp));
+        byte[] regionKey = hmacSha256(dateKey, region);
+        byte[] serviceKey = hmacSha256(regionKey, SERVICE);
+        return hmacSha256(serviceKey, "aws4_request");
+    }
+
+    /**
+     * Retrieves the value of the {@code host} header the same way the HTTP client sends it.
+     *
+     * @param uri the URI of the request
+     * @return the host, followed by the port if it is not the default port of the scheme
+     */
+    private static String getHost(URI uri) {
+        int port = uri.getPort();
+        boolean isDefaultPort = port == -1 || ("https".equals(uri.getScheme()) && port == 443) || ("http".equals(uri.getScheme()) && port == 80);
+
+        return isDefaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    /**
+     * Computes the hexadecimal SHA-256 hash of the text.
+     *
+     * @param text the text to hash
+     * @return the hexadecimal hash
+     */
+    private static String sha256Hex(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    /**
+     * Computes the HMAC-SHA256 of the text.
+     *
+     * @param key the key of the HMAC
+     * @param text the text to authenticate
+     * @return the HMAC of the text
+     */
+    private static byte[] hmacSha256(byte[] key, String text) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(text.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("HmacSHA256 is not available", exception);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.dms.upload;
+
+import com.dms.entity.Document;
+
+/**
+ * Result of uploading one of several files uploaded in one request.
+ *
+ * @param name the name of the file
+ * @param status whether the document was uploaded
+ * @param document the uploaded document, or null if it was not uploaded
+ * @param detail the reason why the document was not uploaded, or null if it was uploaded
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public record BatchUploadResult(String name, Status status, Document document, String detail) {
+
+    /**
+     * Creates the result of an uploaded document.
+     *
+     * @param document the uploaded document
+     * @return the result
+     */
+    public static BatchUploadResult created(Document document) {
+        return new BatchUploadResult(document.getName(), Status.CREATED, document, null);
+    }
+
+    /**
+     * Creates the result of a document which was not uploaded, as a document with the same name exists in the path.
+     *
+     * @param name the name of the file
+     * @param path the path of the document
+     * @return the result
+     */
+    public static BatchUploadResult conflict(String name, String path) {
+        return new BatchUploadResult(name, Status.CONFLICT, null, "Document with the same name already exists in the path: " + path);
+    }
+
+    /**
+     * Creates the result of a file which could not be stored.
+     *
+     * @param name the name of the file
+     * @param detail the reason why the file could not be stored
+     * @return the result
+     */
+    public static BatchUploadResult failed(String name, String detail) {
+        return new BatchUploadResult(name, Status.FAILED, null, detail);
+    }
+
+    /**
+     * Status of an uploaded file.
+     */
+    public enum Status {
+        /** The document was uploaded. */
+        CREATED,
+        /** A document with the same name already exists in the path. */
+        CONFLICT,
+        /** The file could not be stored. */
+        FAILED
+    }
+
+}
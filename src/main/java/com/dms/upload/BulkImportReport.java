@@ -0,0 +1,46 @@
+package com.dms.upload;
+
+import java.time.Duration;
+
+/**
+ * Progress of a bulk import of a directory tree, along with its throughput.
+ *
+ * @param createdCount the number of files imported as new documents
+ * @param skippedCount the number of files skipped, as they were imported by an earlier run
+ * @param conflictCount the number of files not imported, as a document with the same name was saved in the meantime
+ * @param failedCount the number of files which could not be read, stored or mapped to a document path
+ * @param byteCount the number of bytes of the imported files
+ * @param duration the time since the import started
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public record BulkImportReport(long createdCount, long skippedCount, long conflictCount, long failedCount, long byteCount, Duration duration) {
+
+    /**
+     * Retrieves the number of files imported per second.
+     *
+     * @return the number of files per second
+     */
+    public double filesPerSecond() {
+        return createdCount / getSeconds();
+    }
+
+    /**
+     * Retrieves the number of megabytes imported per second.
+     *
+     * @return the number of megabytes per second
+     */
+    public double megabytesPerSecond() {
+        return byteCount / (1024.0 * 1024.0) / getSeconds();
+    }
+
+    /**
+     * Retrieves the duration in seconds, at least a millisecond, so the throughput of an empty import is zero.
+     *
+     * @return the duration in seconds
+     */
+    private double getSeconds() {
+        return Math.max(duration.toMillis(), 1) / 1000.0;
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.dms.upload;
+
+import com.dms.exception.UploadSizeExceededException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FilterInputStream} which counts the bytes extracted from an archive and fails once they exceed the maximal
+ * total size, or once they exceed the bytes read from the archive by more than the maximal ratio.
+ * <p>
+ * Used for the entries of imported archives, so an archive of highly compressed entries (a ZIP bomb) fails before it
+ * fills the disk. The ratio is only checked once more than {@value #RATIO_GRACE_SIZE} bytes were extracted, so small
+ * archives of well compressible files are not rejected.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class ExtractionLimitedInputStream extends FilterInputStream {
+
+    /** Number of extracted bytes from which the compression ratio is checked. */
+    private static final long RATIO_GRACE_SIZE = 10L * 1024 * 1024;
+
+    /** The stream counting the bytes read from the archive. */
+    private final LimitedInputStream archive;
+    /** The maximal number of bytes which can be extracted. */
+    private final long maxSize;
+    /** The maximal ratio of the extracted bytes to the bytes read from the archive. */
+    private final long maxRatio;
+
+    /** Number of bytes which were extracted. */
+    private long count;
+
+    /**
+     * Constructs a new {@code ExtractionLimitedInputStream}.
+     *
+     * @param inputStream the stream with the extracted content
+     * @param archive the stream counting the bytes read from the archive
+     * @param maxSize the maximal number of bytes which can be extracted
+     * @param maxRatio the maximal ratio of the extracted bytes to the bytes read from the archive
+     */
+    public ExtractionLimitedInputStream(InputStream inputStream, LimitedInputStream archive, long maxSize, long maxRatio) {
+        super(inputStream);
+        this.archive = archive;
+        this.maxSize = maxSize;
+        this.maxRatio = maxRatio;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+
+        if (value != -1) {
+            addCount(1);
+        }
+
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+
+        if (read > 0) {
+            addCount(read);
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(count);
+        addCount(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Retrieves the number of bytes which were extracted.
+     *
+     * @return the number of bytes read from the underlying stream
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Adds the extracted bytes to the count.
+     *
+     * @param read the number of bytes which were extracted
+     * @throws UploadSizeExceededException if the count exceeds the maximal size or the maximal ratio
+     */
+    private void addCount(long read) {
+        count += read;
+
+        if (count > maxSize) {
+            throw new UploadSizeExceededException("Archive expands to more than the maximal import size of " + maxSize + " bytes");
+        }
+
+        if (count > RATIO_GRACE_SIZE && count / Math.max(archive.getCount(), 1) > maxRatio) {
+            throw new UploadSizeExceededException("Archive expands to more than " + maxRatio + " times its size");
+        }
+    }
+
+}
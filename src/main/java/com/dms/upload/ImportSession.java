@@ -0,0 +1,198 @@
+package com.dms.upload;
+
+import com.dms.exception.InvalidUploadException;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * ZIP archive expanded into documents, along with the results of its entries.
+ * <p>
+ * The entries are added while the archive is read and their results are recorded once they are known, which is not
+ * necessarily in the order of the entries. The import can be read by other requests while its archive is expanded,
+ * so they can follow its progress.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class ImportSession {
+
+    /** The ID of the import. */
+    @Getter
+    private final String importId = UUID.randomUUID().toString();
+
+    /** The database ID of the user who created the import. */
+    @Getter
+    private final Long ownerId;
+    /** The path the archive is imported to. */
+    @Getter
+    private final String path;
+
+    /** How long the import is kept after it was created or finished. */
+    private final Duration expiration;
+
+    /** The date when the import will be discarded, unless its archive is being expanded. */
+    @Getter
+    private volatile LocalDateTime expiresAt;
+
+    /** The status of the import. Guarded by {@code this}. */
+    private Status status = Status.PENDING;
+    /** The names of the file entries read from the archive. Guarded by {@code this}. */
+    private final List<String> entryNames = new ArrayList<>();
+    /** The results of the entries, null for the entries which were not processed yet. Guarded by {@code this}. */
+    private final List<BatchUploadResult> results = new ArrayList<>();
+    /** Number of entries whose results are known. Guarded by {@code this}. */
+    private int processedCount;
+    /** The reason why the archive could not be read to the end. Guarded by {@code this}. */
+    private String detail;
+
+    /**
+     * Constructs a new {@code ImportSession}.
+     *
+     * @param ownerId the database ID of the user who created the import
+     * @param path the path the archive is imported to
+     * @param expiration how long the import is kept after it was created or finished
+     */
+    public ImportSession(Long ownerId, String path, Duration expiration) {
+        this.ownerId = ownerId;
+        this.path = path;
+        this.expiration = expiration;
+        this.expiresAt = LocalDateTime.now().plus(expiration);
+    }
+
+    /**
+     * Starts expanding the archive of the import.
+     *
+     * @throws InvalidUploadException if the archive of the import was already uploaded
+     */
+    public synchronized void start() {
+        if (status != Status.PENDING) {
+            throw new InvalidUploadException("Archive of import " + importId + " was already uploaded");
+        }
+
+        status = Status.RUNNING;
+    }
+
+    /**
+     * Adds a file entry read from the archive.
+     *
+     * @param entryName the name of the entry
+     * @return the index of the entry, used to record its result
+     */
+    public synchronized int addEntry(String entryName) {
+        entryNames.add(entryName);
+        results.add(null);
+
+        return entryNames.size() - 1;
+    }
+
+    /**
+     * Records the result of an entry. The result is named by the entry, so the documents created in subdirectories can
+     * be told apart.
+     *
+     * @param index the index of the entry
+     * @param result the result of the entry
+     */
+    public synchronized void setResult(int index, BatchUploadResult result) {
+        if (results.set(index, new BatchUploadResult(entryNames.get(index), result.status(), result.document(), result.detail())) == null) {
+            processedCount++;
+        }
+    }
+
+    /**
+     * Finishes the import after all entries of the archive were processed.
+     */
+    public synchronized void complete() {
+        status = Status.COMPLETED;
+        expiresAt = LocalDateTime.now().plus(expiration);
+    }
+
+    /**
+     * Finishes the import after the archive could not be read to the end.
+     * The results of the entries processed before are kept.
+     *
+     * @param detail the reason why the archive could not be read
+     */
+    public synchronized void fail(String detail) {
+        this.status = Status.FAILED;
+        this.detail = detail;
+        expiresAt = LocalDateTime.now().plus(expiration);
+    }
+
+    /**
+     * Retrieves the status of the import.
+     *
+     * @return the status of the import
+     */
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Retrieves the number of file entries read from the archive.
+     *
+     * @return the number of entries
+     */
+    public synchronized int getEntryCount() {
+        return entryNames.size();
+    }
+
+    /**
+     * Retrieves the number of entries whose results are known.
+     *
+     * @return the number of processed entries
+     */
+    public synchronized int getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * Retrieves the results of the processed entries.
+     *
+     * @return the results, in the order of the entries in the archive
+     */
+    public synchronized List<BatchUploadResult> getResults() {
+        return results.stream()
+                      .filter(Objects::nonNull)
+                      .toList();
+    }
+
+    /**
+     * Retrieves the reason why the archive could not be read to the end.
+     *
+     * @return the reason, or null unless the import failed
+     */
+    public synchronized String getDetail() {
+        return detail;
+    }
+
+    /**
+     * Checks whether the import is expired. An import whose archive is being expanded never expires.
+     *
+     * @param now the current date
+     * @return true if the import was created or finished longer than the expiration ago, false otherwise
+     */
+    public synchronized boolean isExpiredAt(LocalDateTime now) {
+        return status != Status.RUNNING && expiresAt.isBefore(now);
+    }
+
+    /**
+     * Status of an import.
+     */
+    public enum Status {
+        /** The archive was not uploaded yet. */
+        PENDING,
+        /** The entries of the archive are being expanded. */
+        RUNNING,
+        /** All entries of the archive were processed. */
+        COMPLETED,
+        /** The archive could not be read to the end. */
+        FAILED
+    }
+
+}
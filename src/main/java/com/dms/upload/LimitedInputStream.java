@@ -0,0 +1,95 @@
+package com.dms.upload;
+
+import com.dms.exception.UploadSizeExceededException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FilterInputStream} which counts the bytes read from the underlying stream and fails once the count exceeds
+ * the given limit.
+ * <p>
+ * Used for uploads streamed from the raw request body, whose size is not known in advance and is not limited by the
+ * maximal size of multipart requests.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class LimitedInputStream extends FilterInputStream {
+
+    /** The maximal number of bytes which can be read. */
+    private final long limit;
+
+    /** Number of bytes which were read. */
+    private long count;
+
+    /**
+     * Constructs a new {@code LimitedInputStream}.
+     *
+     * @param inputStream the underlying stream
+     * @param limit the maximal number of bytes which can be read
+     */
+    public LimitedInputStream(InputStream inputStream, long limit) {
+        super(inputStream);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+
+        if (value != -1) {
+            addCount(1);
+        }
+
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+
+        if (read > 0) {
+            addCount(read);
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(count);
+        addCount(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Retrieves the number of bytes which were read.
+     *
+     * @return the number of bytes read from the underlying stream
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Adds the read bytes to the count.
+     *
+     * @param read the number of bytes which were read
+     * @throws UploadSizeExceededException if the count exceeds the limit
+     */
+    private void addCount(long read) {
+        count += read;
+
+        if (count > limit) {
+            throw new UploadSizeExceededException("File size exceeds the maximal upload size of " + limit + " bytes");
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.dms.upload;
+
+/**
+ * Blob stored before the metadata transaction of an upload, which may have to be deleted if the transaction fails.
+ *
+ * @param hash the hash of the stored blob
+ * @param written true if the content was written by the upload, false if it was already stored
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public record StagedBlob(String hash, boolean written) {
+}
@@ -0,0 +1,39 @@
+package com.dms.upload;
+
+/**
+ * Document whose blob was already stored, waiting for its metadata to be saved.
+ *
+ * @param name the name of the document
+ * @param type the content type of the document (may be null)
+ * @param path the path where the document will be stored
+ * @param size the size of the document in bytes
+ * @param hash the hash of the stored blob
+ * @param written true if the content of the blob was written by the upload, false if it was already stored
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public record StagedDocument(String name, String type, String path, Long size, String hash, boolean written) {
+
+    /**
+     * Constructs a staged document of the stored blob.
+     *
+     * @param name the name of the document
+     * @param type the content type of the document (may be null)
+     * @param path the path where the document will be stored
+     * @param size the size of the document in bytes
+     * @param blob the stored blob
+     */
+    public StagedDocument(String name, String type, String path, Long size, StagedBlob blob) {
+        this(name, type, path, size, blob.hash(), blob.written());
+    }
+
+    /**
+     * Retrieves the stored blob of the document.
+     *
+     * @return the stored blob
+     */
+    public StagedBlob blob() {
+        return new StagedBlob(hash, written);
+    }
+
+}
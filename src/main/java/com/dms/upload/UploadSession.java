@@ -0,0 +1,380 @@
+package com.dms.upload;
+
+import com.dms.exception.InvalidUploadException;
+import com.dms.exception.UploadNotFoundException;
+import com.dms.exception.UploadSizeExceededException;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * File uploaded in chunks, which can be sent in any order, in parallel and repeatedly.
+ * <p>
+ * The chunks are written to their offsets in a temporary file and the received ranges are merged, so the client can
+ * ask which parts are missing after a failure. The content is hashed incrementally: whenever the received prefix of
+ * the file grows, the new part is read back and added to the digest, which is done by one writer at a time while the
+ * others keep writing. Bytes which were already hashed are never written again, so a repeated chunk can't change the
+ * hashed content. When the last chunk arrives, the hash is ready without reading the whole file again.
+ *
+ * @author Jakub Pavlíček
+ * @version 1.0
+ */
+public class UploadSession {
+
+    /** Size of the buffer used to copy the chunks and to hash the received prefix. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The ID of the upload. */
+    @Getter
+    private final String uploadId = UUID.randomUUID().toString();
+
+    /** The database ID of the user who created the upload. */
+    @Getter
+    private final Long ownerId;
+    /** The ID of the document the file is uploaded as a new version of, or null for a new document. */
+    @Getter
+    private final String documentId;
+    /** The name of the document. */
+    @Getter
+    private final String name;
+    /** The content type of the document (may be null). */
+    @Getter
+    private final String type;
+    /** The path of the document (may be null for a new version). */
+    @Getter
+    private final String path;
+    /** The size of the file in bytes. */
+    @Getter
+    private final long size;
+
+    /** The temporary file holding the received chunks. */
+    @Getter
+    private final Path file;
+
+    /** How long the upload is kept after the last received chunk. */
+    private final Duration expiration;
+
+    /** The date when the upload will be discarded unless another chunk is received. */
+    @Getter
+    private volatile LocalDateTime expiresAt;
+
+    /** The channel writing the chunks and reading them back for hashing. */
+    private final FileChannel channel;
+
+    /** Received ranges of the file, mapped from their offsets to their ends, merged when they touch. Guarded by {@code this}. */
+    private final TreeMap<Long, Long> receivedRanges = new TreeMap<>();
+    /** Number of received bytes. Guarded by {@code this}. */
+    private long receivedSize;
+    /** Whether the upload was committed or discarded. Guarded by {@code this}. */
+    private boolean closed;
+
+    /** Lock held by the writer hashing the received prefix. */
+    private final ReentrantLock hashLock = new ReentrantLock();
+    /** Digest of the hashed prefix. Guarded by {@link #hashLock}. */
+    private final MessageDigest digest;
+    /** Number of bytes from the start of the file which were added to the digest. */
+    private volatile long hashedSize;
+
+    /**
+     * Constructs a new {@code UploadSession} and opens its temporary file.
+     *
+     * @param ownerId the database ID of the user who created the upload
+     * @param documentId the ID of the document the file is uploaded as a new version of, or null for a new document
+     * @param name the name of the document
+     * @param type the content type of the document (may be null)
+     * @param path the path of the document (may be null for a new version)
+     * @param size the size of the file in bytes
+     * @param file the empty temporary file which will hold the received chunks
+     * @param digest the digest computing the hash of the file
+     * @param expiration how long the upload is kept after the last received chunk
+     * @throws IOException if the temporary file could not be opened
+     */
+    public UploadSession(Long ownerId, String documentId, String name, String type, String path, long size, Path file, MessageDigest digest, Duration expiration) throws IOException {
+        this.ownerId = ownerId;
+        this.documentId = documentId;
+        this.name = name;
+        this.type = type;
+        this.path = path;
+        this.size = size;
+        this.file = file;
+        this.digest = digest;
+        this.expiration = expiration;
+        this.expiresAt = LocalDateTime.now().plus(expiration);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes the chunk starting at the given offset.
+     * Bytes which were already hashed are skipped, as they were received before. The bytes written before a failure of
+     * the stream are still recorded as received, so the client only has to send the rest of the chunk again.
+     *
+     * @param offset the offset of the first byte of the chunk
+     * @param content the stream with the content of the chunk
+     * @param maxChunkSize the maximal size of the chunk in bytes
+     * @throws InvalidUploadException if the chunk starts or ends past the end of the file
+     * @throws UploadSizeExceededException if the chunk is larger than the maximal size
+     * @throws UploadNotFoundException if the upload was already committed or discarded
+     * @throws IOException if the chunk could not be read or written
+     */
+    public void write(long offset, InputStream content, long maxChunkSize) throws IOException {
+        if (offset > size) {
+            throw new InvalidUploadException("Chunk offset " + offset + " is past the end of the file of size " + size);
+        }
+
+        ensureOpen();
+
+        long limit = Math.min(size - offset, maxChunkSize);
+        long position = offset;
+        boolean valid = true;
+
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+
+            // one byte more than the limit is read, so a chunk which is too large is detected
+            while ((read = content.readNBytes(buffer, 0, (int) Math.min(buffer.length, limit - (position - offset) + 1))) > 0) {
+                if (position - offset + read > limit) {
+                    if (size - offset > maxChunkSize) {
+                        throw new UploadSizeExceededException("Chunk exceeds the maximal chunk size of " + maxChunkSize + " bytes");
+                    }
+
+                    valid = false;
+                    throw new InvalidUploadException("Chunk at offset " + offset + " exceeds the file size of " + size + " bytes");
+                }
+
+                // the hashed prefix is never written again, so a repeated chunk can't change the hashed content
+                int skipped = (int) Math.min(read, Math.max(0, hashedSize - position));
+                if (skipped < read) {
+                    writeFully(ByteBuffer.wrap(buffer, skipped, read - skipped), position + skipped);
+                }
+
+                position += read;
+            }
+        } catch (ClosedChannelException exception) {
+            // the upload was committed or discarded while the chunk was being written
+            throw new UploadNotFoundException("Upload with ID: " + uploadId + " not found");
+        } finally {
+            // the bytes written before a failure are kept, unless the chunk doesn't belong to the file
+            if (valid && position > offset) {
+                addReceivedRange(offset, position);
+            }
+
+            expiresAt = LocalDateTime.now().plus(expiration);
+        }
+
+        advanceHash(false);
+    }
+
+    /**
+     * Writes the whole buffer to the given position of the file.
+     *
+     * @param buffer the buffer to write
+     * @param position the position in the file
+     * @throws IOException if the buffer could not be written
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Records the received range, merging it with the touching and overlapping ranges.
+     *
+     * @param start the offset of the first byte of the range
+     * @param end the offset after the last byte of the range
+     */
+    private synchronized void addReceivedRange(long start, long end) {
+        Map.Entry<Long, Long> previous = receivedRanges.floorEntry(start);
+        if (previous != null && previous.getValue() >= start) {
+            start = previous.getKey();
+            end = Math.max(end, previous.getValue());
+        }
+
+        Map.Entry<Long, Long> next;
+        while ((next = receivedRanges.ceilingEntry(start)) != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            receivedRanges.remove(next.getKey());
+        }
+
+        receivedRanges.put(start, end);
+        receivedSize = receivedRanges.entrySet()
+                                     .stream()
+                                     .mapToLong(range -> range.getValue() - range.getKey())
+                                     .sum();
+    }
+
+    /**
+     * Retrieves the number of bytes received contiguously from the start of the file.
+     *
+     * @return the size of the received prefix in bytes
+     */
+    private synchronized long getReceivedPrefixSize() {
+        Map.Entry<Long, Long> first = receivedRanges.firstEntry();
+        return first != null && first.getKey() == 0 ? first.getValue() : 0;
+    }
+
+    /**
+     * Adds the received prefix which was not hashed yet to the digest.
+     * Without waiting, the call returns right away when another writer is hashing, as that writer picks up the new bytes.
+     *
+     * @param wait whether to wait for the writer which is hashing
+     * @throws IOException if the file could not be read
+     */
+    private void advanceHash(boolean wait) throws IOException {
+        do {
+            if (wait) {
+                hashLock.lock();
+            } else if (!hashLock.tryLock()) {
+                return;
+            }
+
+            try {
+                hashReceivedPrefix();
+            } finally {
+                hashLock.unlock();
+            }
+            // bytes received while the lock was being released would be left to the next writer otherwise
+        } while (getReceivedPrefixSize() > hashedSize);
+    }
+
+    /**
+     * Reads the received prefix which was not hashed yet back from the file and adds it to the digest.
+     * Must be called with the {@link #hashLock} held.
+     *
+     * @throws IOException if the file could not be read
+     */
+    private void hashReceivedPrefix() throws IOException {
+        long end = getReceivedPrefixSize();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        while (hashedSize < end) {
+            buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - hashedSize));
+
+            int read = channel.read(buffer, hashedSize);
+            if (read < 0) {
+                throw new IOException("Upload " + uploadId + " is shorter than its received ranges");
+            }
+
+            digest.update(buffer.array(), 0, read);
+            hashedSize += read;
+        }
+    }
+
+    /**
+     * Checks whether the whole file was received.
+     *
+     * @return true if all bytes of the file were received, false otherwise
+     */
+    public synchronized boolean isComplete() {
+        return receivedSize == size;
+    }
+
+    /**
+     * Retrieves the number of received bytes.
+     *
+     * @return the number of received bytes
+     */
+    public synchronized long getReceivedSize() {
+        return receivedSize;
+    }
+
+    /**
+     * Retrieves the received ranges of the file, ordered by their offsets.
+     *
+     * @return the received ranges
+     */
+    public synchronized List<ByteRange> getReceivedRanges() {
+        List<ByteRange> ranges = new ArrayList<>(receivedRanges.size());
+        receivedRanges.forEach((start, end) -> ranges.add(new ByteRange(start, end - start)));
+        return ranges;
+    }
+
+    /**
+     * Finishes hashing the file and closes it for writing.
+     * No chunks are accepted afterwards, the file can then be handed over to the blob storage.
+     *
+     * @return the digest of the whole file
+     * @throws InvalidUploadException if some bytes of the file were not received yet
+     * @throws UploadNotFoundException if the upload was already committed or discarded
+     * @throws IOException if the file could not be read
+     */
+    public MessageDigest finish() throws IOException {
+        synchronized (this) {
+            ensureOpen();
+
+            if (receivedSize != size) {
+                throw new InvalidUploadException("Upload " + uploadId + " is not complete, received " + receivedSize + " of " + size + " bytes");
+            }
+
+            closed = true;
+        }
+
+        advanceHash(true);
+        channel.force(false);
+        channel.close();
+
+        return digest;
+    }
+
+    /**
+     * Discards the upload and deletes its temporary file, unless it was handed over to the blob storage.
+     *
+     * @throws IOException if the temporary file could not be deleted
+     */
+    public void discard() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Checks whether the upload is expired.
+     *
+     * @param now the current date
+     * @return true if no chunk was received for longer than the expiration, false otherwise
+     */
+    public boolean isExpiredAt(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+
+    /**
+     * Ensures that the upload was not committed or discarded.
+     *
+     * @throws UploadNotFoundException if the upload was already committed or discarded
+     */
+    private synchronized void ensureOpen() {
+        if (closed) {
+            throw new UploadNotFoundException("Upload with ID: " + uploadId + " not found");
+        }
+    }
+
+    /**
+     * Range of received bytes of the file.
+     *
+     * @param offset the offset of the first byte of the range
+     * @param length the number of bytes in the range
+     */
+    public record ByteRange(long offset, long length) {
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.dms.benchmark;
+
+import com.dms.entity.Blob;
+import com.dms.entity.BlobState;
+import com.dms.entity.Document;
+import com.dms.entity.Role;
+import com.dms.entity.User;
+import com.dms.repository.BlobRepository;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.DocumentRevisionRepository;
+import com.dms.repository.UserRepository;
+import com.dms.service.DocumentService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the cost of deleting a document with many revisions.
+ * Run using {@code mvn test -P benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+@WithMockUser(username = DocumentDeletionBenchmarkTest.AUTHOR_EMAIL)
+class DocumentDeletionBenchmarkTest {
+
+    static final String AUTHOR_EMAIL = "benchmark@gmail.com";
+
+    /** Number of distinct blobs shared by the revisions. */
+    private static final int BLOB_COUNT = 10;
+
+    /** Upper bound of SQL statements, which must not depend on the number of revisions. */
+    private static final long MAX_STATEMENT_COUNT = 10 + 2L * BLOB_COUNT;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentRevisionRepository revisionRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1_000, 10_000})
+    void shouldDeleteDocumentWithRevisionsUsingConstantNumberOfStatements(int revisionCount) {
+        Document document = createDocumentWithRevisions(revisionCount);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+                                                    .getStatistics();
+        statistics.clear();
+
+        long start = System.nanoTime();
+        documentService.deleteDocumentWithRevisions(document.getDocumentId());
+        entityManager.flush();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        long statementCount = statistics.getPrepareStatementCount();
+
+        System.out.printf("Deleted document with %d revisions: %d statements, %d ms%n", revisionCount, statementCount, elapsed.toMillis());
+
+        assertThat(revisionRepository.count()).isZero();
+        assertThat(statementCount).isLessThanOrEqualTo(MAX_STATEMENT_COUNT);
+    }
+
+    private Document createDocumentWithRevisions(int revisionCount) {
+        User author = userRepository.save(
+            User.builder()
+                .userId(UUID.randomUUID().toString())
+                .name("benchmark")
+                .email(AUTHOR_EMAIL)
+                .password("secret123!")
+                .role(Role.USER)
+                .build()
+        );
+
+        Document document = documentRepository.save(
+            Document.builder()
+                    .author(author)
+                    .version((long) revisionCount)
+                    .name("benchmark.txt")
+                    .type("text/plain")
+                    .path("/benchmark")
+                    .size(1L)
+                    .hash(getHash(revisionCount - 1))
+                    .isArchived(false)
+                    .build()
+        );
+
+        entityManager.flush();
+
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> revisions = new ArrayList<>(revisionCount);
+        for (int version = 1; version <= revisionCount; version++) {
+            revisions.add(new Object[] {author.getId(), document.getId(), UUID.randomUUID().toString(), version, getHash(version), createdAt});
+        }
+
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO document_revision (user_id, document_id, revision_id, version, name, type, byte_size, hash, created_at) " +
+                "VALUES (?, ?, ?, ?, 'benchmark.txt', 'text/plain', 1, ?, ?)",
+            revisions
+        );
+
+        for (int blob = 0; blob < BLOB_COUNT; blob++) {
+            blobRepository.save(
+                Blob.builder()
+                    .hash(getHash(blob))
+                    .referenceCount((long) revisionCount / BLOB_COUNT)
+                    .size(1L)
+                    .state(BlobState.STORED)
+                    .build()
+            );
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        return document;
+    }
+
+    private static String getHash(int version) {
+        return "%064d".formatted(version % BLOB_COUNT);
+    }
+
+}
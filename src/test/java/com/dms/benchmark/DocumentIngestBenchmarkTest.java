@@ -0,0 +1,128 @@
+package com.dms.benchmark;
+
+import com.dms.entity.Document;
+import com.dms.entity.DocumentRevision;
+import com.dms.entity.Role;
+import com.dms.entity.User;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.DocumentRevisionRepository;
+import com.dms.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the insert throughput of a bulk ingest of documents with their revisions.
+ * Run using {@code mvn test -P benchmark}, the test database is H2. To measure PostgreSQL, point the datasource to it,
+ * e.g. {@code mvn test -P benchmark -Dtest=DocumentIngestBenchmarkTest
+ * -Dspring.datasource.url=jdbc:postgresql://localhost:5432/dms?reWriteBatchedInserts=true
+ * -Dspring.datasource.driver-class-name=org.postgresql.Driver -Dspring.datasource.username=postgres
+ * -Dspring.datasource.password=...}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class DocumentIngestBenchmarkTest {
+
+    /** Number of IDs allocated by one sequence call and number of rows sent in one JDBC batch. */
+    private static final int BLOCK_SIZE = 50;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentRevisionRepository revisionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000})
+    void shouldInsertDocumentsWithRevisionsInBatches(int documentCount) {
+        User author = userRepository.save(
+            User.builder()
+                .userId(UUID.randomUUID().toString())
+                .name("benchmark")
+                .email("benchmark@gmail.com")
+                .password("secret123!")
+                .role(Role.USER)
+                .build()
+        );
+        entityManager.flush();
+
+        List<Document> documents = new ArrayList<>(documentCount);
+        for (int index = 0; index < documentCount; index++) {
+            documents.add(
+                Document.builder()
+                        .author(author)
+                        .version(1L)
+                        .name("benchmark-" + index + ".txt")
+                        .type("text/plain")
+                        .path("/benchmark")
+                        .size(1L)
+                        .hash("%064d".formatted(index))
+                        .isArchived(false)
+                        .build()
+            );
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+                                                    .getStatistics();
+        statistics.clear();
+
+        long start = System.nanoTime();
+
+        documentRepository.saveAll(documents);
+        revisionRepository.saveAll(documents.stream()
+                                            .map(document -> createRevision(document, author))
+                                            .toList());
+        entityManager.flush();
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        long rowCount = statistics.getEntityInsertCount();
+        long statementCount = statistics.getPrepareStatementCount();
+        long rowsPerSecond = rowCount * 1_000_000_000L / Math.max(elapsed.toNanos(), 1);
+
+        System.out.printf("Inserted %d documents with revisions: %d rows, %d statements, %d ms, %d rows/s%n", documentCount, rowCount, statementCount, elapsed.toMillis(), rowsPerSecond);
+
+        // one sequence call and one batch per block of documents and of revisions
+        long blockCount = (documentCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        assertThat(rowCount).isEqualTo(2L * documentCount);
+        assertThat(statementCount).isLessThanOrEqualTo(4 * blockCount);
+    }
+
+    private static DocumentRevision createRevision(Document document, User author) {
+        return DocumentRevision.builder()
+                               .document(document)
+                               .author(author)
+                               .version(document.getVersion())
+                               .name(document.getName())
+                               .type(document.getType())
+                               .size(document.getSize())
+                               .hash(document.getHash())
+                               .build();
+    }
+
+}
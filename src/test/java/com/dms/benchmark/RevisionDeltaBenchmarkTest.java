@@ -0,0 +1,127 @@
+package com.dms.benchmark;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.DeltaBlobStore;
+import com.dms.storage.InMemoryBlobStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the space saved by storing successive revisions of a document as deltas, and the latency of reconstructing them.
+ * Each revision edits a few lines of a CSV document. Run using {@code mvn test -P benchmark}.
+ */
+@Tag("benchmark")
+class RevisionDeltaBenchmarkTest {
+
+    private static final int REVISION_COUNT = 50;
+    private static final int MAX_CHAIN_LENGTH = 10;
+    private static final int EDITED_LINE_COUNT = 5;
+
+    @TempDir
+    private Path tempDirectory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {100_000, 1_000_000, 10_000_000})
+    void shouldStoreRevisionsAsDeltas(int documentSize) throws IOException {
+        Random random = new Random(42);
+        StringBuilder document = createCsv(documentSize, random);
+
+        InMemoryBlobStore wholeStore = new InMemoryBlobStore(false);
+        InMemoryBlobStore deltaDelegate = new InMemoryBlobStore(false);
+        BlobStore deltaStore = new DeltaBlobStore(deltaDelegate, 16L * 1024 * 1024, MAX_CHAIN_LENGTH, 0);
+
+        long originalSize = 0;
+        long encodingNanos = 0;
+
+        for (int revision = 0; revision < REVISION_COUNT; revision++) {
+            if (revision > 0) {
+                editLines(document, random);
+            }
+
+            Path file = Files.writeString(tempDirectory.resolve("revision-" + revision), document, StandardCharsets.US_ASCII);
+            originalSize += Files.size(file);
+
+            wholeStore.put(key(revision), file);
+
+            long start = System.nanoTime();
+            deltaStore.put(key(revision), file, revision > 0 ? key(revision - 1) : null);
+            encodingNanos += System.nanoTime() - start;
+        }
+
+        long wholeSize = totalSize(wholeStore);
+        long deltaSize = totalSize(deltaDelegate);
+
+        // the revision at the end of the longest chain is the slowest to reconstruct, the cache is disabled
+        long start = System.nanoTime();
+        byte[] slowestRevision = readAll(deltaStore.get(key(MAX_CHAIN_LENGTH)));
+        Duration slowestReconstruction = Duration.ofNanos(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int revision = 0; revision < REVISION_COUNT; revision++) {
+            readAll(deltaStore.get(key(revision)));
+        }
+        Duration averageReconstruction = Duration.ofNanos((System.nanoTime() - start) / REVISION_COUNT);
+
+        System.out.printf(
+            "%d revisions of %d bytes: %d bytes whole, %d bytes as deltas (%.1f%% saved), encoding %d ms per revision, reconstruction %d ms on average and %d ms at the end of a chain%n",
+            REVISION_COUNT, documentSize, wholeSize, deltaSize, 100.0 * (wholeSize - deltaSize) / wholeSize,
+            Duration.ofNanos(encodingNanos / REVISION_COUNT).toMillis(), averageReconstruction.toMillis(), slowestReconstruction.toMillis()
+        );
+
+        assertThat(wholeSize).isEqualTo(originalSize);
+        assertThat(slowestRevision).isEqualTo(readAll(wholeStore.get(key(MAX_CHAIN_LENGTH))));
+        assertThat(deltaSize).isLessThan(wholeSize / 4);
+    }
+
+    private static StringBuilder createCsv(int length, Random random) {
+        StringBuilder csv = new StringBuilder("id,name,amount,currency\n");
+
+        for (int row = 0; csv.length() < length; row++) {
+            csv.append(row).append(",customer ").append(random.nextInt(10_000)).append(',').append(random.nextInt(100_000)).append(".00,EUR\n");
+        }
+
+        return csv;
+    }
+
+    private static void editLines(StringBuilder document, Random random) {
+        for (int i = 0; i < EDITED_LINE_COUNT; i++) {
+            int lineStart = document.indexOf("\n", random.nextInt(document.length() - 100)) + 1;
+            int lineEnd = document.indexOf("\n", lineStart);
+
+            document.replace(lineStart, lineEnd, "edited," + random.nextInt(1_000_000) + ",0.00,USD");
+        }
+    }
+
+    private static long totalSize(InMemoryBlobStore blobStore) throws IOException {
+        long size = 0;
+
+        for (int revision = 0; revision < REVISION_COUNT; revision++) {
+            size += blobStore.size(key(revision));
+        }
+
+        return size;
+    }
+
+    private static String key(int revision) {
+        return "%064x".formatted(revision);
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+}
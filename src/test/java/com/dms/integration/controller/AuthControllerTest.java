@@ -2,7 +2,9 @@ package com.dms.integration.controller;
 
 import com.dms.entity.Role;
 import com.dms.entity.User;
+import com.dms.service.AuthService;
 import com.dms.service.UserService;
+import com.jayway.jsonpath.JsonPath;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,7 +12,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
@@ -28,6 +35,9 @@ class AuthControllerTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
     private User user;
 
     @BeforeEach
@@ -59,6 +69,30 @@ class AuthControllerTest {
            );
     }
 
+    @Test
+    void shouldReturnTokenWithUserClaims() throws Exception {
+        User createdUser = userService.createUser(user);
+
+        MvcResult result = mvc.perform(post("/auth/token")
+                                  .contentType(MediaType.APPLICATION_JSON)
+                                  .content("""
+                                           {
+                                               "email": "james@gmail.com",
+                                               "password": "secret123!"
+                                           }
+                                           """))
+                              .andExpect(status().isOk())
+                              .andReturn();
+
+        Jwt token = jwtDecoder.decode(JsonPath.read(result.getResponse().getContentAsString(), "$.token"));
+
+        assertThat(token.getSubject()).isEqualTo(createdUser.getEmail());
+        assertThat(token.getClaimAsString(AuthService.ROLE_CLAIM)).isEqualTo(Role.USER.name());
+        assertThat(token.getClaimAsString(AuthService.ID_CLAIM)).isEqualTo(createdUser.getId().toString());
+        assertThat(token.getClaimAsString(AuthService.USER_ID_CLAIM)).isEqualTo(createdUser.getUserId());
+        assertThat(token.getClaimAsString(AuthService.NAME_CLAIM)).isEqualTo(createdUser.getName());
+    }
+
     @Test
     void shouldNotReturnTokenWhenCredentialsDoesNotMatch() throws Exception {
         userService.createUser(user);
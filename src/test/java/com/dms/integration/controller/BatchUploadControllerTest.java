@@ -0,0 +1,165 @@
+package com.dms.integration.controller;
+
+import com.dms.config.BlobStorageProperties;
+import com.dms.entity.Document;
+import com.dms.entity.DocumentRevision;
+import com.dms.entity.Role;
+import com.dms.entity.User;
+import com.dms.repository.BlobRepository;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.DocumentRevisionRepository;
+import com.dms.repository.UserRepository;
+import com.dms.service.BlobStorageService;
+import com.dms.util.DirectoryCleaner;
+import com.dms.util.JwtManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the files of a batch are stored by other threads, which have to see the committed fixture
+@SpringBootTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureMockMvc
+class BatchUploadControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentRevisionRepository revisionRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private BlobStorageProperties blobStorageProperties;
+
+    private MockMultipartFile file;
+
+    private String hash;
+
+    private User author;
+
+    private final SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + Role.USER.name());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DirectoryCleaner.cleanDirectory(blobStorageProperties.getPath());
+
+        file = new MockMultipartFile("file", "document.txt", MediaType.TEXT_PLAIN_VALUE, "first".getBytes());
+        hash = blobStorageService.storeBlob(file);
+
+        author = userRepository.save(
+            User.builder()
+                .email("batch@gmail.com")
+                .name("james")
+                .password("secret123!")
+                .role(Role.USER)
+                .build()
+        );
+
+        Document document = documentRepository.save(
+            Document.builder()
+                    .author(author)
+                    .version(1L)
+                    .nextRevisionVersion(2L)
+                    .name(file.getOriginalFilename())
+                    .type(file.getContentType())
+                    .path("/")
+                    .size(file.getSize())
+                    .hash(hash)
+                    .isArchived(false)
+                    .build()
+        );
+
+        revisionRepository.save(
+            DocumentRevision.builder()
+                            .author(author)
+                            .document(document)
+                            .version(1L)
+                            .name(file.getOriginalFilename())
+                            .type(file.getContentType())
+                            .size(file.getSize())
+                            .hash(hash)
+                            .build()
+        );
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        revisionRepository.deleteAll();
+        documentRepository.deleteAll();
+        blobRepository.deleteAll();
+        userRepository.deleteById(author.getId());
+
+        DirectoryCleaner.cleanDirectory(blobStorageProperties.getPath());
+    }
+
+    @Test
+    void shouldUploadDocuments() throws Exception {
+        MockMultipartFile destination = new MockMultipartFile("destination", "", MediaType.APPLICATION_JSON_VALUE, "{\"path\":\"/\"}".getBytes());
+
+        mvc.perform(multipart(HttpMethod.POST, "/documents/upload/batch")
+               .file(new MockMultipartFile("files", "new.txt", MediaType.TEXT_PLAIN_VALUE, "new".getBytes()))
+               .file(new MockMultipartFile("files", file.getOriginalFilename(), MediaType.TEXT_PLAIN_VALUE, "conflict".getBytes()))
+               .file(new MockMultipartFile("files", "copy.txt", MediaType.TEXT_PLAIN_VALUE, file.getBytes()))
+               .file(new MockMultipartFile("files", "new.txt", MediaType.TEXT_PLAIN_VALUE, "duplicate".getBytes()))
+               .file(destination)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.MULTIPART_FORM_DATA))
+           .andExpectAll(
+               status().isOk(),
+               content().contentType(MediaType.APPLICATION_JSON),
+               jsonPath("$.results.length()").value(4),
+               jsonPath("$.results[0].name").value("new.txt"),
+               jsonPath("$.results[0].status").value("CREATED"),
+               jsonPath("$.results[0].document.documentId").isNotEmpty(),
+               jsonPath("$.results[0].document.path").value("/"),
+               jsonPath("$.results[0].document.size").value(3),
+               jsonPath("$.results[1].name").value(file.getOriginalFilename()),
+               jsonPath("$.results[1].status").value("CONFLICT"),
+               jsonPath("$.results[1].detail").value(containsString("already exists")),
+               jsonPath("$.results[2].name").value("copy.txt"),
+               jsonPath("$.results[2].status").value("CREATED"),
+               jsonPath("$.results[3].name").value("new.txt"),
+               jsonPath("$.results[3].status").value("CONFLICT")
+           );
+
+        List<Document> documents = documentRepository.findAll();
+
+        assertThat(documents).extracting(Document::getName)
+                             .containsExactlyInAnyOrder("document.txt", "new.txt", "copy.txt");
+        assertThat(blobRepository.findById(hash)).hasValueSatisfying(blob -> assertThat(blob.getReferenceCount()).isEqualTo(1L));
+    }
+
+}
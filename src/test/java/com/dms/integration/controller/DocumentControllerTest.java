@@ -1,16 +1,21 @@
 package com.dms.integration.controller;
 
 import com.dms.config.BlobStorageProperties;
+import com.dms.entity.Blob;
+import com.dms.entity.BlobState;
 import com.dms.entity.Document;
 import com.dms.entity.DocumentRevision;
 import com.dms.entity.Role;
 import com.dms.entity.User;
+import com.dms.repository.BlobRepository;
 import com.dms.repository.DocumentRepository;
 import com.dms.repository.DocumentRevisionRepository;
 import com.dms.repository.UserRepository;
 import com.dms.service.BlobStorageService;
 import com.dms.util.DirectoryCleaner;
 import com.dms.util.JwtManager;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,18 +32,29 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
@@ -62,9 +78,15 @@ class DocumentControllerTest {
     @Autowired
     private DocumentRevisionRepository revisionRepository;
 
+    @Autowired
+    private BlobRepository blobRepository;
+
     @Autowired
     private BlobStorageService blobStorageService;
 
+    @Autowired
+    private EntityManager entityManager;
+
     @Autowired
     private BlobStorageProperties blobStorageProperties;
 
@@ -106,6 +128,7 @@ class DocumentControllerTest {
         document = Document.builder()
                            .author(author)
                            .version(1L)
+                           .nextRevisionVersion(4L)
                            .name(firstFile.getOriginalFilename())
                            .type(firstFile.getContentType())
                            .path("/")
@@ -223,6 +246,29 @@ class DocumentControllerTest {
         assertThat(thirdRevisionById).isEmpty();
     }
 
+    @Test
+    void shouldDeleteAllRevisionsOfDocumentWithManyRevisions() throws Exception {
+        // more revisions than fit on several pages of 10, which used to be skipped while deleting
+        for (long version = 4; version <= 35; version++) {
+            revisionRepository.save(DocumentRevision.builder()
+                                                    .author(author)
+                                                    .document(document)
+                                                    .version(version)
+                                                    .name(firstFile.getOriginalFilename())
+                                                    .type(firstFile.getContentType())
+                                                    .size(firstFile.getSize())
+                                                    .hash(firstHash)
+                                                    .build());
+        }
+
+        mvc.perform(delete("/documents/{documentId}", document.getDocumentId())
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpect(status().isNoContent());
+
+        assertThat(documentRepository.findById(document.getId())).isEmpty();
+        assertThat(revisionRepository.findAll()).isEmpty();
+    }
+
     @Test
     void shouldNotDeleteDocumentWhenUserIsNotAuthenticated() throws Exception {
         mvc.perform(delete("/documents/{documentId}", document.getDocumentId()))
@@ -254,6 +300,98 @@ class DocumentControllerTest {
            );
     }
 
+    @Test
+    void shouldDownloadDocumentRange() throws Exception {
+        mvc.perform(get("/documents/{documentId}/download", document.getDocumentId())
+               .header(HttpHeaders.RANGE, "bytes=1-3")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isPartialContent(),
+               header().string(HttpHeaders.ACCEPT_RANGES, "bytes"),
+               header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-3/" + firstFile.getSize()),
+               header().string(HttpHeaders.CONTENT_LENGTH, "3"),
+               content().string("irs")
+           );
+    }
+
+    @Test
+    void shouldDownloadDocumentMultipleRanges() throws Exception {
+        mvc.perform(get("/documents/{documentId}/download", document.getDocumentId())
+               .header(HttpHeaders.RANGE, "bytes=0-0,3-4")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isPartialContent(),
+               header().string(HttpHeaders.CONTENT_TYPE, containsString("multipart/byteranges")),
+               content().string(containsString("Content-Range: bytes 0-0/" + firstFile.getSize() + "\r\n\r\nf")),
+               content().string(containsString("Content-Range: bytes 3-4/" + firstFile.getSize() + "\r\n\r\nst"))
+           );
+    }
+
+    @Test
+    void shouldDownloadDocumentRangeWhenIfRangeMatches() throws Exception {
+        mvc.perform(get("/documents/{documentId}/download", document.getDocumentId())
+               .header(HttpHeaders.RANGE, "bytes=2-")
+               .header(HttpHeaders.IF_RANGE, "\"" + firstHash + "\"")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isPartialContent(),
+               header().string(HttpHeaders.ETAG, "\"" + firstHash + "\""),
+               content().string("rst")
+           );
+    }
+
+    @Test
+    void shouldDownloadWholeDocumentWhenIfRangeDoesNotMatch() throws Exception {
+        mvc.perform(get("/documents/{documentId}/download", document.getDocumentId())
+               .header(HttpHeaders.RANGE, "bytes=2-")
+               .header(HttpHeaders.IF_RANGE, "\"1ef8c63124992a0beba43fc38965eab99f4333cc4b7b11425d024667a53367d9\"")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isOk(),
+               header().string(HttpHeaders.CONTENT_LENGTH, String.valueOf(firstFile.getSize())),
+               content().bytes(firstFile.getBytes())
+           );
+    }
+
+    @Test
+    void shouldNotDownloadDocumentWhenRangeIsNotSatisfiable() throws Exception {
+        mvc.perform(get("/documents/{documentId}/download", document.getDocumentId())
+               .header(HttpHeaders.RANGE, "bytes=100-200")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isRequestedRangeNotSatisfiable(),
+               header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + firstFile.getSize())
+           );
+    }
+
+    @Test
+    void shouldDownloadDocumentWithValidators() throws Exception {
+        mvc.perform(get("/documents/{documentId}/download", document.getDocumentId())
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isOk(),
+               header().string(HttpHeaders.ETAG, "\"" + firstHash + "\""),
+               header().string("Repr-Digest", "sha-256=:" + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(firstHash)) + ":"),
+               header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private")
+           );
+    }
+
+    @Test
+    void shouldNotDownloadDocumentWhenETagMatches() throws Exception {
+        // the blob is not needed to answer a matching If-None-Match
+        blobStorageService.deleteBlob(firstHash);
+
+        mvc.perform(get("/documents/{documentId}/download", document.getDocumentId())
+               .header(HttpHeaders.IF_NONE_MATCH, "\"" + firstHash + "\"")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isNotModified(),
+               header().string(HttpHeaders.ETAG, "\"" + firstHash + "\""),
+               header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"),
+               content().string("")
+           );
+    }
+
     @Test
     void shouldNotDownloadDocumentWhenDocumentIsNotFound() throws Exception {
         mvc.perform(get("/documents/{documentId}/download", "65be38e5-a749-4dc7-b6d4-8ca2c150aaed")
@@ -283,6 +421,101 @@ class DocumentControllerTest {
            );
     }
 
+    @Test
+    void shouldDownloadDocumentsUnderPath() throws Exception {
+        MvcResult result = mvc.perform(get("/documents/download")
+                                  .param("path", "/")
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+                              .andExpectAll(
+                                  status().isOk(),
+                                  content().contentType("application/zip"),
+                                  header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("documents.zip")),
+                                  header().doesNotExist(HttpHeaders.CONTENT_LENGTH)
+                              )
+                              .andReturn();
+
+        Map<String, String> entries = readZipEntries(result);
+
+        assertThat(entries).containsExactly(
+            Map.entry(firstFile.getOriginalFilename(), "first"),
+            Map.entry("home/" + secondFile.getOriginalFilename(), "second")
+        );
+    }
+
+    @Test
+    void shouldDownloadDocumentsUnderPathRelativeToPath() throws Exception {
+        MvcResult result = mvc.perform(get("/documents/download")
+                                  .param("path", "/home")
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+                              .andExpectAll(
+                                  status().isOk(),
+                                  header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("home.zip"))
+                              )
+                              .andReturn();
+
+        assertThat(readZipEntries(result)).containsExactly(Map.entry(secondFile.getOriginalFilename(), "second"));
+    }
+
+    @Test
+    void shouldNotDownloadArchivedDocumentsUnderPath() throws Exception {
+        secondDocument.setIsArchived(true);
+        documentRepository.save(secondDocument);
+
+        MvcResult result = mvc.perform(get("/documents/download")
+                                  .param("path", "/")
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+                              .andExpect(status().isOk())
+                              .andReturn();
+
+        assertThat(readZipEntries(result)).containsOnlyKeys(firstFile.getOriginalFilename());
+    }
+
+    @Test
+    void shouldDownloadListedDocuments() throws Exception {
+        MvcResult result = mvc.perform(get("/documents/download")
+                                  .param("documentIds", secondDocument.getDocumentId(), document.getDocumentId())
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+                              .andExpectAll(
+                                  status().isOk(),
+                                  content().contentType("application/zip")
+                              )
+                              .andReturn();
+
+        assertThat(readZipEntries(result)).containsExactly(
+            Map.entry("home/" + secondFile.getOriginalFilename(), "second"),
+            Map.entry(firstFile.getOriginalFilename(), "first")
+        );
+    }
+
+    @Test
+    void shouldNotDownloadListedDocumentsWhenDocumentIsNotFound() throws Exception {
+        mvc.perform(get("/documents/download")
+               .param("documentIds", document.getDocumentId(), "65be38e5-a749-4dc7-b6d4-8ca2c150aaed")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isNotFound(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("65be38e5-a749-4dc7-b6d4-8ca2c150aaed"))
+           );
+    }
+
+    @Test
+    void shouldNotDownloadDocumentsWhenPathAndDocumentIdsAreMissing() throws Exception {
+        mvc.perform(get("/documents/download")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("Exactly one of path and document IDs"))
+           );
+    }
+
+    @Test
+    void shouldNotDownloadDocumentsWhenUserIsNotAuthenticated() throws Exception {
+        mvc.perform(get("/documents/download").param("path", "/"))
+           .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void shouldReturnDocument() throws Exception {
         mvc.perform(get("/documents/{documentId}", document.getDocumentId())
@@ -439,6 +672,102 @@ class DocumentControllerTest {
            );
     }
 
+    @Test
+    void shouldReturnDocumentsByCursor() throws Exception {
+        MvcResult firstPage = mvc.perform(get("/documents")
+                                     .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+                                     .param("cursor", "")
+                                     .param("limit", "1")
+                                     .param("sort", "name:desc"))
+                                 .andExpectAll(
+                                     status().isOk(),
+                                     jsonPath("$.content.length()").value(1),
+                                     jsonPath("$.content[0].documentId").value(secondDocument.getDocumentId()),
+                                     jsonPath("$.first").value(true),
+                                     jsonPath("$.last").value(false),
+                                     jsonPath("$.totalElements").doesNotExist(),
+                                     jsonPath("$.nextCursor").isNotEmpty()
+                                 )
+                                 .andReturn();
+
+        String nextCursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.nextCursor");
+
+        mvc.perform(get("/documents")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .param("cursor", nextCursor)
+               .param("limit", "1")
+               .param("sort", "name:desc"))
+           .andExpectAll(
+               status().isOk(),
+               jsonPath("$.content.length()").value(1),
+               jsonPath("$.content[0].documentId").value(document.getDocumentId()),
+               jsonPath("$.first").value(false),
+               jsonPath("$.last").value(true),
+               jsonPath("$.nextCursor").doesNotExist()
+           );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"created_at:desc", "updated_at:asc"})
+    void shouldReturnDocumentsByCursorWhenSortedByDate(String sort) throws Exception {
+        List<String> documentIds = new ArrayList<>();
+        String cursor = "";
+
+        // walk through all pages using the returned cursors
+        do {
+            MvcResult page = mvc.perform(get("/documents")
+                                    .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+                                    .param("cursor", cursor)
+                                    .param("limit", "1")
+                                    .param("sort", sort))
+                                .andExpect(status().isOk())
+                                .andReturn();
+
+            String content = page.getResponse().getContentAsString();
+            documentIds.addAll(JsonPath.read(content, "$.content[*].documentId"));
+            cursor = JsonPath.read(content, "$.nextCursor");
+        } while (cursor != null);
+
+        assertThat(documentIds).containsExactlyInAnyOrder(document.getDocumentId(), secondDocument.getDocumentId());
+    }
+
+    @Test
+    void shouldNotReturnDocumentsWhenCursorWasCreatedForDifferentSort() throws Exception {
+        MvcResult firstPage = mvc.perform(get("/documents")
+                                     .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+                                     .param("cursor", "")
+                                     .param("limit", "1")
+                                     .param("sort", "name:desc"))
+                                 .andReturn();
+
+        String nextCursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.nextCursor");
+
+        mvc.perform(get("/documents")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .param("cursor", nextCursor)
+               .param("limit", "1")
+               .param("sort", "name:asc"))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("different 'sort'"))
+           );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"invalid", "eyJzb3J0IjoibmFtZTphc2MifQ", "eyJzb3J0IjoibmFtZTphc2MiLCJrZXlzIjp7Im5hbWUiOiJkb2N1bWVudC5wZGYiLCJpZCI6InRleHQifX0"})
+    void shouldNotReturnDocumentsWhenCursorIsInvalid(String cursor) throws Exception {
+        mvc.perform(get("/documents")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .param("cursor", cursor)
+               .param("sort", "name:asc"))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.title").value("Invalid Cursor")
+           );
+    }
+
     @ParameterizedTest
     @CsvSource(
         {
@@ -526,6 +855,22 @@ class DocumentControllerTest {
            );
     }
 
+    @Test
+    void shouldMoveDocumentToItsCurrentPath() throws Exception {
+        mvc.perform(put("/documents/{documentId}/move", document.getDocumentId())
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("""
+                        {
+                        	"path": "/"
+                        }
+                        """))
+           .andExpectAll(
+               status().isOk(),
+               jsonPath("$.path").value("/")
+           );
+    }
+
     @Test
     void shouldNotMoveDocumentWhenPathIsNull() throws Exception {
         mvc.perform(put("/documents/{documentId}/move", document.getDocumentId())
@@ -562,12 +907,25 @@ class DocumentControllerTest {
 
     @Test
     void shouldNotMoveDocumentWhenPathAlreadyExists() throws Exception {
+        documentRepository.save(
+            Document.builder()
+                    .author(author)
+                    .version(1L)
+                    .name(document.getName())
+                    .type(document.getType())
+                    .path("/home")
+                    .size(document.getSize())
+                    .hash(document.getHash())
+                    .isArchived(false)
+                    .build()
+        );
+
         mvc.perform(put("/documents/{documentId}/move", document.getDocumentId())
                .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
                .contentType(MediaType.APPLICATION_JSON)
                .content("""
                         {
-                        	"path": "/"
+                        	"path": "/home"
                         }
                         """))
            .andExpectAll(
@@ -702,6 +1060,79 @@ class DocumentControllerTest {
         assertThat(documents).hasSize(1);
     }
 
+    @Test
+    void shouldUploadDocumentWhenUserIsResolvedFromTokenClaims() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", thirdFile.getOriginalFilename(), thirdFile.getContentType(), thirdFile.getBytes());
+        MockMultipartFile destination = new MockMultipartFile("destination", "", MediaType.APPLICATION_JSON_VALUE, "{\"path\":\"/claims\"}".getBytes());
+
+        MvcResult upload = mvc.perform(multipart(HttpMethod.POST, "/documents/upload")
+                                  .file(file)
+                                  .file(destination)
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author)))
+                                  .contentType(MediaType.MULTIPART_FORM_DATA))
+                              .andExpectAll(
+                                  status().isCreated(),
+                                  jsonPath("$.author.userId").value(author.getUserId()),
+                                  jsonPath("$.author.name").value(author.getName()),
+                                  jsonPath("$.author.email").value(author.getEmail())
+                              )
+                              .andReturn();
+
+        String documentId = JsonPath.read(upload.getResponse().getContentAsString(), "$.documentId");
+
+        mvc.perform(multipart(HttpMethod.PUT, "/documents/{documentId}", documentId)
+               .file(new MockMultipartFile("file", firstFile.getOriginalFilename(), firstFile.getContentType(), firstFile.getBytes()))
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author)))
+               .contentType(MediaType.MULTIPART_FORM_DATA))
+           .andExpectAll(
+               status().isCreated(),
+               jsonPath("$.version").value(2L),
+               jsonPath("$.author.userId").value(author.getUserId())
+           );
+
+        entityManager.clear();
+
+        assertThat(documentRepository.findByDocumentIdAndAuthor(documentId, author)).hasValueSatisfying(uploadedDocument -> {
+            assertThat(uploadedDocument.getAuthor().getId()).isEqualTo(author.getId());
+            assertThat(uploadedDocument.getRevisions()).hasSize(2);
+        });
+    }
+
+    @Test
+    void shouldTrackBlobReferencesOfUploadedAndDeletedDocument() throws Exception {
+        revisionRepository.deleteAll();
+        documentRepository.deleteAll();
+
+        MockMultipartFile file = new MockMultipartFile("file", firstFile.getOriginalFilename(), firstFile.getContentType(), firstFile.getBytes());
+        MockMultipartFile destination = new MockMultipartFile("destination", "", MediaType.APPLICATION_JSON_VALUE, "{\"path\":\"/home\"}".getBytes());
+
+        MvcResult upload = mvc.perform(multipart(HttpMethod.POST, "/documents/upload")
+                                  .file(file)
+                                  .file(destination)
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+                                  .contentType(MediaType.MULTIPART_FORM_DATA))
+                              .andExpect(status().isCreated())
+                              .andReturn();
+
+        assertThat(blobRepository.findById(firstHash)).hasValueSatisfying(blob -> {
+            assertThat(blob.getReferenceCount()).isEqualTo(1L);
+            assertThat(blob.getState()).isEqualTo(BlobState.STORED);
+        });
+
+        String documentId = JsonPath.read(upload.getResponse().getContentAsString(), "$.documentId");
+
+        mvc.perform(delete("/documents/{documentId}", documentId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpect(status().isNoContent());
+
+        entityManager.clear();
+
+        assertThat(blobRepository.findById(firstHash)).hasValueSatisfying(blob -> {
+            assertThat(blob.getReferenceCount()).isZero();
+            assertThat(blob.getState()).isEqualTo(BlobState.ORPHANED);
+        });
+    }
+
     @Test
     void shouldNotUploadDocumentWhenFileIsMissing() throws Exception {
         MockMultipartFile destination = new MockMultipartFile("destination", "", MediaType.APPLICATION_JSON_VALUE, "{\"path\":\"/home\"}".getBytes());
@@ -863,8 +1294,8 @@ class DocumentControllerTest {
 
     @Test
     void shouldNotUploadNewDocumentVersionWhenDocumentWithPathAlreadyExists() throws Exception {
-        MockMultipartFile file = new MockMultipartFile("file", firstFile.getOriginalFilename(), firstFile.getContentType(), firstFile.getBytes());
-        MockMultipartFile destination = new MockMultipartFile("destination", "", MediaType.APPLICATION_JSON_VALUE, "{\"path\":\"/\"}".getBytes());
+        MockMultipartFile file = new MockMultipartFile("file", secondFile.getOriginalFilename(), secondFile.getContentType(), secondFile.getBytes());
+        MockMultipartFile destination = new MockMultipartFile("destination", "", MediaType.APPLICATION_JSON_VALUE, "{\"path\":\"/home\"}".getBytes());
 
         mvc.perform(multipart(HttpMethod.PUT, "/documents/{documentId}", document.getDocumentId())
                .file(file)
@@ -896,4 +1327,303 @@ class DocumentControllerTest {
            );
     }
 
+    @Test
+    void shouldCheckBlob() throws Exception {
+        mvc.perform(head("/blobs/{hash}", firstHash)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isOk(),
+               header().longValue(HttpHeaders.CONTENT_LENGTH, firstFile.getSize())
+           );
+    }
+
+    @Test
+    void shouldNotCheckBlobWhenBlobIsNotFound() throws Exception {
+        mvc.perform(head("/blobs/{hash}", "ab".repeat(32))
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldNotCheckBlobOfAnotherUser() throws Exception {
+        User anotherUser = userRepository.save(User.builder()
+                                                   .email("john@gmail.com")
+                                                   .name("john")
+                                                   .password("secret123!")
+                                                   .role(Role.USER)
+                                                   .build());
+
+        mvc.perform(head("/blobs/{hash}", firstHash)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(anotherUser.getEmail()))))
+           .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldNotCheckBlobWhenUserIsNotAuthenticated() throws Exception {
+        mvc.perform(head("/blobs/{hash}", firstHash))
+           .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void shouldUploadDocumentFromHash() throws Exception {
+        saveBlob(firstHash, firstFile.getSize());
+
+        mvc.perform(post("/documents/from-hash")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"hash\":\"" + firstHash + "\",\"name\":\"copy.txt\",\"type\":\"text/plain\",\"path\":\"/copies\"}"))
+           .andExpectAll(
+               status().isCreated(),
+               content().contentType(MediaType.APPLICATION_JSON),
+               jsonPath("$.documentId").isNotEmpty(),
+               jsonPath("$.version").value(1L),
+               jsonPath("$.name").value("copy.txt"),
+               jsonPath("$.type").value(MediaType.TEXT_PLAIN_VALUE),
+               jsonPath("$.path").value("/copies"),
+               jsonPath("$.size").value(firstFile.getSize())
+           );
+
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(blobRepository.findById(firstHash)).hasValueSatisfying(blob -> assertThat(blob.getReferenceCount()).isEqualTo(2L));
+    }
+
+    @Test
+    void shouldNotUploadDocumentFromHashWhenBlobIsNotFound() throws Exception {
+        mvc.perform(post("/documents/from-hash")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"hash\":\"" + firstHash + "\",\"name\":\"copy.txt\",\"path\":\"/copies\"}"))
+           .andExpectAll(
+               status().isNotFound(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("not found"))
+           );
+    }
+
+    @Test
+    void shouldNotUploadDocumentFromHashWhenHashIsInvalid() throws Exception {
+        mvc.perform(post("/documents/from-hash")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"hash\":\"not-a-hash\",\"name\":\"copy.txt\",\"path\":\"/copies\"}"))
+           .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldNotUploadDocumentFromHashWhenUserIsNotAuthenticated() throws Exception {
+        mvc.perform(post("/documents/from-hash")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"hash\":\"" + firstHash + "\",\"name\":\"copy.txt\",\"path\":\"/copies\"}"))
+           .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void shouldUploadNewDocumentVersionFromHash() throws Exception {
+        saveBlob(firstHash, firstFile.getSize());
+
+        mvc.perform(put("/documents/{documentId}/from-hash", secondDocument.getDocumentId())
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"hash\":\"" + firstHash + "\",\"name\":\"copy.txt\"}"))
+           .andExpectAll(
+               status().isCreated(),
+               content().contentType(MediaType.APPLICATION_JSON),
+               jsonPath("$.documentId").value(secondDocument.getDocumentId()),
+               jsonPath("$.version").value(2L),
+               jsonPath("$.name").value("copy.txt"),
+               jsonPath("$.type").value(MediaType.APPLICATION_OCTET_STREAM_VALUE),
+               jsonPath("$.path").value(secondDocument.getPath()),
+               jsonPath("$.size").value(firstFile.getSize())
+           );
+    }
+
+    @Test
+    void shouldNotUploadNewDocumentVersionFromHashWhenDocumentIsNotFound() throws Exception {
+        saveBlob(firstHash, firstFile.getSize());
+
+        mvc.perform(put("/documents/{documentId}/from-hash", "65be38e5-a749-4dc7-b6d4-8ca2c150aaed")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"hash\":\"" + firstHash + "\",\"name\":\"copy.txt\"}"))
+           .andExpectAll(
+               status().isNotFound(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("not found"))
+           );
+    }
+
+    @Test
+    void shouldUploadRawDocument() throws Exception {
+        // larger than the maximal multipart request size of the tests, which doesn't apply to the raw body
+        byte[] content = "content streamed as the raw request body".getBytes();
+
+        MvcResult upload = mvc.perform(post("/documents/upload/raw")
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+                                  .header("X-Document-Name", "raw%20document%C3%A9.txt")
+                                  .header("X-Document-Path", "/raw")
+                                  .header("X-Document-Type", MediaType.TEXT_PLAIN_VALUE)
+                                  .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                                  .content(content))
+                              .andExpectAll(
+                                  status().isCreated(),
+                                  content().contentType(MediaType.APPLICATION_JSON),
+                                  jsonPath("$.documentId").isNotEmpty(),
+                                  jsonPath("$.author.userId").value(author.getUserId()),
+                                  jsonPath("$.version").value(1L),
+                                  jsonPath("$.name").value("raw documenté.txt"),
+                                  jsonPath("$.type").value(MediaType.TEXT_PLAIN_VALUE),
+                                  jsonPath("$.path").value("/raw"),
+                                  jsonPath("$.size").value(content.length)
+                              )
+                              .andReturn();
+
+        String documentId = JsonPath.read(upload.getResponse().getContentAsString(), "$.documentId");
+        Document uploadedDocument = documentRepository.findByDocumentIdAndAuthor(documentId, author).orElseThrow();
+
+        assertThat(blobStorageService.getBlob(uploadedDocument.getHash()).getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void shouldNotUploadRawDocumentWhenPathIsMissing() throws Exception {
+        mvc.perform(post("/documents/upload/raw")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .header("X-Document-Name", "raw.txt")
+               .contentType(MediaType.APPLICATION_OCTET_STREAM)
+               .content(firstFile.getBytes()))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("Path"))
+           );
+    }
+
+    @Test
+    void shouldNotUploadRawDocumentWhenNameIsMissing() throws Exception {
+        mvc.perform(post("/documents/upload/raw")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .header("X-Document-Path", "/raw")
+               .contentType(MediaType.APPLICATION_OCTET_STREAM)
+               .content(firstFile.getBytes()))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+           );
+    }
+
+    @Test
+    void shouldNotUploadRawDocumentWhenNameIsNotPercentEncoded() throws Exception {
+        mvc.perform(post("/documents/upload/raw")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .header("X-Document-Name", "raw%2.txt")
+               .header("X-Document-Path", "/raw")
+               .contentType(MediaType.APPLICATION_OCTET_STREAM)
+               .content(firstFile.getBytes()))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("percent-encoded"))
+           );
+    }
+
+    @Test
+    void shouldNotUploadRawDocumentWhenDocumentWithPathAlreadyExists() throws Exception {
+        mvc.perform(post("/documents/upload/raw")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .header("X-Document-Name", firstFile.getOriginalFilename())
+               .header("X-Document-Path", "/")
+               .contentType(MediaType.APPLICATION_OCTET_STREAM)
+               .content(firstFile.getBytes()))
+           .andExpectAll(
+               status().isConflict(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("already exists"))
+           );
+    }
+
+    @Test
+    void shouldNotUploadRawDocumentWhenUserIsNotAuthenticated() throws Exception {
+        mvc.perform(post("/documents/upload/raw")
+               .header("X-Document-Name", "raw.txt")
+               .header("X-Document-Path", "/raw")
+               .contentType(MediaType.APPLICATION_OCTET_STREAM)
+               .content(firstFile.getBytes()))
+           .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void shouldUploadRawNewDocumentVersion() throws Exception {
+        mvc.perform(put("/documents/{documentId}/raw", document.getDocumentId())
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .header("X-Document-Name", thirdFile.getOriginalFilename())
+               .contentType(MediaType.APPLICATION_OCTET_STREAM)
+               .content(thirdFile.getBytes()))
+           .andExpectAll(
+               status().isCreated(),
+               content().contentType(MediaType.APPLICATION_JSON),
+               jsonPath("$.documentId").value(document.getDocumentId()),
+               jsonPath("$.version").value(4L),
+               jsonPath("$.name").value(thirdFile.getOriginalFilename()),
+               jsonPath("$.type").value(MediaType.APPLICATION_OCTET_STREAM_VALUE),
+               jsonPath("$.path").value(document.getPath()),
+               jsonPath("$.size").value(thirdFile.getSize())
+           );
+    }
+
+    @Test
+    void shouldNotUploadRawNewDocumentVersionWhenDocumentIsNotFound() throws Exception {
+        mvc.perform(put("/documents/{documentId}/raw", "65be38e5-a749-4dc7-b6d4-8ca2c150aaed")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .header("X-Document-Name", thirdFile.getOriginalFilename())
+               .contentType(MediaType.APPLICATION_OCTET_STREAM)
+               .content(thirdFile.getBytes()))
+           .andExpectAll(
+               status().isNotFound(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("not found"))
+           );
+    }
+
+    @Test
+    void shouldNotUploadDocumentsWhenDestinationIsMissing() throws Exception {
+        mvc.perform(multipart(HttpMethod.POST, "/documents/upload/batch")
+               .file(new MockMultipartFile("files", "new.txt", MediaType.TEXT_PLAIN_VALUE, "new".getBytes()))
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.MULTIPART_FORM_DATA))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("destination"))
+           );
+    }
+
+    @Test
+    void shouldNotUploadDocumentsWhenUserIsNotAuthenticated() throws Exception {
+        mvc.perform(multipart(HttpMethod.POST, "/documents/upload/batch"))
+           .andExpect(status().isUnauthorized());
+    }
+
+    private static Map<String, String> readZipEntries(MvcResult result) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        return entries;
+    }
+
+    private void saveBlob(String hash, long size) {
+        blobRepository.save(Blob.builder()
+                                .hash(hash)
+                                .referenceCount(1L)
+                                .size(size)
+                                .state(BlobState.STORED)
+                                .build());
+    }
+
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import com.dms.repository.UserRepository;
 import com.dms.service.BlobStorageService;
 import com.dms.util.DirectoryCleaner;
 import com.dms.util.JwtManager;
+import com.jayway.jsonpath.JsonPath;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,9 +27,11 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -164,6 +167,41 @@ class DocumentRevisionControllerTest {
         assertThat(secondRevisionById.get().getVersion()).isEqualTo(1L);
     }
 
+    @Test
+    void shouldShiftVersionsOfLaterRevisionsWhenRevisionIsDeleted() throws Exception {
+        List<DocumentRevision> revisions = new ArrayList<>();
+        for (long version = 1; version <= 3; version++) {
+            revisions.add(DocumentRevision.builder()
+                                          .author(author)
+                                          .document(document)
+                                          .version(version)
+                                          .name(firstFile.getOriginalFilename())
+                                          .type(firstFile.getContentType())
+                                          .size(firstFile.getSize())
+                                          .hash(firstHash)
+                                          .build());
+        }
+
+        document.setVersion(3L);
+
+        userRepository.save(author);
+        documentRepository.save(document);
+        revisionRepository.saveAll(revisions);
+
+        mvc.perform(delete("/revisions/{revisionId}", revisions.get(1).getRevisionId())
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpect(status().isNoContent());
+
+        Optional<Document> documentById = documentRepository.findById(document.getId());
+        Optional<DocumentRevision> firstRevisionById = revisionRepository.findById(revisions.get(0).getId());
+        Optional<DocumentRevision> thirdRevisionById = revisionRepository.findById(revisions.get(2).getId());
+
+        assertThat(documentById).hasValueSatisfying(updatedDocument -> assertThat(updatedDocument.getVersion()).isEqualTo(2L));
+        assertThat(firstRevisionById).hasValueSatisfying(revision -> assertThat(revision.getVersion()).isEqualTo(1L));
+        assertThat(thirdRevisionById).hasValueSatisfying(revision -> assertThat(revision.getVersion()).isEqualTo(2L));
+        assertThat(documentRepository.findNextRevisionVersion(document.getId())).isEqualTo(3L);
+    }
+
     @Test
     void shouldNotDeleteRevisionWhenRevisionIsTheOnlyVersionForDocument() throws Exception {
         DocumentRevision revision = DocumentRevision.builder()
@@ -250,6 +288,66 @@ class DocumentRevisionControllerTest {
            );
     }
 
+    @Test
+    void shouldDownloadRevisionRange() throws Exception {
+        DocumentRevision revision = DocumentRevision.builder()
+                                                    .author(author)
+                                                    .document(document)
+                                                    .version(1L)
+                                                    .name(firstFile.getOriginalFilename())
+                                                    .type(firstFile.getContentType())
+                                                    .size(firstFile.getSize())
+                                                    .hash(firstHash)
+                                                    .build();
+
+        userRepository.save(author);
+        documentRepository.save(document);
+        revisionRepository.save(revision);
+
+        mvc.perform(get("/revisions/{revisionId}/download", revision.getRevisionId())
+               .header(HttpHeaders.RANGE, "bytes=-2")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isPartialContent(),
+               header().string(HttpHeaders.CONTENT_RANGE, "bytes " + (firstFile.getSize() - 2) + "-" + (firstFile.getSize() - 1) + "/" + firstFile.getSize()),
+               content().bytes(Arrays.copyOfRange(firstFile.getBytes(), (int) firstFile.getSize() - 2, (int) firstFile.getSize()))
+           );
+    }
+
+    @Test
+    void shouldDownloadImmutableRevision() throws Exception {
+        DocumentRevision revision = DocumentRevision.builder()
+                                                    .author(author)
+                                                    .document(document)
+                                                    .version(1L)
+                                                    .name(firstFile.getOriginalFilename())
+                                                    .type(firstFile.getContentType())
+                                                    .size(firstFile.getSize())
+                                                    .hash(firstHash)
+                                                    .build();
+
+        userRepository.save(author);
+        documentRepository.save(document);
+        revisionRepository.save(revision);
+
+        mvc.perform(get("/revisions/{revisionId}/download", revision.getRevisionId())
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isOk(),
+               header().string(HttpHeaders.ETAG, "\"" + firstHash + "\""),
+               header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, private, immutable")
+           );
+
+        mvc.perform(get("/revisions/{revisionId}/download", revision.getRevisionId())
+               .header(HttpHeaders.IF_NONE_MATCH, "\"" + firstHash + "\"")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isNotModified(),
+               header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, private, immutable"),
+               content().string("")
+           );
+    }
+
     @Test
     void shouldNotDownloadRevisionWhenUserIsNotAuthenticated() throws Exception {
         mvc.perform(get("/revisions/{revisionId}/download", "65be38e5-a749-4dc7-b6d4-8ca2c150aaed"))
@@ -406,6 +504,110 @@ class DocumentRevisionControllerTest {
            );
     }
 
+    @Test
+    void shouldReturnRevisionsByCursor() throws Exception {
+        DocumentRevision firstRevision = DocumentRevision.builder()
+                                                         .author(author)
+                                                         .document(document)
+                                                         .version(1L)
+                                                         .name(firstFile.getOriginalFilename())
+                                                         .type(firstFile.getContentType())
+                                                         .size(firstFile.getSize())
+                                                         .hash(firstHash)
+                                                         .build();
+
+        DocumentRevision secondRevision = DocumentRevision.builder()
+                                                          .author(author)
+                                                          .document(document)
+                                                          .version(2L)
+                                                          .name(secondFile.getOriginalFilename())
+                                                          .type(secondFile.getContentType())
+                                                          .size(secondFile.getSize())
+                                                          .hash(secondHash)
+                                                          .build();
+
+        DocumentRevision thirdRevision = DocumentRevision.builder()
+                                                         .author(author)
+                                                         .document(document)
+                                                         .version(3L)
+                                                         .name(thirdFile.getOriginalFilename())
+                                                         .type(thirdFile.getContentType())
+                                                         .size(thirdFile.getSize())
+                                                         .hash(thirdHash)
+                                                         .build();
+
+        userRepository.save(author);
+        documentRepository.save(document);
+
+        revisionRepository.save(firstRevision);
+        revisionRepository.save(secondRevision);
+        revisionRepository.save(thirdRevision);
+
+        List<String> revisionIds = new ArrayList<>();
+        String cursor = "";
+
+        // walk through all pages using the returned cursors
+        do {
+            MvcResult page = mvc.perform(get("/revisions")
+                                    .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+                                    .param("cursor", cursor)
+                                    .param("limit", "2")
+                                    .param("sort", "version:desc"))
+                                .andExpectAll(
+                                    status().isOk(),
+                                    jsonPath("$.totalElements").doesNotExist(),
+                                    jsonPath("$.totalPages").doesNotExist()
+                                )
+                                .andReturn();
+
+            String content = page.getResponse().getContentAsString();
+            revisionIds.addAll(JsonPath.read(content, "$.content[*].revisionId"));
+            cursor = JsonPath.read(content, "$.nextCursor");
+        } while (cursor != null);
+
+        assertThat(revisionIds).containsExactly(thirdRevision.getRevisionId(), secondRevision.getRevisionId(), firstRevision.getRevisionId());
+    }
+
+    @Test
+    void shouldReturnRevisionsByCursorWhenSortedByDate() throws Exception {
+        List<DocumentRevision> revisions = new ArrayList<>();
+        for (long version = 1; version <= 3; version++) {
+            revisions.add(DocumentRevision.builder()
+                                          .author(author)
+                                          .document(document)
+                                          .version(version)
+                                          .name(firstFile.getOriginalFilename())
+                                          .type(firstFile.getContentType())
+                                          .size(firstFile.getSize())
+                                          .hash(firstHash)
+                                          .build());
+        }
+
+        userRepository.save(author);
+        documentRepository.save(document);
+        revisionRepository.saveAll(revisions);
+
+        List<String> revisionIds = new ArrayList<>();
+        String cursor = "";
+
+        // walk through all pages using the returned cursors
+        do {
+            MvcResult page = mvc.perform(get("/revisions")
+                                    .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+                                    .param("cursor", cursor)
+                                    .param("limit", "2")
+                                    .param("sort", "created_at:desc"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+
+            String content = page.getResponse().getContentAsString();
+            revisionIds.addAll(JsonPath.read(content, "$.content[*].revisionId"));
+            cursor = JsonPath.read(content, "$.nextCursor");
+        } while (cursor != null);
+
+        assertThat(revisionIds).containsExactlyInAnyOrderElementsOf(revisions.stream().map(DocumentRevision::getRevisionId).toList());
+    }
+
     @ParameterizedTest
     @CsvSource(
         {
@@ -0,0 +1,266 @@
+package com.dms.integration.controller;
+
+import com.dms.config.BlobStorageProperties;
+import com.dms.entity.Document;
+import com.dms.entity.Role;
+import com.dms.entity.User;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.UserRepository;
+import com.dms.service.BlobStorageService;
+import com.dms.util.DirectoryCleaner;
+import com.dms.util.JwtManager;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@Transactional
+@AutoConfigureMockMvc
+class ImportControllerTest {
+
+    private static final MediaType APPLICATION_ZIP = MediaType.valueOf("application/zip");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private BlobStorageProperties blobStorageProperties;
+
+    private User author;
+    private User anotherUser;
+
+    private final SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + Role.USER.name());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DirectoryCleaner.cleanDirectory(blobStorageProperties.getPath());
+
+        author = userRepository.save(User.builder()
+                                         .email("james@gmail.com")
+                                         .name("james")
+                                         .password("secret123!")
+                                         .role(Role.USER)
+                                         .build());
+
+        anotherUser = userRepository.save(User.builder()
+                                              .email("john@gmail.com")
+                                              .name("john")
+                                              .password("secret123!")
+                                              .role(Role.USER)
+                                              .build());
+
+        documentRepository.save(Document.builder()
+                                        .author(author)
+                                        .version(1L)
+                                        .nextRevisionVersion(2L)
+                                        .name("document.txt")
+                                        .type(MediaType.TEXT_PLAIN_VALUE)
+                                        .path("/home")
+                                        .size(5L)
+                                        .hash("ab".repeat(32))
+                                        .isArchived(false)
+                                        .build());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DirectoryCleaner.cleanDirectory(blobStorageProperties.getPath());
+    }
+
+    @Test
+    void shouldCreateImport() throws Exception {
+        mvc.perform(post("/imports")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"path\":\"/home\"}"))
+           .andExpectAll(
+               status().isCreated(),
+               content().contentType(MediaType.APPLICATION_JSON),
+               jsonPath("$.importId").isNotEmpty(),
+               jsonPath("$.path").value("/home"),
+               jsonPath("$.status").value("PENDING"),
+               jsonPath("$.entryCount").value(0),
+               jsonPath("$.results").isEmpty(),
+               jsonPath("$.expiresAt").isNotEmpty()
+           );
+    }
+
+    @Test
+    void shouldNotCreateImportWhenPathIsInvalid() throws Exception {
+        mvc.perform(post("/imports")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"path\":\"home\"}"))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+           );
+    }
+
+    @Test
+    void shouldImportArchiveIntoDocumentPaths() throws Exception {
+        String importId = createImport(author, "/home");
+        byte[] archive = createArchive("readme.txt", "docs/", "docs/guide.md", "docs/api/spec.txt", "bad dir/file.txt", "document.txt");
+
+        uploadArchive(author, importId, archive).andExpectAll(
+            status().isOk(),
+            content().contentType(MediaType.APPLICATION_JSON),
+            jsonPath("$.status").value("COMPLETED"),
+            jsonPath("$.entryCount").value(5),
+            jsonPath("$.processedCount").value(5),
+            jsonPath("$.results[0].name").value("readme.txt"),
+            jsonPath("$.results[0].status").value("CREATED"),
+            jsonPath("$.results[0].document.path").value("/home"),
+            jsonPath("$.results[0].document.type").value(MediaType.TEXT_PLAIN_VALUE),
+            jsonPath("$.results[1].name").value("docs/guide.md"),
+            jsonPath("$.results[1].document.path").value("/home/docs"),
+            jsonPath("$.results[1].document.name").value("guide.md"),
+            jsonPath("$.results[2].name").value("docs/api/spec.txt"),
+            jsonPath("$.results[2].document.path").value("/home/docs/api"),
+            jsonPath("$.results[3].name").value("bad dir/file.txt"),
+            jsonPath("$.results[3].status").value("FAILED"),
+            jsonPath("$.results[4].name").value("document.txt"),
+            jsonPath("$.results[4].status").value("CONFLICT")
+        );
+
+        Document specification = documentRepository.findAllByAuthor(author)
+                                                    .stream()
+                                                    .filter(document -> document.getName().equals("spec.txt"))
+                                                    .findFirst()
+                                                    .orElseThrow();
+
+        assertThat(specification.getPath()).isEqualTo("/home/docs/api");
+        assertThat(blobStorageService.getBlob(specification.getHash()).getContentAsString(StandardCharsets.UTF_8)).isEqualTo("content of docs/api/spec.txt");
+
+        mvc.perform(get("/imports/{importId}", importId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isOk(),
+               jsonPath("$.status").value("COMPLETED"),
+               jsonPath("$.results.length()").value(5)
+           );
+    }
+
+    @Test
+    void shouldNotImportArchiveTwice() throws Exception {
+        String importId = createImport(author, "/home");
+        byte[] archive = createArchive("readme.txt");
+
+        uploadArchive(author, importId, archive).andExpect(status().isOk());
+
+        uploadArchive(author, importId, archive).andExpectAll(
+            status().isBadRequest(),
+            content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+            jsonPath("$.detail").value(containsString("already uploaded"))
+        );
+    }
+
+    @Test
+    void shouldNotImportArchiveToImportOfAnotherUser() throws Exception {
+        String importId = createImport(author, "/home");
+
+        uploadArchive(anotherUser, importId, createArchive("readme.txt")).andExpectAll(
+            status().isNotFound(),
+            content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+            jsonPath("$.detail").value(containsString("not found"))
+        );
+
+        mvc.perform(get("/imports/{importId}", importId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isOk(),
+               jsonPath("$.status").value("PENDING")
+           );
+    }
+
+    @Test
+    void shouldNotReturnImportWhenImportIsNotFound() throws Exception {
+        mvc.perform(get("/imports/{importId}", "65be38e5-a749-4dc7-b6d4-8ca2c150aaed")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isNotFound(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("not found"))
+           );
+    }
+
+    @Test
+    void shouldNotCreateImportWhenUserIsNotAuthenticated() throws Exception {
+        mvc.perform(post("/imports")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"path\":\"/home\"}"))
+           .andExpect(status().isUnauthorized());
+    }
+
+    private String createImport(User user, String path) throws Exception {
+        MvcResult result = mvc.perform(post("/imports")
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(user.getEmail())))
+                                  .contentType(MediaType.APPLICATION_JSON)
+                                  .content("{\"path\":\"" + path + "\"}"))
+                              .andExpect(status().isCreated())
+                              .andReturn();
+
+        return JsonPath.read(result.getResponse().getContentAsString(), "$.importId");
+    }
+
+    private ResultActions uploadArchive(User user, String importId, byte[] archive) throws Exception {
+        return mvc.perform(put("/imports/{importId}/archive", importId)
+                      .with(jwt().authorities(authority).jwt(JwtManager.createJwt(user.getEmail())))
+                      .contentType(APPLICATION_ZIP)
+                      .content(archive));
+    }
+
+    private byte[] createArchive(String... entryNames) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (String entryName : entryNames) {
+                zipOutputStream.putNextEntry(new ZipEntry(entryName));
+
+                if (!entryName.endsWith("/")) {
+                    zipOutputStream.write(("content of " + entryName).getBytes(StandardCharsets.UTF_8));
+                }
+
+                zipOutputStream.closeEntry();
+            }
+        }
+
+        return outputStream.toByteArray();
+    }
+
+}
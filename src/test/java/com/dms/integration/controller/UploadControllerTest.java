@@ -0,0 +1,345 @@
+package com.dms.integration.controller;
+
+import com.dms.config.BlobStorageProperties;
+import com.dms.entity.Document;
+import com.dms.entity.Role;
+import com.dms.entity.User;
+import com.dms.repository.BlobRepository;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.UserRepository;
+import com.dms.service.BlobStorageService;
+import com.dms.util.DirectoryCleaner;
+import com.dms.util.JwtManager;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@Transactional
+@AutoConfigureMockMvc
+class UploadControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private BlobStorageProperties blobStorageProperties;
+
+    // larger than the maximal multipart request size of the tests, which doesn't apply to the chunks
+    private final byte[] content = "content uploaded in several chunks".getBytes(StandardCharsets.UTF_8);
+
+    private User author;
+    private User anotherUser;
+    private Document document;
+
+    private final SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + Role.USER.name());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DirectoryCleaner.cleanDirectory(blobStorageProperties.getPath());
+
+        author = userRepository.save(User.builder()
+                                         .email("james@gmail.com")
+                                         .name("james")
+                                         .password("secret123!")
+                                         .role(Role.USER)
+                                         .build());
+
+        anotherUser = userRepository.save(User.builder()
+                                              .email("john@gmail.com")
+                                              .name("john")
+                                              .password("secret123!")
+                                              .role(Role.USER)
+                                              .build());
+
+        document = documentRepository.save(Document.builder()
+                                                   .author(author)
+                                                   .version(1L)
+                                                   .nextRevisionVersion(2L)
+                                                   .name("document.txt")
+                                                   .type(MediaType.TEXT_PLAIN_VALUE)
+                                                   .path("/")
+                                                   .size(5L)
+                                                   .hash("ab".repeat(32))
+                                                   .isArchived(false)
+                                                   .build());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DirectoryCleaner.cleanDirectory(blobStorageProperties.getPath());
+    }
+
+    @Test
+    void shouldCreateUpload() throws Exception {
+        mvc.perform(post("/uploads")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"size\":" + content.length + ",\"name\":\"chunks.txt\",\"path\":\"/home\"}"))
+           .andExpectAll(
+               status().isCreated(),
+               content().contentType(MediaType.APPLICATION_JSON),
+               jsonPath("$.uploadId").isNotEmpty(),
+               jsonPath("$.name").value("chunks.txt"),
+               jsonPath("$.path").value("/home"),
+               jsonPath("$.size").value(content.length),
+               jsonPath("$.receivedSize").value(0),
+               jsonPath("$.receivedRanges").isEmpty(),
+               jsonPath("$.expiresAt").isNotEmpty()
+           );
+    }
+
+    @Test
+    void shouldNotCreateUploadWhenPathOfNewDocumentIsMissing() throws Exception {
+        mvc.perform(post("/uploads")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"size\":" + content.length + ",\"name\":\"chunks.txt\"}"))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("Path"))
+           );
+    }
+
+    @Test
+    void shouldNotCreateUploadWhenSizeExceedsMaximalUploadSize() throws Exception {
+        mvc.perform(post("/uploads")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"size\":" + Long.MAX_VALUE + ",\"name\":\"chunks.txt\",\"path\":\"/home\"}"))
+           .andExpectAll(
+               status().isPayloadTooLarge(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+           );
+    }
+
+    @Test
+    void shouldNotCreateUploadWhenDocumentIsNotFound() throws Exception {
+        mvc.perform(post("/uploads")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail())))
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"size\":" + content.length + ",\"name\":\"chunks.txt\",\"documentId\":\"65be38e5-a749-4dc7-b6d4-8ca2c150aaed\"}"))
+           .andExpectAll(
+               status().isNotFound(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("not found"))
+           );
+    }
+
+    @Test
+    void shouldNotCreateUploadWhenUserIsNotAuthenticated() throws Exception {
+        mvc.perform(post("/uploads")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"size\":" + content.length + ",\"name\":\"chunks.txt\",\"path\":\"/home\"}"))
+           .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void shouldUploadChunksOutOfOrderAndCommitDocument() throws Exception {
+        String uploadId = createUpload(author, "{\"size\":" + content.length + ",\"name\":\"chunks.txt\",\"type\":\"text/plain\",\"path\":\"/home\"}");
+
+        uploadChunk(author, uploadId, 20, content.length).andExpectAll(
+            status().isOk(),
+            jsonPath("$.receivedSize").value(content.length - 20),
+            jsonPath("$.receivedRanges[0].offset").value(20),
+            jsonPath("$.receivedRanges[0].length").value(content.length - 20)
+        );
+
+        mvc.perform(get("/uploads/{uploadId}", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isOk(),
+               jsonPath("$.uploadId").value(uploadId),
+               jsonPath("$.receivedRanges.length()").value(1)
+           );
+
+        uploadChunk(author, uploadId, 0, 20).andExpectAll(
+            status().isOk(),
+            jsonPath("$.receivedSize").value(content.length),
+            jsonPath("$.receivedRanges[0].offset").value(0),
+            jsonPath("$.receivedRanges[0].length").value(content.length)
+        );
+
+        MvcResult commit = mvc.perform(post("/uploads/{uploadId}/commit", uploadId)
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+                              .andExpectAll(
+                                  status().isCreated(),
+                                  content().contentType(MediaType.APPLICATION_JSON),
+                                  jsonPath("$.documentId").isNotEmpty(),
+                                  jsonPath("$.version").value(1L),
+                                  jsonPath("$.name").value("chunks.txt"),
+                                  jsonPath("$.type").value(MediaType.TEXT_PLAIN_VALUE),
+                                  jsonPath("$.path").value("/home"),
+                                  jsonPath("$.size").value(content.length)
+                              )
+                              .andReturn();
+
+        String documentId = JsonPath.read(commit.getResponse().getContentAsString(), "$.documentId");
+        Document uploadedDocument = documentRepository.findByDocumentIdAndAuthor(documentId, author).orElseThrow();
+
+        assertThat(blobStorageService.getBlob(uploadedDocument.getHash()).getContentAsByteArray()).isEqualTo(content);
+        assertThat(blobRepository.findById(uploadedDocument.getHash())).isPresent();
+
+        mvc.perform(get("/uploads/{uploadId}", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldCommitUploadAsNewDocumentVersion() throws Exception {
+        String uploadId = createUpload(author, "{\"size\":" + content.length + ",\"name\":\"chunks.txt\",\"documentId\":\"" + document.getDocumentId() + "\"}");
+
+        uploadChunk(author, uploadId, 0, content.length).andExpect(status().isOk());
+
+        mvc.perform(post("/uploads/{uploadId}/commit", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isCreated(),
+               jsonPath("$.documentId").value(document.getDocumentId()),
+               jsonPath("$.version").value(2L),
+               jsonPath("$.name").value("chunks.txt"),
+               jsonPath("$.path").value(document.getPath()),
+               jsonPath("$.size").value(content.length)
+           );
+    }
+
+    @Test
+    void shouldNotCommitIncompleteUpload() throws Exception {
+        String uploadId = createUpload(author, "{\"size\":" + content.length + ",\"name\":\"chunks.txt\",\"path\":\"/home\"}");
+
+        uploadChunk(author, uploadId, 20, content.length).andExpect(status().isOk());
+
+        mvc.perform(post("/uploads/{uploadId}/commit", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isBadRequest(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("not complete"))
+           );
+
+        mvc.perform(get("/uploads/{uploadId}", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldNotUploadChunkPastEndOfFile() throws Exception {
+        String uploadId = createUpload(author, "{\"size\":10,\"name\":\"chunks.txt\",\"path\":\"/home\"}");
+
+        uploadChunk(author, uploadId, 0, content.length).andExpectAll(
+            status().isBadRequest(),
+            content().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+        );
+
+        mvc.perform(get("/uploads/{uploadId}", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isOk(),
+               jsonPath("$.receivedSize").value(0)
+           );
+    }
+
+    @Test
+    void shouldNotUploadChunkToUploadOfAnotherUser() throws Exception {
+        String uploadId = createUpload(author, "{\"size\":" + content.length + ",\"name\":\"chunks.txt\",\"path\":\"/home\"}");
+
+        uploadChunk(anotherUser, uploadId, 0, content.length).andExpectAll(
+            status().isNotFound(),
+            content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+            jsonPath("$.detail").value(containsString("not found"))
+        );
+
+        mvc.perform(get("/uploads/{uploadId}", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(anotherUser.getEmail()))))
+           .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldNotReturnUploadWhenUploadIsNotFound() throws Exception {
+        mvc.perform(get("/uploads/{uploadId}", "65be38e5-a749-4dc7-b6d4-8ca2c150aaed")
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpectAll(
+               status().isNotFound(),
+               content().contentType(MediaType.APPLICATION_PROBLEM_JSON),
+               jsonPath("$.detail").value(containsString("not found"))
+           );
+    }
+
+    @Test
+    void shouldDeleteUpload() throws Exception {
+        String uploadId = createUpload(author, "{\"size\":" + content.length + ",\"name\":\"chunks.txt\",\"path\":\"/home\"}");
+
+        uploadChunk(author, uploadId, 0, content.length).andExpect(status().isOk());
+
+        mvc.perform(delete("/uploads/{uploadId}", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpect(status().isNoContent());
+
+        mvc.perform(post("/uploads/{uploadId}/commit", uploadId)
+               .with(jwt().authorities(authority).jwt(JwtManager.createJwt(author.getEmail()))))
+           .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldNotDeleteUploadWhenUserIsNotAuthenticated() throws Exception {
+        mvc.perform(delete("/uploads/{uploadId}", "65be38e5-a749-4dc7-b6d4-8ca2c150aaed"))
+           .andExpect(status().isUnauthorized());
+    }
+
+    private String createUpload(User user, String request) throws Exception {
+        MvcResult result = mvc.perform(post("/uploads")
+                                  .with(jwt().authorities(authority).jwt(JwtManager.createJwt(user.getEmail())))
+                                  .contentType(MediaType.APPLICATION_JSON)
+                                  .content(request))
+                              .andExpect(status().isCreated())
+                              .andReturn();
+
+        return JsonPath.read(result.getResponse().getContentAsString(), "$.uploadId");
+    }
+
+    private ResultActions uploadChunk(User user, String uploadId, int from, int to) throws Exception {
+        return mvc.perform(put("/uploads/{uploadId}/chunks/{offset}", uploadId, from)
+                      .with(jwt().authorities(authority).jwt(JwtManager.createJwt(user.getEmail())))
+                      .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                      .content(Arrays.copyOfRange(content, from, to)));
+    }
+
+}
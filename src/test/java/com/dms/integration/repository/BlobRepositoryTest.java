@@ -0,0 +1,136 @@
+package com.dms.integration.repository;
+
+import com.dms.entity.Blob;
+import com.dms.entity.BlobState;
+import com.dms.repository.BlobRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class BlobRepositoryTest {
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Blob blob;
+
+    @BeforeEach
+    void setUp() {
+        blob = Blob.builder()
+                   .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
+                   .referenceCount(1L)
+                   .size(20207L)
+                   .state(BlobState.STORED)
+                   .build();
+
+        blob = blobRepository.save(blob);
+    }
+
+    @Test
+    void shouldIncrementReferenceCount() {
+        int updatedBlobCount = blobRepository.incrementReferenceCount(blob.getHash());
+
+        assertThat(updatedBlobCount).isEqualTo(1);
+        assertThat(findBlob().getReferenceCount()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldNotIncrementReferenceCountOfUnknownBlob() {
+        int updatedBlobCount = blobRepository.incrementReferenceCount("185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969");
+
+        assertThat(updatedBlobCount).isZero();
+    }
+
+    @Test
+    void shouldMarkBlobAsOrphanedWhenLastReferenceIsRemoved() {
+        int updatedBlobCount = blobRepository.decrementReferenceCount(blob.getHash(), 1);
+        int orphanedBlobCount = blobRepository.markOrphaned(blob.getHash());
+
+        Blob orphanedBlob = findBlob();
+
+        assertThat(updatedBlobCount).isEqualTo(1);
+        assertThat(orphanedBlobCount).isEqualTo(1);
+        assertThat(orphanedBlob.getReferenceCount()).isZero();
+        assertThat(orphanedBlob.getState()).isEqualTo(BlobState.ORPHANED);
+        assertThat(blobRepository.isReferenced(blob.getHash())).isFalse();
+    }
+
+    @Test
+    void shouldNotDecrementReferenceCountBelowZero() {
+        int updatedBlobCount = blobRepository.decrementReferenceCount(blob.getHash(), 2);
+
+        assertThat(updatedBlobCount).isZero();
+        assertThat(findBlob().getReferenceCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldNotMarkReferencedBlobAsOrphaned() {
+        blobRepository.incrementReferenceCount(blob.getHash());
+        blobRepository.decrementReferenceCount(blob.getHash(), 1);
+
+        int orphanedBlobCount = blobRepository.markOrphaned(blob.getHash());
+
+        assertThat(orphanedBlobCount).isZero();
+        assertThat(blobRepository.isReferenced(blob.getHash())).isTrue();
+    }
+
+    @Test
+    void shouldReviveOrphanedBlob() {
+        blobRepository.decrementReferenceCount(blob.getHash(), 1);
+        blobRepository.markOrphaned(blob.getHash());
+
+        int revivedBlobCount = blobRepository.reviveOrphaned(blob.getHash());
+
+        Blob revivedBlob = findBlob();
+
+        assertThat(revivedBlobCount).isEqualTo(1);
+        assertThat(revivedBlob.getReferenceCount()).isEqualTo(1L);
+        assertThat(revivedBlob.getState()).isEqualTo(BlobState.STORED);
+    }
+
+    @Test
+    void shouldNotReviveReferencedBlob() {
+        int revivedBlobCount = blobRepository.reviveOrphaned(blob.getHash());
+
+        assertThat(revivedBlobCount).isZero();
+        assertThat(findBlob().getReferenceCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldStoreOrphanedBlobAgainWhenItIsReferenced() {
+        blobRepository.decrementReferenceCount(blob.getHash(), 1);
+        blobRepository.markOrphaned(blob.getHash());
+
+        blobRepository.incrementReferenceCount(blob.getHash());
+
+        assertThat(findBlob().getState()).isEqualTo(BlobState.STORED);
+    }
+
+    @Test
+    void shouldFindStateChangedByUpdateQuery() {
+        blobRepository.decrementReferenceCount(blob.getHash(), 1);
+        blobRepository.markOrphaned(blob.getHash());
+
+        assertThat(blobRepository.findStateForUpdate(blob.getHash())).contains(BlobState.ORPHANED);
+    }
+
+    @Test
+    void shouldNotFindStateOfUnknownBlob() {
+        assertThat(blobRepository.findStateForUpdate("185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969")).isEmpty();
+    }
+
+    private Blob findBlob() {
+        entityManager.clear();
+        return blobRepository.findById(blob.getHash())
+                             .orElseThrow();
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.dms.integration.repository;
+
+import com.dms.entity.Chunk;
+import com.dms.repository.ChunkRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ChunkRepositoryTest {
+
+    private static final String FIRST_HASH = "1b4f0e9851971998e732078544c96b36c3d01cedf7caa332359d6f1d83567014";
+    private static final String SECOND_HASH = "60303ae22b998861bce3b28f33eec1be758a213c86c93c076dbe9f558c11c752";
+    private static final String UNKNOWN_HASH = "fd61a03af4f77d870fc21e05e7e80678095c92d808cfb3b5c279ee04c74aca13";
+
+    @Autowired
+    private ChunkRepository chunkRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        chunkRepository.insert(SECOND_HASH, 0, 8192);
+        chunkRepository.insert(FIRST_HASH, 2, 4096);
+    }
+
+    @Test
+    void shouldFindChunksOrderedByHash() {
+        List<Chunk> chunks = chunkRepository.findAllByHashesForUpdate(List.of(SECOND_HASH, UNKNOWN_HASH, FIRST_HASH));
+
+        assertThat(chunks).extracting(Chunk::getHash)
+                          .containsExactly(FIRST_HASH, SECOND_HASH);
+        assertThat(chunks.get(0).getReferenceCount()).isEqualTo(2L);
+        assertThat(chunks.get(0).getSize()).isEqualTo(4096L);
+    }
+
+    @Test
+    void shouldDecrementReferenceCount() {
+        int updatedChunkCount = chunkRepository.decrementReferenceCount(FIRST_HASH, 2);
+
+        assertThat(updatedChunkCount).isEqualTo(1);
+        assertThat(findChunk(FIRST_HASH).getReferenceCount()).isZero();
+    }
+
+    @Test
+    void shouldNotDecrementReferenceCountBelowZero() {
+        int updatedChunkCount = chunkRepository.decrementReferenceCount(FIRST_HASH, 3);
+
+        assertThat(updatedChunkCount).isZero();
+        assertThat(findChunk(FIRST_HASH).getReferenceCount()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldFindOnlyUnreferencedChunks() {
+        chunkRepository.decrementReferenceCount(FIRST_HASH, 2);
+        chunkRepository.insert(UNKNOWN_HASH, 0, 1024);
+
+        List<Chunk> chunks = chunkRepository.findUnreferencedForUpdate(PageRequest.ofSize(2));
+
+        assertThat(chunks).extracting(Chunk::getHash)
+                          .containsExactly(FIRST_HASH, SECOND_HASH);
+    }
+
+    private Chunk findChunk(String hash) {
+        entityManager.clear();
+        return chunkRepository.findById(hash).orElseThrow();
+    }
+
+}
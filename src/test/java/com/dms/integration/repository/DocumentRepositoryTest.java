@@ -4,17 +4,21 @@ import com.dms.entity.Document;
 import com.dms.entity.Role;
 import com.dms.entity.User;
 import com.dms.repository.DocumentRepository;
+import com.dms.repository.ExpiredDocument;
 import com.dms.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 class DocumentRepositoryTest {
@@ -94,7 +98,7 @@ class DocumentRepositoryTest {
                                            .author(author)
                                            .documentId("de5bebab-dc1c-4bc2-bf41-8039c076b63e")
                                            .version(1L)
-                                           .name("dog.jpeg")
+                                           .name("cat.jpeg")
                                            .type("image/jpeg")
                                            .path("/test")
                                            .size(20207L)
@@ -134,7 +138,7 @@ class DocumentRepositoryTest {
                                            .author(author)
                                            .documentId("de5bebab-dc1c-4bc2-bf41-8039c076b63e")
                                            .version(1L)
-                                           .name("dog.jpeg")
+                                           .name("cat.jpeg")
                                            .type("image/jpeg")
                                            .path("/test")
                                            .size(20207L)
@@ -152,87 +156,124 @@ class DocumentRepositoryTest {
     }
 
     @Test
-    void shouldReturnTrueWhenTwoEqualHashesExist() {
-        Document anotherDocument = Document.builder()
-                                           .author(author)
-                                           .documentId("de5bebab-dc1c-4bc2-bf41-8039c076b63e")
-                                           .version(1L)
-                                           .name("dog.jpeg")
-                                           .type("image/jpeg")
-                                           .path("/test")
-                                           .size(20207L)
-                                           .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
-                                           .isArchived(false)
-                                           .createdAt(LocalDateTime.parse("2023-11-14T08:30:00"))
-                                           .updatedAt(LocalDateTime.parse("2023-11-14T08:30:00"))
-                                           .build();
+    void shouldNotSaveDocumentWithSamePathAndNameOfTheSameAuthor() {
+        Document duplicateDocument = copyDocument(document, author);
 
-        documentRepository.save(anotherDocument);
+        assertThatThrownBy(() -> documentRepository.saveAndFlush(duplicateDocument)).isInstanceOf(DataIntegrityViolationException.class)
+                                                                                   .hasMessageContaining("UK_DOCUMENT_USER_PATH_NAME");
+    }
 
-        boolean duplicateHashExists = documentRepository.duplicateHashExists(document.getHash());
+    @Test
+    void shouldSaveDocumentWithSamePathAndNameOfAnotherAuthor() {
+        User anotherAuthor = User.builder()
+                                 .userId("ad9f1826-f847-4069-b57c-938b8d843c1d")
+                                 .name("john")
+                                 .email("john@gmail.com")
+                                 .password("password123!")
+                                 .role(Role.USER)
+                                 .build();
+
+        anotherAuthor = userRepository.save(anotherAuthor);
+
+        Document savedDocument = documentRepository.saveAndFlush(copyDocument(document, anotherAuthor));
 
-        assertThat(duplicateHashExists).isTrue();
+        assertThat(documentRepository.existsById(savedDocument.getId())).isTrue();
     }
 
     @Test
-    void shouldReturnFalseWhenNoDuplicateHashesExist() {
-        Document anotherDocument = Document.builder()
-                                           .author(author)
-                                           .documentId("de5bebab-dc1c-4bc2-bf41-8039c076b63e")
-                                           .version(1L)
-                                           .name("dog.jpeg")
-                                           .type("image/jpeg")
-                                           .path("/test")
-                                           .size(20207L)
-                                           .hash("04cda4ddf5773cbc4f80452696112091f60380015b17973aae8a11f3d92e7c7d")
-                                           .isArchived(false)
-                                           .createdAt(LocalDateTime.parse("2023-11-14T08:30:00"))
-                                           .updatedAt(LocalDateTime.parse("2023-11-14T08:30:00"))
-                                           .build();
+    void shouldFindExpiredDocumentsOrderedByDeleteAt() {
+        Document laterExpiredDocument = archiveDocument("7c1d6c2a-6b42-4c8e-a0b3-8d4f0a3c2f11", LocalDateTime.parse("2024-01-02T00:00:00"));
+        Document earlierExpiredDocument = archiveDocument("0f4a7f2e-5b1e-4b57-9d2e-2c7b6a8e9d10", LocalDateTime.parse("2024-01-01T00:00:00"));
+        archiveDocument("d2b8a4c6-1e0f-4a3b-8c5d-6e7f8a9b0c1d", LocalDateTime.parse("2024-02-01T00:00:00"));
 
-        documentRepository.save(anotherDocument);
+        List<ExpiredDocument> expiredDocuments = documentRepository.findExpiredDocuments(LocalDateTime.parse("2024-01-15T00:00:00"), PageRequest.ofSize(10));
 
-        boolean duplicateHashExists = documentRepository.duplicateHashExists(document.getHash());
+        assertThat(expiredDocuments).extracting(ExpiredDocument::getId)
+                                    .containsExactly(earlierExpiredDocument.getId(), laterExpiredDocument.getId());
+    }
 
-        assertThat(duplicateHashExists).isFalse();
+    @Test
+    void shouldFindExpiredDocumentsAfterCheckpoint() {
+        Document laterExpiredDocument = archiveDocument("7c1d6c2a-6b42-4c8e-a0b3-8d4f0a3c2f11", LocalDateTime.parse("2024-01-02T00:00:00"));
+        Document earlierExpiredDocument = archiveDocument("0f4a7f2e-5b1e-4b57-9d2e-2c7b6a8e9d10", LocalDateTime.parse("2024-01-01T00:00:00"));
+
+        List<ExpiredDocument> expiredDocuments = documentRepository.findExpiredDocumentsAfter(
+            LocalDateTime.parse("2024-01-15T00:00:00"),
+            earlierExpiredDocument.getDeleteAt(),
+            earlierExpiredDocument.getId(),
+            PageRequest.ofSize(10)
+        );
+
+        assertThat(expiredDocuments).extracting(ExpiredDocument::getId)
+                                    .containsExactly(laterExpiredDocument.getId());
     }
 
     @Test
-    void shouldReturnTrueWhenDocumentExistsAtPathForGivenAuthor() {
-        boolean duplicateDocumentExists = documentRepository.documentWithPathAlreadyExists(document.getName(), document.getPath(), document.getAuthor());
+    void shouldDeleteDocumentsByIds() {
+        int deletedDocumentCount = documentRepository.deleteAllByIds(List.of(document.getId()));
 
-        assertThat(duplicateDocumentExists).isTrue();
+        assertThat(deletedDocumentCount).isEqualTo(1);
+        assertThat(documentRepository.existsById(document.getId())).isFalse();
     }
 
     @Test
-    void shouldReturnFalseWhenTwoDistinctDocumentNamesWithSamePathAndAuthorExist() {
-        boolean duplicateDocumentExists = documentRepository.documentWithPathAlreadyExists("cat.jpeg", document.getPath(), document.getAuthor());
+    void shouldAllocateConsecutiveIdsFromOneSequenceValue() {
+        Document firstDocument = archiveDocument("0d2fae5d-8a86-4bd2-9a0c-3c8e0a0cb6a4", LocalDateTime.now());
+        Document secondDocument = archiveDocument("5c1bd0a2-6a7e-4b3c-a8f1-1f8e6a2b9d51", LocalDateTime.now());
 
-        assertThat(duplicateDocumentExists).isFalse();
+        assertThat(firstDocument.getId()).isEqualTo(document.getId() + 1);
+        assertThat(secondDocument.getId()).isEqualTo(document.getId() + 2);
     }
 
     @Test
-    void shouldReturnFalseWhenTwoDistinctPathsWithSameDocumentNameAndAuthorExist() {
-        boolean duplicateDocumentExists = documentRepository.documentWithPathAlreadyExists(document.getName(), "/home", document.getAuthor());
+    void shouldInitializeNextRevisionVersionAfterCurrentVersion() {
+        assertThat(documentRepository.findNextRevisionVersion(document.getId())).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldIncrementNextRevisionVersion() {
+        int updatedDocumentCount = documentRepository.incrementNextRevisionVersion(document.getId());
 
-        assertThat(duplicateDocumentExists).isFalse();
+        assertThat(updatedDocumentCount).isEqualTo(1);
+        assertThat(documentRepository.findNextRevisionVersion(document.getId())).isEqualTo(3L);
     }
 
     @Test
-    void shouldReturnFalseWhenTwoDistinctAuthorsOfTheSameDocumentExist() {
-        User anotherAuthor = User.builder()
-                                 .userId("ad9f1826-f847-4069-b57c-938b8d843c1d")
-                                 .name("john")
-                                 .email("john@gmail.com")
-                                 .password("password123!")
-                                 .role(Role.USER)
-                                 .build();
+    void shouldDecrementNextRevisionVersion() {
+        int updatedDocumentCount = documentRepository.decrementNextRevisionVersion(document.getId());
 
-        anotherAuthor = userRepository.save(anotherAuthor);
+        assertThat(updatedDocumentCount).isEqualTo(1);
+        assertThat(documentRepository.findNextRevisionVersion(document.getId())).isEqualTo(1L);
+    }
 
-        boolean documentExists = documentRepository.documentWithPathAlreadyExists(document.getName(), document.getPath(), anotherAuthor);
+    private Document archiveDocument(String documentId, LocalDateTime deleteAt) {
+        Document archivedDocument = Document.builder()
+                                            .author(author)
+                                            .documentId(documentId)
+                                            .version(1L)
+                                            .name(documentId + ".jpeg")
+                                            .type("image/jpeg")
+                                            .path("/archive")
+                                            .size(20207L)
+                                            .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
+                                            .isArchived(true)
+                                            .deleteAt(deleteAt)
+                                            .build();
+
+        return documentRepository.save(archivedDocument);
+    }
 
-        assertThat(documentExists).isFalse();
+    private static Document copyDocument(Document document, User author) {
+        return Document.builder()
+                       .author(author)
+                       .version(1L)
+                       .name(document.getName())
+                       .type(document.getType())
+                       .path(document.getPath())
+                       .size(document.getSize())
+                       .hash(document.getHash())
+                       .isArchived(false)
+                       .build();
     }
 
-}
\ No newline at end of file
+}
@@ -11,12 +11,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -156,50 +152,6 @@ class DocumentRevisionRepositoryTest {
         assertThat(foundRevision).isEmpty();
     }
 
-    @Test
-    void shouldFindTwoRevisions() {
-        DocumentRevision anotherRevision = DocumentRevision.builder()
-                                                           .revisionId("57c00a2f-8435-4ea4-91d9-e195680dea37")
-                                                           .author(revision.getAuthor())
-                                                           .document(revision.getDocument())
-                                                           .version(1L)
-                                                           .name("dog.jpeg")
-                                                           .type("image/jpeg")
-                                                           .size(20207L)
-                                                           .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
-                                                           .createdAt(LocalDateTime.parse("2023-11-14T08:30:01"))
-                                                           .build();
-
-        revisionRepository.save(anotherRevision);
-
-        int revisionCount = revisionRepository.findAllByDocumentOrderByCreatedAtAsc(revision.getDocument())
-                                              .size();
-
-        assertThat(revisionCount).isEqualTo(2);
-    }
-
-    @Test
-    void shouldReturnTwoRevisionsOrderedByCreatedAtAsc() {
-        DocumentRevision anotherRevision = DocumentRevision.builder()
-                                                           .revisionId("57c00a2f-8435-4ea4-91d9-e195680dea37")
-                                                           .author(revision.getAuthor())
-                                                           .document(revision.getDocument())
-                                                           .version(1L)
-                                                           .name("dog.jpeg")
-                                                           .type("image/jpeg")
-                                                           .size(20207L)
-                                                           .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
-                                                           .createdAt(LocalDateTime.parse("2023-11-14T08:30:00").minusHours(1))
-                                                           .build();
-
-        revisionRepository.save(anotherRevision);
-
-        List<DocumentRevision> revisions = revisionRepository.findAllByDocumentOrderByCreatedAtAsc(revision.getDocument());
-
-        assertThat(revisions).extracting(DocumentRevision::getCreatedAt)
-                             .isSortedAccordingTo(Comparator.naturalOrder());
-    }
-
     @Test
     void shouldDeleteRevision() {
         revisionRepository.deleteByRevisionId(revision.getRevisionId());
@@ -218,63 +170,6 @@ class DocumentRevisionRepositoryTest {
         assertThat(foundRevision).isPresent();
     }
 
-    @Test
-    void shouldReturnRevisionCountForDocument() {
-        Integer revisionCount = revisionRepository.countAllByDocument(revision.getDocument());
-
-        assertThat(revisionCount).isEqualTo(1);
-    }
-
-    @Test
-    void shouldReturnPagedRevisionsForDocument() {
-        Page<DocumentRevision> revisions = revisionRepository.findAllByDocument(revision.getDocument(), PageRequest.of(0, 2));
-
-        assertThat(revisions).isNotEmpty();
-        assertThat(revisions.getTotalElements()).isEqualTo(1);
-    }
-
-    @Test
-    void shouldReturnTrueWhenTwoDuplicateHashesExist() {
-        DocumentRevision anotherRevision = DocumentRevision.builder()
-                                                           .revisionId("57c00a2f-8435-4ea4-91d9-e195680dea37")
-                                                           .author(revision.getAuthor())
-                                                           .document(revision.getDocument())
-                                                           .version(1L)
-                                                           .name("dog.jpeg")
-                                                           .type("image/jpeg")
-                                                           .size(20207L)
-                                                           .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
-                                                           .createdAt(LocalDateTime.parse("2023-11-14T08:30:01"))
-                                                           .build();
-
-        revisionRepository.save(anotherRevision);
-
-        boolean duplicateHashExists = revisionRepository.duplicateHashExists(revision.getHash());
-
-        assertThat(duplicateHashExists).isTrue();
-    }
-
-    @Test
-    void shouldReturnFalseWhenTwoDistinctHashesExist() {
-        DocumentRevision anotherRevision = DocumentRevision.builder()
-                                                           .revisionId("57c00a2f-8435-4ea4-91d9-e195680dea37")
-                                                           .author(revision.getAuthor())
-                                                           .document(revision.getDocument())
-                                                           .version(1L)
-                                                           .name("dog.jpeg")
-                                                           .type("image/jpeg")
-                                                           .size(20207L)
-                                                           .hash("04cda4ddf5773cbc4f80452696112091f60380015b17973aae8a11f3d92e7c7d")
-                                                           .createdAt(LocalDateTime.parse("2023-11-14T08:30:01"))
-                                                           .build();
-
-        revisionRepository.save(anotherRevision);
-
-        boolean duplicateHashExists = revisionRepository.duplicateHashExists(revision.getHash());
-
-        assertThat(duplicateHashExists).isFalse();
-    }
-
     @Test
     void shouldFindPreviousRevision() {
         DocumentRevision anotherRevision = DocumentRevision.builder()
@@ -304,7 +199,7 @@ class DocumentRevisionRepositoryTest {
                                     .version(1L)
                                     .name("dog.jpeg")
                                     .type("image/jpeg")
-                                    .path("/test")
+                                    .path("/home")
                                     .size(20207L)
                                     .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
                                     .isArchived(false)
@@ -355,7 +250,7 @@ class DocumentRevisionRepositoryTest {
                                     .version(1L)
                                     .name("dog.jpeg")
                                     .type("image/jpeg")
-                                    .path("/test")
+                                    .path("/home")
                                     .size(20207L)
                                     .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
                                     .isArchived(false)
@@ -378,69 +273,26 @@ class DocumentRevisionRepositoryTest {
     }
 
     @Test
-    void shouldFindLastRevisionVersionByDocument() {
-        Optional<Long> revisionVersion = revisionRepository.findLastRevisionVersionByDocument(revision.getDocument());
-
-        assertThat(revisionVersion).isPresent()
-                                   .contains(1L);
-    }
-
-    @Test
-    void shouldFindLastRevisionVersionEqualToThreeWhenThreeRevisionsExist() {
-        DocumentRevision firstRevision = DocumentRevision.builder()
-                                                           .revisionId("57c00a2f-8435-4ea4-91d9-e195680dea37")
-                                                           .author(revision.getAuthor())
-                                                           .document(revision.getDocument())
-                                                           .version(2L)
-                                                           .name("dog.jpeg")
-                                                           .type("image/jpeg")
-                                                           .size(20207L)
-                                                           .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
-                                                           .createdAt(LocalDateTime.parse("2023-11-14T08:30:01"))
-                                                           .build();
-
-        DocumentRevision secondRevision = DocumentRevision.builder()
-                                                            .revisionId("8d118708-9e09-4053-883d-8c2079f5c0a3")
-                                                            .author(revision.getAuthor())
-                                                            .document(revision.getDocument())
-                                                            .version(3L)
-                                                            .name("dog.jpeg")
-                                                            .type("image/jpeg")
-                                                            .size(65656L)
-                                                            .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
-                                                            .createdAt(LocalDateTime.parse("2023-11-14T08:30:01"))
-                                                            .build();
-
-        revisionRepository.save(firstRevision);
-        revisionRepository.save(secondRevision);
-
-        Optional<Long> revisionVersion = revisionRepository.findLastRevisionVersionByDocument(revision.getDocument());
-
-        assertThat(revisionVersion).isPresent()
-                                   .contains(3L);
-    }
-
-    @Test
-    void shouldNotFindRevisionVersionWhenDocumentIsInvalid() {
-        Document document = Document.builder()
-                                    .author(revision.getAuthor())
-                                    .documentId("8d118708-9e09-4053-883d-8c2079f5c0a3")
-                                    .version(1L)
-                                    .name("dog.jpeg")
-                                    .type("image/jpeg")
-                                    .path("/test")
-                                    .size(20207L)
-                                    .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
-                                    .isArchived(false)
-                                    .createdAt(LocalDateTime.parse("2023-11-14T08:30:00"))
-                                    .updatedAt(LocalDateTime.parse("2023-11-14T08:30:00"))
-                                    .build();
-
-        document = documentRepository.save(document);
-
-        Optional<Long> revisionVersion = revisionRepository.findLastRevisionVersionByDocument(document);
-
-        assertThat(revisionVersion).isEmpty();
+    void shouldDecrementVersionsOfLaterRevisions() {
+        DocumentRevision laterRevision = DocumentRevision.builder()
+                                                         .revisionId("3f5e2d1c-7a4b-4c8d-9e0f-1a2b3c4d5e6f")
+                                                         .author(revision.getAuthor())
+                                                         .document(revision.getDocument())
+                                                         .version(3L)
+                                                         .name("cat.jpeg")
+                                                         .type("image/jpeg")
+                                                         .size(20207L)
+                                                         .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
+                                                         .createdAt(LocalDateTime.parse("2023-11-14T08:30:02"))
+                                                         .build();
+
+        laterRevision = revisionRepository.save(laterRevision);
+
+        int shiftedRevisionCount = revisionRepository.decrementVersionsAfter(revision.getDocument(), 2L);
+
+        assertThat(shiftedRevisionCount).isEqualTo(1);
+        assertThat(revisionRepository.findById(laterRevision.getId())).hasValueSatisfying(shiftedRevision -> assertThat(shiftedRevision.getVersion()).isEqualTo(2L));
+        assertThat(revisionRepository.findById(revision.getId())).hasValueSatisfying(earlierRevision -> assertThat(earlierRevision.getVersion()).isEqualTo(1L));
     }
 
-}
\ No newline at end of file
+}
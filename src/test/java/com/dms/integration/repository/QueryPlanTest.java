@@ -0,0 +1,279 @@
+package com.dms.integration.repository;
+
+import com.dms.entity.Document;
+import com.dms.entity.DocumentRevision;
+import com.dms.entity.Role;
+import com.dms.entity.User;
+import com.dms.repository.BlobRepository;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.DocumentRevisionRepository;
+import com.dms.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plan regression tests for the repository queries.
+ * Every SQL statement generated for a repository query is captured and explained by H2, and the test fails if the plan
+ * contains a table scan, which means that the query is no longer backed by an index.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.dms.integration.repository.QueryPlanTest$CapturingStatementInspector")
+class QueryPlanTest {
+
+    private static final String TABLE_SCAN = "tableScan";
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentRevisionRepository revisionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User author;
+    private Document document;
+    private DocumentRevision revision;
+
+    /** Captures the SQL statements prepared by Hibernate. */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        private static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            synchronized (STATEMENTS) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+
+        static List<String> drain() {
+            synchronized (STATEMENTS) {
+                List<String> statements = new ArrayList<>(STATEMENTS);
+                STATEMENTS.clear();
+                return statements;
+            }
+        }
+
+    }
+
+    @BeforeEach
+    void setUp() {
+        author = User.builder()
+                     .userId("6ab79b7e-4cb0-481c-8fc0-0e40c5bd076b")
+                     .name("james")
+                     .email("james@gmail.com")
+                     .password("secret123!")
+                     .role(Role.USER)
+                     .build();
+
+        author = userRepository.save(author);
+
+        document = Document.builder()
+                           .author(author)
+                           .documentId("3195ce96-c5c6-447c-9437-55d8d6fcf785")
+                           .version(1L)
+                           .name("dog.jpeg")
+                           .type("image/jpeg")
+                           .path("/test")
+                           .size(20207L)
+                           .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
+                           .isArchived(false)
+                           .createdAt(LocalDateTime.parse("2023-11-14T08:30:00"))
+                           .updatedAt(LocalDateTime.parse("2023-11-14T08:30:00"))
+                           .build();
+
+        document = documentRepository.save(document);
+
+        revision = DocumentRevision.builder()
+                                   .revisionId("95f6dbc2-b919-4b04-94b6-e857a92677d4")
+                                   .author(author)
+                                   .document(document)
+                                   .version(1L)
+                                   .name("dog.jpeg")
+                                   .type("image/jpeg")
+                                   .size(20207L)
+                                   .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
+                                   .createdAt(LocalDateTime.parse("2023-11-14T08:30:01"))
+                                   .build();
+
+        revision = revisionRepository.save(revision);
+
+        entityManager.flush();
+        entityManager.clear();
+        CapturingStatementInspector.drain();
+    }
+
+    @Test
+    void shouldUseIndexForFindByDocumentIdAndAuthor() {
+        documentRepository.findByDocumentIdAndAuthor(document.getDocumentId(), author);
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForFindAllByAuthor() {
+        documentRepository.findAllByAuthor(author);
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForFindContentsByPath() {
+        documentRepository.findContentsByPath(author, "/test", "/test/%", PageRequest.ofSize(10));
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForFindContentsByPathAfter() {
+        documentRepository.findContentsByPathAfter(author, "/test", "/test/%", "/test", "cat.jpeg", PageRequest.ofSize(10));
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForFindContentsByDocumentIds() {
+        documentRepository.findContentsByDocumentIds(author, List.of(document.getDocumentId()));
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForCountAllByIsArchived() {
+        documentRepository.countAllByIsArchived(true);
+
+        assertUsesIndex("IDX_DOCUMENT_ARCHIVED_DELETE_AT");
+    }
+
+    @Test
+    void shouldUseIndexForFindExpiredDocuments() {
+        documentRepository.findExpiredDocuments(LocalDateTime.now(), PageRequest.ofSize(10));
+
+        assertUsesIndex("IDX_DOCUMENT_ARCHIVED_DELETE_AT");
+    }
+
+    @Test
+    void shouldUseIndexForFindExpiredDocumentsAfter() {
+        documentRepository.findExpiredDocumentsAfter(LocalDateTime.now(), LocalDateTime.parse("2023-11-14T08:30:00"), document.getId(), PageRequest.ofSize(10));
+
+        assertUsesIndex("IDX_DOCUMENT_ARCHIVED_DELETE_AT");
+    }
+
+    @Test
+    void shouldUseIndexForCountHashReferencesByDocumentIds() {
+        revisionRepository.countHashReferencesByDocumentIds(List.of(document.getId()));
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForFindByRevisionIdAndAuthor() {
+        revisionRepository.findByRevisionIdAndAuthor(revision.getRevisionId(), author);
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForFindByDocumentAndRevisionId() {
+        revisionRepository.findByDocumentAndRevisionId(document, revision.getRevisionId());
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForFindPreviousByDocumentAndVersion() {
+        revisionRepository.findPreviousByDocumentAndVersion(document, revision.getVersion());
+
+        assertUsesIndex("IDX_REVISION_DOCUMENT_VERSION");
+    }
+
+    @Test
+    void shouldUseIndexForFindNextByDocumentAndVersion() {
+        revisionRepository.findNextByDocumentAndVersion(document, revision.getVersion());
+
+        assertUsesIndex("IDX_REVISION_DOCUMENT_VERSION");
+    }
+
+    @Test
+    void shouldUseIndexForIsReferenced() {
+        blobRepository.isReferenced(revision.getHash());
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForFindByEmail() {
+        userRepository.findByEmail(author.getEmail());
+
+        assertNoTableScan();
+    }
+
+    @Test
+    void shouldUseIndexForExistsByEmail() {
+        userRepository.existsByEmail(author.getEmail());
+
+        assertNoTableScan();
+    }
+
+    private void assertNoTableScan() {
+        List<String> plans = explainCapturedQueries();
+
+        plans.forEach(plan -> assertThat(plan).doesNotContain(TABLE_SCAN));
+    }
+
+    private void assertUsesIndex(String indexName) {
+        List<String> plans = explainCapturedQueries();
+
+        plans.forEach(plan -> assertThat(plan).doesNotContain(TABLE_SCAN)
+                                              .contains(indexName));
+    }
+
+    private List<String> explainCapturedQueries() {
+        List<String> queries = CapturingStatementInspector.drain()
+                                                          .stream()
+                                                          .filter(sql -> sql.toLowerCase(Locale.ROOT).startsWith("select"))
+                                                          .toList();
+
+        assertThat(queries).isNotEmpty();
+
+        return queries.stream()
+                      .map(this::explain)
+                      .toList();
+    }
+
+    private String explain(String query) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query); ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        });
+    }
+
+}
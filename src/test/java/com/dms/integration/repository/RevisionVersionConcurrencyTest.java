@@ -0,0 +1,119 @@
+package com.dms.integration.repository;
+
+import com.dms.entity.Document;
+import com.dms.entity.Role;
+import com.dms.entity.User;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RevisionVersionConcurrencyTest {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int RESERVATIONS_PER_THREAD = 25;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User author;
+    private Document document;
+
+    @BeforeEach
+    void setUp() {
+        author = userRepository.save(
+            User.builder()
+                .userId("1c3e5a7b-9d2f-4e6a-8b0c-2d4f6a8c0e1a")
+                .name("james")
+                .email("concurrency@gmail.com")
+                .password("secret123!")
+                .role(Role.USER)
+                .build()
+        );
+
+        document = documentRepository.save(
+            Document.builder()
+                    .author(author)
+                    .version(1L)
+                    .name("dog.jpeg")
+                    .type("image/jpeg")
+                    .path("/test")
+                    .size(20207L)
+                    .hash("fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58")
+                    .isArchived(false)
+                    .build()
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        documentRepository.deleteById(document.getId());
+        userRepository.deleteById(author.getId());
+    }
+
+    @Test
+    void shouldReserveDistinctVersionsForConcurrentWrites() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // same statements as DocumentCommonService.reserveRevisionVersion, each reservation in its own transaction
+        Callable<Long> reservation = () -> transactionTemplate.execute(status -> {
+            documentRepository.incrementNextRevisionVersion(document.getId());
+            return documentRepository.findNextRevisionVersion(document.getId()) - 1;
+        });
+
+        List<Long> versions = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREAD_COUNT; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int index = 0; index < RESERVATIONS_PER_THREAD; index++) {
+                        versions.add(reservation.call());
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long reservationCount = (long) THREAD_COUNT * RESERVATIONS_PER_THREAD;
+
+        // the first revision was saved along with the document
+        assertThat(versions).containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(2, reservationCount + 1)
+                                                                           .boxed()
+                                                                           .toList());
+        assertThat(documentRepository.findNextRevisionVersion(document.getId())).isEqualTo(reservationCount + 2);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.dms.unit.download;
+
+import com.dms.download.ZipStreamEntry;
+import com.dms.download.ZipStreamResource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ZipStreamResourceTest {
+
+    private final Map<String, byte[]> blobs = Map.of(
+        "text", "Some text of a document, which compresses well. ".repeat(100).getBytes(StandardCharsets.UTF_8),
+        "image", "already compressed bytes".getBytes(StandardCharsets.UTF_8)
+    );
+
+    private final ZipStreamResource.ContentOpener contentOpener = hash -> new ByteArrayInputStream(blobs.get(hash));
+
+    @Test
+    void shouldWriteDeflatedAndStoredEntries() throws IOException {
+        LocalDateTime modifiedAt = LocalDateTime.parse("2023-11-14T08:30:00");
+        List<ZipStreamEntry> entries = List.of(
+            new ZipStreamEntry("docs/readme.txt", "text", modifiedAt, false),
+            new ZipStreamEntry("images/dog.jpeg", "image", null, true)
+        );
+        ZipStreamResource resource = new ZipStreamResource("home.zip", entries, contentOpener);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        resource.writeTo(outputStream);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry first = zip.getNextEntry();
+            assertThat(first.getName()).isEqualTo("docs/readme.txt");
+            assertThat(first.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(first.getTimeLocal()).isEqualTo(modifiedAt);
+            assertThat(zip.readAllBytes()).isEqualTo(blobs.get("text"));
+
+            ZipEntry second = zip.getNextEntry();
+            assertThat(second.getName()).isEqualTo("images/dog.jpeg");
+            assertThat(second.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(second.getSize()).isEqualTo(blobs.get("image").length);
+            assertThat(zip.readAllBytes()).isEqualTo(blobs.get("image"));
+
+            assertThat(zip.getNextEntry()).isNull();
+        }
+    }
+
+    @Test
+    void shouldRequestEntriesWhileWriting() throws IOException {
+        List<String> events = new ArrayList<>();
+        Iterable<ZipStreamEntry> entries = () -> new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < 2;
+            }
+
+            @Override
+            public ZipStreamEntry next() {
+                events.add("entry " + index);
+                return new ZipStreamEntry("file" + index++ + ".txt", "text", null, false);
+            }
+        };
+        OutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                events.add("flush");
+            }
+        };
+
+        new ZipStreamResource("documents.zip", entries, contentOpener).writeTo(outputStream);
+
+        // the first entry is flushed to the client before the second one is requested
+        assertThat(events.subList(0, 3)).containsExactly("entry 0", "flush", "entry 1");
+    }
+
+    @Test
+    void shouldWriteEmptyArchive() throws IOException {
+        ZipStreamResource resource = new ZipStreamResource("documents.zip", List.of(), contentOpener);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        resource.writeTo(outputStream);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            assertThat(zip.getNextEntry()).isNull();
+        }
+    }
+
+    @Test
+    void shouldNotKnowContentLengthInAdvance() {
+        ZipStreamResource resource = new ZipStreamResource("documents.zip", List.of(), contentOpener);
+
+        assertThat(resource.contentLength()).isEqualTo(-1);
+        assertThat(resource.getFilename()).isEqualTo("documents.zip");
+        assertThatThrownBy(resource::getInputStream).isInstanceOf(IOException.class);
+    }
+
+}
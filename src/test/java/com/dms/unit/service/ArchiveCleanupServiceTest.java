@@ -0,0 +1,146 @@
+package com.dms.unit.service;
+
+import com.dms.config.ArchiveProperties;
+import com.dms.entity.ArchiveCleanupCheckpoint;
+import com.dms.repository.ArchiveCleanupCheckpointRepository;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.ExpiredDocument;
+import com.dms.service.ArchiveCleanupService;
+import com.dms.service.DocumentCommonService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveCleanupServiceTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private ArchiveCleanupCheckpointRepository checkpointRepository;
+
+    @Mock
+    private DocumentCommonService documentCommonService;
+
+    @Mock
+    private ArchiveProperties archiveProperties;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ArchiveCleanupService archiveCleanupService;
+
+    private final LocalDateTime cutoff = LocalDateTime.parse("2024-03-01T00:00:00");
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+        doAnswer(invocation -> {
+            Consumer<Object> callback = invocation.getArgument(0);
+            callback.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        when(archiveProperties.getCleanupBatchSize()).thenReturn(2);
+    }
+
+    @Test
+    void shouldDeleteExpiredDocumentsInBatches() {
+        when(checkpointRepository.findById(1L)).thenReturn(Optional.empty());
+        when(checkpointRepository.save(any(ArchiveCleanupCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ExpiredDocument first = expiredDocument(1L, "2024-01-01T00:00:00");
+        ExpiredDocument second = expiredDocument(2L, "2024-01-02T00:00:00");
+        ExpiredDocument third = expiredDocument(3L, "2024-01-03T00:00:00");
+
+        when(documentRepository.findExpiredDocuments(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(first, second));
+        when(documentRepository.findExpiredDocumentsAfter(any(LocalDateTime.class), eq(second.getDeleteAt()), eq(2L), any(Pageable.class))).thenReturn(List.of(third));
+
+        archiveCleanupService.cleanupArchive();
+
+        verify(documentCommonService).deleteRevisionsOfDocuments(List.of(1L, 2L));
+        verify(documentRepository).deleteAllByIds(List.of(1L, 2L));
+        verify(documentCommonService).deleteRevisionsOfDocuments(List.of(3L));
+        verify(documentRepository).deleteAllByIds(List.of(3L));
+
+        verify(checkpointRepository).deleteById(1L);
+    }
+
+    @Test
+    void shouldResumeInterruptedCleanupFromCheckpoint() {
+        ArchiveCleanupCheckpoint checkpoint = ArchiveCleanupCheckpoint.builder()
+                                                                      .id(1L)
+                                                                      .cutoff(cutoff)
+                                                                      .lastDeleteAt(LocalDateTime.parse("2024-01-02T00:00:00"))
+                                                                      .lastDocumentId(2L)
+                                                                      .build();
+
+        when(checkpointRepository.findById(1L)).thenReturn(Optional.of(checkpoint));
+        when(documentRepository.findExpiredDocumentsAfter(eq(cutoff), eq(checkpoint.getLastDeleteAt()), eq(2L), any(Pageable.class))).thenReturn(List.of());
+
+        archiveCleanupService.cleanupArchive();
+
+        verify(documentRepository, never()).findExpiredDocuments(any(LocalDateTime.class), any(Pageable.class));
+        verify(documentRepository, never()).deleteAllByIds(any());
+        verify(checkpointRepository).deleteById(1L);
+    }
+
+    @Test
+    void shouldMoveCheckpointAfterLastDeletedDocument() {
+        ArchiveCleanupCheckpoint checkpoint = ArchiveCleanupCheckpoint.builder()
+                                                                      .id(1L)
+                                                                      .cutoff(cutoff)
+                                                                      .build();
+
+        ExpiredDocument first = expiredDocument(1L, "2024-01-01T00:00:00");
+
+        when(checkpointRepository.findById(1L)).thenReturn(Optional.of(checkpoint));
+        when(documentRepository.findExpiredDocuments(eq(cutoff), any(Pageable.class))).thenReturn(List.of(first));
+
+        archiveCleanupService.cleanupArchive();
+
+        verify(checkpointRepository).save(checkpoint);
+
+        assertThat(checkpoint.getLastDocumentId()).isEqualTo(first.getId());
+        assertThat(checkpoint.getLastDeleteAt()).isEqualTo(first.getDeleteAt());
+    }
+
+    private ExpiredDocument expiredDocument(Long id, String deleteAt) {
+        return new ExpiredDocument() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getDeleteAt() {
+                return LocalDateTime.parse(deleteAt);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.dms.unit.service;
+
+import com.dms.config.UploadProperties;
+import com.dms.entity.Document;
+import com.dms.exception.FileOperation;
+import com.dms.exception.FileOperationException;
+import com.dms.service.BatchUploadService;
+import com.dms.service.DocumentCommonService;
+import com.dms.service.DocumentService;
+import com.dms.upload.BatchUploadResult;
+import com.dms.upload.StagedBlob;
+import com.dms.upload.StagedDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchUploadServiceTest {
+
+    @Mock
+    private DocumentService documentService;
+
+    @Mock
+    private DocumentCommonService documentCommonService;
+
+    @Mock
+    private UploadProperties uploadProperties;
+
+    private BatchUploadService batchUploadService;
+
+    @BeforeEach
+    void setUp() {
+        when(uploadProperties.getBatchThreads()).thenReturn(2);
+        batchUploadService = new BatchUploadService(documentService, documentCommonService, uploadProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchUploadService.shutdown();
+    }
+
+    @Test
+    void shouldUploadDocumentsInOrderOfFiles() {
+        MultipartFile first = new MockMultipartFile("files", "first.txt", "text/plain", "first".getBytes());
+        MultipartFile failing = new MockMultipartFile("files", "failing.txt", "text/plain", "failing".getBytes());
+        MultipartFile unnamed = new MockMultipartFile("files", "", "text/plain", "unnamed".getBytes());
+        MultipartFile second = new MockMultipartFile("files", "dir/second.txt", null, "second".getBytes());
+
+        when(documentCommonService.stageBlob(first)).thenReturn(new StagedBlob("hash1", true));
+        when(documentCommonService.stageBlob(failing)).thenThrow(new FileOperationException(FileOperation.WRITE));
+        when(documentCommonService.stageBlob(second)).thenReturn(new StagedBlob("hash2", false));
+
+        List<StagedDocument> expectedStagedDocuments = List.of(new StagedDocument("first.txt", "text/plain", "/", 5L, "hash1", true),
+                                                               new StagedDocument("second.txt", null, "/", 6L, "hash2", false));
+        Document firstDocument = Document.builder().name("first.txt").build();
+        when(documentService.uploadStagedDocuments(expectedStagedDocuments)).thenReturn(List.of(BatchUploadResult.created(firstDocument),
+                                                                                                     BatchUploadResult.conflict("second.txt", "/")));
+
+        List<BatchUploadResult> results = batchUploadService.uploadDocuments(List.of(first, failing, unnamed, second), "/");
+
+        assertThat(results).extracting(BatchUploadResult::name).containsExactly("first.txt", "failing.txt", "", "second.txt");
+        assertThat(results).extracting(BatchUploadResult::status).containsExactly(BatchUploadResult.Status.CREATED, BatchUploadResult.Status.FAILED,
+                                                                                  BatchUploadResult.Status.FAILED, BatchUploadResult.Status.CONFLICT);
+        assertThat(results.get(0).document()).isSameAs(firstDocument);
+        assertThat(results.get(2).detail()).isEqualTo("Name of the file must be provided");
+    }
+
+    @Test
+    void shouldNotSaveDocumentsWhenNoFileIsStored() {
+        MultipartFile file = new MockMultipartFile("files", "file.txt", "text/plain", "text".getBytes());
+
+        when(documentCommonService.stageBlob(file)).thenThrow(new FileOperationException(FileOperation.WRITE));
+
+        List<BatchUploadResult> results = batchUploadService.uploadDocuments(List.of(file), "/");
+
+        assertThat(results).extracting(BatchUploadResult::status).containsExactly(BatchUploadResult.Status.FAILED);
+        verify(documentService, never()).uploadStagedDocuments(any());
+    }
+
+}
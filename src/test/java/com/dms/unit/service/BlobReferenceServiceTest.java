@@ -0,0 +1,411 @@
+package com.dms.unit.service;
+
+import com.dms.entity.Blob;
+import com.dms.entity.BlobState;
+import com.dms.exception.FileOperationException;
+import com.dms.repository.BlobRepository;
+import com.dms.service.BlobReferenceService;
+import com.dms.storage.BlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BlobReferenceServiceTest {
+
+    private static final String HASH = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
+    private static final String BASE_HASH = "fb1c43900e39c38a20d84bdc3dd87d798b43c293a4ff243f2cc27b267f1efa58";
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BlobReferenceService blobReferenceService;
+
+    @BeforeEach
+    void setUp() {
+        blobReferenceService = new BlobReferenceService(blobRepository, blobStore, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldWriteContentOfNewBlob() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.empty());
+
+        boolean written = blobReferenceService.stageBlob(HASH, 20L, null, writer);
+
+        assertThat(written).isTrue();
+        InOrder inOrder = inOrder(blobRepository, transactionManager, writer);
+        inOrder.verify(blobRepository).insertStored(HASH, 20L);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(writer).write(null);
+    }
+
+    @Test
+    void shouldReferenceBaseBeforeWritingDeltaAgainstIt() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.empty());
+        when(blobRepository.findReferencedForUpdate(BASE_HASH)).thenReturn(Optional.of(blob(BASE_HASH)));
+        when(blobStore.getDeltaBase(HASH)).thenReturn(BASE_HASH);
+
+        blobReferenceService.stageBlob(HASH, 20L, BASE_HASH, writer);
+
+        InOrder inOrder = inOrder(blobRepository, transactionManager, writer);
+        inOrder.verify(blobRepository).incrementReferenceCount(BASE_HASH);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(writer).write(BASE_HASH);
+        verify(blobRepository, never()).decrementReferenceCount(anyString(), anyLong());
+    }
+
+    @Test
+    void shouldWriteWholeContentWhenBaseIsNotReferenced() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.empty());
+        when(blobRepository.findReferencedForUpdate(BASE_HASH)).thenReturn(Optional.empty());
+
+        blobReferenceService.stageBlob(HASH, 20L, BASE_HASH, writer);
+
+        verify(writer).write(null);
+        verify(blobRepository, never()).incrementReferenceCount(BASE_HASH);
+    }
+
+    @Test
+    void shouldRemoveReferenceToBaseWhenWholeContentWasStored() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.empty());
+        when(blobRepository.findReferencedForUpdate(BASE_HASH)).thenReturn(Optional.of(blob(BASE_HASH)));
+        when(blobStore.getDeltaBase(HASH)).thenReturn(null);
+        when(blobRepository.decrementReferenceCount(BASE_HASH, 1)).thenReturn(1);
+
+        blobReferenceService.stageBlob(HASH, 20L, BASE_HASH, writer);
+
+        verify(blobRepository, times(1)).incrementReferenceCount(BASE_HASH);
+        verify(blobRepository, times(1)).decrementReferenceCount(BASE_HASH, 1);
+    }
+
+    @Test
+    void shouldRemoveReferenceToBaseWhenContentCannotBeWritten() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.empty());
+        when(blobRepository.findReferencedForUpdate(BASE_HASH)).thenReturn(Optional.of(blob(BASE_HASH)));
+        when(blobRepository.decrementReferenceCount(BASE_HASH, 1)).thenReturn(1);
+        doThrow(new IOException("disk full")).when(writer).write(BASE_HASH);
+
+        assertThatThrownBy(() -> blobReferenceService.stageBlob(HASH, 20L, BASE_HASH, writer)).isInstanceOf(FileOperationException.class);
+
+        verify(blobRepository, times(1)).decrementReferenceCount(BASE_HASH, 1);
+    }
+
+    @Test
+    void shouldNotWriteContentOfStoredBlob() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.STORED));
+        when(blobStore.exists(HASH)).thenReturn(true);
+
+        boolean written = blobReferenceService.stageBlob(HASH, 20L, null, writer);
+
+        assertThat(written).isFalse();
+        verify(writer, never()).write(any());
+        verify(blobRepository, never()).insertStored(anyString(), anyLong());
+    }
+
+    @Test
+    void shouldWriteContentOfOrphanedBlobAgain() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+
+        boolean written = blobReferenceService.stageBlob(HASH, 20L, null, writer);
+
+        assertThat(written).isTrue();
+        InOrder inOrder = inOrder(blobStore, blobRepository, writer);
+        inOrder.verify(blobStore).delete(HASH);
+        inOrder.verify(blobRepository).markStored(HASH);
+        inOrder.verify(writer).write(null);
+    }
+
+    @Test
+    void shouldRetryStagingWhenBlobWasInsertedConcurrently() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.empty(), Optional.of(BlobState.STORED));
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(blobRepository).insertStored(HASH, 20L);
+        when(blobStore.exists(HASH)).thenReturn(true);
+
+        boolean written = blobReferenceService.stageBlob(HASH, 20L, null, writer);
+
+        assertThat(written).isFalse();
+        verify(transactionManager).rollback(any());
+        verify(writer, never()).write(any());
+    }
+
+    @Test
+    void shouldFailStagingWhenContentCannotBeWritten() throws IOException {
+        BlobReferenceService.BlobWriter writer = mock(BlobReferenceService.BlobWriter.class);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.empty());
+        doThrow(new IOException("disk full")).when(writer).write(null);
+
+        assertThatThrownBy(() -> blobReferenceService.stageBlob(HASH, 20L, null, writer)).isInstanceOf(FileOperationException.class);
+    }
+
+    @Test
+    void shouldDeleteStagedBlobWhichIsNotReferenced() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.STORED), Optional.of(BlobState.ORPHANED));
+        when(blobRepository.markOrphaned(HASH)).thenReturn(1);
+
+        blobReferenceService.deleteStagedBlob(HASH);
+
+        verify(blobStore, times(1)).delete(HASH);
+    }
+
+    @Test
+    void shouldRemoveReferenceToBaseOfDeletedStagedDelta() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.STORED), Optional.of(BlobState.ORPHANED));
+        when(blobRepository.markOrphaned(HASH)).thenReturn(1);
+        when(blobStore.getDeltaBase(HASH)).thenReturn(BASE_HASH);
+        when(blobRepository.decrementReferenceCount(BASE_HASH, 1)).thenReturn(1);
+
+        blobReferenceService.deleteStagedBlob(HASH);
+
+        verify(blobRepository, times(1)).decrementReferenceCount(BASE_HASH, 1);
+    }
+
+    @Test
+    void shouldNotDeleteStagedBlobWhichWasReferencedConcurrently() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.STORED));
+        when(blobRepository.markOrphaned(HASH)).thenReturn(0);
+
+        blobReferenceService.deleteStagedBlob(HASH);
+
+        verify(blobStore, never()).delete(anyString());
+    }
+
+    @Test
+    void shouldIncrementReferenceCountOfReferencedBlob() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.STORED));
+        when(blobRepository.reviveOrphaned(HASH)).thenReturn(0);
+
+        blobReferenceService.addReference(HASH, 20L);
+
+        verify(blobRepository, times(1)).incrementReferenceCount(HASH);
+        verify(blobStore, never()).getDeltaBase(anyString());
+    }
+
+    @Test
+    void shouldTrackBlobWhichWasStoredBeforeItsReferences() {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.empty(), Optional.empty(), Optional.of(BlobState.STORED));
+        when(blobRepository.reviveOrphaned(HASH)).thenReturn(1);
+
+        blobReferenceService.addReference(HASH, 20L);
+
+        verify(blobRepository, times(1)).insertStored(HASH, 20L);
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void shouldAddReferencesOfSeveralDocumentsAtOnce() {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.STORED));
+        when(blobRepository.reviveOrphaned(HASH)).thenReturn(1);
+
+        blobReferenceService.addReferences(HASH, 20L, 3);
+
+        verify(blobRepository, times(1)).incrementReferenceCount(HASH, 2L);
+    }
+
+    @Test
+    void shouldNotReferenceOrphanedBlobWhoseContentWasDeleted() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+        when(blobStore.exists(HASH)).thenReturn(false);
+
+        assertThatThrownBy(() -> blobReferenceService.addReference(HASH, 20L)).isInstanceOf(FileOperationException.class);
+
+        verify(blobRepository, never()).reviveOrphaned(anyString());
+    }
+
+    @Test
+    void shouldNotDeleteBlobWhichIsStillReferenced() throws IOException {
+        when(blobRepository.decrementReferenceCount(HASH, 1)).thenReturn(1);
+        when(blobRepository.markOrphaned(HASH)).thenReturn(0);
+
+        blobReferenceService.removeReference(HASH);
+
+        verify(blobStore, never()).delete(anyString());
+    }
+
+    @Test
+    void shouldNotDeleteUntrackedBlob() throws IOException {
+        when(blobRepository.decrementReferenceCount(HASH, 1)).thenReturn(0);
+
+        blobReferenceService.removeReference(HASH);
+
+        verify(blobRepository, never()).markOrphaned(anyString());
+        verify(blobStore, never()).delete(anyString());
+    }
+
+    @Test
+    void shouldDeleteOrphanedBlobImmediatelyWithoutTransaction() throws IOException {
+        when(blobRepository.decrementReferenceCount(HASH, 2)).thenReturn(1);
+        when(blobRepository.markOrphaned(HASH)).thenReturn(1);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+
+        blobReferenceService.removeReferences(HASH, 2);
+
+        verify(blobStore, times(1)).delete(HASH);
+    }
+
+    @Test
+    void shouldDeleteOrphanedBlobAfterCommit() throws IOException {
+        when(blobRepository.decrementReferenceCount(HASH, 1)).thenReturn(1);
+        when(blobRepository.markOrphaned(HASH)).thenReturn(1);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        blobReferenceService.removeReference(HASH);
+
+        verify(blobStore, never()).delete(anyString());
+
+        TransactionSynchronizationManager.getSynchronizations()
+                                         .forEach(TransactionSynchronization::afterCommit);
+
+        verify(blobStore, times(1)).delete(HASH);
+    }
+
+    @Test
+    void shouldKeepOrphanedBlobWhichWasStoredAgainBeforeItsDeletion() throws IOException {
+        when(blobRepository.decrementReferenceCount(HASH, 1)).thenReturn(1);
+        when(blobRepository.markOrphaned(HASH)).thenReturn(1);
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.STORED));
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        blobReferenceService.removeReference(HASH);
+
+        TransactionSynchronizationManager.getSynchronizations()
+                                         .forEach(TransactionSynchronization::afterCommit);
+
+        verify(blobStore, never()).delete(anyString());
+    }
+
+    @Test
+    void shouldNotReferenceBaseOfStagedDeltaAgain() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.STORED));
+        when(blobRepository.reviveOrphaned(HASH)).thenReturn(1);
+
+        blobReferenceService.addReference(HASH, 20L);
+
+        verify(blobRepository, never()).incrementReferenceCount(HASH);
+        verify(blobStore, never()).getDeltaBase(anyString());
+    }
+
+    @Test
+    void shouldReferenceBaseOfRevivedDelta() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+        when(blobStore.exists(HASH)).thenReturn(true);
+        when(blobRepository.reviveOrphaned(HASH)).thenReturn(1);
+        when(blobStore.getDeltaBase(HASH)).thenReturn(BASE_HASH);
+        when(blobRepository.findStateForUpdate(BASE_HASH)).thenReturn(Optional.of(BlobState.STORED));
+        when(blobRepository.incrementReferenceCount(BASE_HASH)).thenReturn(1);
+
+        blobReferenceService.addReference(HASH, 20L);
+
+        verify(blobRepository, times(1)).incrementReferenceCount(BASE_HASH);
+    }
+
+    @Test
+    void shouldNotReferenceRevivedDeltaWhoseBaseIsNotTracked() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+        when(blobStore.exists(HASH)).thenReturn(true);
+        when(blobRepository.reviveOrphaned(HASH)).thenReturn(1);
+        when(blobStore.getDeltaBase(HASH)).thenReturn(BASE_HASH);
+        when(blobRepository.incrementReferenceCount(BASE_HASH)).thenReturn(0);
+
+        assertThatThrownBy(() -> blobReferenceService.addReference(HASH, 20L)).isInstanceOf(FileOperationException.class);
+    }
+
+    @Test
+    void shouldNotReferenceRevivedDeltaWhoseBaseWasDeleted() throws IOException {
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+        when(blobStore.exists(HASH)).thenReturn(true);
+        when(blobRepository.reviveOrphaned(HASH)).thenReturn(1);
+        when(blobStore.getDeltaBase(HASH)).thenReturn(BASE_HASH);
+        when(blobRepository.findStateForUpdate(BASE_HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+        when(blobStore.exists(BASE_HASH)).thenReturn(false);
+
+        assertThatThrownBy(() -> blobReferenceService.addReference(HASH, 20L)).isInstanceOf(FileOperationException.class);
+
+        verify(blobRepository, never()).incrementReferenceCount(BASE_HASH);
+    }
+
+    @Test
+    void shouldRemoveReferenceToBaseOfOrphanedDelta() throws IOException {
+        when(blobRepository.decrementReferenceCount(HASH, 1)).thenReturn(1);
+        when(blobRepository.markOrphaned(HASH)).thenReturn(1);
+        when(blobStore.getDeltaBase(HASH)).thenReturn(BASE_HASH);
+        when(blobRepository.decrementReferenceCount(BASE_HASH, 1)).thenReturn(1);
+        when(blobRepository.markOrphaned(BASE_HASH)).thenReturn(1);
+        when(blobRepository.findStateForUpdate(anyString())).thenReturn(Optional.of(BlobState.ORPHANED));
+
+        blobReferenceService.removeReference(HASH);
+
+        verify(blobStore, times(1)).delete(HASH);
+        verify(blobStore, times(1)).delete(BASE_HASH);
+    }
+
+    @Test
+    void shouldKeepBaseWhenOrphanedDeltaCannotBeRead() throws IOException {
+        when(blobRepository.decrementReferenceCount(HASH, 1)).thenReturn(1);
+        when(blobRepository.markOrphaned(HASH)).thenReturn(1);
+        when(blobStore.getDeltaBase(HASH)).thenThrow(new IOException("corrupted"));
+        when(blobRepository.findStateForUpdate(HASH)).thenReturn(Optional.of(BlobState.ORPHANED));
+
+        blobReferenceService.removeReference(HASH);
+
+        verify(blobRepository, never()).decrementReferenceCount(BASE_HASH, 1);
+        verify(blobStore, times(1)).delete(HASH);
+    }
+
+    private static Blob blob(String hash) {
+        return Blob.builder()
+                   .hash(hash)
+                   .referenceCount(1L)
+                   .size(20L)
+                   .state(BlobState.STORED)
+                   .build();
+    }
+
+}
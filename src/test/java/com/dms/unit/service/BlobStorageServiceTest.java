@@ -0,0 +1,214 @@
+package com.dms.unit.service;
+
+import com.dms.config.BlobStorageProperties;
+import com.dms.config.HashProperties;
+import com.dms.exception.FileOperationException;
+import com.dms.exception.UploadSizeExceededException;
+import com.dms.service.BlobReferenceService;
+import com.dms.service.BlobStorageService;
+import com.dms.service.HashService;
+import com.dms.storage.DeltaBlobStore;
+import com.dms.storage.FileSystemBlobStore;
+import com.dms.storage.InMemoryBlobStore;
+import com.dms.storage.PackedBlobStore;
+import com.dms.upload.LimitedInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BlobStorageServiceTest {
+
+    @Mock
+    private BlobStorageProperties blobStorageProperties;
+
+    @Mock
+    private HashProperties hashProperties;
+
+    @Mock
+    private BlobReferenceService blobReferenceService;
+
+    @TempDir
+    private Path storagePath;
+
+    private BlobStorageService blobStorageService;
+
+    private static final String HASH = "4c2e9e6da31a64c70623619c449a040968cdbea85945bf384fa30ed2d5d24fa3";
+
+    @BeforeEach
+    void setUp() {
+        blobStorageService = new BlobStorageService(blobStorageProperties, new HashService(hashProperties), new FileSystemBlobStore(storagePath, 2), blobReferenceService);
+
+        lenient().when(blobStorageProperties.getPath()).thenReturn(storagePath.toString());
+        lenient().when(blobStorageProperties.getSubdirectoryPrefixLength()).thenReturn(2);
+        lenient().when(hashProperties.getAlgorithm()).thenReturn("SHA-256");
+        lenient().when(blobReferenceService.stageBlob(anyString(), anyLong(), any(), any())).thenAnswer(invocation -> {
+            BlobReferenceService.BlobWriter writer = invocation.getArgument(3);
+            writer.write(invocation.getArgument(2));
+            return true;
+        });
+    }
+
+    @Test
+    void shouldStoreBlobUnderItsHash() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "document.txt", "text/plain", "Some text".getBytes());
+
+        String hash = blobStorageService.storeBlob(file);
+
+        Path blobPath = storagePath.resolve("4c").resolve(HASH.substring(2));
+
+        assertThat(hash).isEqualTo(HASH);
+        assertThat(blobPath).exists();
+        assertThat(Files.readString(blobPath)).isEqualTo("Some text");
+        assertThat(getTempFileCount()).isZero();
+    }
+
+    @Test
+    void shouldStoreNewVersionAsDeltaAgainstBase() throws IOException {
+        InMemoryBlobStore delegate = new InMemoryBlobStore(false);
+        blobStorageService = new BlobStorageService(blobStorageProperties, new HashService(hashProperties), new DeltaBlobStore(delegate, 1024 * 1024, 10, 0), blobReferenceService);
+        String content = "Some text of the first version of a document, long enough to be worth a delta. ".repeat(20);
+        MockMultipartFile file = new MockMultipartFile("file", "document.txt", "text/plain", content.getBytes());
+        MockMultipartFile newFile = new MockMultipartFile("file", "document.txt", "text/plain", (content + "Appended line.").getBytes());
+
+        String baseHash = blobStorageService.storeBlob(file);
+        String hash = blobStorageService.stageBlob(newFile, baseHash).hash();
+
+        assertThat(blobStorageService.getDeltaBase(hash)).isEqualTo(baseHash);
+        assertThat(blobStorageService.getDeltaBase(baseHash)).isNull();
+        assertThat(delegate.size(hash)).isLessThan(newFile.getSize() / 2);
+        assertThat(blobStorageService.getBlob(hash).getContentAsByteArray()).isEqualTo(newFile.getBytes());
+    }
+
+    @Test
+    void shouldStoreBlobInConfiguredBlobStore() throws IOException {
+        InMemoryBlobStore blobStore = new InMemoryBlobStore(false);
+        blobStorageService = new BlobStorageService(blobStorageProperties, new HashService(hashProperties), blobStore, blobReferenceService);
+        MockMultipartFile file = new MockMultipartFile("file", "document.txt", "text/plain", "Some text".getBytes());
+
+        String hash = blobStorageService.storeBlob(file);
+
+        assertThat(hash).isEqualTo(HASH);
+        assertThat(blobStore.exists(HASH)).isTrue();
+        assertThat(blobStorageService.getBlob(HASH).getContentAsByteArray()).isEqualTo("Some text".getBytes());
+        assertThat(storagePath.resolve("4c")).doesNotExist();
+        assertThat(getTempFileCount()).isZero();
+    }
+
+    @Test
+    void shouldReclaimSpaceOfDeletedPackedBlobWhenCompacting() throws IOException {
+        Path packPath = storagePath.resolve(PackedBlobStore.PACK_DIRECTORY);
+        MockMultipartFile file = new MockMultipartFile("file", "document.txt", "text/plain", "Some text".getBytes());
+
+        try (PackedBlobStore blobStore = new PackedBlobStore(new FileSystemBlobStore(storagePath, 2), packPath, 1024, 1024 * 1024)) {
+            blobStorageService = new BlobStorageService(blobStorageProperties, new HashService(hashProperties), blobStore, blobReferenceService);
+
+            String hash = blobStorageService.storeBlob(file);
+
+            assertThat(storagePath.resolve("4c")).doesNotExist();
+            assertThat(getPackFilesSize(packPath)).isEqualTo(9);
+
+            blobStorageService.deleteBlob(hash);
+            blobStorageService.compactBlobStore();
+
+            assertThat(blobStore.exists(hash)).isFalse();
+            assertThat(getPackFilesSize(packPath)).isZero();
+        }
+    }
+
+    @Test
+    void shouldStoreTempFileUnderItsHash() throws IOException {
+        Path file = blobStorageService.createTempFile("import-");
+        Files.writeString(file, "Some text");
+
+        String hash = blobStorageService.stageTempFile(file, "document.txt").hash();
+
+        Path blobPath = storagePath.resolve("4c").resolve(HASH.substring(2));
+
+        assertThat(hash).isEqualTo(HASH);
+        assertThat(Files.readString(blobPath)).isEqualTo("Some text");
+        assertThat(getTempFileCount()).isZero();
+    }
+
+    @Test
+    void shouldReuseExistingBlobWhenContentIsDuplicate() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "document.txt", "text/plain", "Some text".getBytes());
+        MockMultipartFile duplicateFile = new MockMultipartFile("file", "duplicate.txt", "text/plain", "Some text".getBytes());
+
+        String hash = blobStorageService.storeBlob(file);
+        String duplicateHash = blobStorageService.storeBlob(duplicateFile);
+
+        assertThat(duplicateHash).isEqualTo(hash);
+        assertThat(getTempFileCount()).isZero();
+    }
+
+    @Test
+    void shouldNotLeaveTempFileWhenStreamFails() throws IOException {
+        InputStream failingStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        assertThatExceptionOfType(FileOperationException.class).isThrownBy(() -> blobStorageService.storeBlob(failingStream, "document.txt"));
+        assertThat(getTempFileCount()).isZero();
+    }
+
+    @Test
+    void shouldNotStoreBlobWhenStreamExceedsLimit() throws IOException {
+        InputStream limitedStream = new LimitedInputStream(new ByteArrayInputStream(new byte[2048]), 1024);
+
+        assertThatExceptionOfType(UploadSizeExceededException.class).isThrownBy(() -> blobStorageService.storeBlob(limitedStream, "document.txt"));
+        assertThat(getTempFileCount()).isZero();
+    }
+
+    @Test
+    void shouldThrowFileOperationExceptionWhenAlgorithmDoesNotExist() {
+        MockMultipartFile file = new MockMultipartFile("file", "document.txt", "text/plain", "Some text".getBytes());
+
+        when(hashProperties.getAlgorithm()).thenReturn("algorithm");
+
+        assertThatExceptionOfType(FileOperationException.class).isThrownBy(() -> blobStorageService.storeBlob(file));
+    }
+
+    private long getTempFileCount() throws IOException {
+        Path tempDirectoryPath = storagePath.resolve("tmp");
+
+        if (Files.notExists(tempDirectoryPath)) {
+            return 0;
+        }
+
+        try (Stream<Path> files = Files.list(tempDirectoryPath)) {
+            return files.count();
+        }
+    }
+
+    private long getPackFilesSize(Path packPath) throws IOException {
+        try (Stream<Path> files = Files.list(packPath)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".pack"))
+                        .mapToLong(path -> path.toFile().length())
+                        .sum();
+        }
+    }
+
+}
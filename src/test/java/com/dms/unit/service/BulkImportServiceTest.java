@@ -0,0 +1,205 @@
+package com.dms.unit.service;
+
+import com.dms.config.BulkImportProperties;
+import com.dms.config.HashProperties;
+import com.dms.entity.Document;
+import com.dms.entity.User;
+import com.dms.exception.UserNotFoundException;
+import com.dms.repository.DocumentRepository;
+import com.dms.repository.UserRepository;
+import com.dms.service.BlobStorageService;
+import com.dms.service.BulkImportService;
+import com.dms.service.DocumentService;
+import com.dms.service.HashService;
+import com.dms.upload.BatchUploadResult;
+import com.dms.upload.BulkImportReport;
+import com.dms.upload.StagedBlob;
+import com.dms.upload.StagedDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportServiceTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private DocumentService documentService;
+
+    @Mock
+    private BlobStorageService blobStorageService;
+
+    @Mock
+    private HashProperties hashProperties;
+
+    @Mock
+    private BulkImportProperties bulkImportProperties;
+
+    @TempDir
+    private Path sourceDirectory;
+
+    @TempDir
+    private Path tempDirectory;
+
+    private BulkImportService bulkImportService;
+
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        author = User.builder()
+                     .id(1L)
+                     .email("james@gmail.com")
+                     .build();
+
+        lenient().when(userRepository.findByEmail("james@gmail.com")).thenReturn(Optional.of(author));
+        lenient().when(hashProperties.getAlgorithm()).thenReturn("SHA-256");
+        lenient().when(bulkImportProperties.getThreads()).thenReturn(2);
+        lenient().when(bulkImportProperties.getBatchSize()).thenReturn(2);
+        lenient().when(bulkImportProperties.getReportInterval()).thenReturn(Duration.ofSeconds(10));
+        lenient().when(blobStorageService.stageBlob(any(InputStream.class), anyString(), isNull())).thenAnswer(invocation -> {
+            InputStream content = invocation.getArgument(0);
+            return new StagedBlob("hash-" + new String(content.readAllBytes(), StandardCharsets.UTF_8), true);
+        });
+        lenient().when(documentService.uploadStagedDocuments(eq(author), any())).thenAnswer(invocation -> {
+            List<StagedDocument> stagedDocuments = invocation.getArgument(1);
+            return stagedDocuments.stream()
+                                  .map(stagedDocument -> BatchUploadResult.created(Document.builder().name(stagedDocument.name()).path(stagedDocument.path()).build()))
+                                  .toList();
+        });
+
+        bulkImportService = new BulkImportService(documentRepository, userRepository, documentService, blobStorageService, new HashService(hashProperties), bulkImportProperties);
+    }
+
+    @Test
+    void shouldImportFilesIntoPathsOfTheirDirectories() throws IOException {
+        createFile("a.txt");
+        createFile("docs/b.txt");
+        createFile("docs/api/c.txt");
+        createFile("bad dir/d.txt");
+
+        BulkImportReport report = bulkImportService.importDirectory(sourceDirectory, "james@gmail.com", "/home");
+
+        assertThat(report.createdCount()).isEqualTo(3);
+        assertThat(report.failedCount()).isEqualTo(1);
+        assertThat(report.skippedCount()).isZero();
+        assertThat(report.byteCount()).isEqualTo(16L + 21L + 25L);
+        assertThat(getStagedDocuments()).containsExactlyInAnyOrder(
+            new StagedDocument("a.txt", "text/plain", "/home", 16L, "hash-content of a.txt", true),
+            new StagedDocument("b.txt", "text/plain", "/home/docs", 21L, "hash-content of docs/b.txt", true),
+            new StagedDocument("c.txt", "text/plain", "/home/docs/api", 25L, "hash-content of docs/api/c.txt", true)
+        );
+    }
+
+    @Test
+    void shouldSkipFilesImportedByEarlierRun() throws IOException {
+        createFile("a.txt");
+        createFile("b.txt");
+
+        when(documentRepository.findNamesByAuthorAndPathAndNameIn(eq(author), eq("/"), anyCollection())).thenReturn(List.of("a.txt"));
+
+        BulkImportReport report = bulkImportService.importDirectory(sourceDirectory, "james@gmail.com", "/");
+
+        assertThat(report.createdCount()).isEqualTo(1);
+        assertThat(report.skippedCount()).isEqualTo(1);
+        assertThat(getStagedDocuments()).extracting(StagedDocument::name)
+                                        .containsExactly("b.txt");
+    }
+
+    @Test
+    void shouldLinkFilesIntoBlobStorage() throws IOException, NoSuchAlgorithmException {
+        Path source = createFile("a.txt");
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(source)));
+
+        when(bulkImportProperties.isLink()).thenReturn(true);
+        when(blobStorageService.createTempFile(anyString())).thenAnswer(invocation -> Files.createTempFile(tempDirectory, "bulk-import-", ".tmp"));
+        when(blobStorageService.stageHashedBlob(any(), eq(hash), isNull())).thenAnswer(invocation -> {
+            assertThat(Files.isSameFile(invocation.getArgument(0), source)).isTrue();
+            return new StagedBlob(hash, true);
+        });
+
+        BulkImportReport report = bulkImportService.importDirectory(sourceDirectory, "james@gmail.com", "/");
+
+        assertThat(report.createdCount()).isEqualTo(1);
+        assertThat(getStagedDocuments()).extracting(StagedDocument::hash)
+                                        .containsExactly(hash);
+        assertThat(source).hasContent("content of a.txt");
+        verify(blobStorageService, never()).stageBlob(any(InputStream.class), anyString(), any());
+    }
+
+    @Test
+    void shouldCountBatchWhichCouldNotBeSavedAsFailed() throws IOException {
+        createFile("a.txt");
+        createFile("b.txt");
+
+        doThrow(new DataIntegrityViolationException("idx_document_user_path_name")).when(documentService).uploadStagedDocuments(eq(author), any());
+
+        BulkImportReport report = bulkImportService.importDirectory(sourceDirectory, "james@gmail.com", "/");
+
+        assertThat(report.createdCount()).isZero();
+        assertThat(report.failedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotImportWhenUserIsNotFound() throws IOException {
+        createFile("a.txt");
+
+        assertThatThrownBy(() -> bulkImportService.importDirectory(sourceDirectory, "john@gmail.com", "/")).isInstanceOf(UserNotFoundException.class);
+
+        verify(documentService, never()).uploadStagedDocuments(any(), any());
+    }
+
+    private Path createFile(String relativePath) throws IOException {
+        Path file = sourceDirectory.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+
+        return Files.writeString(file, "content of " + relativePath);
+    }
+
+    private List<StagedDocument> getStagedDocuments() {
+        ArgumentCaptor<List<StagedDocument>> stagedDocumentsCaptor = ArgumentCaptor.captor();
+        verify(documentService, atLeastOnce()).uploadStagedDocuments(eq(author), stagedDocumentsCaptor.capture());
+
+        return stagedDocumentsCaptor.getAllValues()
+                                    .stream()
+                                    .flatMap(List::stream)
+                                    .toList();
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.dms.unit.service;
+
+import com.dms.entity.Chunk;
+import com.dms.repository.ChunkRepository;
+import com.dms.service.ChunkReferenceService;
+import com.dms.storage.ChunkReferences.ChunkOperation;
+import com.dms.storage.ChunkReferences.ChunkReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkReferenceServiceTest {
+
+    private static final String FIRST_HASH = "1b4f0e9851971998e732078544c96b36c3d01cedf7caa332359d6f1d83567014";
+    private static final String SECOND_HASH = "60303ae22b998861bce3b28f33eec1be758a213c86c93c076dbe9f558c11c752";
+
+    @Mock
+    private ChunkRepository chunkRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ChunkReferenceService chunkReferenceService;
+
+    private final List<String> storedHashes = new ArrayList<>();
+    private final ChunkOperation storeContent = storedHashes::add;
+
+    @BeforeEach
+    void setUp() {
+        chunkReferenceService = new ChunkReferenceService(chunkRepository, transactionManager);
+    }
+
+    @Test
+    void shouldStoreAndInsertNewChunks() throws IOException {
+        when(chunkRepository.findAllByHashesForUpdate(anyCollection())).thenReturn(List.of());
+
+        chunkReferenceService.addReferences(List.of(new ChunkReference(SECOND_HASH, 8192, 1), new ChunkReference(FIRST_HASH, 4096, 2)), storeContent);
+
+        assertThat(storedHashes).containsExactly(FIRST_HASH, SECOND_HASH);
+        verify(chunkRepository).insert(FIRST_HASH, 2, 4096);
+        verify(chunkRepository).insert(SECOND_HASH, 1, 8192);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldOnlyIncrementReferenceCountOfReferencedChunk() throws IOException {
+        Chunk chunk = chunk(FIRST_HASH, 3L);
+        when(chunkRepository.findAllByHashesForUpdate(anyCollection())).thenReturn(List.of(chunk));
+
+        chunkReferenceService.addReferences(List.of(new ChunkReference(FIRST_HASH, 4096, 2)), storeContent);
+
+        assertThat(storedHashes).isEmpty();
+        assertThat(chunk.getReferenceCount()).isEqualTo(5L);
+        verify(chunkRepository, never()).insert(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void shouldStoreContentOfChunkWithoutReferences() throws IOException {
+        Chunk chunk = chunk(FIRST_HASH, 0L);
+        when(chunkRepository.findAllByHashesForUpdate(anyCollection())).thenReturn(List.of(chunk));
+
+        chunkReferenceService.addReferences(List.of(new ChunkReference(FIRST_HASH, 4096, 1)), storeContent);
+
+        assertThat(storedHashes).containsExactly(FIRST_HASH);
+        assertThat(chunk.getReferenceCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldRetryWhenChunkIsInsertedConcurrently() throws IOException {
+        Chunk chunk = chunk(FIRST_HASH, 1L);
+        when(chunkRepository.findAllByHashesForUpdate(anyCollection())).thenReturn(List.of(), List.of(chunk));
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(chunkRepository).insert(FIRST_HASH, 1, 4096);
+
+        chunkReferenceService.addReferences(List.of(new ChunkReference(FIRST_HASH, 4096, 1)), storeContent);
+
+        assertThat(chunk.getReferenceCount()).isEqualTo(2L);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldRollBackWhenContentCannotBeStored() {
+        when(chunkRepository.findAllByHashesForUpdate(anyCollection())).thenReturn(List.of());
+
+        assertThatIOException().isThrownBy(() -> chunkReferenceService.addReferences(
+            List.of(new ChunkReference(FIRST_HASH, 4096, 1)),
+            hash -> {
+                throw new IOException("Disk full");
+            }
+        ));
+
+        verify(chunkRepository, never()).insert(anyString(), anyLong(), anyLong());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void shouldRemoveReferencesInOrderOfHashes() {
+        when(chunkRepository.decrementReferenceCount(anyString(), anyLong())).thenReturn(1);
+
+        chunkReferenceService.removeReferences(Map.of(SECOND_HASH, 1L, FIRST_HASH, 2L));
+
+        var order = inOrder(chunkRepository);
+        order.verify(chunkRepository).decrementReferenceCount(FIRST_HASH, 2);
+        order.verify(chunkRepository).decrementReferenceCount(SECOND_HASH, 1);
+    }
+
+    @Test
+    void shouldDeleteUnreferencedChunksWithTheirContent() throws IOException {
+        List<Chunk> chunks = List.of(chunk(FIRST_HASH, 0L), chunk(SECOND_HASH, 0L));
+        when(chunkRepository.findUnreferencedForUpdate(any(Pageable.class))).thenReturn(chunks);
+        List<String> deletedHashes = new ArrayList<>();
+
+        int deletedChunkCount = chunkReferenceService.deleteUnreferenced(10, deletedHashes::add);
+
+        assertThat(deletedChunkCount).isEqualTo(2);
+        assertThat(deletedHashes).containsExactly(FIRST_HASH, SECOND_HASH);
+        verify(chunkRepository).deleteAll(chunks);
+    }
+
+    @Test
+    void shouldKeepChunksWhenContentCannotBeDeleted() {
+        when(chunkRepository.findUnreferencedForUpdate(any(Pageable.class))).thenReturn(List.of(chunk(FIRST_HASH, 0L)));
+
+        assertThatIOException().isThrownBy(() -> chunkReferenceService.deleteUnreferenced(10, hash -> {
+            throw new IOException("Access denied");
+        }));
+
+        verify(chunkRepository, never()).deleteAll(anyCollection());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    private static Chunk chunk(String hash, Long referenceCount) {
+        return Chunk.builder()
+                    .hash(hash)
+                    .referenceCount(referenceCount)
+                    .size(4096L)
+                    .build();
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.dms.unit.service;
+
+import com.dms.entity.Document;
+import com.dms.exception.InvalidCursorException;
+import com.dms.service.CursorService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class CursorServiceTest {
+
+    private static final String SORT_PARAMETER = "name:asc";
+
+    private static final Sort SORT = Sort.by(Sort.Order.asc("name"));
+
+    private CursorService cursorService;
+
+    @BeforeEach
+    void setUp() {
+        cursorService = new CursorService(new ObjectMapper());
+    }
+
+    @Test
+    void shouldReturnInitialPositionWhenCursorIsEmpty() {
+        ScrollPosition position = cursorService.decodeCursor("", SORT_PARAMETER, SORT, Document.class);
+
+        assertThat(position.isInitial()).isTrue();
+    }
+
+    @Test
+    void shouldDecodeEncodedCursor() {
+        Window<String> window = Window.from(List.of("document.txt"),
+                                            index -> ScrollPosition.forward(Map.of("name", "document.txt", "id", 5L)),
+                                            true);
+
+        String cursor = cursorService.encodeCursor(window, SORT_PARAMETER);
+        ScrollPosition position = cursorService.decodeCursor(cursor, SORT_PARAMETER, SORT, Document.class);
+
+        assertThat(position).isInstanceOf(KeysetScrollPosition.class);
+        assertThat(((KeysetScrollPosition) position).getKeys()).containsEntry("name", "document.txt")
+                                                               .containsEntry("id", 5L);
+    }
+
+    @Test
+    void shouldDecodeEncodedCursorWithDateKey() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123456000);
+        Window<String> window = Window.from(List.of("document.txt"),
+                                            index -> ScrollPosition.forward(Map.of("createdAt", createdAt, "id", 5L)),
+                                            true);
+
+        String cursor = cursorService.encodeCursor(window, "created_at:desc");
+        ScrollPosition position = cursorService.decodeCursor(cursor, "created_at:desc", Sort.by(Sort.Order.desc("createdAt")), Document.class);
+
+        assertThat(((KeysetScrollPosition) position).getKeys()).containsEntry("createdAt", createdAt)
+                                                               .containsEntry("id", 5L);
+    }
+
+    @Test
+    void shouldNotEncodeCursorWhenThereIsNoNextPage() {
+        Window<String> window = Window.from(List.of("document.txt"),
+                                            index -> ScrollPosition.forward(Map.of("name", "document.txt", "id", 5L)),
+                                            false);
+
+        assertThat(cursorService.encodeCursor(window, SORT_PARAMETER)).isNull();
+    }
+
+    @Test
+    void shouldThrowInvalidCursorExceptionWhenSortIsDifferent() {
+        Window<String> window = Window.from(List.of("document.txt"),
+                                            index -> ScrollPosition.forward(Map.of("name", "document.txt", "id", 5L)),
+                                            true);
+
+        String cursor = cursorService.encodeCursor(window, SORT_PARAMETER);
+
+        assertThatExceptionOfType(InvalidCursorException.class).isThrownBy(() -> cursorService.decodeCursor(cursor, "name:desc", SORT, Document.class));
+    }
+
+    @Test
+    void shouldThrowInvalidCursorExceptionWhenCursorIsMalformed() {
+        assertThatExceptionOfType(InvalidCursorException.class).isThrownBy(() -> cursorService.decodeCursor("invalid", SORT_PARAMETER, SORT, Document.class));
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.dms.unit.service;
 
+import com.dms.config.HashProperties;
 import com.dms.entity.Document;
 import com.dms.entity.DocumentRevision;
 import com.dms.entity.DocumentRevision_;
@@ -10,8 +11,11 @@ import com.dms.exception.InvalidRegexInputException;
 import com.dms.exception.RevisionNotFoundException;
 import com.dms.repository.DocumentRepository;
 import com.dms.repository.DocumentRevisionRepository;
+import com.dms.repository.HashReferenceCount;
+import com.dms.service.BlobReferenceService;
 import com.dms.service.BlobStorageService;
 import com.dms.service.DocumentCommonService;
+import com.dms.upload.StagedBlob;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,17 +23,20 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -55,6 +62,12 @@ class DocumentCommonServiceTest {
     @Mock
     private BlobStorageService blobStorageService;
 
+    @Mock
+    private BlobReferenceService blobReferenceService;
+
+    @Mock
+    private HashProperties hashProperties;
+
     @InjectMocks
     private DocumentCommonService documentCommonService;
 
@@ -171,6 +184,7 @@ class DocumentCommonServiceTest {
         documentCommonService.saveRevisionFromDocument(document);
 
         verify(revisionRepository, times(1)).save(any(DocumentRevision.class));
+        verify(blobReferenceService, times(1)).addReference(document.getHash(), document.getSize());
     }
 
     @Test
@@ -179,71 +193,24 @@ class DocumentCommonServiceTest {
     }
 
     @Test
-    void shouldReturnLastRevisionVersionByDocument() {
-        Long expectedVersion = 1L;
+    void shouldReserveRevisionVersion() {
+        when(documentRepository.findNextRevisionVersion(document.getId())).thenReturn(3L);
 
-        when(revisionRepository.findLastRevisionVersionByDocument(document)).thenReturn(Optional.of(expectedVersion));
+        Long reservedVersion = documentCommonService.reserveRevisionVersion(document);
 
-        Long actualVersion = documentCommonService.getLastRevisionVersion(document);
+        assertThat(reservedVersion).isEqualTo(2L);
 
-        assertThat(actualVersion).isEqualTo(expectedVersion);
+        verify(documentRepository, times(1)).incrementNextRevisionVersion(document.getId());
     }
 
     @Test
-    void shouldReturnZeroWhenDocumentHasNoVersions() {
-        Long expectedVersion = 0L;
-
-        when(revisionRepository.findLastRevisionVersionByDocument(document)).thenReturn(Optional.empty());
+    void shouldShiftRevisionVersionsAfterDeletedVersion() {
+        when(revisionRepository.decrementVersionsAfter(document, 2L)).thenReturn(3);
 
-        Long actualVersion = documentCommonService.getLastRevisionVersion(document);
-
-        assertThat(actualVersion).isEqualTo(expectedVersion);
-    }
-
-    @Test
-    void shouldReturnRevisionCountForDocument() {
-        when(revisionRepository.countAllByDocument(document)).thenReturn(1);
+        documentCommonService.shiftRevisionVersionsAfter(document, 2L);
 
-        Integer revisionCount = documentCommonService.getRevisionCountForDocument(document);
-
-        assertThat(revisionCount).isEqualTo(1);
-    }
-
-    @Test
-    void shouldReturnRevisionsForDocument() {
-        Pageable pageable = PageRequest.of(0, 3);
-        Page<DocumentRevision> revisions = new PageImpl<>(List.of(revision), pageable, 1);
-
-        when(revisionRepository.findAllByDocument(document, pageable)).thenReturn(revisions);
-
-        Page<DocumentRevision> foundRevisions = documentCommonService.findAllRevisionsByDocument(document, pageable);
-
-        assertThat(foundRevisions).isNotEmpty();
-        assertThat(foundRevisions.getTotalElements()).isEqualTo(1);
-    }
-
-    @Test
-    void shouldUpdateRevisionVersionsForDocument() {
-        DocumentRevision anotherRevision = new DocumentRevision();
-
-        List<DocumentRevision> revisions = List.of(revision, anotherRevision);
-
-        when(revisionRepository.findAllByDocumentOrderByCreatedAtAsc(document)).thenReturn(revisions);
-
-        documentCommonService.updateRevisionVersionsForDocument(document);
-
-        verify(revisionRepository, times(1)).findAllByDocumentOrderByCreatedAtAsc(any(Document.class));
-        verify(revisionRepository, times(1)).save(revisions.get(0));
-        verify(revisionRepository, times(1)).save(revisions.get(1));
-    }
-
-    @Test
-    void shouldNotUpdateRevisionVersionsForDocumentWhenDocumentIsNull() {
-        when(revisionRepository.findAllByDocumentOrderByCreatedAtAsc(null)).thenReturn(new ArrayList<>());
-
-        documentCommonService.updateRevisionVersionsForDocument(null);
-
-        verify(revisionRepository, times(1)).findAllByDocumentOrderByCreatedAtAsc(null);
+        verify(revisionRepository, times(1)).decrementVersionsAfter(document, 2L);
+        verify(documentRepository, times(1)).decrementNextRevisionVersion(document.getId());
         verify(revisionRepository, never()).save(any(DocumentRevision.class));
     }
 
@@ -343,15 +310,15 @@ class DocumentCommonServiceTest {
     }
 
     @Test
-    void shouldStoreBlob() {
-        String expectedHash = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
+    void shouldStageBlob() {
+        StagedBlob expectedBlob = new StagedBlob("185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969", true);
         MockMultipartFile file = new MockMultipartFile("document.txt", "hello".getBytes());
 
-        when(blobStorageService.storeBlob(file)).thenReturn(expectedHash);
+        when(blobStorageService.stageBlob(file, null)).thenReturn(expectedBlob);
 
-        String actualHash = documentCommonService.storeBlob(file);
+        StagedBlob actualBlob = documentCommonService.stageBlob(file);
 
-        assertThat(actualHash).isEqualTo(expectedHash);
+        assertThat(actualBlob).isEqualTo(expectedBlob);
     }
 
     @Test
@@ -381,38 +348,105 @@ class DocumentCommonServiceTest {
     }
 
     @Test
-    void shouldDeleteBlobIfHashIsNotADuplicate() {
+    void shouldCreateDownloadResponse() throws IOException {
         String hash = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
+        Resource resource = new ClassPathResource("example.txt");
 
-        when(documentRepository.duplicateHashExists(hash)).thenReturn(false);
-        when(revisionRepository.duplicateHashExists(hash)).thenReturn(false);
+        when(blobStorageService.getBlob(hash)).thenReturn(resource);
+        when(hashProperties.getAlgorithm()).thenReturn("SHA-256");
 
-        documentCommonService.safelyDeleteBlob(hash);
+        ResponseEntity<Resource> response = documentCommonService.createDownloadResponse(hash, "example.txt", "text/plain", CacheControl.noCache(), null, null);
 
-        verify(blobStorageService, times(1)).deleteBlob(hash);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.TEXT_PLAIN);
+        assertThat(response.getHeaders().getContentDisposition().isAttachment()).isTrue();
+        assertThat(response.getHeaders().getContentDisposition().getFilename()).isEqualTo("example.txt");
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + hash + "\"");
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-cache");
+        assertThat(response.getHeaders().getFirst("Repr-Digest")).isEqualTo("sha-256=:GF+NsyJx/iX1Yab8k4suJkMG7DBO2lGAB9F2SCY4GWk=:");
+        assertThat(response.getBody()).isEqualTo(resource);
     }
 
     @Test
-    void shouldNotDeleteBlobIfHashHasDuplicateInDocumentRepository() {
+    void shouldCreateNotModifiedResponseWhenIfNoneMatchMatches() {
         String hash = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
+        String ifNoneMatch = "\"1ef8c63124992a0beba43fc38965eab99f4333cc4b7b11425d024667a53367d9\", W/\"" + hash + "\"";
 
-        when(documentRepository.duplicateHashExists(hash)).thenReturn(true);
+        ResponseEntity<Resource> response = documentCommonService.createDownloadResponse(hash, "example.txt", "text/plain", CacheControl.noCache(), ifNoneMatch, null);
 
-        documentCommonService.safelyDeleteBlob(hash);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + hash + "\"");
+        assertThat(response.getBody()).isNull();
 
-        verify(blobStorageService, never()).deleteBlob(hash);
+        verify(blobStorageService, never()).getBlob(any());
     }
 
     @Test
-    void shouldNotDeleteBlobIfHashHasDuplicateInRevisionRepository() {
+    void shouldCreateWholeFileDownloadResponseWhenIfRangeDoesNotMatch() throws IOException {
         String hash = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
+        Resource resource = new ClassPathResource("example.txt");
+
+        when(blobStorageService.getBlob(hash)).thenReturn(resource);
+        when(hashProperties.getAlgorithm()).thenReturn("SHA-256");
+
+        ResponseEntity<Resource> response = documentCommonService.createDownloadResponse(hash, "example.txt", "text/plain", CacheControl.noCache(), null, "\"outdated\"");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(resource.contentLength());
+        assertThat(response.getBody()).isInstanceOf(InputStreamResource.class);
+        assertThat(response.getBody().getContentAsByteArray()).isEqualTo(resource.getContentAsByteArray());
+    }
+
+    @Test
+    void shouldThrowFileOperationExceptionWhenDownloadedBlobDoesNotExist() {
+        String hash = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
+
+        when(blobStorageService.getBlob(hash)).thenReturn(new ClassPathResource("missing.txt"));
+
+        assertThatThrownBy(() -> documentCommonService.createDownloadResponse(hash, "missing.txt", "text/plain", CacheControl.noCache(), null, null)).isInstanceOf(FileOperationException.class);
+    }
 
-        when(documentRepository.duplicateHashExists(hash)).thenReturn(false);
-        when(revisionRepository.duplicateHashExists(hash)).thenReturn(true);
+    @Test
+    void shouldRemoveBlobReferenceWhenRevisionIsDeleted() {
+        String hash = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
 
         documentCommonService.safelyDeleteBlob(hash);
 
+        verify(blobReferenceService, times(1)).removeReference(hash);
+    }
+
+    @Test
+    void shouldRemoveBlobReferencesOfDeletedDocuments() {
+        HashReferenceCount referenceCount = mock(HashReferenceCount.class);
+        List<Long> documentIds = List.of(1L, 2L);
+
+        when(referenceCount.getHash()).thenReturn("185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969");
+        when(referenceCount.getReferenceCount()).thenReturn(3L);
+        when(revisionRepository.countHashReferencesByDocumentIds(documentIds)).thenReturn(List.of(referenceCount));
+
+        documentCommonService.deleteRevisionsOfDocuments(documentIds);
+
+        verify(blobReferenceService, times(1)).removeReferences("185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969", 3L);
+        verify(revisionRepository, times(1)).deleteAllByDocumentIds(documentIds);
+    }
+
+    @Test
+    void shouldDeleteStagedBlobWrittenByUpload() {
+        String hash = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
+
+        documentCommonService.deleteStagedBlob(new StagedBlob(hash, true));
+
+        verify(blobReferenceService, times(1)).deleteStagedBlob(hash);
+    }
+
+    @Test
+    void shouldNotDeleteStagedBlobWhichWasAlreadyStored() {
+        String hash = "185f8db32271fe25f561a6fc938b2e264306ec304eda518007d1764826381969";
+
+        documentCommonService.deleteStagedBlob(new StagedBlob(hash, false));
+
+        verify(blobReferenceService, never()).deleteStagedBlob(hash);
         verify(blobStorageService, never()).deleteBlob(hash);
     }
 
-}
\ No newline at end of file
+}
@@ -26,6 +26,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -42,6 +43,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -151,7 +154,7 @@ class DocumentRevisionServiceTest {
         verify(documentCommonService, times(1)).updateDocumentToRevision(document, previousRevision);
         verify(documentCommonService, times(1)).safelyDeleteBlob(revision.getHash());
         verify(revisionRepository, times(1)).deleteByRevisionId(revision.getRevisionId());
-        verify(documentCommonService, times(1)).updateRevisionVersionsForDocument(document);
+        verify(documentCommonService, times(1)).shiftRevisionVersionsAfter(document, revision.getVersion());
         verify(documentCommonService, never()).saveDocument(document);
     }
 
@@ -180,7 +183,7 @@ class DocumentRevisionServiceTest {
         verify(documentCommonService, times(1)).updateDocumentToRevision(document, nextRevision);
         verify(documentCommonService, times(1)).safelyDeleteBlob(revision.getHash());
         verify(revisionRepository, times(1)).deleteByRevisionId(revision.getRevisionId());
-        verify(documentCommonService, times(1)).updateRevisionVersionsForDocument(document);
+        verify(documentCommonService, times(1)).shiftRevisionVersionsAfter(document, revision.getVersion());
         verify(documentCommonService, never()).saveDocument(any(Document.class));
     }
 
@@ -207,7 +210,7 @@ class DocumentRevisionServiceTest {
         verify(documentCommonService, never()).updateDocumentToRevision(any(Document.class), any(DocumentRevision.class));
         verify(documentCommonService, never()).safelyDeleteBlob(anyString());
         verify(revisionRepository, never()).deleteByRevisionId(anyString());
-        verify(documentCommonService, never()).updateRevisionVersionsForDocument(any(Document.class));
+        verify(documentCommonService, never()).shiftRevisionVersionsAfter(any(Document.class), anyLong());
         verify(documentCommonService, never()).saveDocument(any(Document.class));
     }
 
@@ -229,27 +232,28 @@ class DocumentRevisionServiceTest {
         verify(documentCommonService, never()).updateDocumentToRevision(any(Document.class), any(DocumentRevision.class));
         verify(documentCommonService, times(1)).safelyDeleteBlob(revision.getHash());
         verify(revisionRepository, times(1)).deleteByRevisionId(revision.getRevisionId());
-        verify(documentCommonService, times(1)).updateRevisionVersionsForDocument(document);
+        verify(documentCommonService, times(1)).shiftRevisionVersionsAfter(document, revision.getVersion());
         verify(documentCommonService, times(1)).saveDocument(document);
     }
 
     @Test
-    void shouldDownloadRevision() throws IOException {
+    void shouldDownloadRevision() {
         revision.setName("example.txt");
+        ResponseEntity<Resource> response = ResponseEntity.ok()
+                                                          .contentType(MediaType.TEXT_PLAIN)
+                                                          .eTag(revision.getHash())
+                                                          .body(resource);
 
         when(userService.getAuthenticatedUser()).thenReturn(author);
         when(revisionRepository.findByRevisionIdAndAuthor(revision.getRevisionId(), author)).thenReturn(Optional.of(revision));
-        when(documentCommonService.getBlob(revision.getHash())).thenReturn(resource);
-        when(documentCommonService.getContentLength(resource)).thenReturn(String.valueOf(resource.contentLength()));
+        when(documentCommonService.createDownloadResponse(eq(revision.getHash()), eq(revision.getName()), eq(revision.getType()), any(CacheControl.class), isNull(), isNull())).thenReturn(response);
 
-        ResponseEntity<Resource> revisionDownloadResponse = documentRevisionService.downloadRevision(revision.getRevisionId());
+        ResponseEntity<Resource> revisionDownloadResponse = documentRevisionService.downloadRevision(revision.getRevisionId(), null, null);
 
         assertThat(revisionDownloadResponse).isNotNull();
         assertThat(revisionDownloadResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(revisionDownloadResponse.getHeaders().getContentType()).isEqualTo(MediaType.TEXT_PLAIN);
-        assertThat(revisionDownloadResponse.getHeaders().getContentDisposition().isAttachment()).isTrue();
-        assertThat(revisionDownloadResponse.getHeaders().getContentDisposition().getFilename()).isEqualTo(resource.getFilename());
-        assertThat(revisionDownloadResponse.getHeaders().getContentLength()).isEqualTo(resource.contentLength());
+        assertThat(revisionDownloadResponse.getHeaders().getETag()).isEqualTo("\"" + revision.getHash() + "\"");
         assertThat(revisionDownloadResponse.getBody()).isEqualTo(resource);
     }
 
@@ -1,38 +1,51 @@
 package com.dms.unit.service;
 
 import com.dms.config.ArchiveProperties;
+import com.dms.config.UploadProperties;
 import com.dms.entity.Document;
 import com.dms.entity.DocumentRevision;
 import com.dms.entity.Document_;
 import com.dms.entity.User;
 import com.dms.exception.DocumentNotFoundException;
-import com.dms.exception.FileWithPathAlreadyExistsException;
+import com.dms.exception.InvalidUploadException;
+import com.dms.exception.UploadSizeExceededException;
 import com.dms.repository.DocumentRepository;
 import com.dms.service.DocumentCommonService;
 import com.dms.service.DocumentService;
 import com.dms.service.UserService;
 import com.dms.specification.DocumentFilterSpecification;
 import com.dms.specification.RevisionFilterSpecification;
+import com.dms.upload.BatchUploadResult;
+import com.dms.upload.StagedBlob;
+import com.dms.upload.StagedDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -44,6 +57,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -65,6 +80,12 @@ class DocumentServiceTest {
     @Mock
     private ArchiveProperties archiveProperties;
 
+    @Mock
+    private UploadProperties uploadProperties;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private DocumentService documentService;
 
@@ -138,10 +159,10 @@ class DocumentServiceTest {
         MockMultipartFile file = new MockMultipartFile("document.txt", "some text".getBytes());
         String path = "/home";
 
-        when(documentCommonService.storeBlob(file)).thenReturn(document.getHash());
+        when(documentCommonService.stageBlob(file)).thenReturn(new StagedBlob(document.getHash(), true));
         when(userService.getAuthenticatedUser()).thenReturn(author);
-        when(documentRepository.documentWithPathAlreadyExists(anyString(), anyString(), any(User.class))).thenReturn(false);
-        when(documentRepository.save(any(Document.class))).thenReturn(savedDocument);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenReturn(savedDocument);
+        mockTransactionTemplate();
 
         Document actualDocument = documentService.uploadDocument(file, path);
 
@@ -149,10 +170,9 @@ class DocumentServiceTest {
         assertThat(actualDocument.getDocumentId()).isEqualTo(savedDocument.getDocumentId());
         assertThat(actualDocument.getPath()).isEqualTo(savedDocument.getPath());
 
-        verify(documentCommonService, times(1)).storeBlob(any(MultipartFile.class));
-        verify(userService, times(2)).getAuthenticatedUser();
-        verify(documentRepository, times(1)).documentWithPathAlreadyExists(anyString(), anyString(), any(User.class));
-        verify(documentRepository, times(1)).save(any(Document.class));
+        verify(documentCommonService, times(1)).stageBlob(any(MultipartFile.class));
+        verify(userService, times(1)).getAuthenticatedUser();
+        verify(documentRepository, times(1)).saveAndFlush(any(Document.class));
         verify(documentCommonService, times(1)).saveRevisionFromDocument(any(Document.class));
     }
 
@@ -161,14 +181,115 @@ class DocumentServiceTest {
         MockMultipartFile file = new MockMultipartFile("document.txt", "some text".getBytes());
         String path = "/home";
 
+        when(documentCommonService.stageBlob(file)).thenReturn(new StagedBlob(document.getHash(), true));
         when(userService.getAuthenticatedUser()).thenReturn(author);
-        when(documentRepository.documentWithPathAlreadyExists(anyString(), anyString(), any(User.class))).thenReturn(true);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenThrow(new DataIntegrityViolationException("uk_document_user_path_name"));
+        mockTransactionTemplate();
 
-        assertThatThrownBy(() -> documentService.uploadDocument(file, path)).isInstanceOf(FileWithPathAlreadyExistsException.class);
+        assertThatThrownBy(() -> documentService.uploadDocument(file, path)).isInstanceOf(DataIntegrityViolationException.class);
 
-        verify(documentCommonService, never()).storeBlob(any(MultipartFile.class));
-        verify(documentRepository, never()).save(any(Document.class));
-        verify(documentRepository, never()).save(any(Document.class));
+        verify(documentCommonService, times(1)).deleteStagedBlob(new StagedBlob(document.getHash(), true));
+        verify(documentCommonService, never()).saveRevisionFromDocument(any(Document.class));
+    }
+
+    @Test
+    void shouldDeleteStagedBlobWhenMetadataTransactionFails() {
+        MockMultipartFile file = new MockMultipartFile("document.txt", "some text".getBytes());
+        String path = "/home";
+
+        when(documentCommonService.stageBlob(file)).thenReturn(new StagedBlob(document.getHash(), true));
+        when(userService.getAuthenticatedUser()).thenReturn(author);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenThrow(new IllegalStateException("Connection lost"));
+        mockTransactionTemplate();
+
+        assertThatThrownBy(() -> documentService.uploadDocument(file, path)).isInstanceOf(IllegalStateException.class);
+
+        verify(documentCommonService, times(1)).deleteStagedBlob(new StagedBlob(document.getHash(), true));
+        verify(documentCommonService, never()).saveRevisionFromDocument(any(Document.class));
+    }
+
+    @Test
+    void shouldUploadDocumentFromStream() {
+        InputStream content = new ByteArrayInputStream("some text".getBytes());
+
+        when(uploadProperties.getMaxSize()).thenReturn(DataSize.ofMegabytes(1));
+        when(documentCommonService.stageBlob(any(InputStream.class), eq("document.txt"), isNull())).thenAnswer(invocation -> {
+            invocation.<InputStream>getArgument(0).readAllBytes();
+            return new StagedBlob(document.getHash(), true);
+        });
+        when(userService.getAuthenticatedUser()).thenReturn(author);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        mockTransactionTemplate();
+
+        Document actualDocument = documentService.uploadDocument(content, "dir/document.txt", null, "/home");
+
+        assertThat(actualDocument.getName()).isEqualTo("document.txt");
+        assertThat(actualDocument.getType()).isEqualTo("application/octet-stream");
+        assertThat(actualDocument.getPath()).isEqualTo("/home");
+        assertThat(actualDocument.getSize()).isEqualTo(9L);
+        assertThat(actualDocument.getHash()).isEqualTo(document.getHash());
+
+        verify(documentCommonService, times(1)).saveRevisionFromDocument(actualDocument);
+    }
+
+    @Test
+    void shouldNotUploadDocumentFromStreamWhenPathIsMissing() {
+        InputStream content = new ByteArrayInputStream("some text".getBytes());
+
+        assertThatThrownBy(() -> documentService.uploadDocument(content, "document.txt", null, null)).isInstanceOf(InvalidUploadException.class);
+
+        verify(documentCommonService, never()).stageBlob(any(InputStream.class), anyString(), any());
+    }
+
+    @Test
+    void shouldNotUploadDocumentFromStreamWhenNameIsMissing() {
+        InputStream content = new ByteArrayInputStream("some text".getBytes());
+
+        assertThatThrownBy(() -> documentService.uploadDocument(content, "dir/", null, "/home")).isInstanceOf(InvalidUploadException.class);
+
+        verify(documentCommonService, never()).stageBlob(any(InputStream.class), anyString(), any());
+    }
+
+    @Test
+    void shouldNotUploadDocumentFromStreamWhenContentExceedsMaximalSize() {
+        InputStream content = new ByteArrayInputStream(new byte[2048]);
+
+        when(uploadProperties.getMaxSize()).thenReturn(DataSize.ofKilobytes(1));
+        when(documentCommonService.stageBlob(any(InputStream.class), eq("document.txt"), isNull())).thenAnswer(invocation -> {
+            invocation.<InputStream>getArgument(0).readAllBytes();
+            return new StagedBlob(document.getHash(), true);
+        });
+
+        assertThatThrownBy(() -> documentService.uploadDocument(content, "document.txt", null, "/home")).isInstanceOf(UploadSizeExceededException.class);
+
+        verify(documentRepository, never()).saveAndFlush(any(Document.class));
+    }
+
+    @Test
+    void shouldUploadNewDocumentVersionFromStream() {
+        InputStream content = new ByteArrayInputStream("some text".getBytes());
+
+        when(userService.getAuthenticatedUser()).thenReturn(author);
+        when(documentRepository.findByDocumentIdAndAuthor(document.getDocumentId(), author)).thenReturn(Optional.of(document));
+        when(uploadProperties.getMaxSize()).thenReturn(DataSize.ofMegabytes(1));
+        when(documentCommonService.stageBlob(any(InputStream.class), eq("notes.txt"), eq(document.getHash()))).thenAnswer(invocation -> {
+            invocation.<InputStream>getArgument(0).readAllBytes();
+            return new StagedBlob("ab".repeat(32), true);
+        });
+        when(documentCommonService.reserveRevisionVersion(document)).thenReturn(2L);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        mockTransactionTemplate();
+
+        Document actualDocument = documentService.uploadNewDocumentVersion(document.getDocumentId(), content, "notes.txt", "text/plain", null);
+
+        ArgumentCaptor<Document> documentCaptor = ArgumentCaptor.forClass(Document.class);
+        verify(documentRepository).saveAndFlush(documentCaptor.capture());
+
+        assertThat(actualDocument).isSameAs(documentCaptor.getValue());
+        assertThat(actualDocument.getName()).isEqualTo("notes.txt");
+        assertThat(actualDocument.getPath()).isEqualTo(document.getPath());
+        assertThat(actualDocument.getSize()).isEqualTo(9L);
+        assertThat(actualDocument.getHash()).isEqualTo("ab".repeat(32));
     }
 
     @Test
@@ -190,10 +311,10 @@ class DocumentServiceTest {
 
         when(userService.getAuthenticatedUser()).thenReturn(author);
         when(documentRepository.findByDocumentIdAndAuthor(document.getDocumentId(), author)).thenReturn(Optional.of(document));
-        when(documentRepository.documentWithPathAlreadyExists(anyString(), anyString(), any(User.class))).thenReturn(false);
-        when(documentCommonService.storeBlob(file)).thenReturn(document.getHash());
-        when(documentCommonService.getLastRevisionVersion(any(Document.class))).thenReturn(1L);
-        when(documentRepository.save(any(Document.class))).thenReturn(savedDocument);
+        when(documentCommonService.stageBlob(file, document.getHash())).thenReturn(new StagedBlob(document.getHash(), false));
+        when(documentCommonService.reserveRevisionVersion(document)).thenReturn(2L);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenReturn(savedDocument);
+        mockTransactionTemplate();
 
         Document actualDocument = documentService.uploadNewDocumentVersion(document.getDocumentId(), file, path);
 
@@ -202,8 +323,7 @@ class DocumentServiceTest {
         assertThat(actualDocument.getVersion()).isEqualTo(savedDocument.getVersion());
         assertThat(actualDocument.getPath()).isEqualTo(savedDocument.getPath());
 
-        verify(documentRepository, times(1)).documentWithPathAlreadyExists(anyString(), anyString(), any(User.class));
-        verify(documentRepository, times(1)).save(any(Document.class));
+        verify(documentRepository, times(1)).saveAndFlush(any(Document.class));
     }
 
     @Test
@@ -224,9 +344,10 @@ class DocumentServiceTest {
 
         when(userService.getAuthenticatedUser()).thenReturn(author);
         when(documentRepository.findByDocumentIdAndAuthor(document.getDocumentId(), author)).thenReturn(Optional.of(document));
-        when(documentCommonService.storeBlob(file)).thenReturn(document.getHash());
-        when(documentCommonService.getLastRevisionVersion(any(Document.class))).thenReturn(1L);
-        when(documentRepository.save(any(Document.class))).thenReturn(savedDocument);
+        when(documentCommonService.stageBlob(file, document.getHash())).thenReturn(new StagedBlob(document.getHash(), false));
+        when(documentCommonService.reserveRevisionVersion(document)).thenReturn(2L);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenReturn(savedDocument);
+        mockTransactionTemplate();
 
         Document actualDocument = documentService.uploadNewDocumentVersion(document.getDocumentId(), file, null);
 
@@ -235,8 +356,7 @@ class DocumentServiceTest {
         assertThat(actualDocument.getVersion()).isEqualTo(savedDocument.getVersion());
         assertThat(actualDocument.getPath()).isEqualTo(savedDocument.getPath());
 
-        verify(documentRepository, never()).documentWithPathAlreadyExists(anyString(), anyString(), any(User.class));
-        verify(documentRepository, times(1)).save(any(Document.class));
+        verify(documentRepository, times(1)).saveAndFlush(any(Document.class));
     }
 
     @Test
@@ -283,39 +403,31 @@ class DocumentServiceTest {
 
     @Test
     void shouldDeleteDocumentWithRevisions() {
-        List<DocumentRevision> revisions = List.of(new DocumentRevision(), new DocumentRevision());
-        document.setRevisions(revisions);
-
-        Pageable pageable = PageRequest.of(0, 3);
-        Page<DocumentRevision> revisionPage = new PageImpl<>(revisions, pageable, revisions.size());
-
         when(userService.getAuthenticatedUser()).thenReturn(author);
         when(documentRepository.findByDocumentIdAndAuthor(document.getDocumentId(), author)).thenReturn(Optional.of(document));
-        when(documentCommonService.getRevisionCountForDocument(document)).thenReturn(revisions.size());
-        when(documentCommonService.findAllRevisionsByDocument(any(Document.class), any(Pageable.class))).thenReturn(revisionPage);
 
         documentService.deleteDocumentWithRevisions(document.getDocumentId());
 
-        verify(documentCommonService, times(2)).safelyDeleteBlob(any());
-        verify(documentRepository, times(1)).delete(any(Document.class));
+        verify(documentCommonService, times(1)).deleteRevisionsOfDocuments(List.of(document.getId()));
+        verify(documentRepository, times(1)).deleteAllByIds(List.of(document.getId()));
     }
 
     @Test
-    void shouldDownloadDocument() throws IOException {
+    void shouldDownloadDocument() {
         document.setName(resource.getFilename());
+        ResponseEntity<Resource> response = ResponseEntity.ok()
+                                                          .eTag(document.getHash())
+                                                          .body(resource);
 
         when(userService.getAuthenticatedUser()).thenReturn(author);
         when(documentRepository.findByDocumentIdAndAuthor(document.getDocumentId(), author)).thenReturn(Optional.of(document));
-        when(documentCommonService.getBlob(anyString())).thenReturn(resource);
-        when(documentCommonService.getContentLength(resource)).thenReturn(String.valueOf(resource.contentLength()));
+        when(documentCommonService.createDownloadResponse(eq(document.getHash()), eq(document.getName()), eq(document.getType()), any(CacheControl.class), isNull(), isNull())).thenReturn(response);
 
-        ResponseEntity<Resource> documentDownloadResponse = documentService.downloadDocument(document.getDocumentId());
+        ResponseEntity<Resource> documentDownloadResponse = documentService.downloadDocument(document.getDocumentId(), null, null);
 
         assertThat(documentDownloadResponse).isNotNull();
         assertThat(documentDownloadResponse.getBody()).isEqualTo(resource);
-        assertThat(documentDownloadResponse.getHeaders().getContentLength()).isEqualTo(resource.contentLength());
-        assertThat(documentDownloadResponse.getHeaders().getContentDisposition().isAttachment()).isTrue();
-        assertThat(documentDownloadResponse.getHeaders().getContentDisposition().getFilename()).isEqualTo(resource.getFilename());
+        assertThat(documentDownloadResponse.getHeaders().getETag()).isEqualTo("\"" + document.getHash() + "\"");
     }
 
     @Test
@@ -425,15 +537,15 @@ class DocumentServiceTest {
 
         when(userService.getAuthenticatedUser()).thenReturn(author);
         when(documentRepository.findByDocumentIdAndAuthor(document.getDocumentId(), author)).thenReturn(Optional.of(document));
-        when(documentRepository.documentWithPathAlreadyExists(anyString(), anyString(), any(User.class))).thenReturn(false);
-        when(documentRepository.save(any(Document.class))).thenReturn(savedDocument);
+        when(documentCommonService.reserveRevisionVersion(document)).thenReturn(2L);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenReturn(savedDocument);
 
         Document movedDocument = documentService.moveDocument(document.getDocumentId(), path);
 
         assertThat(movedDocument).isNotNull();
         assertThat(movedDocument.getPath()).isEqualTo(savedDocument.getPath());
 
-        verify(documentRepository, times(1)).save(any(Document.class));
+        verify(documentRepository, times(1)).saveAndFlush(any(Document.class));
         verify(documentCommonService, times(1)).saveRevisionFromDocument(any(Document.class));
     }
 
@@ -444,9 +556,12 @@ class DocumentServiceTest {
 
         when(userService.getAuthenticatedUser()).thenReturn(author);
         when(documentRepository.findByDocumentIdAndAuthor(documentId, author)).thenReturn(Optional.of(document));
-        when(documentRepository.documentWithPathAlreadyExists(anyString(), anyString(), any(User.class))).thenReturn(true);
 
-        assertThatThrownBy(() -> documentService.moveDocument(documentId, path)).isInstanceOf(FileWithPathAlreadyExistsException.class);
+        when(documentRepository.saveAndFlush(any(Document.class))).thenThrow(new DataIntegrityViolationException("uk_document_user_path_name"));
+
+        assertThatThrownBy(() -> documentService.moveDocument(documentId, path)).isInstanceOf(DataIntegrityViolationException.class);
+
+        verify(documentCommonService, never()).saveRevisionFromDocument(any(Document.class));
     }
 
     @Test
@@ -510,4 +625,83 @@ class DocumentServiceTest {
         verify(documentRepository, never()).save(any(Document.class));
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldUploadStagedDocuments() {
+        List<StagedDocument> stagedDocuments = List.of(
+            new StagedDocument("first.txt", "text/plain", "/", 9L, "hash1", true),
+            new StagedDocument("document.txt", "text/plain", "/", 9L, "hash2", true),
+            new StagedDocument("second.bin", null, "/", 4L, "hash3", true),
+            new StagedDocument("first.txt", "text/plain", "/", 5L, "hash4", true)
+        );
+
+        when(userService.getAuthenticatedUser()).thenReturn(author);
+        when(documentRepository.findNamesByAuthorAndPathAndNameIn(author, "/", List.of("first.txt", "document.txt", "second.bin"))).thenReturn(List.of("document.txt"));
+        mockTransactionTemplate();
+
+        List<BatchUploadResult> results = documentService.uploadStagedDocuments(stagedDocuments);
+
+        assertThat(results).extracting(BatchUploadResult::name).containsExactly("first.txt", "document.txt", "second.bin", "first.txt");
+        assertThat(results).extracting(BatchUploadResult::status).containsExactly(BatchUploadResult.Status.CREATED, BatchUploadResult.Status.CONFLICT,
+                                                                                  BatchUploadResult.Status.CREATED, BatchUploadResult.Status.CONFLICT);
+        assertThat(results.get(2).document().getType()).isEqualTo("application/octet-stream");
+
+        ArgumentCaptor<List<Document>> documentsCaptor = ArgumentCaptor.captor();
+        verify(documentRepository, times(1)).saveAllAndFlush(documentsCaptor.capture());
+        assertThat(documentsCaptor.getValue()).extracting(Document::getHash).containsExactly("hash1", "hash3");
+        verify(documentCommonService, times(1)).saveRevisionsFromDocuments(documentsCaptor.getValue());
+
+        verify(documentCommonService, times(1)).deleteStagedBlob(new StagedBlob("hash2", true));
+        verify(documentCommonService, times(1)).deleteStagedBlob(new StagedBlob("hash4", true));
+        verify(documentCommonService, never()).deleteStagedBlob(new StagedBlob("hash1", true));
+        verify(documentCommonService, never()).deleteStagedBlob(new StagedBlob("hash3", true));
+    }
+
+    @Test
+    void shouldCheckUsedNamesOfStagedDocumentsPerPath() {
+        List<StagedDocument> stagedDocuments = List.of(
+            new StagedDocument("first.txt", "text/plain", "/", 9L, "hash1", true),
+            new StagedDocument("first.txt", "text/plain", "/docs", 9L, "hash2", true),
+            new StagedDocument("second.txt", "text/plain", "/docs", 9L, "hash3", true)
+        );
+
+        when(userService.getAuthenticatedUser()).thenReturn(author);
+        when(documentRepository.findNamesByAuthorAndPathAndNameIn(author, "/", List.of("first.txt"))).thenReturn(List.of());
+        when(documentRepository.findNamesByAuthorAndPathAndNameIn(author, "/docs", List.of("first.txt", "second.txt"))).thenReturn(List.of("second.txt"));
+        mockTransactionTemplate();
+
+        List<BatchUploadResult> results = documentService.uploadStagedDocuments(stagedDocuments);
+
+        assertThat(results).extracting(BatchUploadResult::status).containsExactly(BatchUploadResult.Status.CREATED, BatchUploadResult.Status.CREATED,
+                                                                                  BatchUploadResult.Status.CONFLICT);
+        assertThat(results.get(1).document().getPath()).isEqualTo("/docs");
+        assertThat(results.get(2).detail()).endsWith("/docs");
+
+        verify(documentCommonService, times(1)).deleteStagedBlob(new StagedBlob("hash3", true));
+    }
+
+    @Test
+    void shouldDeleteStagedBlobsWhenBatchTransactionFails() {
+        List<StagedDocument> stagedDocuments = List.of(
+            new StagedDocument("first.txt", "text/plain", "/", 9L, "hash1", true),
+            new StagedDocument("second.txt", "text/plain", "/", 9L, "hash1", false)
+        );
+
+        when(userService.getAuthenticatedUser()).thenReturn(author);
+        when(documentRepository.findNamesByAuthorAndPathAndNameIn(eq(author), eq("/"), any())).thenReturn(List.of());
+        when(documentRepository.saveAllAndFlush(any())).thenThrow(new DataIntegrityViolationException("uk_document_user_path_name"));
+        mockTransactionTemplate();
+
+        assertThatThrownBy(() -> documentService.uploadStagedDocuments(stagedDocuments)).isInstanceOf(DataIntegrityViolationException.class);
+
+        verify(documentCommonService, times(1)).deleteStagedBlob(new StagedBlob("hash1", true));
+        verify(documentCommonService, never()).saveRevisionsFromDocuments(any());
+    }
+
+    private void mockTransactionTemplate() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+    }
+
+}
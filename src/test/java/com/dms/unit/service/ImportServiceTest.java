@@ -0,0 +1,253 @@
+package com.dms.unit.service;
+
+import com.dms.config.UploadProperties;
+import com.dms.entity.Document;
+import com.dms.entity.User;
+import com.dms.exception.FileOperation;
+import com.dms.exception.FileOperationException;
+import com.dms.exception.ImportNotFoundException;
+import com.dms.exception.InvalidUploadException;
+import com.dms.exception.UploadSizeExceededException;
+import com.dms.service.BlobStorageService;
+import com.dms.service.DocumentService;
+import com.dms.service.ImportService;
+import com.dms.service.UserService;
+import com.dms.upload.BatchUploadResult;
+import com.dms.upload.ImportSession;
+import com.dms.upload.StagedBlob;
+import com.dms.upload.StagedDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImportServiceTest {
+
+    @Mock
+    private DocumentService documentService;
+
+    @Mock
+    private BlobStorageService blobStorageService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UploadProperties uploadProperties;
+
+    @TempDir
+    private Path tempDirectory;
+
+    private ImportService importService;
+
+    private User author;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        author = User.builder()
+                     .id(1L)
+                     .email("james@gmail.com")
+                     .build();
+
+        when(uploadProperties.getImportThreads()).thenReturn(2);
+        lenient().when(uploadProperties.getMaxSize()).thenReturn(DataSize.ofMegabytes(1));
+        lenient().when(uploadProperties.getMaxImportSize()).thenReturn(DataSize.ofMegabytes(100));
+        lenient().when(uploadProperties.getMaxCompressionRatio()).thenReturn(100L);
+        lenient().when(uploadProperties.getExpiration()).thenReturn(Duration.ofHours(1));
+        lenient().when(userService.getAuthenticatedUser()).thenReturn(author);
+        lenient().when(blobStorageService.createTempFile(anyString())).thenAnswer(invocation -> Files.createTempFile(tempDirectory, "import-", ".tmp"));
+        lenient().when(blobStorageService.stageTempFile(any(), anyString())).thenAnswer(invocation -> {
+            Path file = invocation.getArgument(0);
+            String hash = "hash-" + Files.readString(file);
+            Files.delete(file);
+            return new StagedBlob(hash, true);
+        });
+
+        importService = new ImportService(documentService, blobStorageService, userService, uploadProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void shouldImportEntriesIntoPathsOfTheirDirectories() throws IOException {
+        when(documentService.uploadStagedDocuments(any())).thenAnswer(invocation -> {
+            List<StagedDocument> stagedDocuments = invocation.getArgument(0);
+            return stagedDocuments.stream()
+                                  .map(stagedDocument -> BatchUploadResult.created(Document.builder().name(stagedDocument.name()).path(stagedDocument.path()).build()))
+                                  .toList();
+        });
+
+        ImportSession importSession = importService.createImport("/home");
+        ImportSession importedSession = importService.importArchive(importSession.getImportId(), createArchive("a.txt", "docs/", "docs/b.txt", "/docs/api/c.txt", "../d.txt", "bad dir/e.txt"));
+
+        assertThat(importedSession.getStatus()).isEqualTo(ImportSession.Status.COMPLETED);
+        assertThat(importedSession.getEntryCount()).isEqualTo(5);
+        assertThat(importedSession.getResults()).extracting(BatchUploadResult::name)
+                                                .containsExactly("a.txt", "docs/b.txt", "/docs/api/c.txt", "../d.txt", "bad dir/e.txt");
+        assertThat(importedSession.getResults()).extracting(BatchUploadResult::status)
+                                                .containsExactly(BatchUploadResult.Status.CREATED, BatchUploadResult.Status.CREATED, BatchUploadResult.Status.CREATED,
+                                                                 BatchUploadResult.Status.FAILED, BatchUploadResult.Status.FAILED);
+
+        ArgumentCaptor<List<StagedDocument>> stagedDocumentsCaptor = ArgumentCaptor.captor();
+        verify(documentService).uploadStagedDocuments(stagedDocumentsCaptor.capture());
+        assertThat(stagedDocumentsCaptor.getValue()).containsExactly(
+            new StagedDocument("a.txt", "text/plain", "/home", 16L, "hash-content of a.txt", true),
+            new StagedDocument("b.txt", "text/plain", "/home/docs", 21L, "hash-content of docs/b.txt", true),
+            new StagedDocument("c.txt", "text/plain", "/home/docs/api", 26L, "hash-content of /docs/api/c.txt", true)
+        );
+    }
+
+    @Test
+    void shouldReportEntryWhichCouldNotBeStored() throws IOException {
+        doThrow(new FileOperationException(FileOperation.WRITE)).when(blobStorageService).stageTempFile(any(), eq("failing.txt"));
+        when(documentService.uploadStagedDocuments(any())).thenReturn(List.of(BatchUploadResult.created(Document.builder().name("a.txt").build())));
+
+        ImportSession importSession = importService.createImport("/");
+        ImportSession importedSession = importService.importArchive(importSession.getImportId(), createArchive("failing.txt", "a.txt"));
+
+        assertThat(importedSession.getResults()).extracting(BatchUploadResult::status)
+                                                .containsExactly(BatchUploadResult.Status.FAILED, BatchUploadResult.Status.CREATED);
+    }
+
+    @Test
+    void shouldReportBatchWhichCouldNotBeSaved() throws IOException {
+        when(documentService.uploadStagedDocuments(any())).thenThrow(new DataIntegrityViolationException("idx_document_user_path_name"));
+
+        ImportSession importSession = importService.createImport("/");
+        ImportSession importedSession = importService.importArchive(importSession.getImportId(), createArchive("a.txt", "b.txt"));
+
+        assertThat(importedSession.getStatus()).isEqualTo(ImportSession.Status.COMPLETED);
+        assertThat(importedSession.getResults()).extracting(BatchUploadResult::status)
+                                                .containsExactly(BatchUploadResult.Status.FAILED, BatchUploadResult.Status.FAILED);
+    }
+
+    @Test
+    void shouldFailImportWhenArchiveCannotBeRead() {
+        ImportSession importSession = importService.createImport("/");
+
+        InputStream content = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        assertThatThrownBy(() -> importService.importArchive(importSession.getImportId(), content)).isInstanceOf(FileOperationException.class);
+
+        assertThat(importSession.getStatus()).isEqualTo(ImportSession.Status.FAILED);
+        assertThat(importSession.getDetail()).isEqualTo("Archive could not be read");
+        verify(documentService, never()).uploadStagedDocuments(any());
+    }
+
+    @Test
+    void shouldFailImportWhenEntriesExceedMaximalImportSize() throws IOException {
+        when(uploadProperties.getMaxImportSize()).thenReturn(DataSize.ofBytes(30));
+        when(documentService.uploadStagedDocuments(any())).thenReturn(List.of(BatchUploadResult.created(Document.builder().name("a.txt").build())));
+
+        ImportSession importSession = importService.createImport("/");
+        InputStream content = createArchive("a.txt", "b.txt");
+
+        assertThatThrownBy(() -> importService.importArchive(importSession.getImportId(), content)).isInstanceOf(UploadSizeExceededException.class);
+
+        assertThat(importSession.getStatus()).isEqualTo(ImportSession.Status.FAILED);
+        assertThat(importSession.getDetail()).contains("maximal import size");
+        assertThat(importSession.getResults()).extracting(BatchUploadResult::name)
+                                              .containsExactly("a.txt");
+    }
+
+    @Test
+    void shouldFailImportWhenArchiveExpandsTooMuch() throws IOException {
+        when(uploadProperties.getMaxSize()).thenReturn(DataSize.ofMegabytes(100));
+
+        ImportSession importSession = importService.createImport("/");
+        InputStream content = createArchive("zeros.bin", new byte[20 * 1024 * 1024]);
+
+        assertThatThrownBy(() -> importService.importArchive(importSession.getImportId(), content)).isInstanceOf(UploadSizeExceededException.class);
+
+        assertThat(importSession.getStatus()).isEqualTo(ImportSession.Status.FAILED);
+        assertThat(importSession.getDetail()).contains("100 times its size");
+        verify(documentService, never()).uploadStagedDocuments(any());
+    }
+
+    @Test
+    void shouldNotImportArchiveTwice() throws IOException {
+        ImportSession importSession = importService.createImport("/");
+
+        importService.importArchive(importSession.getImportId(), createArchive("bad dir/a.txt"));
+
+        assertThatThrownBy(() -> importService.importArchive(importSession.getImportId(), createArchive("bad dir/a.txt"))).isInstanceOf(InvalidUploadException.class);
+    }
+
+    @Test
+    void shouldNotReturnImportOfAnotherUser() {
+        ImportSession importSession = importService.createImport("/");
+
+        when(userService.getAuthenticatedUser()).thenReturn(User.builder().id(2L).build());
+
+        assertThatThrownBy(() -> importService.getImport(importSession.getImportId())).isInstanceOf(ImportNotFoundException.class);
+    }
+
+    private ByteArrayInputStream createArchive(String... entryNames) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (String entryName : entryNames) {
+                zipOutputStream.putNextEntry(new ZipEntry(entryName));
+
+                if (!entryName.endsWith("/")) {
+                    zipOutputStream.write(("content of " + entryName).getBytes(StandardCharsets.UTF_8));
+                }
+
+                zipOutputStream.closeEntry();
+            }
+        }
+
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    private ByteArrayInputStream createArchive(String entryName, byte[] content) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry(entryName));
+            zipOutputStream.write(content);
+            zipOutputStream.closeEntry();
+        }
+
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+}
@@ -5,6 +5,7 @@ import com.dms.entity.User;
 import com.dms.exception.EmailAlreadyExistsException;
 import com.dms.exception.UserNotFoundException;
 import com.dms.repository.UserRepository;
+import com.dms.service.AuthService;
 import com.dms.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +17,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 
 import java.util.Optional;
 
@@ -25,6 +28,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -74,6 +78,32 @@ class UserServiceTest {
         verify(userRepository, times(1)).findByEmail(any());
     }
 
+    @Test
+    void shouldReturnAuthenticatedUserFromTokenClaims() {
+        Jwt jwt = Jwt.withTokenValue("token")
+                     .header("alg", "RS256")
+                     .subject(user.getEmail())
+                     .claim(AuthService.ROLE_CLAIM, Role.USER.name())
+                     .claim(AuthService.ID_CLAIM, 1L)
+                     .claim(AuthService.USER_ID_CLAIM, user.getUserId())
+                     .claim(AuthService.NAME_CLAIM, user.getName())
+                     .build();
+
+        SecurityContextHolder.setContext(securityContext);
+
+        when(securityContext.getAuthentication()).thenReturn(new JwtAuthenticationToken(jwt));
+
+        User authenticatedUser = userService.getAuthenticatedUser();
+
+        assertThat(authenticatedUser.getId()).isEqualTo(1L);
+        assertThat(authenticatedUser.getUserId()).isEqualTo(user.getUserId());
+        assertThat(authenticatedUser.getName()).isEqualTo(user.getName());
+        assertThat(authenticatedUser.getEmail()).isEqualTo(user.getEmail());
+        assertThat(authenticatedUser.getRole()).isEqualTo(Role.USER);
+
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void shouldThrowUserNotFoundExceptionWhenUserIsNotAuthenticated() {
         SecurityContextHolder.setContext(securityContext);
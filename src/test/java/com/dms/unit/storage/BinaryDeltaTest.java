@@ -0,0 +1,90 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BinaryDelta;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+class BinaryDeltaTest {
+
+    @Test
+    void shouldEncodeSmallEditAsSmallDelta() throws IOException {
+        byte[] base = createRandomContent(200_000);
+        byte[] target = base.clone();
+        target[1000] ^= 1;
+        target = replace(target, 100_000, 10, "an inserted sentence".getBytes());
+
+        byte[] delta = BinaryDelta.encode(base, target);
+
+        assertThat(delta.length).isLessThan(100);
+        assertThat(apply(base, delta, target.length)).isEqualTo(target);
+    }
+
+    @Test
+    void shouldEncodeMovedBlocks() throws IOException {
+        byte[] base = createRandomContent(100_000);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        target.write(base, 50_000, 50_000);
+        target.write(base, 0, 50_000);
+
+        byte[] delta = BinaryDelta.encode(base, target.toByteArray());
+
+        assertThat(delta.length).isLessThan(100);
+        assertThat(apply(base, delta, base.length)).isEqualTo(target.toByteArray());
+    }
+
+    @Test
+    void shouldEncodeUnrelatedContentAsLiteral() throws IOException {
+        byte[] base = createRandomContent(10_000);
+        byte[] target = new byte[10_000];
+        new Random(1).nextBytes(target);
+
+        byte[] delta = BinaryDelta.encode(base, target);
+
+        assertThat(delta.length).isEqualTo(target.length + 5);
+        assertThat(apply(base, delta, target.length)).isEqualTo(target);
+    }
+
+    @Test
+    void shouldEncodeAgainstEmptyBaseAndEmptyTarget() throws IOException {
+        byte[] content = "Some text".getBytes();
+
+        assertThat(apply(new byte[0], BinaryDelta.encode(new byte[0], content), content.length)).isEqualTo(content);
+        assertThat(BinaryDelta.encode(content, new byte[0])).isEmpty();
+    }
+
+    @Test
+    void shouldRejectDeltaWhichDoesNotMatchBase() {
+        byte[] base = createRandomContent(10_000);
+        byte[] delta = BinaryDelta.encode(base, base);
+
+        assertThatIOException().isThrownBy(() -> apply(Arrays.copyOf(base, 100), delta, base.length));
+        assertThatIOException().isThrownBy(() -> apply(base, Arrays.copyOf(delta, delta.length - 1), base.length));
+    }
+
+    private static byte[] apply(byte[] base, byte[] delta, int targetLength) throws IOException {
+        return BinaryDelta.apply(base, new ByteArrayInputStream(delta), targetLength);
+    }
+
+    private static byte[] replace(byte[] content, int position, int length, byte[] replacement) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(content, 0, position);
+        output.writeBytes(replacement);
+        output.write(content, position + length, content.length - position - length);
+        return output.toByteArray();
+    }
+
+    private static byte[] createRandomContent(int length) {
+        byte[] content = new byte[length];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+abstract class BlobStoreContractTest {
+
+    protected static final String KEY = "4c2e9e6da31a64c70623619c449a040968cdbea85945bf384fa30ed2d5d24fa3";
+    protected static final byte[] CONTENT = "Some text".getBytes(StandardCharsets.UTF_8);
+
+    private BlobStore blobStore;
+
+    protected abstract BlobStore createBlobStore() throws IOException;
+
+    @BeforeEach
+    void setUpBlobStore() throws IOException {
+        blobStore = createBlobStore();
+    }
+
+    @Test
+    void shouldPutAndGetBlob() throws IOException {
+        blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertThat(blobStore.exists(KEY)).isTrue();
+        assertThat(blobStore.size(KEY)).isEqualTo(CONTENT.length);
+        assertThat(read(blobStore.get(KEY))).isEqualTo("Some text");
+    }
+
+    @Test
+    void shouldPutBlobFromFile() throws IOException {
+        Path file = Files.createTempFile("blob-", ".tmp");
+        Files.write(file, CONTENT);
+
+        try {
+            blobStore.put(KEY, file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        assertThat(read(blobStore.get(KEY))).isEqualTo("Some text");
+    }
+
+    @Test
+    void shouldReplaceExistingBlob() throws IOException {
+        byte[] newContent = "Other text".getBytes(StandardCharsets.UTF_8);
+
+        blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+        blobStore.put(KEY, new ByteArrayInputStream(newContent), newContent.length);
+
+        assertThat(read(blobStore.get(KEY))).isEqualTo("Other text");
+    }
+
+    @Test
+    void shouldGetRangeOfBlob() throws IOException {
+        blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertThat(read(blobStore.getRange(KEY, 5, 4))).isEqualTo("text");
+        assertThat(read(blobStore.getRange(KEY, 0, 4))).isEqualTo("Some");
+    }
+
+    @Test
+    void shouldTruncateRangeAtEndOfBlob() throws IOException {
+        blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertThat(read(blobStore.getRange(KEY, 5, 100))).isEqualTo("text");
+    }
+
+    @Test
+    void shouldDeleteBlob() throws IOException {
+        blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        blobStore.delete(KEY);
+
+        assertThat(blobStore.exists(KEY)).isFalse();
+    }
+
+    @Test
+    void shouldIgnoreDeletionOfMissingBlob() throws IOException {
+        blobStore.delete(KEY);
+
+        assertThat(blobStore.exists(KEY)).isFalse();
+    }
+
+    @Test
+    void shouldThrowFileNotFoundExceptionWhenBlobDoesNotExist() throws IOException {
+        assertThat(blobStore.exists(KEY)).isFalse();
+        assertThatExceptionOfType(FileNotFoundException.class).isThrownBy(() -> blobStore.get(KEY));
+        assertThatExceptionOfType(FileNotFoundException.class).isThrownBy(() -> blobStore.getRange(KEY, 0, 1));
+        assertThatExceptionOfType(FileNotFoundException.class).isThrownBy(() -> blobStore.size(KEY));
+    }
+
+    @Test
+    void shouldServeBlobAsResource() throws IOException {
+        blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertThat(blobStore.getResource(KEY).contentLength()).isEqualTo(CONTENT.length);
+        assertThat(read(blobStore.getResource(KEY).getInputStream())).isEqualTo("Some text");
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.ChunkReferences;
+import com.dms.storage.ChunkingBlobStore;
+import com.dms.storage.InMemoryBlobStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+class ChunkingBlobStoreTest extends BlobStoreContractTest {
+
+    private static final String OTHER_KEY = "ab" + KEY.substring(2);
+    private static final int AVERAGE_CHUNK_SIZE = 8 * 1024;
+
+    private InMemoryBlobStore delegate;
+    private InMemoryChunkReferences chunkReferences;
+    private ChunkingBlobStore chunkingBlobStore;
+
+    // every blob of the contract is chunked
+    @Override
+    protected BlobStore createBlobStore() {
+        delegate = new InMemoryBlobStore(false);
+        chunkReferences = new InMemoryChunkReferences();
+        chunkingBlobStore = new ChunkingBlobStore(delegate, chunkReferences, 0, AVERAGE_CHUNK_SIZE);
+        return chunkingBlobStore;
+    }
+
+    @Test
+    void shouldStoreOnlyChangedChunksOfModifiedContent() throws IOException {
+        byte[] content = createRandomContent(2 * 1024 * 1024);
+        byte[] modifiedContent = insert(content, 1024 * 1024, "inserted paragraph".getBytes());
+
+        chunkingBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+        long storedBytes = chunkReferences.storedBytes;
+        chunkingBlobStore.put(OTHER_KEY, new ByteArrayInputStream(modifiedContent), modifiedContent.length);
+
+        assertThat(storedBytes).isEqualTo(content.length);
+        assertThat(chunkReferences.storedBytes - storedBytes).isLessThan(4L * 4 * AVERAGE_CHUNK_SIZE);
+        assertThat(chunkingBlobStore.size(OTHER_KEY)).isEqualTo(modifiedContent.length);
+        assertThat(readAll(chunkingBlobStore.get(KEY))).isEqualTo(content);
+        assertThat(readAll(chunkingBlobStore.get(OTHER_KEY))).isEqualTo(modifiedContent);
+    }
+
+    @Test
+    void shouldServeRangesAcrossChunks() throws IOException {
+        byte[] content = createRandomContent(300_000);
+        chunkingBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        long[][] ranges = {
+            {0, 10},
+            {8_000, 20_000},
+            {100_000, 150_000},
+            {content.length - 5, 100},
+            {0, content.length}
+        };
+
+        for (long[] range : ranges) {
+            int start = (int) range[0];
+            int end = (int) Math.min(content.length, range[0] + range[1]);
+
+            assertThat(readAll(chunkingBlobStore.getRange(KEY, range[0], range[1]))).as("range %d+%d", range[0], range[1])
+                                                                                    .isEqualTo(Arrays.copyOfRange(content, start, end));
+        }
+    }
+
+    @Test
+    void shouldKeepSharedChunksUntilLastBlobIsDeleted() throws IOException {
+        byte[] content = createRandomContent(500_000);
+        byte[] modifiedContent = insert(content, 250_000, "inserted paragraph".getBytes());
+
+        chunkingBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+        chunkingBlobStore.put(OTHER_KEY, new ByteArrayInputStream(modifiedContent), modifiedContent.length);
+        List<String> chunkKeys = new ArrayList<>(chunkReferences.referenceCounts.keySet());
+
+        chunkingBlobStore.delete(KEY);
+        chunkingBlobStore.compact();
+
+        assertThat(readAll(chunkingBlobStore.get(OTHER_KEY))).isEqualTo(modifiedContent);
+
+        chunkingBlobStore.delete(OTHER_KEY);
+        chunkingBlobStore.compact();
+
+        assertThat(chunkReferences.referenceCounts).isEmpty();
+        for (String chunkKey : chunkKeys) {
+            assertThat(delegate.exists(chunkKey)).isFalse();
+        }
+    }
+
+    @Test
+    void shouldStoreChunkReferencedTwiceByBlobOnce() throws IOException {
+        byte[] half = createRandomContent(100_000);
+        byte[] content = insert(half, half.length, half);
+
+        chunkingBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        assertThat(chunkReferences.storedBytes).isLessThan(content.length);
+        assertThat(readAll(chunkingBlobStore.get(KEY))).isEqualTo(content);
+
+        chunkingBlobStore.delete(KEY);
+
+        assertThat(chunkReferences.referenceCounts.values()).containsOnly(0L);
+    }
+
+    @Test
+    void shouldReleaseReferencesWhenContentCannotBeRead() {
+        byte[] content = createRandomContent(6 * 1024 * 1024);
+        InputStream failingContent = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                if (position == content.length - 1) {
+                    throw new IOException("Connection reset");
+                }
+
+                return content[position++] & 0xFF;
+            }
+        };
+
+        assertThatIOException().isThrownBy(() -> chunkingBlobStore.put(KEY, failingContent, content.length));
+
+        assertThat(chunkReferences.referenceCounts).isNotEmpty();
+        assertThat(chunkReferences.referenceCounts.values()).containsOnly(0L);
+        assertThat(delegate.exists(KEY)).isFalse();
+    }
+
+    @Test
+    void shouldStoreSmallBlobUnchanged() throws IOException {
+        ChunkingBlobStore blobStore = new ChunkingBlobStore(delegate, chunkReferences, 1024, AVERAGE_CHUNK_SIZE);
+
+        blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertThat(delegate.size(KEY)).isEqualTo(CONTENT.length + 1);
+        assertThat(readAll(blobStore.get(KEY))).isEqualTo(CONTENT);
+        assertThat(chunkReferences.referenceCounts).isEmpty();
+    }
+
+    @Test
+    void shouldReadContentResemblingManifestUnchanged() throws IOException {
+        byte[] otherContent = createRandomContent(100_000);
+        chunkingBlobStore.put(OTHER_KEY, new ByteArrayInputStream(otherContent), otherContent.length);
+
+        // a manifest listing the chunks of the other blob, stored as the content of a small blob
+        byte[] content = readAll(delegate.get(OTHER_KEY));
+        ChunkingBlobStore blobStore = new ChunkingBlobStore(delegate, chunkReferences, content.length + 1, AVERAGE_CHUNK_SIZE);
+
+        blobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        assertThat(blobStore.size(KEY)).isEqualTo(content.length);
+        assertThat(readAll(blobStore.get(KEY))).isEqualTo(content);
+        assertThat(readAll(blobStore.getRange(KEY, 10, 20))).isEqualTo(Arrays.copyOfRange(content, 10, 30));
+    }
+
+    @Test
+    void shouldNotReadBlobOfUnknownFormat() throws IOException {
+        delegate.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertThatIOException().isThrownBy(() -> chunkingBlobStore.get(KEY));
+    }
+
+    private static byte[] createRandomContent(int length) {
+        byte[] content = new byte[length];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] insert(byte[] content, int position, byte[] insertedContent) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(content, 0, position);
+        output.writeBytes(insertedContent);
+        output.write(content, position, content.length - position);
+        return output.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static class InMemoryChunkReferences implements ChunkReferences {
+
+        private final Map<String, Long> referenceCounts = new HashMap<>();
+        private long storedBytes;
+
+        @Override
+        public void addReferences(Collection<ChunkReference> chunks, ChunkOperation storeContent) throws IOException {
+            for (ChunkReference chunk : chunks) {
+                if (referenceCounts.getOrDefault(chunk.hash(), 0L) == 0) {
+                    storeContent.apply(chunk.hash());
+                    storedBytes += chunk.size();
+                }
+
+                referenceCounts.merge(chunk.hash(), chunk.count(), Long::sum);
+            }
+        }
+
+        @Override
+        public void removeReferences(Map<String, Long> counts) {
+            counts.forEach((hash, count) -> referenceCounts.merge(hash, -count, Long::sum));
+        }
+
+        @Override
+        public int deleteUnreferenced(int limit, ChunkOperation deleteContent) throws IOException {
+            int deletedChunkCount = 0;
+            Iterator<Map.Entry<String, Long>> iterator = referenceCounts.entrySet().iterator();
+
+            while (iterator.hasNext() && deletedChunkCount < limit) {
+                Map.Entry<String, Long> entry = iterator.next();
+
+                if (entry.getValue() == 0) {
+                    deleteContent.apply(entry.getKey());
+                    iterator.remove();
+                    deletedChunkCount++;
+                }
+            }
+
+            return deletedChunkCount;
+        }
+
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.CompressingBlobStore;
+import com.dms.storage.FileSystemBlobStore;
+import com.dms.storage.InMemoryBlobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressingBlobStoreTest extends BlobStoreContractTest {
+
+    @TempDir
+    private Path storagePath;
+
+    private InMemoryBlobStore delegate;
+    private CompressingBlobStore compressingBlobStore;
+
+    @Override
+    protected BlobStore createBlobStore() {
+        delegate = new InMemoryBlobStore(false);
+        compressingBlobStore = new CompressingBlobStore(delegate, storagePath.resolve("tmp"), 6);
+        return compressingBlobStore;
+    }
+
+    @Test
+    void shouldCompressTextAndServeOriginalContent() throws IOException {
+        byte[] content = createCsv(300_000);
+
+        compressingBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        assertThat(delegate.size(KEY)).isLessThan(content.length / 3);
+        assertThat(compressingBlobStore.size(KEY)).isEqualTo(content.length);
+        assertThat(compressingBlobStore.getResource(KEY).contentLength()).isEqualTo(content.length);
+        assertThat(readAll(compressingBlobStore.get(KEY))).isEqualTo(content);
+        assertThat(getTempFileCount()).isZero();
+    }
+
+    @Test
+    void shouldServeRangesAcrossFrames() throws IOException {
+        byte[] content = createCsv(300_000);
+        compressingBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        long[][] ranges = {
+            {0, 10},
+            {65_530, 20},
+            {65_536, 65_536},
+            {100_000, 150_000},
+            {content.length - 5, 100},
+            {0, content.length}
+        };
+
+        for (long[] range : ranges) {
+            int start = (int) range[0];
+            int end = (int) Math.min(content.length, range[0] + range[1]);
+
+            assertThat(readAll(compressingBlobStore.getRange(KEY, range[0], range[1]))).as("range %d+%d", range[0], range[1])
+                                                                                      .isEqualTo(Arrays.copyOfRange(content, start, end));
+        }
+    }
+
+    @Test
+    void shouldStoreAlreadyCompressedFormatUnchanged() throws IOException {
+        byte[] content = createCsv(10_000);
+        // ZIP signature
+        content[0] = 'P';
+        content[1] = 'K';
+        content[2] = 3;
+        content[3] = 4;
+
+        compressingBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        assertThat(readAll(delegate.get(KEY))).isEqualTo(content);
+        assertThat(readAll(compressingBlobStore.get(KEY))).isEqualTo(content);
+    }
+
+    @Test
+    void shouldStoreIncompressibleContentUnchanged() throws IOException {
+        byte[] content = new byte[100_000];
+        new Random(42).nextBytes(content);
+
+        compressingBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        assertThat(readAll(delegate.get(KEY))).isEqualTo(content);
+        assertThat(readAll(compressingBlobStore.getRange(KEY, 70_000, 10))).isEqualTo(Arrays.copyOfRange(content, 70_000, 70_010));
+    }
+
+    @Test
+    void shouldReadBlobStoredBeforeCompressionWasEnabled() throws IOException {
+        byte[] content = createCsv(100_000);
+
+        delegate.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        assertThat(compressingBlobStore.size(KEY)).isEqualTo(content.length);
+        assertThat(readAll(compressingBlobStore.get(KEY))).isEqualTo(content);
+    }
+
+    @Test
+    void shouldServeOnlyUncompressedBlobsAsFiles() throws IOException {
+        CompressingBlobStore blobStore = new CompressingBlobStore(new FileSystemBlobStore(storagePath, 2), storagePath.resolve("tmp"), 6);
+        String otherKey = "ab" + KEY.substring(2);
+        byte[] text = createCsv(100_000);
+        byte[] random = new byte[100_000];
+        new Random(42).nextBytes(random);
+
+        blobStore.put(KEY, new ByteArrayInputStream(text), text.length);
+        blobStore.put(otherKey, new ByteArrayInputStream(random), random.length);
+
+        assertThat(blobStore.getResource(KEY).isFile()).isFalse();
+        assertThat(blobStore.getResource(KEY).contentLength()).isEqualTo(text.length);
+        assertThat(blobStore.getResource(otherKey).isFile()).isTrue();
+        assertThat(getTempFileCount()).isZero();
+    }
+
+    private static byte[] createCsv(int length) {
+        StringBuilder csv = new StringBuilder("id,name,amount,currency\n");
+
+        for (int row = 0; csv.length() < length; row++) {
+            csv.append(row).append(",customer ").append(row % 97).append(',').append(row * 13 % 1000).append(".00,EUR\n");
+        }
+
+        return csv.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private long getTempFileCount() throws IOException {
+        Path tempDirectoryPath = storagePath.resolve("tmp");
+
+        if (Files.notExists(tempDirectoryPath)) {
+            return 0;
+        }
+
+        try (var files = Files.list(tempDirectoryPath)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+}
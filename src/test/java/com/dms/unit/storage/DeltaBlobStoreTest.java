@@ -0,0 +1,178 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.DeltaBlobStore;
+import com.dms.storage.InMemoryBlobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeltaBlobStoreTest extends BlobStoreContractTest {
+
+    private static final long MAX_BLOB_SIZE = 1024 * 1024;
+    private static final int MAX_CHAIN_LENGTH = 3;
+
+    @TempDir
+    private Path tempDirectory;
+
+    private InMemoryBlobStore delegate;
+    private DeltaBlobStore deltaBlobStore;
+
+    @Override
+    protected BlobStore createBlobStore() {
+        delegate = new InMemoryBlobStore(false);
+        deltaBlobStore = new DeltaBlobStore(delegate, MAX_BLOB_SIZE, MAX_CHAIN_LENGTH, 0);
+        return deltaBlobStore;
+    }
+
+    @Test
+    void shouldStoreNewVersionAsDeltaAgainstBase() throws IOException {
+        byte[] content = createRandomContent(100_000);
+        byte[] newContent = edit(content, 50_000);
+
+        deltaBlobStore.put("v1", write(content));
+        deltaBlobStore.put("v2", write(newContent), "v1");
+
+        assertThat(delegate.size("v2")).isLessThan(100);
+        assertThat(deltaBlobStore.size("v2")).isEqualTo(newContent.length);
+        assertThat(deltaBlobStore.getDeltaBase("v2")).isEqualTo("v1");
+        assertThat(deltaBlobStore.getDeltaBase("v1")).isNull();
+        assertThat(readAll(deltaBlobStore.get("v2"))).isEqualTo(newContent);
+        assertThat(readAll(deltaBlobStore.getRange("v2", 49_990, 20))).isEqualTo(Arrays.copyOfRange(newContent, 49_990, 50_010));
+        assertThat(readAll(deltaBlobStore.getResource("v2").getInputStream())).isEqualTo(newContent);
+    }
+
+    @Test
+    void shouldStoreKeyframeOnceChainIsTooLong() throws IOException {
+        byte[] content = createRandomContent(100_000);
+        List<byte[]> versions = new ArrayList<>();
+        versions.add(content);
+        deltaBlobStore.put("v0", write(content));
+
+        for (int version = 1; version <= MAX_CHAIN_LENGTH + 2; version++) {
+            content = edit(content, version * 10_000);
+            versions.add(content);
+            deltaBlobStore.put("v" + version, write(content), "v" + (version - 1));
+        }
+
+        assertThat(deltaBlobStore.getDeltaBase("v" + MAX_CHAIN_LENGTH)).isEqualTo("v" + (MAX_CHAIN_LENGTH - 1));
+        assertThat(deltaBlobStore.getDeltaBase("v" + (MAX_CHAIN_LENGTH + 1))).isNull();
+        assertThat(deltaBlobStore.getDeltaBase("v" + (MAX_CHAIN_LENGTH + 2))).isEqualTo("v" + (MAX_CHAIN_LENGTH + 1));
+
+        for (int version = 0; version < versions.size(); version++) {
+            assertThat(readAll(deltaBlobStore.get("v" + version))).isEqualTo(versions.get(version));
+        }
+    }
+
+    @Test
+    void shouldStoreWholeBlobWhenDeltaSavesTooLittle() throws IOException {
+        byte[] content = createRandomContent(10_000);
+        byte[] unrelatedContent = new byte[10_000];
+        new Random(1).nextBytes(unrelatedContent);
+
+        deltaBlobStore.put("v1", write(content));
+        deltaBlobStore.put("v2", write(unrelatedContent), "v1");
+
+        assertThat(deltaBlobStore.getDeltaBase("v2")).isNull();
+        assertThat(delegate.size("v2")).isEqualTo(unrelatedContent.length + 1);
+        assertThat(readAll(deltaBlobStore.get("v2"))).isEqualTo(unrelatedContent);
+    }
+
+    @Test
+    void shouldStoreWholeBlobWhenBaseDoesNotExist() throws IOException {
+        byte[] content = createRandomContent(10_000);
+
+        deltaBlobStore.put("v2", write(content), "v1");
+
+        assertThat(deltaBlobStore.getDeltaBase("v2")).isNull();
+        assertThat(readAll(deltaBlobStore.get("v2"))).isEqualTo(content);
+    }
+
+    @Test
+    void shouldStoreLargeBlobWhole() throws IOException {
+        byte[] content = createRandomContent((int) MAX_BLOB_SIZE + 1);
+
+        deltaBlobStore.put("v1", write(content));
+        deltaBlobStore.put("v2", write(edit(content, 10)), "v1");
+
+        assertThat(deltaBlobStore.getDeltaBase("v2")).isNull();
+    }
+
+    @Test
+    void shouldReadContentResemblingDeltaUnchanged() throws IOException {
+        byte[] secretContent = createRandomContent(10_000);
+        deltaBlobStore.put("secret", write(secretContent));
+
+        // the header of a delta against the secret blob
+        byte[] content = ByteBuffer.allocate(21)
+                                   .put((byte) 1)
+                                   .putLong(secretContent.length)
+                                   .putInt(1)
+                                   .putShort((short) 6)
+                                   .put("secret".getBytes(StandardCharsets.US_ASCII))
+                                   .array();
+
+        deltaBlobStore.put("crafted", write(content));
+
+        assertThat(deltaBlobStore.getDeltaBase("crafted")).isNull();
+        assertThat(deltaBlobStore.size("crafted")).isEqualTo(content.length);
+        assertThat(readAll(deltaBlobStore.get("crafted"))).isEqualTo(content);
+    }
+
+    @Test
+    void shouldNotReadBlobOfUnknownFormat() throws IOException {
+        delegate.put("v1", new ByteArrayInputStream(new byte[] {7, 1, 2, 3}), 4);
+
+        assertThatThrownBy(() -> deltaBlobStore.get("v1")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldServeCachedVersionWithoutReconstructingIt() throws IOException {
+        DeltaBlobStore cachingBlobStore = new DeltaBlobStore(delegate, MAX_BLOB_SIZE, MAX_CHAIN_LENGTH, 1024 * 1024);
+        byte[] content = createRandomContent(100_000);
+        byte[] newContent = edit(content, 50_000);
+
+        cachingBlobStore.put("v1", write(content));
+        cachingBlobStore.put("v2", write(newContent), "v1");
+        delegate.delete("v1");
+
+        assertThat(readAll(cachingBlobStore.get("v2"))).isEqualTo(newContent);
+    }
+
+    private Path write(byte[] content) throws IOException {
+        return Files.write(Files.createTempFile(tempDirectory, "blob-", ".tmp"), content);
+    }
+
+    private static byte[] edit(byte[] content, int position) {
+        byte[] editedContent = content.clone();
+        Arrays.fill(editedContent, position, position + 10, (byte) 'x');
+        return editedContent;
+    }
+
+    private static byte[] createRandomContent(int length) {
+        byte[] content = new byte[length];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.FastCdcChunker;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastCdcChunkerTest {
+
+    private static final int AVERAGE_SIZE = 8 * 1024;
+
+    @Test
+    void shouldSplitContentIntoChunksWithinSizeBounds() throws IOException {
+        byte[] content = createRandomContent(1024 * 1024);
+
+        List<byte[]> chunks = split(content);
+
+        ByteArrayOutputStream joinedChunks = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks.subList(0, chunks.size() - 1)) {
+            assertThat(chunk.length).isBetween(AVERAGE_SIZE / 4, AVERAGE_SIZE * 4);
+        }
+        chunks.forEach(joinedChunks::writeBytes);
+
+        assertThat(joinedChunks.toByteArray()).isEqualTo(content);
+        assertThat(content.length / chunks.size()).isBetween(AVERAGE_SIZE / 2, AVERAGE_SIZE * 2);
+    }
+
+    @Test
+    void shouldKeepChunksAwayFromInsertedBytes() throws IOException {
+        byte[] content = createRandomContent(1024 * 1024);
+        ByteArrayOutputStream modifiedContent = new ByteArrayOutputStream();
+        modifiedContent.write(content, 0, 1000);
+        modifiedContent.writeBytes("inserted".getBytes());
+        modifiedContent.write(content, 1000, content.length - 1000);
+
+        Set<String> chunks = toSet(split(content));
+        List<byte[]> modifiedChunks = split(modifiedContent.toByteArray());
+
+        long changedChunkCount = modifiedChunks.stream()
+                                               .filter(chunk -> !chunks.contains(new String(chunk, StandardCharsets.ISO_8859_1)))
+                                               .count();
+
+        assertThat(changedChunkCount).isBetween(1L, 2L);
+    }
+
+    @Test
+    void shouldReturnNoChunkForEmptyContent() throws IOException {
+        FastCdcChunker chunker = new FastCdcChunker(new ByteArrayInputStream(new byte[0]), AVERAGE_SIZE);
+
+        assertThat(chunker.nextChunk()).isNull();
+    }
+
+    private static List<byte[]> split(byte[] content) throws IOException {
+        FastCdcChunker chunker = new FastCdcChunker(new ByteArrayInputStream(content), AVERAGE_SIZE);
+        List<byte[]> chunks = new ArrayList<>();
+
+        byte[] chunk;
+        while ((chunk = chunker.nextChunk()) != null) {
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
+    private static Set<String> toSet(List<byte[]> chunks) {
+        Set<String> set = new HashSet<>();
+        chunks.forEach(chunk -> set.add(new String(chunk, StandardCharsets.ISO_8859_1)));
+        return set;
+    }
+
+    private static byte[] createRandomContent(int length) {
+        byte[] content = new byte[length];
+        new Random(7).nextBytes(content);
+        return content;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.FileSystemBlobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSystemBlobStoreTest extends BlobStoreContractTest {
+
+    @TempDir
+    private Path storagePath;
+
+    private FileSystemBlobStore fileSystemBlobStore;
+
+    @Override
+    protected BlobStore createBlobStore() {
+        fileSystemBlobStore = new FileSystemBlobStore(storagePath, 2);
+        return fileSystemBlobStore;
+    }
+
+    @Test
+    void shouldStoreBlobInShardedDirectory() throws IOException {
+        fileSystemBlobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        Path blobPath = storagePath.resolve("4c").resolve(KEY.substring(2));
+
+        assertThat(blobPath).exists();
+        assertThat(Files.readAllBytes(blobPath)).isEqualTo(CONTENT);
+        assertThat(fileSystemBlobStore.getResource(KEY).isFile()).isTrue();
+    }
+
+    @Test
+    void shouldDeleteEmptyDirectoryAfterBlobDeletion() throws IOException {
+        fileSystemBlobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        fileSystemBlobStore.delete(KEY);
+
+        assertThat(storagePath.resolve("4c")).doesNotExist();
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.InMemoryBlobStore;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class InMemoryBlobStoreTest extends BlobStoreContractTest {
+
+    @Override
+    protected BlobStore createBlobStore() {
+        return new InMemoryBlobStore(false);
+    }
+
+    @Test
+    void shouldThrowEOFExceptionWhenContentIsShorterThanSize() {
+        BlobStore blobStore = new InMemoryBlobStore(false);
+
+        assertThatExceptionOfType(EOFException.class).isThrownBy(() -> blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length + 1));
+    }
+
+    @Nested
+    class OffHeap extends BlobStoreContractTest {
+
+        @Override
+        protected BlobStore createBlobStore() {
+            return new InMemoryBlobStore(true);
+        }
+
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.FileSystemBlobStore;
+import com.dms.storage.PackedBlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PackedBlobStoreTest extends BlobStoreContractTest {
+
+    private static final long THRESHOLD = 1024;
+    private static final long MAX_PACK_SIZE = 64 * 1024;
+
+    @TempDir
+    private Path storagePath;
+
+    private PackedBlobStore packedBlobStore;
+
+    @Override
+    protected BlobStore createBlobStore() throws IOException {
+        packedBlobStore = openBlobStore(MAX_PACK_SIZE);
+        return packedBlobStore;
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        packedBlobStore.close();
+    }
+
+    @Test
+    void shouldAppendSmallBlobToPackFile() throws IOException {
+        packedBlobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertThat(storagePath.resolve("4c")).doesNotExist();
+        assertThat(getPackFiles()).hasSize(1);
+        assertThat(Files.size(getPackFiles().get(0))).isEqualTo(CONTENT.length);
+    }
+
+    @Test
+    void shouldStoreLargeBlobInItsOwnFile() throws IOException {
+        byte[] content = new byte[(int) THRESHOLD];
+
+        packedBlobStore.put(KEY, new ByteArrayInputStream(content), content.length);
+
+        assertThat(storagePath.resolve("4c").resolve(KEY.substring(2))).exists();
+        assertThat(packedBlobStore.getResource(KEY).isFile()).isTrue();
+        assertThat(packedBlobStore.size(KEY)).isEqualTo(THRESHOLD);
+    }
+
+    @Test
+    void shouldFindPackedBlobsAfterReopening() throws IOException {
+        List<String> keys = putBlobs(3000);
+
+        packedBlobStore.close();
+        packedBlobStore = openBlobStore(MAX_PACK_SIZE);
+
+        for (String key : keys) {
+            assertThat(read(packedBlobStore.get(key))).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void shouldStartNewPackFileWhenCurrentOneIsFull() throws IOException {
+        packedBlobStore.close();
+        packedBlobStore = openBlobStore(1024);
+
+        List<String> keys = putBlobs(100);
+
+        assertThat(getPackFiles()).hasSizeGreaterThan(1);
+        for (String key : keys) {
+            assertThat(read(packedBlobStore.get(key))).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void shouldReclaimSpaceOfDeletedBlobsWhenCompacting() throws IOException {
+        packedBlobStore.close();
+        packedBlobStore = openBlobStore(4096);
+
+        List<String> keys = putBlobs(500);
+        long sizeBeforeDeletion = getPackFilesSize();
+
+        List<String> deletedKeys = keys.subList(0, 400);
+        List<String> keptKeys = keys.subList(400, 500);
+        for (String key : deletedKeys) {
+            packedBlobStore.delete(key);
+        }
+
+        assertThat(getPackFilesSize()).isEqualTo(sizeBeforeDeletion);
+
+        packedBlobStore.compact();
+
+        assertThat(getPackFilesSize()).isLessThan(sizeBeforeDeletion / 2);
+
+        packedBlobStore.close();
+        packedBlobStore = openBlobStore(4096);
+
+        for (String key : deletedKeys) {
+            assertThat(packedBlobStore.exists(key)).isFalse();
+        }
+        for (String key : keptKeys) {
+            assertThat(read(packedBlobStore.get(key))).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void shouldNotRewritePackFilesWithoutDeletedBlobs() throws IOException {
+        putBlobs(10);
+        List<Path> packFiles = getPackFiles();
+
+        packedBlobStore.compact();
+
+        assertThat(getPackFiles()).isEqualTo(packFiles);
+    }
+
+    private PackedBlobStore openBlobStore(long maxPackSize) throws IOException {
+        FileSystemBlobStore fileSystemBlobStore = new FileSystemBlobStore(storagePath, 2);
+        return new PackedBlobStore(fileSystemBlobStore, storagePath.resolve(PackedBlobStore.PACK_DIRECTORY), THRESHOLD, maxPackSize);
+    }
+
+    // stores blobs whose content is their own key
+    private List<String> putBlobs(int count) throws IOException {
+        List<String> keys = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            String key = sha256("blob " + i);
+            byte[] content = key.getBytes(StandardCharsets.UTF_8);
+
+            packedBlobStore.put(key, new ByteArrayInputStream(content), content.length);
+            keys.add(key);
+        }
+
+        return keys;
+    }
+
+    private List<Path> getPackFiles() throws IOException {
+        try (Stream<Path> files = Files.list(storagePath.resolve(PackedBlobStore.PACK_DIRECTORY))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".pack"))
+                        .sorted()
+                        .toList();
+        }
+    }
+
+    private long getPackFilesSize() throws IOException {
+        long size = 0;
+
+        for (Path packFile : getPackFiles()) {
+            size += Files.size(packFile);
+        }
+
+        return size;
+    }
+
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.dms.unit.storage;
+
+import com.dms.storage.BlobStore;
+import com.dms.storage.BlobStoreResource;
+import com.dms.storage.S3BlobStore;
+import com.dms.storage.S3RequestSigner;
+import com.dms.util.S3StandIn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+class S3BlobStoreTest extends BlobStoreContractTest {
+
+    private static final String BUCKET = "documents";
+    private static final String REGION = "eu-central-1";
+    private static final String ACCESS_KEY = "access-key";
+    private static final String SECRET_KEY = "secret-key";
+
+    private S3StandIn s3StandIn;
+
+    @Override
+    protected BlobStore createBlobStore() throws IOException {
+        s3StandIn = new S3StandIn(BUCKET, REGION, ACCESS_KEY, SECRET_KEY);
+        return createBlobStore(SECRET_KEY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3StandIn.close();
+    }
+
+    @Test
+    void shouldStoreBlobAsObjectInBucket() throws IOException {
+        createBlobStore(SECRET_KEY).put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertThat(s3StandIn.getObjects()).containsOnlyKeys(KEY);
+        assertThat(s3StandIn.getObjects().get(KEY)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void shouldServeRangeOfBlobResourceWithRangedRequest() throws IOException {
+        BlobStore blobStore = createBlobStore(SECRET_KEY);
+        blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        BlobStoreResource resource = (BlobStoreResource) blobStore.getResource(KEY);
+
+        try (InputStream range = resource.getInputStream(5, 4)) {
+            assertThat(range.readAllBytes()).isEqualTo("text".getBytes());
+        }
+    }
+
+    @Test
+    void shouldFailWhenRequestIsSignedWithWrongSecret() {
+        BlobStore blobStore = createBlobStore("wrong-secret-key");
+
+        assertThatIOException().isThrownBy(() -> blobStore.put(KEY, new ByteArrayInputStream(CONTENT), CONTENT.length))
+                               .withMessageContaining("403");
+        assertThat(s3StandIn.getObjects()).isEmpty();
+    }
+
+    private BlobStore createBlobStore(String secretKey) {
+        return new S3BlobStore(s3StandIn.getEndpoint(), BUCKET, new S3RequestSigner(REGION, ACCESS_KEY, secretKey), Clock.systemUTC());
+    }
+
+}
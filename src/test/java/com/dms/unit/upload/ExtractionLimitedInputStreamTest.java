@@ -0,0 +1,57 @@
+package com.dms.unit.upload;
+
+import com.dms.exception.UploadSizeExceededException;
+import com.dms.upload.ExtractionLimitedInputStream;
+import com.dms.upload.LimitedInputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExtractionLimitedInputStreamTest {
+
+    private static final int GRACE_SIZE = 10 * 1024 * 1024;
+
+    @Test
+    void shouldCountExtractedBytes() throws IOException {
+        LimitedInputStream archive = readArchive(100);
+        ExtractionLimitedInputStream stream = new ExtractionLimitedInputStream(new ByteArrayInputStream(new byte[1000]), archive, 1000, 1);
+
+        assertThat(stream.readAllBytes()).hasSize(1000);
+        assertThat(stream.getCount()).isEqualTo(1000);
+    }
+
+    @Test
+    void shouldFailWhenMaximalSizeIsExceeded() throws IOException {
+        InputStream stream = new ExtractionLimitedInputStream(new ByteArrayInputStream(new byte[101]), readArchive(100), 100, 100);
+
+        assertThatThrownBy(stream::readAllBytes).isInstanceOf(UploadSizeExceededException.class)
+                                                .hasMessageContaining("maximal import size");
+    }
+
+    @Test
+    void shouldFailWhenMaximalRatioIsExceeded() throws IOException {
+        InputStream stream = new ExtractionLimitedInputStream(new ByteArrayInputStream(new byte[GRACE_SIZE + 1]), readArchive(1000), Long.MAX_VALUE, 100);
+
+        assertThatThrownBy(stream::readAllBytes).isInstanceOf(UploadSizeExceededException.class)
+                                                .hasMessageContaining("100 times");
+    }
+
+    @Test
+    void shouldNotCheckRatioOfSmallExtractedContent() throws IOException {
+        InputStream stream = new ExtractionLimitedInputStream(new ByteArrayInputStream(new byte[GRACE_SIZE]), readArchive(1000), Long.MAX_VALUE, 100);
+
+        assertThat(stream.readAllBytes()).hasSize(GRACE_SIZE);
+    }
+
+    private static LimitedInputStream readArchive(int size) throws IOException {
+        LimitedInputStream archive = new LimitedInputStream(new ByteArrayInputStream(new byte[size]), size);
+        archive.readAllBytes();
+        return archive;
+    }
+
+}
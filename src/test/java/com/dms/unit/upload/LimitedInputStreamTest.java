@@ -0,0 +1,42 @@
+package com.dms.unit.upload;
+
+import com.dms.exception.UploadSizeExceededException;
+import com.dms.upload.LimitedInputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LimitedInputStreamTest {
+
+    @Test
+    void shouldCountReadBytes() throws IOException {
+        LimitedInputStream stream = new LimitedInputStream(new ByteArrayInputStream(new byte[100]), 100);
+
+        assertThat(stream.read()).isZero();
+        assertThat(stream.readAllBytes()).hasSize(99);
+        assertThat(stream.read()).isEqualTo(-1);
+        assertThat(stream.getCount()).isEqualTo(100);
+    }
+
+    @Test
+    void shouldFailWhenLimitIsExceeded() {
+        InputStream stream = new LimitedInputStream(new ByteArrayInputStream(new byte[101]), 100);
+
+        assertThatThrownBy(stream::readAllBytes).isInstanceOf(UploadSizeExceededException.class);
+    }
+
+    @Test
+    void shouldCountSkippedBytes() throws IOException {
+        LimitedInputStream stream = new LimitedInputStream(new ByteArrayInputStream(new byte[100]), 50);
+
+        assertThat(stream.skip(50)).isEqualTo(50);
+        assertThat(stream.getCount()).isEqualTo(50);
+        assertThatThrownBy(stream::read).isInstanceOf(UploadSizeExceededException.class);
+    }
+
+}
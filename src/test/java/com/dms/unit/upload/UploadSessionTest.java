@@ -0,0 +1,222 @@
+package com.dms.unit.upload;
+
+import com.dms.exception.InvalidUploadException;
+import com.dms.exception.UploadNotFoundException;
+import com.dms.exception.UploadSizeExceededException;
+import com.dms.upload.UploadSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadSessionTest {
+
+    private static final int SIZE = 1_000_000;
+    private static final long MAX_CHUNK_SIZE = 256 * 1024;
+
+    @TempDir
+    private Path tempDirectory;
+
+    private byte[] content;
+    private UploadSession upload;
+
+    @BeforeEach
+    void setUp() throws IOException, NoSuchAlgorithmException {
+        content = new byte[SIZE];
+        new Random(42).nextBytes(content);
+
+        Path file = Files.createTempFile(tempDirectory, "upload-", ".tmp");
+        upload = new UploadSession(1L, null, "file.bin", null, "/", SIZE, file, MessageDigest.getInstance("SHA-256"), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        upload.discard();
+    }
+
+    @Test
+    void shouldHashChunksReceivedInOrder() throws Exception {
+        for (int offset = 0; offset < SIZE; offset += 100_000) {
+            writeChunk(offset, 100_000);
+        }
+
+        assertThat(upload.isComplete()).isTrue();
+        assertThat(upload.finish().digest()).isEqualTo(sha256(content));
+        assertThat(Files.readAllBytes(upload.getFile())).isEqualTo(content);
+    }
+
+    @Test
+    void shouldHashChunksReceivedOutOfOrder() throws Exception {
+        List<Integer> offsets = new ArrayList<>();
+        for (int offset = 0; offset < SIZE; offset += 100_000) {
+            offsets.add(offset);
+        }
+        Collections.shuffle(offsets, new Random(7));
+
+        for (int offset : offsets) {
+            writeChunk(offset, 100_000);
+        }
+
+        assertThat(upload.finish().digest()).isEqualTo(sha256(content));
+        assertThat(Files.readAllBytes(upload.getFile())).isEqualTo(content);
+    }
+
+    @Test
+    void shouldHashChunksReceivedInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int offset = 0; offset < SIZE; offset += 50_000) {
+                int chunkOffset = offset;
+                futures.add(executor.submit(() -> {
+                    writeChunk(chunkOffset, 50_000);
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(upload.finish().digest()).isEqualTo(sha256(content));
+    }
+
+    @Test
+    void shouldMergeReceivedRanges() throws IOException {
+        writeChunk(500_000, 100_000);
+        writeChunk(100_000, 100_000);
+        writeChunk(200_000, 50_000);
+
+        assertThat(upload.getReceivedSize()).isEqualTo(250_000);
+        assertThat(upload.getReceivedRanges()).containsExactly(new UploadSession.ByteRange(100_000, 150_000), new UploadSession.ByteRange(500_000, 100_000));
+        assertThat(upload.isComplete()).isFalse();
+    }
+
+    @Test
+    void shouldAcceptRepeatedAndOverlappingChunks() throws Exception {
+        writeChunk(0, 300_000);
+        writeChunk(0, 300_000);
+        writeChunk(200_000, 500_000);
+        writeChunk(600_000, 400_000);
+
+        assertThat(upload.getReceivedSize()).isEqualTo(SIZE);
+        assertThat(upload.getReceivedRanges()).containsExactly(new UploadSession.ByteRange(0, SIZE));
+        assertThat(upload.finish().digest()).isEqualTo(sha256(content));
+    }
+
+    @Test
+    void shouldNotOverwriteHashedBytesWithRepeatedChunk() throws Exception {
+        writeChunk(0, SIZE);
+
+        // a repeated chunk with different bytes can't change the already hashed content
+        upload.write(0, new ByteArrayInputStream(new byte[1000]), MAX_CHUNK_SIZE * 4);
+
+        assertThat(upload.finish().digest()).isEqualTo(sha256(content));
+        assertThat(Files.readAllBytes(upload.getFile())).isEqualTo(content);
+    }
+
+    @Test
+    void shouldKeepBytesWrittenBeforeStreamFailed() throws IOException {
+        // a multiple of the copy buffer, the bytes of a partially filled buffer are lost with the failure
+        InputStream failingStream = new SequenceInputStream(new ByteArrayInputStream(content, 0, 131_072), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        assertThatThrownBy(() -> upload.write(0, failingStream, MAX_CHUNK_SIZE)).isInstanceOf(IOException.class);
+
+        assertThat(upload.getReceivedRanges()).containsExactly(new UploadSession.ByteRange(0, 131_072));
+    }
+
+    @Test
+    void shouldNotAcceptChunkLargerThanMaxChunkSize() {
+        assertThatThrownBy(() -> upload.write(0, new ByteArrayInputStream(content, 0, (int) MAX_CHUNK_SIZE + 1), MAX_CHUNK_SIZE))
+            .isInstanceOf(UploadSizeExceededException.class);
+    }
+
+    @Test
+    void shouldNotAcceptChunkPastEndOfFile() {
+        assertThatThrownBy(() -> upload.write(SIZE - 10, new ByteArrayInputStream(content, 0, 20), MAX_CHUNK_SIZE))
+            .isInstanceOf(InvalidUploadException.class);
+        assertThatThrownBy(() -> upload.write(SIZE + 1, new ByteArrayInputStream(content, 0, 1), MAX_CHUNK_SIZE))
+            .isInstanceOf(InvalidUploadException.class);
+
+        assertThat(upload.getReceivedSize()).isZero();
+    }
+
+    @Test
+    void shouldNotFinishIncompleteUpload() throws IOException {
+        writeChunk(0, SIZE - 1);
+
+        assertThatThrownBy(() -> upload.finish()).isInstanceOf(InvalidUploadException.class);
+    }
+
+    @Test
+    void shouldNotAcceptChunksAfterFinish() throws IOException {
+        writeChunk(0, SIZE);
+        upload.finish();
+
+        assertThatThrownBy(() -> writeChunk(0, 100)).isInstanceOf(UploadNotFoundException.class);
+        assertThatThrownBy(() -> upload.finish()).isInstanceOf(UploadNotFoundException.class);
+    }
+
+    @Test
+    void shouldFinishEmptyUpload() throws Exception {
+        Path file = Files.createTempFile(tempDirectory, "upload-", ".tmp");
+        UploadSession emptyUpload = new UploadSession(1L, null, "empty.txt", null, "/", 0, file, MessageDigest.getInstance("SHA-256"), Duration.ofHours(1));
+
+        assertThat(emptyUpload.isComplete()).isTrue();
+        assertThat(emptyUpload.finish().digest()).isEqualTo(sha256(new byte[0]));
+    }
+
+    @Test
+    void shouldExpireAfterInactivity() {
+        assertThat(upload.isExpiredAt(LocalDateTime.now())).isFalse();
+        assertThat(upload.isExpiredAt(LocalDateTime.now().plusHours(2))).isTrue();
+    }
+
+    @Test
+    void shouldDeleteFileWhenDiscarded() throws IOException {
+        writeChunk(0, 100);
+
+        upload.discard();
+
+        assertThat(upload.getFile()).doesNotExist();
+    }
+
+    private void writeChunk(int offset, int length) throws IOException {
+        upload.write(offset, new ByteArrayInputStream(content, offset, length), MAX_CHUNK_SIZE * 4);
+    }
+
+    private static byte[] sha256(byte[] bytes) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(bytes);
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.dms.util;
 
+import com.dms.entity.User;
+import com.dms.service.AuthService;
 import org.springframework.security.oauth2.jwt.Jwt;
 
 import java.util.function.Consumer;
@@ -14,4 +16,13 @@ public class JwtManager {
                          .subject(email);
     }
 
+    public static Consumer<Jwt.Builder> createJwt(User user) {
+        return jwt -> jwt.header("alg", "RS256")
+                         .subject(user.getEmail())
+                         .claim(AuthService.ROLE_CLAIM, user.getRole().name())
+                         .claim(AuthService.ID_CLAIM, user.getId())
+                         .claim(AuthService.USER_ID_CLAIM, user.getUserId())
+                         .claim(AuthService.NAME_CLAIM, user.getName());
+    }
+
 }
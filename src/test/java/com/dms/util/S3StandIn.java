@@ -0,0 +1,164 @@
+package com.dms.util;
+
+import com.dms.storage.S3RequestSigner;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for an S3-compatible object storage (path-style addressing, single bucket).
+ * Objects are kept in memory and every request has to carry a valid Signature Version 4.
+ */
+public class S3StandIn implements AutoCloseable {
+
+    private static final Pattern AUTHORIZATION_PATTERN = Pattern.compile("AWS4-HMAC-SHA256 Credential=[^/]+/\\d{8}/[^/]+/s3/aws4_request, SignedHeaders=([^,]+), Signature=[0-9a-f]{64}");
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final HttpServer server;
+    private final String bucket;
+    private final S3RequestSigner signer;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    public S3StandIn(String bucket, String region, String accessKey, String secretKey) throws IOException {
+        this.bucket = bucket;
+        this.signer = new S3RequestSigner(region, accessKey, secretKey);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public Map<String, byte[]> getObjects() {
+        return objects;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getRawPath();
+            String bucketPrefix = "/" + bucket + "/";
+
+            if (!isSignatureValid(exchange)) {
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+
+            if (!path.startsWith(bucketPrefix)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String key = path.substring(bucketPrefix.length());
+
+            switch (method) {
+                case "PUT" -> {
+                    try (InputStream body = exchange.getRequestBody()) {
+                        objects.put(key, body.readAllBytes());
+                    }
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> sendObject(exchange, key);
+                case "HEAD" -> {
+                    byte[] object = objects.get(key);
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "DELETE" -> {
+                    objects.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private void sendObject(HttpExchange exchange, String key) throws IOException {
+        byte[] object = objects.get(key);
+
+        if (object == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+
+        if (range != null) {
+            Matcher matcher = RANGE_PATTERN.matcher(range);
+            if (!matcher.matches()) {
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            int start = Integer.parseInt(matcher.group(1));
+            int end = Math.min(Integer.parseInt(matcher.group(2)), object.length - 1);
+            object = Arrays.copyOfRange(object, start, end + 1);
+            status = 206;
+        }
+
+        exchange.sendResponseHeaders(status, object.length == 0 ? -1 : object.length);
+
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(object);
+        }
+    }
+
+    private boolean isSignatureValid(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String date = exchange.getRequestHeaders().getFirst(S3RequestSigner.DATE_HEADER);
+        String payloadHash = exchange.getRequestHeaders().getFirst(S3RequestSigner.CONTENT_HASH_HEADER);
+
+        if (authorization == null || date == null || payloadHash == null) {
+            return false;
+        }
+
+        Matcher matcher = AUTHORIZATION_PATTERN.matcher(authorization);
+        if (!matcher.matches()) {
+            return false;
+        }
+
+        // recompute the signature from the headers which were actually received
+        Map<String, String> headers = new HashMap<>();
+        List<String> signedHeaders = List.of(matcher.group(1).split(";"));
+        for (String header : signedHeaders) {
+            if (!List.of("host", S3RequestSigner.DATE_HEADER, S3RequestSigner.CONTENT_HASH_HEADER).contains(header)) {
+                headers.put(header, exchange.getRequestHeaders().getFirst(header));
+            }
+        }
+
+        URI uri = URI.create("http://" + exchange.getRequestHeaders().getFirst("Host") + exchange.getRequestURI().getRawPath());
+        Instant timestamp = Instant.from(DATE_TIME_FORMAT.parse(date));
+        Map<String, String> expectedHeaders = signer.sign(exchange.getRequestMethod(), uri, headers, payloadHash, timestamp);
+
+        return authorization.equals(expectedHeaders.get("authorization"));
+    }
+
+}